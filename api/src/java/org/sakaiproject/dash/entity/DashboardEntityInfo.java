@@ -24,6 +24,7 @@ package org.sakaiproject.dash.entity;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -207,6 +208,19 @@ public interface DashboardEntityInfo {
 	 */
 	public boolean isUserPermitted(String sakaiUserId, String entityReference,
 			String contextId);
+
+	/**
+	 * Determine which of several entities in one context a user has permission to 
+	 * access. The user's permission is evaluated once per realm rather than once per 
+	 * entity, so adding a new member's links costs little more for many items than 
+	 * for one.
+	 * @param sakaiUserId
+	 * @param entityReferences
+	 * @param contextId
+	 * @return the references of the entities the user may access
+	 */
+	public Set<String> getPermittedEntities(String sakaiUserId, List<String> entityReferences,
+			String contextId);
 	
 	/**
 	 * Determine the correct icon to use for a particular entity in the dashboard list 
@@ -222,4 +236,14 @@ public interface DashboardEntityInfo {
 	 * @return
 	 */
 	public List<String> getUsersWithAccess(String entityReference);
+
+	/**
+	 * Finds the users with access to each of several entities. Entities in the same 
+	 * realms are resolved together, so a batch of references from one site needs only 
+	 * a few permission queries. Lists in the result may be shared between references 
+	 * and must not be modified.
+	 * @param entityReferences
+	 * @return a map from entity reference to the sakai-ids of users with access
+	 */
+	public Map<String, List<String>> getUsersWithAccess(List<String> entityReferences);
 }
@@ -21,10 +21,12 @@
 
 package org.sakaiproject.dash.logic;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 
 import org.sakaiproject.dash.entity.DashboardEntityInfo;
@@ -117,6 +119,14 @@ public interface DashboardLogic {
 	 */
 	public void createCalendarLinks(CalendarItem calendarItem);
 
+	/**
+	 * Adds links to the CalendarItem for each of the given people who does not already 
+	 * have one. Used when access to many items has been resolved in one batch.
+	 * @param calendarItem
+	 * @param sakaiIds sakai-ids of the users with access to the item's entity
+	 */
+	public void createCalendarLinks(CalendarItem calendarItem, Collection<String> sakaiIds);
+
 	/**
 	 * Retrieves information about a context (i.e. a sakai site) and stores it as a
 	 * Context object.  Returns the Context object.
@@ -147,6 +157,14 @@ public interface DashboardLogic {
 	 */
 	public void createNewsLinks(NewsItem newsItem);
 
+	/**
+	 * Adds links to the NewsItem for each of the given people. Used when access to 
+	 * many items has been resolved in one batch.
+	 * @param newsItem
+	 * @param sakaiIds sakai-ids of the users with access to the item's entity
+	 */
+	public void createNewsLinks(NewsItem newsItem, Collection<String> sakaiIds);
+
 	/**
 	 * Creates and persists a RepeatingCalendarItem with specified attributes.  Returns the complete RepeatingCalendarItem object.
 	 * @param title
@@ -214,6 +232,13 @@ public interface DashboardLogic {
 	 */
 	public EventProcessor getEventProcessor(String eventIdentifier);
 
+	/**
+	 * Returns the identifiers of all event types that have a registered EventProcessor.
+	 * Events of any other type can be ignored without being looked up or queued.
+	 * @return an unmodifiable set of event identifiers
+	 */
+	public Set<String> getEventProcessorIdentifiers();
+
 	/**
 	 * @param entityReference
 	 * @param calendarTimeLabelKey
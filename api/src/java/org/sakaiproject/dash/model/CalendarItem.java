@@ -107,6 +107,28 @@ public class CalendarItem implements Serializable {
 		this.sequenceNumber = sequenceNumber;
 	}
 
+	public CalendarItem(CalendarItem other) {
+		super();
+		if(other.id != null) {
+			this.id = new Long(other.id.longValue());
+		}
+		this.title = other.title;
+		this.calendarTime = other.calendarTime;
+		this.calendarTimeLabelKey = other.calendarTimeLabelKey;
+		this.entityReference = other.entityReference;
+		if(other.context != null) {
+			this.context = new Context(other.context);
+		}
+		if(other.sourceType != null) {
+			this.sourceType = new SourceType(other.sourceType);
+		}
+		this.subtype = other.subtype;
+		if(other.repeatingCalendarItem != null) {
+			this.repeatingCalendarItem = new RepeatingCalendarItem(other.repeatingCalendarItem);
+		}
+		this.sequenceNumber = other.sequenceNumber;
+	}
+
 	/**
 	 * @return the id
 	 */
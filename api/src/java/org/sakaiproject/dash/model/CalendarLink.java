@@ -86,6 +86,18 @@ public class CalendarLink implements Serializable {
 		this.sticky = sticky;
 	}
 
+	public CalendarLink(CalendarLink other) {
+		super();
+		this.id = other.getId();
+		this.hidden = other.isHidden();
+		this.sticky = other.isSticky();
+		this.calendarItem = new CalendarItem(other.getCalendarItem());
+		this.context = this.calendarItem.getContext();
+		if(other.getPerson() != null) {
+			this.person = new Person(other.getPerson());
+		}
+	}
+
 	/**
 	 * @return the id
 	 */
@@ -0,0 +1,173 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2011 The Sakai Foundation
+ *
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.osedu.org/licenses/ECL-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+package org.sakaiproject.dash.model;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * EventLogEntry is one row of the dash_event table, a record of dashboard
+ * activity such as navigation, starring, hiding or viewing item details.
+ *
+ */
+public class EventLogEntry implements Serializable {
+
+	protected Date eventDate;
+	protected String event;
+	protected String itemRef;
+	protected String contextId;
+	protected String sessionId;
+	protected String eventCode;
+
+	/**
+	 *
+	 */
+	public EventLogEntry() {
+		super();
+	}
+
+	/**
+	 * @param eventDate
+	 * @param event
+	 * @param itemRef
+	 * @param contextId
+	 * @param sessionId
+	 * @param eventCode
+	 */
+	public EventLogEntry(Date eventDate, String event, String itemRef,
+			String contextId, String sessionId, String eventCode) {
+		super();
+		this.eventDate = eventDate;
+		this.event = event;
+		this.itemRef = itemRef;
+		this.contextId = contextId;
+		this.sessionId = sessionId;
+		this.eventCode = eventCode;
+	}
+
+	/**
+	 * @return the eventDate
+	 */
+	public Date getEventDate() {
+		return eventDate;
+	}
+
+	/**
+	 * @return the event
+	 */
+	public String getEvent() {
+		return event;
+	}
+
+	/**
+	 * @return the itemRef
+	 */
+	public String getItemRef() {
+		return itemRef;
+	}
+
+	/**
+	 * @return the contextId
+	 */
+	public String getContextId() {
+		return contextId;
+	}
+
+	/**
+	 * @return the sessionId
+	 */
+	public String getSessionId() {
+		return sessionId;
+	}
+
+	/**
+	 * @return the eventCode
+	 */
+	public String getEventCode() {
+		return eventCode;
+	}
+
+	/**
+	 * @param eventDate the eventDate to set
+	 */
+	public void setEventDate(Date eventDate) {
+		this.eventDate = eventDate;
+	}
+
+	/**
+	 * @param event the event to set
+	 */
+	public void setEvent(String event) {
+		this.event = event;
+	}
+
+	/**
+	 * @param itemRef the itemRef to set
+	 */
+	public void setItemRef(String itemRef) {
+		this.itemRef = itemRef;
+	}
+
+	/**
+	 * @param contextId the contextId to set
+	 */
+	public void setContextId(String contextId) {
+		this.contextId = contextId;
+	}
+
+	/**
+	 * @param sessionId the sessionId to set
+	 */
+	public void setSessionId(String sessionId) {
+		this.sessionId = sessionId;
+	}
+
+	/**
+	 * @param eventCode the eventCode to set
+	 */
+	public void setEventCode(String eventCode) {
+		this.eventCode = eventCode;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("EventLogEntry [eventDate=");
+		builder.append(eventDate);
+		builder.append(", event=");
+		builder.append(event);
+		builder.append(", itemRef=");
+		builder.append(itemRef);
+		builder.append(", contextId=");
+		builder.append(contextId);
+		builder.append(", sessionId=");
+		builder.append(sessionId);
+		builder.append(", eventCode=");
+		builder.append(eventCode);
+		builder.append("]");
+		return builder.toString();
+	}
+
+}
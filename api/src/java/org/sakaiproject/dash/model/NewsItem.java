@@ -110,8 +110,12 @@ public class NewsItem implements Serializable {
 		this.newsTime = other.newsTime;
 		this.newsTimeLabelKey = other.newsTimeLabelKey;
 		this.entityReference = other.entityReference;
-		this.context = new Context(other.context);
-		this.sourceType = new SourceType(other.sourceType);
+		if(other.context != null) {
+			this.context = new Context(other.context);
+		}
+		if(other.sourceType != null) {
+			this.sourceType = new SourceType(other.sourceType);
+		}
 		this.subtype = other.subtype;
 		this.itemCount = other.itemCount;
 		generateGroupingIdentifier();
@@ -86,7 +86,9 @@ public class NewsLink implements Serializable {
 		this.sticky = other.isSticky();
 		this.newsItem = new NewsItem(other.getNewsItem());
 		this.context = this.newsItem.getContext();
-		this.person = new Person(other.getPerson());
+		if(other.getPerson() != null) {
+			this.person = new Person(other.getPerson());
+		}
 	}
 
 	/**
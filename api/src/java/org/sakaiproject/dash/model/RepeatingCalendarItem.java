@@ -122,6 +122,34 @@ public class RepeatingCalendarItem implements Serializable {
 		this.subtype = subtype;
 	}
 
+	/**
+	 * Copy the fields of another repeating item. The list of instances is not copied.
+	 * @param other
+	 */
+	public RepeatingCalendarItem(RepeatingCalendarItem other) {
+		super();
+		if(other.id != null) {
+			this.id = new Long(other.id.longValue());
+		}
+		this.title = other.title;
+		this.firstTime = other.firstTime;
+		this.lastTime = other.lastTime;
+		this.calendarTimeLabelKey = other.calendarTimeLabelKey;
+		this.entityReference = other.entityReference;
+		this.subtype = other.subtype;
+		if(other.context != null) {
+			this.context = new Context(other.context);
+		}
+		if(other.sourceType != null) {
+			this.sourceType = new SourceType(other.sourceType);
+		}
+		this.frequency = other.frequency;
+		this.maxCount = other.maxCount;
+		if(other.exclusions != null) {
+			this.exclusions = new ArrayList<Integer>(other.exclusions);
+		}
+	}
+
 	/**
 	 * @return the id
 	 */
@@ -51,6 +51,22 @@ public interface DashboardCommonLogic extends DashboardLogic, DashboardUserLogic
 	public static final String EVENT_DASH_HIDE = "dash.hide.item";
 	public static final String EVENT_DASH_SHOW = "dash.show.item";
 	public static final String EVENT_DASH_HIDE_MOTD = "dash.hide.motd";
+
+	public static final String STAT_QUEUE_DEPTH = "queueDepth";
+	public static final String STAT_JOURNAL_DEPTH = "journalDepth";
+	public static final String STAT_ENQUEUED_EVENTS = "enqueuedEvents";
+	public static final String STAT_ENQUEUE_RATE = "enqueuedPerMinute";
+	public static final String STAT_SPILLED_EVENTS = "spilledEvents";
+	public static final String STAT_DROPPED_EVENTS = "droppedEvents";
+	public static final String STAT_COALESCED_EVENTS = "coalescedEvents";
+	public static final String STAT_OLDEST_EVENT_AGE = "oldestEventAgeMillis";
+	public static final String STAT_ACTIVITY_LOG_DEPTH = "activityLogDepth";
+	public static final String STAT_DROPPED_ACTIVITY = "droppedActivityRecords";
+	
+	public static final String STAT_ENTITY_CACHE_HITS = "entityCacheHits";
+	public static final String STAT_ENTITY_CACHE_MISSES = "entityCacheMisses";
+	public static final String STAT_ENTITY_CACHE_INVALIDATIONS = "entityCacheInvalidations";
+	public static final String STAT_ENTITY_CACHE_SIZE = "entityCacheSize";
 	
 	/**
 	 * 
@@ -117,4 +133,36 @@ public interface DashboardCommonLogic extends DashboardLogic, DashboardUserLogic
 	 * Synchronize the dashboard links table users with current site users
 	 */
 	public void syncDashboardUsersWithSiteUsers();
+	
+	/**
+	 * Rebuild the per-user news group summaries from the news links and items
+	 */
+	public void rebuildNewsGroups();
+	
+	/**
+	 * Get statistics about the event processing queues on this server, keyed by the
+	 * STAT_* names: queue depth, number of events in overflow journals, total events
+	 * queued, events queued per minute, events journaled and dropped because the queue 
+	 * was full, events merged into a later event for the same entity, the age in 
+	 * milliseconds of the oldest event waiting to be processed, and the number of
+	 * dashboard activity records waiting to be written or dropped because the 
+	 * activity log queue was full.
+	 * @return
+	 */
+	public Map<String, Long> getEventQueueStatistics();
+
+	/**
+	 * Discard any cached results of getEntityMapping() for an entity, in all locales. 
+	 * Called when an event indicates the entity may have changed.
+	 * @param entityReference
+	 */
+	public void removeCachedEntityMapping(String entityReference);
+	
+	/**
+	 * Get counters for the getEntityMapping() cache, keyed by the STAT_ENTITY_CACHE_* 
+	 * names: lookups answered from the cache, lookups that had to fetch the entity, 
+	 * entities discarded because of events, and the number of entities cached.
+	 * @return
+	 */
+	public Map<String, Long> getEntityMappingCacheStatistics();
 }
@@ -40,6 +40,24 @@ public interface DashboardConfig {
 	public static final String PROP_REMOVE_NEWS_ITEMS_WITH_NO_LINKS = "PROP_REMOVE_NEWS_ITEMS_WITH_NO_LINKS";
 	public static final String PROP_REMOVE_CALENDAR_ITEMS_WITH_NO_LINKS = "PROP_REMOVE_NEWS_ITEMS_WITH_NO_LINKS";
 	
+	// purge settings
+	/** Width of the id range removed by each delete statement (default 1000) */
+	public static final String PROP_PURGE_BATCH_SIZE = "PROP_PURGE_BATCH_SIZE";
+	/** Rows removed per second before purging pauses (default 2000, 0 is unlimited) */
+	public static final String PROP_PURGE_MAX_ROWS_PER_SECOND = "PROP_PURGE_MAX_ROWS_PER_SECOND";
+	/** Seconds a single purge run may take before stopping to resume later (default 20, 0 is unlimited) */
+	public static final String PROP_PURGE_MAX_SECONDS_PER_RUN = "PROP_PURGE_MAX_SECONDS_PER_RUN";
+	/** Where an unfinished purge resumes; maintained by the server */
+	public static final String PROP_PURGE_CHECKPOINT_CALENDAR_LINKS = "PROP_PURGE_CHECKPOINT_CALENDAR_LINKS";
+	public static final String PROP_PURGE_CHECKPOINT_CALENDAR_ITEMS = "PROP_PURGE_CHECKPOINT_CALENDAR_ITEMS";
+	public static final String PROP_PURGE_CHECKPOINT_NEWS_LINKS = "PROP_PURGE_CHECKPOINT_NEWS_LINKS";
+	public static final String PROP_PURGE_CHECKPOINT_NEWS_ITEMS = "PROP_PURGE_CHECKPOINT_NEWS_ITEMS";
+	
+	/** Set once the news group summary has been filled from the news links; maintained by the server */
+	public static final String PROP_NEWS_GROUPS_BUILT = "PROP_NEWS_GROUPS_BUILT";
+	/** Highest schema migration applied to the dashboard tables; maintained by the server */
+	public static final String PROP_SCHEMA_VERSION = "PROP_SCHEMA_VERSION";
+	
 	// horizon settings
 	public static final String PROP_DAYS_BETWEEN_HORIZ0N_UPDATES = "PROP_DAYS_BETWEEN_HORIZ0N_UPDATES";
 	public static final String PROP_WEEKS_TO_HORIZON = "PROP_WEEKS_TO_HORIZON";
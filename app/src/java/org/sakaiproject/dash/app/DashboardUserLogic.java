@@ -3,6 +3,7 @@
  */
 package org.sakaiproject.dash.app;
 
+import java.util.Date;
 import java.util.List;
 
 import org.sakaiproject.dash.model.CalendarLink;
@@ -35,6 +36,32 @@ public interface DashboardUserLogic {
 	 * @return
 	 */
 	public List<NewsLink> getCurrentNewsLinks(String sakaiUserId, String contextId);
+
+	/**
+	 * Returns the number of NewsLink objects that getCurrentNewsLinks() would return for 
+	 * the same parameters, counting each group of items as one.
+	 * @param sakaiUserId
+	 * @param contextId
+	 * @return
+	 */
+	public int countCurrentNewsLinks(String sakaiUserId, String contextId);
+
+	/**
+	 * Returns one page of the NewsLink objects that getCurrentNewsLinks() would return, in 
+	 * descending order by news time and item id. Pages may be requested by offset from the 
+	 * start of the list, or by key: if afterTime is not null, the page begins immediately 
+	 * after the item with that news time and id, and offset is counted from that point. 
+	 * Group summaries have no item id and cannot be used as a key.
+	 * @param sakaiUserId
+	 * @param contextId
+	 * @param afterTime The news time of the last item on the previous page, or null.
+	 * @param afterId The id of the last item on the previous page.
+	 * @param offset The number of items to skip.
+	 * @param limit The maximum number of items to be returned.
+	 * @return
+	 */
+	public List<NewsLink> getCurrentNewsLinks(String sakaiUserId, String contextId, 
+			Date afterTime, long afterId, int offset, int limit);
 	
 	/**
 	 * Returns a list of CalendarLink objects linking a particular person to calendar items 
@@ -49,6 +76,33 @@ public interface DashboardUserLogic {
 	 */
 	public List<CalendarLink> getFutureCalendarLinks(String sakaiUserId, String contextId, boolean hidden);
 
+	/**
+	 * Returns the number of CalendarLink objects that getFutureCalendarLinks() would return 
+	 * for the same parameters.
+	 * @param sakaiUserId
+	 * @param contextId
+	 * @param hidden
+	 * @return
+	 */
+	public int countFutureCalendarLinks(String sakaiUserId, String contextId, boolean hidden);
+
+	/**
+	 * Returns one page of the CalendarLink objects that getFutureCalendarLinks() would return, 
+	 * in order by calendar time and link id. Pages may be requested by offset from the start 
+	 * of the list, or by key: if afterTime is not null, the page begins immediately after the 
+	 * link with that calendar time and id, and offset is counted from that point.
+	 * @param sakaiUserId
+	 * @param contextId
+	 * @param hidden
+	 * @param afterTime The calendar time of the last link on the previous page, or null.
+	 * @param afterId The id of the last link on the previous page.
+	 * @param offset The number of items to skip.
+	 * @param limit The maximum number of items to be returned.
+	 * @return
+	 */
+	public List<CalendarLink> getFutureCalendarLinks(String sakaiUserId, String contextId, boolean hidden, 
+			Date afterTime, long afterId, int offset, int limit);
+
 	/**
 	 * Returns a list of NewsLink objects which the specified person has permission to access and has hidden. 
 	 * If the contextId is not null, the results will be limited to the site indicated by that value. 
@@ -85,6 +139,33 @@ public interface DashboardUserLogic {
 	 */
 	public List<CalendarLink> getPastCalendarLinks(String sakaiUserId, String contextId, boolean hidden);
 
+	/**
+	 * Returns the number of CalendarLink objects that getPastCalendarLinks() would return 
+	 * for the same parameters.
+	 * @param sakaiUserId
+	 * @param contextId
+	 * @param hidden
+	 * @return
+	 */
+	public int countPastCalendarLinks(String sakaiUserId, String contextId, boolean hidden);
+
+	/**
+	 * Returns one page of the CalendarLink objects that getPastCalendarLinks() would return, 
+	 * in descending order by calendar time and link id. Pages may be requested by offset from 
+	 * the start of the list, or by key: if afterTime is not null, the page begins immediately 
+	 * after the link with that calendar time and id, and offset is counted from that point.
+	 * @param sakaiUserId
+	 * @param contextId
+	 * @param hidden
+	 * @param afterTime The calendar time of the last link on the previous page, or null.
+	 * @param afterId The id of the last link on the previous page.
+	 * @param offset The number of items to skip.
+	 * @param limit The maximum number of items to be returned.
+	 * @return
+	 */
+	public List<CalendarLink> getPastCalendarLinks(String sakaiUserId, String contextId, boolean hidden, 
+			Date afterTime, long afterId, int offset, int limit);
+
 	/**
 	 * Returns a list of CalendarLink objects linking a particular person to calendar items 
 	 * that the specified user has "starred". Results will be limited to a particular site if 
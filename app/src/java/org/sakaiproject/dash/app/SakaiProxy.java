@@ -23,7 +23,9 @@ package org.sakaiproject.dash.app;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Observer;
+import java.util.Set;
 
 import org.sakaiproject.announcement.api.AnnouncementService;
 import org.sakaiproject.assignment.api.AssignmentConstants;
@@ -84,8 +86,10 @@ public interface SakaiProxy {
 	
 	public static final String PERMIT_ANNOUNCEMENT_ACCESS = AnnouncementService.SECURE_ANNC_READ;
     public static final String PERMIT_ANNOUNCEMENT_ACCESS_DRAFT = AnnouncementService.SECURE_ANNC_READ_DRAFT;
+	public static final String PERMIT_ANNOUNCEMENT_ALL_GROUPS = AnnouncementService.SECURE_ANNC_ALL_GROUPS;
 	public static final String PERMIT_ASSIGNMENT_ACCESS = AssignmentService.SECURE_ACCESS_ASSIGNMENT;
 	public static final String PERMIT_ASSIGNMENT_SHARE_DRAFTS = AssignmentService.SECURE_SHARE_DRAFTS;
+	public static final String PERMIT_ASSIGNMENT_SUBMIT = AssignmentService.SECURE_ADD_ASSIGNMENT_SUBMISSION;
 	public static final String PERMIT_RESOURCE_ACCESS = ContentHostingService.AUTH_RESOURCE_READ;
 	public static final String PERMIT_RESOURCE_MAINTAIN_1 = ContentHostingService.AUTH_RESOURCE_HIDDEN;
 	public static final String PERMIT_RESOURCE_MAINTAIN_2 = ContentHostingService.AUTH_RESOURCE_WRITE_ANY;
@@ -123,6 +127,14 @@ public interface SakaiProxy {
 	 */
 	public String getConfigParam(String param, String dflt);
 	
+	/**
+	 * Get a configuration parameter as an int
+	 * 
+	 * @param	dflt the default value if the param is not set
+	 * @return
+	 */
+	public int getConfigParam(String param, int dflt);
+	
 	/**
 	 * Retrieve the URL for an icon that represents items of a particular content-type (or mimetype).
 	 * @param contenttype
@@ -222,6 +234,14 @@ public interface SakaiProxy {
 
 	public User getUser(String sakaiId);
 	
+	/**
+	 * Retrieve the users with the given ids in one call. Ids that do not 
+	 * identify a user are left out of the result.
+	 * @param sakaiIds
+	 * @return
+	 */
+	public List<User> getUsers(Collection<String> sakaiIds);
+	
 	public boolean isWorksite(String siteId);
 
 	/**
@@ -237,6 +257,20 @@ public interface SakaiProxy {
 	public boolean isUserPermitted(String sakaiUserId,
 			String accessPermission, String entityReference);
 
+	/**
+	 * Determine which of several sakai entities a user has a permission for. The 
+	 * permission is evaluated once for all of the realms the entities belong to, so 
+	 * the cost does not grow with the number of entities in the same realms. Super users 
+	 * are permitted everything. Security advisors are not consulted, so the answer does 
+	 * not depend on the advisors the calling thread has pushed. 
+	 * @param sakaiUserId
+	 * @param accessPermission
+	 * @param entityReferences
+	 * @return the references of the entities the user has the permission for
+	 */
+	public Set<String> getPermittedReferences(String sakaiUserId,
+			String accessPermission, Collection<String> entityReferences);
+
 	public String getTargetForMimetype(String mimetype);
 	
 	/**
@@ -271,6 +305,17 @@ public interface SakaiProxy {
 	 */
 	public Collection<String> getAuthorizedUsers(String permission, String entityReference);
 
+	/**
+	 * Access the sakai-ids of users who have the specified permission with respect to 
+	 * each of several entities. References whose entities belong to the same realms are 
+	 * resolved with one permission query, and share the same unmodifiable sorted list 
+	 * in the result. 
+	 * @param permission
+	 * @param entityReferences
+	 * @return a map from entity reference to the sakai-ids of users with the permission
+	 */
+	public Map<String, List<String>> getAuthorizedUsers(String permission, Collection<String> entityReferences);
+
 	/**
 	 * get the deep link of schedule event
 	 * @param eventRef
@@ -311,6 +356,11 @@ public interface SakaiProxy {
 	 * @return
 	 */
 	public String getServerId();
+	
+	/**
+	 * @return the path of the sakai home directory on this server.
+	 */
+	public String getSakaiHomePath();
 
 	public void registerFunction(String functionName);
 	
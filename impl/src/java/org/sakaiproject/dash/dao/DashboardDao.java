@@ -21,8 +21,10 @@
 
 package org.sakaiproject.dash.dao;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.HashMap;
@@ -32,6 +34,7 @@ import org.sakaiproject.dash.model.AvailabilityCheck;
 import org.sakaiproject.dash.model.CalendarItem;
 import org.sakaiproject.dash.model.CalendarLink;
 import org.sakaiproject.dash.model.Context;
+import org.sakaiproject.dash.model.EventLogEntry;
 import org.sakaiproject.dash.model.NewsItem;
 import org.sakaiproject.dash.model.NewsLink;
 import org.sakaiproject.dash.model.Person;
@@ -70,6 +73,14 @@ public interface DashboardDao {
 	 */
 	public int addCalendarLinks(List<CalendarLink> calendarLinks);
 	
+	/**
+	 * Save the instances of repeating events in a single batch. Each item must have its 
+	 * repeating event and sequence number set.
+	 * @param calendarItems
+	 * @return the number of items that were added.
+	 */
+	public int addCalendarItems(List<CalendarItem> calendarItems);
+	
 	/**
 	 * @param context
 	 * @return
@@ -100,6 +111,14 @@ public interface DashboardDao {
 	 * @return
 	 */
 	public boolean addPerson(Person person);
+	
+	/**
+	 * Add several people in one batch. People who already exist (for example because 
+	 * another server added them first) are skipped.
+	 * @param people
+	 * @return the number of people added
+	 */
+	public int addPeople(List<Person> people);
 		
 	/**
 	 * @param repeatingCalendarItem
@@ -134,6 +153,24 @@ public interface DashboardDao {
 	 */
 	public List<CalendarItem> getCalendarItems(RepeatingCalendarItem repeatingEvent);
 
+	/**
+	 * Retrieve the instances of a repeating event whose calendar time falls between 
+	 * beginDate and endDate (both inclusive).
+	 * @param repeatingEvent
+	 * @param beginDate
+	 * @param endDate
+	 * @return
+	 */
+	public List<CalendarItem> getCalendarItems(RepeatingCalendarItem repeatingEvent, Date beginDate, Date endDate);
+
+	/**
+	 * Retrieve the instances of a repeating event that have no sequence number or no 
+	 * calendar time, wherever they fall.
+	 * @param repeatingEvent
+	 * @return
+	 */
+	public List<CalendarItem> getUnsequencedCalendarItems(RepeatingCalendarItem repeatingEvent);
+
 	/**
 	 * @param entityReference
 	 * @return
@@ -180,6 +217,67 @@ public interface DashboardDao {
 	 */
 	public List<CalendarLink> getPastCalendarLinks(String sakaiUserId, String contextId, boolean hidden);
 
+	/**
+	 * Count the links that getFutureCalendarLinks() would return.
+	 * @param sakaiUserId
+	 * @param contextId
+	 * @param hidden
+	 * @return
+	 */
+	public int countFutureCalendarLinks(String sakaiUserId, String contextId, boolean hidden);
+
+	/**
+	 * Retrieve one page of the links that getFutureCalendarLinks() would return, ordered by 
+	 * calendar time and link id. If afterTime is not null, the page starts with the first link 
+	 * that follows the link with that calendar time and id (keyset paging), and offset is 
+	 * counted from there. Otherwise offset is counted from the start of the list.
+	 * @param sakaiUserId
+	 * @param contextId
+	 * @param hidden
+	 * @param afterTime
+	 * @param afterId
+	 * @param offset
+	 * @param limit
+	 * @return
+	 */
+	public List<CalendarLink> getFutureCalendarLinks(String sakaiUserId, String contextId, boolean hidden, 
+			Date afterTime, long afterId, int offset, int limit);
+
+	/**
+	 * Count the links that getPastCalendarLinks() would return.
+	 * @param sakaiUserId
+	 * @param contextId
+	 * @param hidden
+	 * @return
+	 */
+	public int countPastCalendarLinks(String sakaiUserId, String contextId, boolean hidden);
+
+	/**
+	 * Find the earliest calendar time after a given time among all of a user's calendar links, 
+	 * hidden or not. This is the next time at which one of the user's links moves into the past.
+	 * @param sakaiUserId
+	 * @param after
+	 * @return the time, or null if the user has no links after that time.
+	 */
+	public Date getNextCalendarLinkTime(String sakaiUserId, Date after);
+
+	/**
+	 * Retrieve one page of the links that getPastCalendarLinks() would return, in descending 
+	 * order by calendar time and link id. If afterTime is not null, the page starts with the 
+	 * first link that follows the link with that calendar time and id (keyset paging), and 
+	 * offset is counted from there. Otherwise offset is counted from the start of the list.
+	 * @param sakaiUserId
+	 * @param contextId
+	 * @param hidden
+	 * @param afterTime
+	 * @param afterId
+	 * @param offset
+	 * @param limit
+	 * @return
+	 */
+	public List<CalendarLink> getPastCalendarLinks(String sakaiUserId, String contextId, boolean hidden, 
+			Date afterTime, long afterId, int offset, int limit);
+
 	/**
 	 * 
 	 * @param sakaiUserId
@@ -206,6 +304,13 @@ public interface DashboardDao {
 	 */
 	public Person getPersonBySakaiId(String sakaiId);
 
+	/**
+	 * Retrieve the people with the given sakai ids using as few queries as possible.
+	 * @param sakaiIds
+	 * @return a map from sakai id to Person, with no entry for ids that have no Person
+	 */
+	public Map<String, Person> getPeopleBySakaiIds(Collection<String> sakaiIds);
+
 	/**
 	 * @param entityReference
 	 * @return
@@ -231,6 +336,40 @@ public interface DashboardDao {
 	 */
 	public List<NewsLink> getCurrentNewsLinks(String sakaiId, String siteId);
 
+	/**
+	 * Count the links (including group summaries) that getCurrentNewsLinks() would return.
+	 * @param sakaiId
+	 * @param siteId
+	 * @return
+	 */
+	public int countCurrentNewsLinks(String sakaiId, String siteId);
+
+	/**
+	 * Rebuild the per-user news group summary that getCurrentNewsLinks() reads from the
+	 * news links and items, a range of people at a time. The summary is kept up to date as
+	 * links are added, hidden, removed and as items are revised, so this is only needed
+	 * after the tables have been changed by other means.
+	 * @return the number of summary rows written, or -1 if an error occurs.
+	 */
+	public int rebuildNewsGroups();
+
+	/**
+	 * Retrieve one page of the links that getCurrentNewsLinks() would return, in descending 
+	 * order by news time and item id. If afterTime is not null, the page starts with the first 
+	 * link that follows the news item with that time and id (keyset paging), and offset is 
+	 * counted from there. Group summaries have an item id of zero and should not be used as 
+	 * the key. Otherwise offset is counted from the start of the list.
+	 * @param sakaiId
+	 * @param siteId
+	 * @param afterTime
+	 * @param afterId
+	 * @param offset
+	 * @param limit
+	 * @return
+	 */
+	public List<NewsLink> getCurrentNewsLinks(String sakaiId, String siteId, 
+			Date afterTime, long afterId, int offset, int limit);
+
 	/**
 	 * @param sakaiId
 	 * @param siteId
@@ -280,6 +419,17 @@ public interface DashboardDao {
 	 */
 	public List<RepeatingCalendarItem> getRepeatingCalendarItems();
 
+	/**
+	 * Retrieve one page of the repeating events that may still need instances after the 
+	 * horizon, in order by id. Events whose last time is before the horizon, and events 
+	 * that already have all of their instances, are skipped.
+	 * @param horizon
+	 * @param afterId the id of the last repeating event in the previous page, or 0 for the first page
+	 * @param limit the maximum number of repeating events to return
+	 * @return
+	 */
+	public List<RepeatingCalendarItem> getRepeatingCalendarItems(Date horizon, long afterId, int limit);
+
 	/**
 	 * @param entityReference
 	 * @param calendarTimeLabelKey
@@ -321,6 +471,14 @@ public interface DashboardDao {
 	 */
 	public boolean deleteCalendarLink(Long personId, Long calendarItemId);
 
+	/**
+	 * Remove the links between each of a set of people and each of a set of calendar items.
+	 * @param personIds
+	 * @param calendarItemIds
+	 * @return the number of links removed.
+	 */
+	public int deleteCalendarLinks(Collection<Long> personIds, Collection<Long> calendarItemIds);
+
 	/**
 	 * Removes all CalendarLink objects referencing a CalendarItem with the id indicated, if it exists. 
 	 * @param id
@@ -355,6 +513,66 @@ public interface DashboardDao {
 	 */
 	public boolean deleteLinksByContext(String context, String type);
 
+	/**
+	 * Delete calendar or news links whose ids are in the range from firstId (inclusive) 
+	 * to lastId (exclusive) and which are attached to items prior to a specified time with 
+	 * the specified values for properties "starred" and "hidden".
+	 * @param type TYPE_NEWS or TYPE_CALENDAR
+	 * @param expireBefore
+	 * @param starred
+	 * @param hidden
+	 * @param firstId
+	 * @param lastId
+	 * @return the number of links removed, or -1 if an error occurs.
+	 */
+	public int deleteLinksBefore(String type, Date expireBefore, boolean starred, boolean hidden, long firstId, long lastId);
+	
+	/**
+	 * Delete calendar or news items whose ids are in the range from firstId (inclusive) 
+	 * to lastId (exclusive) and for which no links exist.
+	 * @param type TYPE_NEWS or TYPE_CALENDAR
+	 * @param firstId
+	 * @param lastId
+	 * @return the number of items removed, or -1 if an error occurs.
+	 */
+	public int deleteItemsWithoutLinks(String type, long firstId, long lastId);
+	
+	/**
+	 * Find the lowest calendar or news link id that is greater than or equal to fromId.
+	 * @param type TYPE_NEWS or TYPE_CALENDAR
+	 * @param fromId
+	 * @return the id, or null if there are no such links.
+	 */
+	public Long getNextLinkId(String type, long fromId);
+	
+	/**
+	 * Find the lowest calendar or news item id that is greater than or equal to fromId.
+	 * @param type TYPE_NEWS or TYPE_CALENDAR
+	 * @param fromId
+	 * @return the id, or null if there are no such items.
+	 */
+	public Long getNextItemId(String type, long fromId);
+	
+	/**
+	 * Add weekly partitions to a time-partitioned calendar or news link table until links 
+	 * up to the specified time fall in a partition of their own. Does nothing unless the 
+	 * table is partitioned (dashboard_partitionLinks).
+	 * @param type TYPE_NEWS or TYPE_CALENDAR
+	 * @param through
+	 * @return the number of partitions added, or -1 if an error occurs.
+	 */
+	public int addLinkPartitions(String type, Date through);
+	
+	/**
+	 * Drop the partitions of a time-partitioned calendar or news link table that hold only
+	 * links to items prior to a specified time, none of them starred. Does nothing unless 
+	 * the table is partitioned (dashboard_partitionLinks).
+	 * @param type TYPE_NEWS or TYPE_CALENDAR
+	 * @param expireBefore
+	 * @return the number of partitions dropped, or -1 if an error occurs.
+	 */
+	public int dropExpiredLinkPartitions(String type, Date expireBefore);
+
 	/**
 	 * Removes the NewsItem with the id indicated, if it exists. 
 	 * @param id
@@ -375,6 +593,14 @@ public interface DashboardDao {
 	 */
 	public boolean deleteNewsLink(Long personId, Long newsItemId);
 
+	/**
+	 * Remove the links between each of a set of people and each of a set of news items.
+	 * @param personIds
+	 * @param newsItemIds
+	 * @return the number of links removed.
+	 */
+	public int deleteNewsLinks(Collection<Long> personIds, Collection<Long> newsItemIds);
+
 	/**
 	 * Removes all NewsLink objects referencing a NewsItem with the id indicated, if it exists. 
 	 * @param id
@@ -414,6 +640,13 @@ public interface DashboardDao {
 	public boolean addEvent(Date eventDate, String event, String itemRef,
 			String contextId, String sessionId, String eventCode);
 
+	/**
+	 * Add a batch of records to the dashboard event log.
+	 * @param entries
+	 * @return the number of records added.
+	 */
+	public int addEvents(List<EventLogEntry> entries);
+
 	/**
 	 * 
 	 * @param calendarItem
@@ -565,6 +798,12 @@ public interface DashboardDao {
 	 */
 	public Integer getConfigProperty(String propertyName);
 
+	/**
+	 * @return a map from property name to value for every row in dash_config, 
+	 * 	or null if the table could not be read.
+	 */
+	public Map<String, Integer> getConfigProperties();
+
 	/**
 	 * @param propertyName
 	 * @param propertyValue
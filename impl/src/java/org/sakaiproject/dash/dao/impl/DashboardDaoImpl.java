@@ -22,33 +22,52 @@
 package org.sakaiproject.dash.dao.impl;
 
 import java.net.URL;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.Element;
 
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.configuration.reloading.InvariantReloadingStrategy;
 import org.apache.log4j.Logger;
 import org.sakaiproject.component.api.ServerConfigurationService;
+import org.sakaiproject.dash.app.DashboardConfig;
 import org.sakaiproject.dash.dao.DashboardDao;
 import org.sakaiproject.dash.dao.mapper.AvailabilityCheckMapper;
+import org.sakaiproject.dash.dao.mapper.CalendarItemListMapper;
 import org.sakaiproject.dash.dao.mapper.CalendarItemMapper;
+import org.sakaiproject.dash.dao.mapper.CalendarLinkIdMapper;
 import org.sakaiproject.dash.dao.mapper.CalendarLinkMapper;
 import org.sakaiproject.dash.dao.mapper.ContextMapper;
+import org.sakaiproject.dash.dao.mapper.NewsItemListMapper;
 import org.sakaiproject.dash.dao.mapper.NewsItemMapper;
+import org.sakaiproject.dash.dao.mapper.NewsLinkIdMapper;
+import org.sakaiproject.dash.dao.mapper.NewsLinkListMapper;
 import org.sakaiproject.dash.dao.mapper.NewsLinkMapper;
 import org.sakaiproject.dash.dao.mapper.PersonMapper;
 import org.sakaiproject.dash.dao.mapper.RepeatingCalendarItemMapper;
@@ -61,19 +80,27 @@ import org.sakaiproject.dash.model.AvailabilityCheck;
 import org.sakaiproject.dash.model.CalendarItem;
 import org.sakaiproject.dash.model.CalendarLink;
 import org.sakaiproject.dash.model.Context;
+import org.sakaiproject.dash.model.EventLogEntry;
 import org.sakaiproject.dash.model.NewsItem;
 import org.sakaiproject.dash.model.NewsLink;
 import org.sakaiproject.dash.model.Person;
 import org.sakaiproject.dash.model.RepeatingCalendarItem;
 import org.sakaiproject.dash.model.SourceType;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.support.JdbcDaoSupport;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Implementation of ProjectDao 
@@ -88,6 +115,21 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 	private static final int MAX_LENGTH_SUBTYPE_FIELD = 255;
 
 	private static final int ALWAYS_ACCESS_PERMISSION_SIZE = 1024;
+
+	// Oracle allows at most 1000 expressions in an IN list
+	protected static final int MAX_IN_CLAUSE_SIZE = 500;
+
+	// number of people whose news group summaries are rebuilt by each pair of statements
+	protected static final int NEWS_GROUP_REBUILD_BATCH_SIZE = 1000;
+
+	// times a refresh of news group summaries is tried when it collides with another one
+	protected static final int NEWS_GROUP_REFRESH_ATTEMPTS = 3;
+
+	// highest migrate.schema.N statement in the vendor properties files
+	public static final int SCHEMA_VERSION = 4;
+
+	// days of links held by each partition of a partitioned link table
+	protected static final int LINK_PARTITION_DAYS = 7;
 	
 	protected ServerConfigurationService serverConfigurationService;
 	public void setServerConfigurationService(ServerConfigurationService serverConfigurationService) {
@@ -98,6 +140,57 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 
 	protected String databaseVendor;
 	
+	public static final String PROP_PERSON_CACHE_SIZE = "dashboard_personCacheSize";
+	public static final String PROP_PERSON_CACHE_WARMUP = "dashboard_personCacheWarmup";
+	public static final int DEFAULT_PERSON_CACHE_SIZE = 10000;
+	public static final String PROP_PARTITION_LINKS = "dashboard_partitionLinks";
+	
+	/**
+	 * TYPE_CALENDAR and/or TYPE_NEWS if their link tables are partitioned by time, which 
+	 * is only done for MySQL and Oracle when dashboard_partitionLinks is true. Filled in 
+	 * by init().
+	 */
+	protected Set<String> partitionedLinkTypes = new HashSet<String>();
+	
+	/**
+	 * Least-recently-used cache of DASH_PERSON rows keyed by sakai id. A person's id 
+	 * never changes once the row exists and rows are never deleted, so entries only 
+	 * come from rows read back from the database and are never invalidated. Absent 
+	 * people are not cached, since another server may add them at any time. 
+	 * Null if the cache is disabled.
+	 */
+	protected Map<String, Person> personCache = null;
+	
+	/**
+	 * Calendar and news items keyed by id, used by the link lists of every user. The 
+	 * link list queries return only link ids, item ids and flags, and the items are 
+	 * filled in from these caches. The caches hold their own copies and hand out copies. 
+	 * Items are removed by the update and delete methods below. Null if not configured.
+	 */
+	protected Cache calendarItemCache;
+	public void setCalendarItemCache(Cache calendarItemCache) {
+		this.calendarItemCache = calendarItemCache;
+	}
+	
+	protected Cache newsItemCache;
+	public void setNewsItemCache(Cache newsItemCache) {
+		this.newsItemCache = newsItemCache;
+	}
+	
+	/**
+	 * Runs the delete and reinsert of news group summaries as one unit. It is nested, so 
+	 * inside a caller's transaction it rolls back to a savepoint rather than ending the 
+	 * caller's transaction. Created on first use from the JdbcTemplate's DataSource.
+	 */
+	private TransactionTemplate newsGroupTransactionTemplate;
+	protected synchronized TransactionTemplate getNewsGroupTransactionTemplate() {
+		if(newsGroupTransactionTemplate == null) {
+			newsGroupTransactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(getJdbcTemplate().getDataSource()));
+			newsGroupTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+		}
+		return newsGroupTransactionTemplate;
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#addAvailabilityCheck(org.sakaiproject.dash.model.AvailabilityCheck)
 	 */
@@ -191,10 +284,14 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		//  person_id, item_id, context_id, realm_id
 		
 		try {
-			getJdbcTemplate().update(getStatement("insert.CalendarLink"),
-				new Object[]{calendarLink.getPerson().getId(), calendarLink.getCalendarItem().getId(), 
-						calendarLink.getContext().getId(), calendarLink.isHidden(), calendarLink.isSticky()}
-			);
+			Object[] params = new Object[]{calendarLink.getPerson().getId(), calendarLink.getCalendarItem().getId(), 
+					calendarLink.getContext().getId(), calendarLink.isHidden(), calendarLink.isSticky(),
+					calendarLink.getCalendarItem().getCalendarTime()};
+			if(isLinkUniquenessChecked(DashboardLogic.TYPE_CALENDAR)) {
+				return getJdbcTemplate().update(getStatement("insert.CalendarLink.partitioned"), 
+						appendLinkKeyParams(params, calendarLink.getPerson().getId(), calendarLink.getContext().getId(), calendarLink.getCalendarItem().getId())) > 0;
+			}
+			getJdbcTemplate().update(getStatement("insert.CalendarLink"), params);
 			return true;
 		} catch (DataIntegrityViolationException e) {
 			// this means we're trying to insert a duplicate
@@ -217,7 +314,8 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		//  person_id, item_id, context_id, realm_id
 		int count = 0;
 		try {
-			String sql = getStatement("insert.CalendarLink");
+			final boolean checkUniqueness = isLinkUniquenessChecked(DashboardLogic.TYPE_CALENDAR);
+			String sql = getStatement(checkUniqueness ? "insert.CalendarLink.partitioned" : "insert.CalendarLink");
 			int[] updates = getJdbcTemplate().batchUpdate(sql, new BatchPreparedStatementSetter(){
 
 				@Override
@@ -229,6 +327,12 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 					ps.setLong(3, calendarLink.getContext().getId());
 					ps.setBoolean(4, calendarLink.isHidden());
 					ps.setBoolean(5, calendarLink.isSticky());
+					ps.setTimestamp(6, getTimestamp(calendarLink.getCalendarItem().getCalendarTime()));
+					if(checkUniqueness) {
+						ps.setLong(7, calendarLink.getPerson().getId());
+						ps.setLong(8, calendarLink.getContext().getId());
+						ps.setLong(9, calendarLink.getCalendarItem().getId());
+					}
 				}
 
 				@Override
@@ -251,6 +355,61 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		return count;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#addCalendarItems(java.util.List)
+	 */
+	public int addCalendarItems(final List<CalendarItem> calendarItems) {
+		if(log.isDebugEnabled()) {
+			log.debug("addCalendarItems( " + calendarItems.size() + ")");
+		}
+		
+		// calendar_time, title , entity_url, entity_ref, source_type, context_id, repeating_event_id, sequence_num
+		int count = 0;
+		try {
+			String sql = getStatement("insert.CalendarItem.repeats");
+			int[] updates = getJdbcTemplate().batchUpdate(sql, new BatchPreparedStatementSetter(){
+
+				@Override
+				public void setValues(PreparedStatement ps, int i)
+						throws SQLException {
+					CalendarItem calendarItem = calendarItems.get(i);
+					String subtype = calendarItem.getSubtype();
+					// DASH-191
+					if(subtype != null && subtype.length() > MAX_LENGTH_SUBTYPE_FIELD) {
+						subtype = subtype.substring(0, MAX_LENGTH_SUBTYPE_FIELD - 1);
+					}
+					ps.setTimestamp(1, getTimestamp(calendarItem.getCalendarTime()));
+					ps.setString(2, calendarItem.getCalendarTimeLabelKey());
+					ps.setString(3, calendarItem.getTitle());
+					ps.setString(4, calendarItem.getEntityReference());
+					ps.setString(5, subtype);
+					ps.setLong(6, calendarItem.getSourceType().getId());
+					ps.setLong(7, calendarItem.getContext().getId());
+					ps.setLong(8, calendarItem.getRepeatingCalendarItem().getId());
+					ps.setInt(9, calendarItem.getSequenceNumber());
+				}
+
+				@Override
+				public int getBatchSize() {
+					return calendarItems.size();
+				}
+				
+			});
+			if(updates != null && updates.length > 0) {
+				for(int u : updates) {
+					// some drivers report Statement.SUCCESS_NO_INFO for batched rows
+					count += (u == Statement.SUCCESS_NO_INFO) ? 1 : u;
+				}
+			}
+		} catch (DataIntegrityViolationException e) {
+			// this means we're trying to insert a duplicate
+			log.debug("addCalendarItems() " + e);
+		} catch (DataAccessException ex) {
+           log.warn("addCalendarItems: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+		}
+		return count;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#addContext(org.sakaiproject.dash.model.Context)
 	 */
@@ -330,11 +489,21 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		//  person_id, item_id, context_id, realm_id
 		
 		try {
-			
-			getJdbcTemplate().update(getStatement("insert.NewsLink"),
-				new Object[]{newsLink.getPerson().getId(), newsLink.getNewsItem().getId(), 
-						newsLink.getContext().getId(), newsLink.isHidden(), newsLink.isSticky()}
-			);
+			Object[] params = new Object[]{newsLink.getPerson().getId(), newsLink.getNewsItem().getId(), 
+					newsLink.getContext().getId(), newsLink.isHidden(), newsLink.isSticky(),
+					newsLink.getNewsItem().getNewsTime()};
+			if(isLinkUniquenessChecked(DashboardLogic.TYPE_NEWS)) {
+				if(getJdbcTemplate().update(getStatement("insert.NewsLink.partitioned"), 
+						appendLinkKeyParams(params, newsLink.getPerson().getId(), newsLink.getContext().getId(), newsLink.getNewsItem().getId())) == 0) {
+					// a duplicate
+					return false;
+				}
+			} else {
+				getJdbcTemplate().update(getStatement("insert.NewsLink"), params);
+			}
+			if(! newsLink.isHidden()) {
+				refreshNewsGroups(newsLink.getPerson().getId(), getNewsGroupingIds(newsLink.getNewsItem().getId()));
+			}
 			return true;
 		} catch (DataIntegrityViolationException e) {
 			// this means we're trying to insert a duplicate
@@ -357,7 +526,8 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		//  person_id, item_id, context_id, realm_id
 		int count = 0;
 		try {
-			String sql = getStatement("insert.NewsLink");
+			final boolean checkUniqueness = isLinkUniquenessChecked(DashboardLogic.TYPE_NEWS);
+			String sql = getStatement(checkUniqueness ? "insert.NewsLink.partitioned" : "insert.NewsLink");
 			int[] updates = getJdbcTemplate().batchUpdate(sql, new BatchPreparedStatementSetter(){
 
 				@Override
@@ -369,6 +539,12 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 					ps.setLong(3, newsLink.getContext().getId());
 					ps.setBoolean(4, newsLink.isHidden());
 					ps.setBoolean(5, newsLink.isSticky());
+					ps.setTimestamp(6, getTimestamp(newsLink.getNewsItem().getNewsTime()));
+					if(checkUniqueness) {
+						ps.setLong(7, newsLink.getPerson().getId());
+						ps.setLong(8, newsLink.getContext().getId());
+						ps.setLong(9, newsLink.getNewsItem().getId());
+					}
 				}
 
 				@Override
@@ -388,6 +564,8 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		} catch (DataAccessException ex) {
            log.warn("addNewsLink: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
 		}
+		// some links may have been saved even if the batch failed part way
+		refreshNewsGroups(newsLinks);
 		return count;
 	}
 
@@ -416,6 +594,53 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		}
 	}
 	
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#addPeople(java.util.List)
+	 */
+	public int addPeople(final List<Person> people) {
+		if(log.isDebugEnabled()) {
+			log.debug("addPeople( " + people.size() + ")");
+		}
+		
+		//  user_id,sakai_id
+		int count = 0;
+		try {
+			int[] updates = getJdbcTemplate().batchUpdate(getStatement("insert.Person"), new BatchPreparedStatementSetter(){
+
+				@Override
+				public void setValues(PreparedStatement ps, int i)
+						throws SQLException {
+					Person person = people.get(i);
+					ps.setString(1, person.getUserId());
+					ps.setString(2, person.getSakaiId());
+				}
+
+				@Override
+				public int getBatchSize() {
+					return people.size();
+				}
+				
+			});
+			if(updates != null && updates.length > 0) {
+				for(int u : updates) {
+					count += u;
+				}
+			}
+		} catch (DataIntegrityViolationException e) {
+			// someone else added one of these people first; add the rest one at a time
+			log.debug("addPeople() " + e);
+			count = 0;
+			for(Person person : people) {
+				if(addPerson(person)) {
+					count++;
+				}
+			}
+		} catch (DataAccessException ex) {
+           log.warn("addPeople: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+		}
+		return count;
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#addRepeatingCalendarItem(org.sakaiproject.dash.model.RepeatingCalendarItem)
 	 */
@@ -566,6 +791,7 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			getJdbcTemplate().update(getStatement("delete.CalendarItem.by.id"),
 				new Object[]{id}
 			);
+			removeCachedItem(calendarItemCache, id);
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("deleteCalendarItem: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -600,6 +826,7 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			getJdbcTemplate().update(getStatement("delete.NewsItem.by.id"),
 				new Object[]{id}
 			);
+			removeCachedItem(newsItemCache, id);
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("deleteNewsItem: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -626,6 +853,22 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		}		
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#deleteCalendarLinks(java.util.Collection, java.util.Collection)
+	 */
+	public int deleteCalendarLinks(Collection<Long> personIds, Collection<Long> calendarItemIds) {
+		if(log.isDebugEnabled()) {
+			log.debug("deleteCalendarLinks(" + personIds.size() + "," + calendarItemIds.size() + ")");
+		}
+		
+		try {
+			return deleteLinks(getStatement("delete.CalendarLinks.by.personIds.itemIds"), personIds, calendarItemIds);
+		} catch (DataAccessException ex) {
+           log.warn("deleteCalendarLinks: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+           return 0;
+		}		
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#deleteCalendarLinks(java.lang.Long)
 	 */
@@ -703,6 +946,7 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			{
 				// remove news links
 				getJdbcTemplate().update(getStatement("delete.NewsLinks.by.context"), new Object[]{context});
+				getJdbcTemplate().update(getStatement("delete.NewsGroups.by.context"), new Object[]{context});
 			}
 			else
 			{
@@ -717,6 +961,288 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#deleteLinksBefore(java.lang.String, java.util.Date, boolean, boolean, long, long)
+	 */
+	public int deleteLinksBefore(String type, Date expireBefore, boolean starred, boolean hidden, long firstId, long lastId) {
+		if(log.isDebugEnabled()) {
+			log.debug("deleteLinksBefore(" + type + "," + expireBefore + "," + starred + "," + hidden + "," + firstId + "," + lastId + ")");
+		}
+		// a partitioned table is filtered on the link's own time so only the old partitions are read
+		boolean partitioned = partitionedLinkTypes.contains(type);
+		String sql = null;
+		if (DashboardLogic.TYPE_CALENDAR.equals(type)) {
+			sql = getStatement(partitioned ? "delete.CalendarLinks.by.calendarTime.starred.hidden.idRange" 
+					: "delete.CalendarLinks.by.item_calendarTime.starred.hidden.idRange");
+		} else if (DashboardLogic.TYPE_NEWS.equals(type)) {
+			sql = getStatement(partitioned ? "delete.NewsLinks.by.newsTime.starred.hidden.idRange" 
+					: "delete.NewsLinks.by.item_newsTime.starred.hidden.idRange");
+		} else {
+			log.error(this + " deleteLinksBefore: wrong type string " + type);
+			return -1;
+		}
+		try {
+			// hidden links are not part of the news group summaries
+			List<String> groupingIds = null;
+			if(DashboardLogic.TYPE_NEWS.equals(type) && ! hidden) {
+				groupingIds = getJdbcTemplate().queryForList(getStatement(partitioned ? "select.NewsLinks.groupingIds.by.newsTime.starred.idRange" 
+						: "select.NewsLinks.groupingIds.by.item_newsTime.starred.idRange"), 
+						new Object[]{firstId, lastId, expireBefore, new Boolean(starred)}, String.class);
+			}
+			int count = getJdbcTemplate().update(sql, 
+				new Object[]{firstId, lastId, expireBefore, new Boolean(starred), new Boolean(hidden)}
+			);
+			if(count > 0) {
+				refreshNewsGroups(null, groupingIds);
+			}
+			return count;
+		} catch (DataAccessException ex) {
+           log.warn("deleteLinksBefore: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+           return -1;
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#deleteItemsWithoutLinks(java.lang.String, long, long)
+	 */
+	public int deleteItemsWithoutLinks(String type, long firstId, long lastId) {
+		if(log.isDebugEnabled()) {
+			log.debug("deleteItemsWithoutLinks(" + type + "," + firstId + "," + lastId + ")");
+		}
+		String sql = null;
+		if (DashboardLogic.TYPE_CALENDAR.equals(type)) {
+			sql = getStatement("delete.CalendarItems.no.links.idRange");
+		} else if (DashboardLogic.TYPE_NEWS.equals(type)) {
+			sql = getStatement("delete.NewsItems.no.links.idRange");
+		} else {
+			log.error(this + " deleteItemsWithoutLinks: wrong type string " + type);
+			return -1;
+		}
+		try {
+			return getJdbcTemplate().update(sql, new Object[]{firstId, lastId});
+		} catch (DataAccessException ex) {
+           log.warn("deleteItemsWithoutLinks: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+           return -1;
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getNextLinkId(java.lang.String, long)
+	 */
+	public Long getNextLinkId(String type, long fromId) {
+		if (DashboardLogic.TYPE_CALENDAR.equals(type)) {
+			return getNextId(getStatement("select.CalendarLink.next.id"), fromId);
+		} else if (DashboardLogic.TYPE_NEWS.equals(type)) {
+			return getNextId(getStatement("select.NewsLink.next.id"), fromId);
+		}
+		log.error(this + " getNextLinkId: wrong type string " + type);
+		return null;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getNextItemId(java.lang.String, long)
+	 */
+	public Long getNextItemId(String type, long fromId) {
+		if (DashboardLogic.TYPE_CALENDAR.equals(type)) {
+			return getNextId(getStatement("select.CalendarItem.next.id"), fromId);
+		} else if (DashboardLogic.TYPE_NEWS.equals(type)) {
+			return getNextId(getStatement("select.NewsItem.next.id"), fromId);
+		}
+		log.error(this + " getNextItemId: wrong type string " + type);
+		return null;
+	}
+	
+	protected Long getNextId(String sql, long fromId) {
+		if(log.isDebugEnabled()) {
+			log.debug("getNextId(" + sql + "," + fromId + ")");
+		}
+		try {
+			return getJdbcTemplate().queryForObject(sql, new Object[]{fromId}, Long.class);
+		} catch (DataAccessException ex) {
+           log.warn("getNextId: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+           return null;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#addLinkPartitions(java.lang.String, java.util.Date)
+	 */
+	public int addLinkPartitions(String type, Date through) {
+		if(log.isDebugEnabled()) {
+			log.debug("addLinkPartitions(" + type + "," + through + ")");
+		}
+		if(! partitionedLinkTypes.contains(type)) {
+			return 0;
+		}
+		SortedMap<Date, String> partitions = getLinkPartitions(type);
+		if(partitions == null) {
+			return -1;
+		}
+		Calendar bound = Calendar.getInstance();
+		bound.setTime(partitions.isEmpty() ? getStartOfDay(new Date()) : partitions.lastKey());
+		int count = 0;
+		while(bound.getTime().before(through)) {
+			bound.add(Calendar.DATE, LINK_PARTITION_DAYS);
+			if(! executeSqlStatement("partition.add." + getLinkStatementName(type), 
+					getLinkPartitionName(bound.getTime()), getLinkPartitionBound(bound.getTime()))) {
+				return -1;
+			}
+			count++;
+		}
+		return count;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#dropExpiredLinkPartitions(java.lang.String, java.util.Date)
+	 */
+	public int dropExpiredLinkPartitions(String type, Date expireBefore) {
+		if(log.isDebugEnabled()) {
+			log.debug("dropExpiredLinkPartitions(" + type + "," + expireBefore + ")");
+		}
+		if(! partitionedLinkTypes.contains(type)) {
+			return 0;
+		}
+		SortedMap<Date, String> partitions = getLinkPartitions(type);
+		if(partitions == null) {
+			return -1;
+		}
+		String countSql = getStatement(DashboardLogic.TYPE_CALENDAR.equals(type) ? "count.starred.CalendarLinks.by.calendarTime.range" 
+				: "count.starred.NewsLinks.by.newsTime.range");
+		int count = 0;
+		// links older than the first bound are all in the first partition
+		Date lower = new Date(0L);
+		try {
+			for(Map.Entry<Date, String> partition : partitions.entrySet()) {
+				Date upper = partition.getKey();
+				if(upper.after(expireBefore)) {
+					break;
+				}
+				// starred links are kept however old they are, so a partition holding any stays
+				Integer starred = getJdbcTemplate().queryForObject(countSql, new Object[]{lower, upper}, Integer.class);
+				if(starred != null && starred.intValue() == 0) {
+					List<String> groupingIds = null;
+					if(DashboardLogic.TYPE_NEWS.equals(type)) {
+						groupingIds = getJdbcTemplate().queryForList(getStatement("select.NewsLinks.groupingIds.by.newsTime.range"), 
+								new Object[]{lower, upper}, String.class);
+					}
+					if(! executeSqlStatement("partition.drop." + getLinkStatementName(type), partition.getValue())) {
+						return -1;
+					}
+					refreshNewsGroups(null, groupingIds);
+					count++;
+				}
+				lower = upper;
+			}
+		} catch (DataAccessException ex) {
+           log.warn("dropExpiredLinkPartitions: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+           return -1;
+		}
+		return count;
+	}
+
+	/**
+	 * @param type
+	 * @return true if links of this type are inserted with the partitioned insert statement, 
+	 * which checks for an existing link for the same person, context and item because the 
+	 * vendor's partitioned unique key includes the link time and so no longer prevents one.
+	 */
+	protected boolean isLinkUniquenessChecked(String type) {
+		return partitionedLinkTypes.contains(type) 
+				&& statements.containsKey("insert." + getLinkStatementName(type) + ".partitioned");
+	}
+
+	/**
+	 * @param params the parameters of a link insert
+	 * @param personId
+	 * @param contextId
+	 * @param itemId
+	 * @return the parameters followed by the key of the link, for the partitioned insert statements
+	 */
+	protected Object[] appendLinkKeyParams(Object[] params, Long personId, Long contextId, Long itemId) {
+		Object[] checked = new Object[params.length + 3];
+		System.arraycopy(params, 0, checked, 0, params.length);
+		checked[params.length] = personId;
+		checked[params.length + 1] = contextId;
+		checked[params.length + 2] = itemId;
+		return checked;
+	}
+
+	/**
+	 * Partitions a link table that is not partitioned yet, with one partition for links
+	 * before today and one for the rest. Later partitions are added by addLinkPartitions().
+	 * @param type
+	 * @param autoddl true if the table may be converted
+	 */
+	protected void initLinkPartitions(String type, boolean autoddl) {
+		SortedMap<Date, String> partitions = getLinkPartitions(type);
+		if(partitions != null && partitions.isEmpty() && autoddl) {
+			// the partitions are keyed on the link time columns added in schema version 2
+			Integer version = getConfigProperty(DashboardConfig.PROP_SCHEMA_VERSION);
+			if(version != null && version.intValue() >= 2) {
+				Date bound = getStartOfDay(new Date());
+				log.info("initLinkPartitions() partitioning the " + type + " links");
+				executeSqlStatement("partition." + getLinkStatementName(type) + ".table", 
+						getLinkPartitionName(bound), getLinkPartitionBound(bound));
+				partitions = getLinkPartitions(type);
+			}
+		}
+		if(partitions != null && ! partitions.isEmpty()) {
+			partitionedLinkTypes.add(type);
+		} else {
+			log.warn("initLinkPartitions() the " + type + " links are not partitioned");
+		}
+	}
+
+	/**
+	 * @param type
+	 * @return the dated partitions of a link table keyed by the time that ends each one, 
+	 * empty if the table is not partitioned, or null if an error occurs.
+	 */
+	protected SortedMap<Date, String> getLinkPartitions(String type) {
+		SortedMap<Date, String> partitions = new TreeMap<Date, String>();
+		try {
+			List<String> names = getJdbcTemplate().queryForList(getStatement("select.Partitions.by.tableName"), 
+					new Object[]{DashboardLogic.TYPE_CALENDAR.equals(type) ? "dash_calendar_link" : "dash_news_link"}, String.class);
+			for(String name : names) {
+				if(name != null && name.matches("[pP][0-9]{8}")) {
+					SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd");
+					format.setLenient(false);
+					try {
+						partitions.put(format.parse(name.substring(1)), name);
+					} catch (ParseException e) {
+						log.debug("getLinkPartitions() " + e);
+					}
+				}
+			}
+		} catch (DataAccessException ex) {
+           log.warn("getLinkPartitions: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+           return null;
+		}
+		return partitions;
+	}
+
+	protected String getLinkStatementName(String type) {
+		return DashboardLogic.TYPE_CALENDAR.equals(type) ? "CalendarLink" : "NewsLink";
+	}
+
+	protected String getLinkPartitionName(Date bound) {
+		return "p" + new SimpleDateFormat("yyyyMMdd").format(bound);
+	}
+
+	protected String getLinkPartitionBound(Date bound) {
+		return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(bound);
+	}
+
+	protected Date getStartOfDay(Date date) {
+		Calendar cal = Calendar.getInstance();
+		cal.setTime(date);
+		cal.set(Calendar.HOUR_OF_DAY, 0);
+		cal.set(Calendar.MINUTE, 0);
+		cal.set(Calendar.SECOND, 0);
+		cal.set(Calendar.MILLISECOND, 0);
+		return cal.getTime();
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#deleteNewsItemsWithoutLinks()
 	 */
@@ -744,6 +1270,7 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			getJdbcTemplate().update(getStatement("delete.NewsLink.by.personId.itemId"),
 				new Object[]{personId, newsItemId}
 			);
+			refreshNewsGroups(personId, getNewsGroupingIds(newsItemId));
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("deleteNewsLinks: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -751,6 +1278,27 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		}		
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#deleteNewsLinks(java.util.Collection, java.util.Collection)
+	 */
+	public int deleteNewsLinks(Collection<Long> personIds, Collection<Long> newsItemIds) {
+		if(log.isDebugEnabled()) {
+			log.debug("deleteNewsLinks(" + personIds.size() + "," + newsItemIds.size() + ")");
+		}
+		
+		try {
+			int count = deleteLinks(getStatement("delete.NewsLinks.by.personIds.itemIds"), personIds, newsItemIds);
+			if(count > 0) {
+				Long personId = personIds.size() == 1 ? personIds.iterator().next() : null;
+				refreshNewsGroups(personId, getNewsGroupingIds(newsItemIds));
+			}
+			return count;
+		} catch (DataAccessException ex) {
+           log.warn("deleteNewsLinks: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+           return 0;
+		}		
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#deleteNewsLinks(java.lang.Long)
 	 */
@@ -763,6 +1311,7 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			getJdbcTemplate().update(getStatement("delete.NewsLinks.by.itemId"),
 				new Object[]{newsItemId}
 			);
+			refreshNewsGroups(null, getNewsGroupingIds(newsItemId));
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("deleteNewsLinks: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -782,6 +1331,9 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			getJdbcTemplate().update(getStatement("delete.NewsLinks.by.person.context"),
 				new Object[]{personId, contextId}
 			);
+			getJdbcTemplate().update(getStatement("delete.NewsGroups.by.personId.contextId"),
+				new Object[]{personId, contextId}
+			);
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("deleteCalendarLinks: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -797,9 +1349,15 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		log.info("deleteNewsLinksBefore( " + expireBefore + "," + starred + "," + hidden + ")");
 		
 		try {
+			List<String> groupingIds = null;
+			if(! hidden) {
+				groupingIds = getJdbcTemplate().queryForList(getStatement("select.NewsLinks.groupingIds.by.item_newsTime.starred"), 
+						new Object[]{expireBefore, new Boolean(starred)}, String.class);
+			}
 			getJdbcTemplate().update(getStatement("delete.NewsLinks.by.item_newsTime.starred.hidden"),
 				new Object[]{expireBefore, new Boolean(starred), new Boolean(hidden)}
 			);
+			refreshNewsGroups(null, groupingIds);
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("deleteNewsLinksBefore: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -887,6 +1445,25 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		}
 	}
 	
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getRepeatingCalendarItems(java.util.Date, long, int)
+	 */
+	public List<RepeatingCalendarItem> getRepeatingCalendarItems(Date horizon, long afterId, int limit) {
+		if(log.isDebugEnabled()) {
+			log.debug("getRepeatingCalendarItems(" + horizon + "," + afterId + "," + limit + ")");
+		}
+		String sql = getStatement("select.RepeatingEvents.after.horizon.paged");
+		Object[] params = appendPagingParams(new Object[]{horizon, afterId}, 0, limit);
+		try {
+			return (List<RepeatingCalendarItem>) getJdbcTemplate().query(sql, params,
+				new RepeatingCalendarItemMapper()
+			);
+		} catch (DataAccessException ex) {
+           log.warn("getRepeatingCalendarItems: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+           return new ArrayList<RepeatingCalendarItem>();
+		}
+	}
+	
 	public List<CalendarItem> getCalendarItems(RepeatingCalendarItem repeatingEvent) {
 		if(log.isDebugEnabled()) {
 			log.debug("getInstancesOfRepeatingEvents(" + repeatingEvent + ")");
@@ -909,18 +1486,58 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 
 
 	/* (non-Javadoc)
-	 * @see org.sakaiproject.dash.dao.DashboardDao#getSourceType(java.lang.String)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getCalendarItems(org.sakaiproject.dash.model.RepeatingCalendarItem, java.util.Date, java.util.Date)
 	 */
-	public SourceType getSourceType(String sourceTypeName) {
+	public List<CalendarItem> getCalendarItems(RepeatingCalendarItem repeatingEvent, Date beginDate, Date endDate) {
 		if(log.isDebugEnabled()) {
-			log.debug("getSourceType( " + sourceTypeName + ")");
+			log.debug("getCalendarItems(" + repeatingEvent + "," + beginDate + "," + endDate + ")");
 		}
+		String sql  = getStatement("select.CalendarItems.by.repeatingEvent.calendarTime");
+		Object[] params = new Object[]{repeatingEvent.getId(), beginDate, endDate};
 		
 		try {
-			return (SourceType) getJdbcTemplate().queryForObject(getStatement("select.SourceType.by.identifier"),
-				new Object[]{sourceTypeName},
-				new SourceTypeMapper()
-			);
+			return (List<CalendarItem>) getJdbcTemplate().query(sql,params,
+				new CalendarItemMapper()
+			);
+		} catch (DataAccessException ex) {
+           log.warn("getCalendarItems: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+           return new ArrayList<CalendarItem>();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getUnsequencedCalendarItems(org.sakaiproject.dash.model.RepeatingCalendarItem)
+	 */
+	public List<CalendarItem> getUnsequencedCalendarItems(RepeatingCalendarItem repeatingEvent) {
+		if(log.isDebugEnabled()) {
+			log.debug("getUnsequencedCalendarItems(" + repeatingEvent + ")");
+		}
+		String sql  = getStatement("select.CalendarItems.by.repeatingEvent.unsequenced");
+		Object[] params = new Object[]{repeatingEvent.getId()};
+		
+		try {
+			return (List<CalendarItem>) getJdbcTemplate().query(sql,params,
+				new CalendarItemMapper()
+			);
+		} catch (DataAccessException ex) {
+           log.warn("getUnsequencedCalendarItems: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+           return new ArrayList<CalendarItem>();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getSourceType(java.lang.String)
+	 */
+	public SourceType getSourceType(String sourceTypeName) {
+		if(log.isDebugEnabled()) {
+			log.debug("getSourceType( " + sourceTypeName + ")");
+		}
+		
+		try {
+			return (SourceType) getJdbcTemplate().queryForObject(getStatement("select.SourceType.by.identifier"),
+				new Object[]{sourceTypeName},
+				new SourceTypeMapper()
+			);
 		} catch (EmptyResultDataAccessException ex) {
 			log.debug("getSourceType: Empty result executing query: " + ex.getClass() + ":" + ex.getMessage());
 			return null;
@@ -1158,10 +1775,10 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		} 
 		
 		try {
-			return (List<CalendarLink>) getJdbcTemplate().query(sql,
+			return resolveCalendarItems(sakaiUserId, (List<CalendarLink>) getJdbcTemplate().query(sql,
 				params,
-				new CalendarLinkMapper()
-			);
+				new CalendarLinkIdMapper()
+			));
 		} catch (EmptyResultDataAccessException ex) {
 			log.debug("getFutureCalendarLinks: Empty result executing query: " + ex.getClass() + ":" + ex.getMessage());
 			return null;
@@ -1195,10 +1812,10 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		} 
 		
 		try {
-			return (List<CalendarLink>) getJdbcTemplate().query(sql,
+			return resolveCalendarItems(sakaiUserId, (List<CalendarLink>) getJdbcTemplate().query(sql,
 				params,
-				new CalendarLinkMapper()
-			);
+				new CalendarLinkIdMapper()
+			));
 		} catch (EmptyResultDataAccessException ex) {
 			log.debug("getPastCalendarLinks: Empty result executing query: " + ex.getClass() + ":" + ex.getMessage());
 			return null;
@@ -1208,6 +1825,140 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#countFutureCalendarLinks(java.lang.String, java.lang.String, boolean)
+	 */
+	public int countFutureCalendarLinks(String sakaiUserId, String contextId, boolean hidden) {
+		if(log.isDebugEnabled()) {
+			log.debug("countFutureCalendarLinks(" + sakaiUserId + "," + contextId + "," + hidden + ")");
+		}
+		if(sakaiUserId == null) {
+			log.warn("countFutureCalendarLinks() called with null sakaiUserId");
+			return 0;
+		}
+		if(contextId == null) {
+			return countLinks(getStatement("count.future.CalendarLinks.by.sakaiId.hidden"), 
+					new Object[]{sakaiUserId, Boolean.valueOf(hidden), getPreviousMidnight()});
+		}
+		return countLinks(getStatement("count.future.CalendarLinks.by.sakaiId.contextId.hidden"), 
+				new Object[]{sakaiUserId, contextId, Boolean.valueOf(hidden), getPreviousMidnight()});
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getFutureCalendarLinks(java.lang.String, java.lang.String, boolean, java.util.Date, long, int, int)
+	 */
+	public List<CalendarLink> getFutureCalendarLinks(String sakaiUserId, String contextId, boolean hidden, 
+			Date afterTime, long afterId, int offset, int limit) {
+		if(log.isDebugEnabled()) {
+			log.debug("getFutureCalendarLinks(" + sakaiUserId + "," + contextId + "," + hidden + "," + afterTime + "," + afterId + "," + offset + "," + limit + ")");
+		}
+		if(sakaiUserId == null) {
+			log.warn("getFutureCalendarLinks() called with null sakaiUserId");
+			return new ArrayList<CalendarLink>();
+		}
+		Date midnight = getPreviousMidnight();
+		if(afterTime == null) {
+			// nothing at midnight can follow Long.MAX_VALUE, so the key adds no constraint 
+			afterTime = midnight;
+			afterId = Long.MAX_VALUE;
+		}
+		String sql = null;
+		Object[] params = null;
+		if(contextId == null) {
+			sql = getStatement("select.future.CalendarLinks.by.sakaiId.hidden.paged");
+			params = new Object[]{sakaiUserId, Boolean.valueOf(hidden), midnight, afterTime, afterTime, afterId};
+		} else {
+			sql = getStatement("select.future.CalendarLinks.by.sakaiId.contextId.hidden.paged");
+			params = new Object[]{sakaiUserId, contextId, Boolean.valueOf(hidden), midnight, afterTime, afterTime, afterId};
+		}
+		try {
+			return resolveCalendarItems(sakaiUserId, (List<CalendarLink>) getJdbcTemplate().query(sql,
+				appendPagingParams(params, offset, limit),
+				new CalendarLinkIdMapper()
+			));
+		} catch (DataAccessException ex) {
+           log.warn("getFutureCalendarLinks: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+           return new ArrayList<CalendarLink>();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#countPastCalendarLinks(java.lang.String, java.lang.String, boolean)
+	 */
+	public int countPastCalendarLinks(String sakaiUserId, String contextId, boolean hidden) {
+		if(log.isDebugEnabled()) {
+			log.debug("countPastCalendarLinks(" + sakaiUserId + "," + contextId + "," + hidden + ")");
+		}
+		if(sakaiUserId == null) {
+			log.warn("countPastCalendarLinks() called with null sakaiUserId");
+			return 0;
+		}
+		if(contextId == null) {
+			return countLinks(getStatement("count.past.CalendarLinks.by.sakaiId.hidden"), 
+					new Object[]{sakaiUserId, Boolean.valueOf(hidden), new Date()});
+		}
+		return countLinks(getStatement("count.past.CalendarLinks.by.sakaiId.contextId.hidden"), 
+				new Object[]{sakaiUserId, contextId, Boolean.valueOf(hidden), new Date()});
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getNextCalendarLinkTime(java.lang.String, java.util.Date)
+	 */
+	public Date getNextCalendarLinkTime(String sakaiUserId, Date after) {
+		if(log.isDebugEnabled()) {
+			log.debug("getNextCalendarLinkTime(" + sakaiUserId + "," + after + ")");
+		}
+		if(sakaiUserId == null || after == null) {
+			log.warn("getNextCalendarLinkTime() called with null sakaiUserId or time");
+			return null;
+		}
+		try {
+			return getJdbcTemplate().queryForObject(getStatement("select.next.CalendarLink.time.by.sakaiId"), 
+					new Object[]{sakaiUserId, after}, Date.class);
+		} catch (DataAccessException ex) {
+           log.warn("getNextCalendarLinkTime: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+           return null;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getPastCalendarLinks(java.lang.String, java.lang.String, boolean, java.util.Date, long, int, int)
+	 */
+	public List<CalendarLink> getPastCalendarLinks(String sakaiUserId, String contextId, boolean hidden, 
+			Date afterTime, long afterId, int offset, int limit) {
+		if(log.isDebugEnabled()) {
+			log.debug("getPastCalendarLinks(" + sakaiUserId + "," + contextId + "," + hidden + "," + afterTime + "," + afterId + "," + offset + "," + limit + ")");
+		}
+		if(sakaiUserId == null) {
+			log.warn("getPastCalendarLinks() called with null sakaiUserId");
+			return new ArrayList<CalendarLink>();
+		}
+		Date now = new Date();
+		if(afterTime == null) {
+			// nothing at the current instant can follow Long.MIN_VALUE in descending order 
+			afterTime = now;
+			afterId = Long.MIN_VALUE;
+		}
+		String sql = null;
+		Object[] params = null;
+		if(contextId == null) {
+			sql = getStatement("select.past.CalendarLinks.by.sakaiId.hidden.paged");
+			params = new Object[]{sakaiUserId, Boolean.valueOf(hidden), now, afterTime, afterTime, afterId};
+		} else {
+			sql = getStatement("select.past.CalendarLinks.by.sakaiId.contextId.hidden.paged");
+			params = new Object[]{sakaiUserId, contextId, Boolean.valueOf(hidden), now, afterTime, afterTime, afterId};
+		}
+		try {
+			return resolveCalendarItems(sakaiUserId, (List<CalendarLink>) getJdbcTemplate().query(sql,
+				appendPagingParams(params, offset, limit),
+				new CalendarLinkIdMapper()
+			));
+		} catch (DataAccessException ex) {
+           log.warn("getPastCalendarLinks: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+           return new ArrayList<CalendarLink>();
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#getStarredCalendarLinks(java.lang.String, java.lang.String)
 	 */
@@ -1232,10 +1983,10 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		} 
 		
 		try {
-			return (List<CalendarLink>) getJdbcTemplate().query(sql,
+			return resolveCalendarItems(sakaiUserId, (List<CalendarLink>) getJdbcTemplate().query(sql,
 				params,
-				new CalendarLinkMapper()
-			);
+				new CalendarLinkIdMapper()
+			));
 		} catch (EmptyResultDataAccessException ex) {
 			log.debug("getStarredCalendarLinks: Empty result executing query: " + ex.getClass() + ":" + ex.getMessage());
 			return null;
@@ -1395,7 +2146,7 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
            return null;
 		}
 	}
-	
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#getCurrentNewsLinks(java.lang.String, java.lang.String)
 	 */
@@ -1404,22 +2155,17 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			log.debug("getCurrentNewsLinks(" + sakaiUserId + "," + contextId + ")");
 		}
 		
-		String sql = null;
-		Object[] params = null;
-		if(contextId == null) {
-			sql = getStatement("select.current.NewsLinks.by.sakaiUserId");
-			params = new Object[]{sakaiUserId, 2, sakaiUserId, 2, sakaiUserId};
-		} else {
-			sql = getStatement("select.current.NewsLinks.by.sakaiUserId.contextId");
-			// sakai-id context-id gr-count sakai-id gr-count sakai-id context-id 
-			params = new Object[]{sakaiUserId, contextId, 2, sakaiUserId, 2, sakaiUserId, contextId};
-			
+		Person person = getPersonBySakaiId(sakaiUserId);
+		if(person == null) {
+			return new ArrayList<NewsLink>();
 		}
+		String sql = getCurrentNewsLinksStatement(contextId);
+		Object[] params = getCurrentNewsLinksParams(person.getId(), contextId);
 		
 		try {
-			return (List<NewsLink>) getJdbcTemplate().query(sql,params,
-				new NewsLinkMapper()
-			);
+			return shareNewsItems(person, (List<NewsLink>) getJdbcTemplate().query(sql,params,
+				new NewsLinkListMapper()
+			));
 		} catch (EmptyResultDataAccessException ex) {
 			log.debug("getCurrentNewsLinks: Empty result executing query: " + ex.getClass() + ":" + ex.getMessage());
 	        return new ArrayList<NewsLink>();
@@ -1429,6 +2175,466 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#countCurrentNewsLinks(java.lang.String, java.lang.String)
+	 */
+	public int countCurrentNewsLinks(String sakaiUserId, String contextId) {
+		if(log.isDebugEnabled()) {
+			log.debug("countCurrentNewsLinks(" + sakaiUserId + "," + contextId + ")");
+		}
+		if(sakaiUserId == null) {
+			log.warn("countCurrentNewsLinks() called with null sakaiUserId");
+			return 0;
+		}
+		Person person = getPersonBySakaiId(sakaiUserId);
+		if(person == null) {
+			return 0;
+		}
+		return countLinks(String.format(getStatement("count.current.NewsLinks"), getCurrentNewsLinksUnion(contextId)), 
+				getCurrentNewsLinksParams(person.getId(), contextId));
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getCurrentNewsLinks(java.lang.String, java.lang.String, java.util.Date, long, int, int)
+	 */
+	public List<NewsLink> getCurrentNewsLinks(String sakaiUserId, String contextId, 
+			Date afterTime, long afterId, int offset, int limit) {
+		if(log.isDebugEnabled()) {
+			log.debug("getCurrentNewsLinks(" + sakaiUserId + "," + contextId + "," + afterTime + "," + afterId + "," + offset + "," + limit + ")");
+		}
+		if(sakaiUserId == null) {
+			log.warn("getCurrentNewsLinks() called with null sakaiUserId");
+			return new ArrayList<NewsLink>();
+		}
+		Person person = getPersonBySakaiId(sakaiUserId);
+		if(person == null) {
+			return new ArrayList<NewsLink>();
+		}
+		// the grouped and ungrouped links come from a union, so the page is cut from the combined list 
+		String sql = null;
+		Object[] params = getCurrentNewsLinksParams(person.getId(), contextId);
+		if(afterTime == null) {
+			sql = String.format(getStatement("select.current.NewsLinks.paged"), getCurrentNewsLinksUnion(contextId));
+		} else {
+			sql = String.format(getStatement("select.current.NewsLinks.paged.keyset"), getCurrentNewsLinksUnion(contextId));
+			Object[] keyParams = new Object[params.length + 3];
+			System.arraycopy(params, 0, keyParams, 0, params.length);
+			keyParams[params.length] = afterTime;
+			keyParams[params.length + 1] = afterTime;
+			keyParams[params.length + 2] = Long.valueOf(afterId);
+			params = keyParams;
+		}
+		try {
+			return shareNewsItems(person, (List<NewsLink>) getJdbcTemplate().query(sql,
+				appendPagingParams(params, offset, limit),
+				new NewsLinkListMapper()
+			));
+		} catch (DataAccessException ex) {
+           log.warn("getCurrentNewsLinks: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+           return new ArrayList<NewsLink>();
+		}
+	}
+
+	protected String getCurrentNewsLinksStatement(String contextId) {
+		if(contextId == null) {
+			return getStatement("select.current.NewsLinks.by.personId");
+		}
+		return getStatement("select.current.NewsLinks.by.personId.contextId");
+	}
+
+	/**
+	 * The current news links statement without its final "order by", so it can be used as a 
+	 * derived table by the paged and count statements (not every database allows ordering there).
+	 * @param contextId
+	 * @return
+	 */
+	protected String getCurrentNewsLinksUnion(String contextId) {
+		String sql = getCurrentNewsLinksStatement(contextId);
+		int pos = sql.toLowerCase().lastIndexOf(" order by ");
+		if(pos > sql.lastIndexOf(')')) {
+			sql = sql.substring(0, pos);
+		}
+		return sql;
+	}
+
+	protected Object[] getCurrentNewsLinksParams(Long personId, String contextId) {
+		if(contextId == null) {
+			return new Object[]{personId, 2, personId, 2};
+		}
+		// person-id gr-count context-id person-id gr-count context-id 
+		return new Object[]{personId, 2, contextId, personId, 2, contextId};
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#rebuildNewsGroups()
+	 */
+	public int rebuildNewsGroups() {
+		log.info("rebuildNewsGroups()");
+		
+		try {
+			Long maxPersonId = getJdbcTemplate().queryForObject(getStatement("select.Person.max.id"), Long.class);
+			int count = 0;
+			if(maxPersonId != null) {
+				String deleteSql = getStatement("delete.NewsGroups.by.personIdRange");
+				String insertSql = getStatement("insert.NewsGroups.by.personIdRange");
+				for(long firstId = 0; firstId <= maxPersonId.longValue(); firstId += NEWS_GROUP_REBUILD_BATCH_SIZE) {
+					Object[] params = new Object[]{firstId, firstId + NEWS_GROUP_REBUILD_BATCH_SIZE};
+					int written = replaceNewsGroups(deleteSql, insertSql, params);
+					if(written > 0) {
+						count += written;
+					}
+				}
+			}
+			log.info("rebuildNewsGroups() wrote " + count + " news group summaries");
+			return count;
+		} catch (DataAccessException ex) {
+           log.warn("rebuildNewsGroups: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+           return -1;
+		}
+	}
+
+	/**
+	 * Recompute the news group summaries (dash_news_group) for some groupings from the 
+	 * links and items. The count, latest time and representative link of a group can't 
+	 * be adjusted in place when a link goes away, so the rows are deleted and rebuilt 
+	 * (see replaceNewsGroups()). Groups with no visible links are left without a row. 
+	 * @param personId the person whose summaries change, or null for every person linked to the groupings
+	 * @param groupingIds
+	 */
+	protected void refreshNewsGroups(Long personId, Collection<String> groupingIds) {
+		if(groupingIds == null || groupingIds.isEmpty()) {
+			return;
+		}
+		if(log.isDebugEnabled()) {
+			log.debug("refreshNewsGroups(" + personId + "," + groupingIds.size() + ")");
+		}
+		String deleteSql = getStatement(personId == null ? "delete.NewsGroups.by.groupingIds" : "delete.NewsGroups.by.personId.groupingIds");
+		String insertSql = getStatement(personId == null ? "insert.NewsGroups.by.groupingIds" : "insert.NewsGroups.by.personId.groupingIds");
+		List<String> ids = new ArrayList<String>(groupingIds);
+		for(int i = 0; i < ids.size(); i += MAX_IN_CLAUSE_SIZE) {
+			List<String> chunk = ids.subList(i, Math.min(i + MAX_IN_CLAUSE_SIZE, ids.size()));
+			List<Object> params = new ArrayList<Object>();
+			if(personId != null) {
+				params.add(personId);
+			}
+			params.addAll(chunk);
+			String inClause = getInClause(chunk.size());
+			replaceNewsGroups(String.format(deleteSql, inClause), String.format(insertSql, inClause), params.toArray());
+		}
+	}
+
+	/**
+	 * Delete some news group summaries and insert them again from the links, in one 
+	 * transaction. If another refresh of the same groups commits rows in between, the 
+	 * insert fails (or the database picks one as a deadlock victim), and the pair is 
+	 * tried again, up to NEWS_GROUP_REFRESH_ATTEMPTS times.
+	 * @param deleteSql
+	 * @param insertSql
+	 * @param params the parameters of both statements
+	 * @return the number of summaries written, or -1 if they could not be replaced
+	 */
+	protected int replaceNewsGroups(final String deleteSql, final String insertSql, final Object[] params) {
+		for(int attempt = 1; attempt <= NEWS_GROUP_REFRESH_ATTEMPTS; attempt++) {
+			try {
+				Integer count = (Integer) getNewsGroupTransactionTemplate().execute(new TransactionCallback() {
+					public Object doInTransaction(TransactionStatus status) {
+						getJdbcTemplate().update(deleteSql, params);
+						return Integer.valueOf(getJdbcTemplate().update(insertSql, params));
+					}
+				});
+				return count.intValue();
+			} catch (DataIntegrityViolationException ex) {
+				log.warn("replaceNewsGroups: attempt " + attempt + " collided with another refresh: " + ex.getClass() + ":" + ex.getMessage());
+			} catch (ConcurrencyFailureException ex) {
+				log.warn("replaceNewsGroups: attempt " + attempt + " collided with another refresh: " + ex.getClass() + ":" + ex.getMessage());
+			} catch (DataAccessException ex) {
+	           log.warn("replaceNewsGroups: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+	           return -1;
+			}
+		}
+		log.warn("replaceNewsGroups: gave up after " + NEWS_GROUP_REFRESH_ATTEMPTS + " attempts");
+		return -1;
+	}
+
+	/**
+	 * Recompute the news group summaries affected by newly added links. A batch for a 
+	 * single person (a new site member) only touches that person's summaries; otherwise
+	 * (a new item for many members) the groupings are refreshed for everyone.
+	 * @param newsLinks
+	 */
+	protected void refreshNewsGroups(List<NewsLink> newsLinks) {
+		Set<Long> personIds = new HashSet<Long>();
+		Set<Long> itemIds = new HashSet<Long>();
+		for(NewsLink newsLink : newsLinks) {
+			if(! newsLink.isHidden()) {
+				personIds.add(newsLink.getPerson().getId());
+				itemIds.add(newsLink.getNewsItem().getId());
+			}
+		}
+		if(! itemIds.isEmpty()) {
+			refreshNewsGroups(personIds.size() == 1 ? personIds.iterator().next() : null, getNewsGroupingIds(itemIds));
+		}
+	}
+
+	/**
+	 * @param newsItemIds
+	 * @return the distinct grouping ids of the news items
+	 */
+	protected Set<String> getNewsGroupingIds(Collection<Long> newsItemIds) {
+		Set<String> groupingIds = new HashSet<String>();
+		List<Long> ids = new ArrayList<Long>(newsItemIds);
+		for(int i = 0; i < ids.size(); i += MAX_IN_CLAUSE_SIZE) {
+			List<Long> chunk = ids.subList(i, Math.min(i + MAX_IN_CLAUSE_SIZE, ids.size()));
+			try {
+				groupingIds.addAll(getJdbcTemplate().queryForList(
+						String.format(getStatement("select.NewsItem.groupingIds.by.ids"), getInClause(chunk.size())), 
+						chunk.toArray(), String.class));
+			} catch (DataAccessException ex) {
+	           log.warn("getNewsGroupingIds: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+			}
+		}
+		return groupingIds;
+	}
+
+	/**
+	 * @param newsItemId
+	 * @return the grouping id of the news item, or an empty set if it has none
+	 */
+	protected Set<String> getNewsGroupingIds(Long newsItemId) {
+		if(newsItemId == null) {
+			return new HashSet<String>();
+		}
+		return getNewsGroupingIds(Collections.singletonList(newsItemId));
+	}
+
+	/**
+	 * Fill in the calendar items of links read by one of the narrow link list queries.
+	 * Items come from the item cache where possible; the rest are read in one query per
+	 * chunk of ids and cached. Links whose item was deleted in the meantime are dropped.
+	 * @param sakaiUserId
+	 * @param links links whose calendar items carry only an id
+	 * @return
+	 */
+	protected List<CalendarLink> resolveCalendarItems(String sakaiUserId, List<CalendarLink> links) {
+		if(links == null || links.isEmpty()) {
+			return links;
+		}
+		Map<Long, CalendarItem> items = new HashMap<Long, CalendarItem>();
+		List<Long> ids = new ArrayList<Long>();
+		for(CalendarLink link : links) {
+			Long id = link.getCalendarItem().getId();
+			if(! items.containsKey(id)) {
+				CalendarItem item = (CalendarItem) getCachedItem(calendarItemCache, id);
+				items.put(id, item);
+				if(item == null) {
+					ids.add(id);
+				}
+			}
+		}
+		String sql = getStatement("select.CalendarItems.by.ids");
+		try {
+			for(int start = 0; start < ids.size(); start += MAX_IN_CLAUSE_SIZE) {
+				List<Long> chunk = ids.subList(start, Math.min(start + MAX_IN_CLAUSE_SIZE, ids.size()));
+				List<CalendarItem> rows = getJdbcTemplate().query(sql + getInClause(chunk.size()), chunk.toArray(), new CalendarItemListMapper());
+				for(CalendarItem item : rows) {
+					cacheItem(calendarItemCache, item.getId(), item);
+					items.put(item.getId(), item);
+				}
+			}
+		} catch (DataAccessException ex) {
+           log.warn("resolveCalendarItems: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+		}
+		Person person = getPersonBySakaiId(sakaiUserId);
+		List<CalendarLink> resolved = new ArrayList<CalendarLink>(links.size());
+		for(CalendarLink link : links) {
+			CalendarItem item = items.get(link.getCalendarItem().getId());
+			if(item != null) {
+				link.setCalendarItem(item);
+				link.setContext(item.getContext());
+				link.setPerson(person);
+				resolved.add(link);
+			}
+		}
+		return resolved;
+	}
+
+	/**
+	 * Fill in the news items of links read by one of the narrow link list queries.
+	 * Items come from the item cache where possible; the rest are read in one query per
+	 * chunk of ids and cached. Links whose item was deleted in the meantime are dropped.
+	 * @param sakaiUserId
+	 * @param links links whose news items carry only an id
+	 * @return
+	 */
+	protected List<NewsLink> resolveNewsItems(String sakaiUserId, List<NewsLink> links) {
+		if(links == null || links.isEmpty()) {
+			return links;
+		}
+		Map<Long, NewsItem> items = new HashMap<Long, NewsItem>();
+		List<Long> ids = new ArrayList<Long>();
+		for(NewsLink link : links) {
+			Long id = link.getNewsItem().getId();
+			if(! items.containsKey(id)) {
+				NewsItem item = (NewsItem) getCachedItem(newsItemCache, id);
+				items.put(id, item);
+				if(item == null) {
+					ids.add(id);
+				}
+			}
+		}
+		String sql = getStatement("select.NewsItems.by.ids");
+		try {
+			for(int start = 0; start < ids.size(); start += MAX_IN_CLAUSE_SIZE) {
+				List<Long> chunk = ids.subList(start, Math.min(start + MAX_IN_CLAUSE_SIZE, ids.size()));
+				List<NewsItem> rows = getJdbcTemplate().query(sql + getInClause(chunk.size()), chunk.toArray(), new NewsItemListMapper());
+				for(NewsItem item : rows) {
+					cacheItem(newsItemCache, item.getId(), item);
+					items.put(item.getId(), item);
+				}
+			}
+		} catch (DataAccessException ex) {
+           log.warn("resolveNewsItems: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+		}
+		Person person = getPersonBySakaiId(sakaiUserId);
+		List<NewsLink> resolved = new ArrayList<NewsLink>(links.size());
+		for(NewsLink link : links) {
+			NewsItem item = items.get(link.getNewsItem().getId());
+			if(item != null) {
+				link.setNewsItem(item);
+				link.setContext(item.getContext());
+				link.setPerson(person);
+				resolved.add(link);
+			}
+		}
+		return resolved;
+	}
+
+	/**
+	 * The current news links come from a union that also builds the group summary rows, 
+	 * so that query reads the items itself rather than only their ids. Swap in a copy of 
+	 * the cached item (or cache the one just read) so those lists agree with the others.
+	 * @param person the person whose links these are; the rows don't carry it
+	 * @param links
+	 * @return
+	 */
+	protected List<NewsLink> shareNewsItems(Person person, List<NewsLink> links) {
+		if(links == null) {
+			return links;
+		}
+		for(NewsLink link : links) {
+			link.setPerson(person);
+			NewsItem item = link.getNewsItem();
+			// group summary rows have id 0 and are not items
+			if(item == null || item.getId() == null || item.getId().longValue() <= 0L) {
+				continue;
+			}
+			NewsItem cached = (NewsItem) getCachedItem(newsItemCache, item.getId());
+			if(cached == null) {
+				cacheItem(newsItemCache, item.getId(), item);
+			} else {
+				link.setNewsItem(cached);
+				link.setContext(cached.getContext());
+			}
+		}
+		return links;
+	}
+
+	/**
+	 * Get a copy of a cached item, so changes a caller makes to it never reach the cache.
+	 * @param itemCache
+	 * @param id
+	 * @return the copy, or null if the item is not cached.
+	 */
+	protected Object getCachedItem(Cache itemCache, Long id) {
+		if(itemCache == null || id == null) {
+			return null;
+		}
+		Element element = itemCache.get(id);
+		return (element == null) ? null : copyItem(element.getObjectValue());
+	}
+
+	protected void cacheItem(Cache itemCache, Long id, Object item) {
+		if(itemCache != null && id != null && item != null) {
+			itemCache.put(new Element(id, copyItem(item)));
+		}
+	}
+
+	protected Object copyItem(Object item) {
+		if(item instanceof CalendarItem) {
+			return new CalendarItem((CalendarItem) item);
+		} else if(item instanceof NewsItem) {
+			return new NewsItem((NewsItem) item);
+		}
+		return item;
+	}
+
+	protected void removeCachedItem(Cache itemCache, Long id) {
+		if(itemCache != null && id != null) {
+			itemCache.remove(id);
+		}
+	}
+
+	/**
+	 * Drop every calendar item for an entity from the item cache, for updates made 
+	 * by entity reference (including changes to the repeating event behind them).
+	 * @param entityReference
+	 */
+	protected void removeCachedCalendarItems(String entityReference) {
+		if(calendarItemCache == null) {
+			return;
+		}
+		List<CalendarItem> items = getCalendarItems(entityReference);
+		if(items != null) {
+			for(CalendarItem item : items) {
+				calendarItemCache.remove(item.getId());
+			}
+		}
+	}
+
+	protected void removeAllCachedItems(Cache itemCache) {
+		if(itemCache != null) {
+			itemCache.removeAll();
+		}
+	}
+
+	/**
+	 * Run a count query for one of the paged link lists.
+	 * @param sql
+	 * @param params
+	 * @return the count, or zero if the query fails
+	 */
+	protected int countLinks(String sql, Object[] params) {
+		try {
+			Integer count = getJdbcTemplate().queryForObject(sql, params, Integer.class);
+			return (count == null) ? 0 : count.intValue();
+		} catch (DataAccessException ex) {
+           log.warn("countLinks: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+           return 0;
+		}
+	}
+
+	/**
+	 * Add the parameters for the paging clause at the end of a paged statement. Oracle 
+	 * statements page by ROWNUM and take the last row number and the offset; the others 
+	 * take "limit ? offset ?".
+	 * @param params
+	 * @param offset
+	 * @param limit
+	 * @return
+	 */
+	protected Object[] appendPagingParams(Object[] params, int offset, int limit) {
+		Object[] paged = new Object[params.length + 2];
+		System.arraycopy(params, 0, paged, 0, params.length);
+		if("oracle".equalsIgnoreCase(this.databaseVendor)) {
+			paged[params.length] = offset + limit;
+			paged[params.length + 1] = offset;
+		} else {
+			paged[params.length] = limit;
+			paged[params.length + 1] = offset;
+		}
+		return paged;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#getStarredNewsLinks(java.lang.String, java.lang.String)
 	 */
@@ -1449,9 +2655,9 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		}
 		
 		try {
-			return (List<NewsLink>) getJdbcTemplate().query(sql,params,
-				new NewsLinkMapper()
-			);
+			return resolveNewsItems(sakaiUserId, (List<NewsLink>) getJdbcTemplate().query(sql,params,
+				new NewsLinkIdMapper()
+			));
 		} catch (EmptyResultDataAccessException ex) {
 			log.debug("getStarredNewsLinks: Empty result executing query: " + ex.getClass() + ":" + ex.getMessage());
 	        return new ArrayList<NewsLink>();
@@ -1481,9 +2687,9 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		}
 		
 		try {
-			return (List<NewsLink>) getJdbcTemplate().query(sql,params,
-				new NewsLinkMapper()
-			);
+			return resolveNewsItems(sakaiUserId, (List<NewsLink>) getJdbcTemplate().query(sql,params,
+				new NewsLinkIdMapper()
+			));
 		} catch (EmptyResultDataAccessException ex) {
 			log.debug("getHiddenNewsLinks: Empty result executing query: " + ex.getClass() + ":" + ex.getMessage());
 	        return new ArrayList<NewsLink>();
@@ -1538,9 +2744,9 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			params = new Object[]{sakaiUserId, groupId, limit, offset};
 		}
 		try {
-			return (List<NewsLink>) getJdbcTemplate().query(sql,params,
-				new NewsLinkMapper()
-			);
+			return resolveNewsItems(sakaiUserId, (List<NewsLink>) getJdbcTemplate().query(sql,params,
+				new NewsLinkIdMapper()
+			));
 		} catch (EmptyResultDataAccessException ex) {
 			log.debug("getNewsLinksByGroupId: Empty result executing query: " + ex.getClass() + ":" + ex.getMessage());
 	        return new ArrayList<NewsLink>();
@@ -1558,11 +2764,17 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			log.debug("getPersonBySakaiId(" + sakaiId + ")");
 		}
 		
+		Person person = (personCache == null) ? null : personCache.get(sakaiId);
+		if(person != null) {
+			return new Person(person);
+		}
 		try {
-			return (Person) getJdbcTemplate().queryForObject(getStatement("select.Person.by.sakaiId"),
+			person = (Person) getJdbcTemplate().queryForObject(getStatement("select.Person.by.sakaiId"),
 				new Object[]{sakaiId},
 				new PersonMapper()
 			);
+			cachePerson(person);
+			return person;
 		} catch (EmptyResultDataAccessException ex) {
 			log.debug("getPersonBySakaiId: Empty result executing query: " + ex.getClass() + ":" + ex.getMessage());
 	        return null;
@@ -1572,6 +2784,124 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		}
 	}
 	
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getPeopleBySakaiIds(java.util.Collection)
+	 */
+	public Map<String, Person> getPeopleBySakaiIds(Collection<String> sakaiIds) {
+		if(log.isDebugEnabled()) {
+			log.debug("getPeopleBySakaiIds(" + sakaiIds.size() + ")");
+		}
+		
+		Map<String, Person> people = new HashMap<String, Person>();
+		List<String> ids = new ArrayList<String>();
+		for(String sakaiId : sakaiIds) {
+			Person person = (personCache == null) ? null : personCache.get(sakaiId);
+			if(person == null) {
+				ids.add(sakaiId);
+			} else {
+				people.put(sakaiId, new Person(person));
+			}
+		}
+		String sql = getStatement("select.People.by.sakaiIds");
+		try {
+			for(int start = 0; start < ids.size(); start += MAX_IN_CLAUSE_SIZE) {
+				List<String> chunk = ids.subList(start, Math.min(start + MAX_IN_CLAUSE_SIZE, ids.size()));
+				List<Person> rows = getJdbcTemplate().query(sql + getInClause(chunk.size()), chunk.toArray(), new PersonMapper());
+				for(Person person : rows) {
+					cachePerson(person);
+					people.put(person.getSakaiId(), person);
+				}
+			}
+		} catch (DataAccessException ex) {
+           log.warn("getPeopleBySakaiIds: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+		}
+		return people;
+	}
+	
+	/**
+	 * Remember a person read from DASH_PERSON. A copy is cached so callers
+	 * can't change the cached entry.
+	 * @param person
+	 */
+	protected void cachePerson(Person person) {
+		if(personCache != null && person != null && person.getId() != null && person.getSakaiId() != null) {
+			personCache.put(person.getSakaiId(), new Person(person));
+		}
+	}
+	
+	/**
+	 * Load the most recently added people into the person cache.
+	 * @param maxRows
+	 */
+	protected void warmPersonCache(final int maxRows) {
+		final String sql = getStatement("select.People");
+		try {
+			List<Person> rows = getJdbcTemplate().query(new PreparedStatementCreator() {
+				public PreparedStatement createPreparedStatement(Connection conn) throws SQLException {
+					PreparedStatement ps = conn.prepareStatement(sql);
+					ps.setMaxRows(maxRows);
+					ps.setFetchSize(Math.min(maxRows, 1000));
+					return ps;
+				}
+			}, new PersonMapper());
+			for(Person person : rows) {
+				cachePerson(person);
+			}
+			log.info("warmPersonCache() loaded " + rows.size() + " people");
+		} catch (DataAccessException ex) {
+           log.warn("warmPersonCache: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+		}
+	}
+	
+	/**
+	 * Run a delete statement with two IN lists, the first for person ids and the second 
+	 * for item ids, once for each combination of chunks of the two collections.
+	 * @param sql a statement with two %s markers for the IN lists
+	 * @param personIds
+	 * @param itemIds
+	 * @return the number of rows deleted
+	 */
+	protected int deleteLinks(String sql, Collection<Long> personIds, Collection<Long> itemIds) {
+		List<Long> people = new ArrayList<Long>(personIds);
+		List<Long> items = new ArrayList<Long>(itemIds);
+		int count = 0;
+		for(int p = 0; p < people.size(); p += MAX_IN_CLAUSE_SIZE) {
+			List<Long> personChunk = people.subList(p, Math.min(p + MAX_IN_CLAUSE_SIZE, people.size()));
+			for(int i = 0; i < items.size(); i += MAX_IN_CLAUSE_SIZE) {
+				List<Long> itemChunk = items.subList(i, Math.min(i + MAX_IN_CLAUSE_SIZE, items.size()));
+				List<Object> params = new ArrayList<Object>(personChunk);
+				params.addAll(itemChunk);
+				count += getJdbcTemplate().update(String.format(sql, getInClause(personChunk.size()), getInClause(itemChunk.size())), 
+						params.toArray());
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * @param size
+	 * @return a parenthesized list of size parameter markers, e.g. " (?,?,?)"
+	 */
+	protected String getInClause(int size) {
+		StringBuilder buf = new StringBuilder(" (");
+		for(int i = 0; i < size; i++) {
+			if(i > 0) {
+				buf.append(",");
+			}
+			buf.append("?");
+		}
+		buf.append(")");
+		return buf.toString();
+	}
+	
+	/**
+	 * @param date
+	 * @return the date as a JDBC timestamp, or null if date is null
+	 */
+	protected Timestamp getTimestamp(Date date) {
+		return (date == null) ? null : new Timestamp(date.getTime());
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#getTaskLocks(java.lang.String)
@@ -1765,6 +3095,49 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		
 	}
 	
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#addEvents(java.util.List)
+	 */
+	public int addEvents(final List<EventLogEntry> entries) {
+		if(log.isDebugEnabled()) {
+			log.debug("addEvents( " + entries.size() + ")");
+		}
+		
+		// event_date, event, ref, context, session_id, event_code
+		int count = 0;
+		try {
+			int[] updates = getJdbcTemplate().batchUpdate(getStatement("insert.EventLog"), new BatchPreparedStatementSetter(){
+
+				@Override
+				public void setValues(PreparedStatement ps, int i)
+						throws SQLException {
+					EventLogEntry entry = entries.get(i);
+					ps.setTimestamp(1, new Timestamp(entry.getEventDate().getTime()));
+					ps.setString(2, entry.getEvent());
+					ps.setString(3, entry.getItemRef());
+					ps.setString(4, entry.getContextId());
+					ps.setString(5, entry.getSessionId());
+					ps.setString(6, entry.getEventCode());
+				}
+
+				@Override
+				public int getBatchSize() {
+					return entries.size();
+				}
+				
+			});
+			if(updates != null && updates.length > 0) {
+				for(int u : updates) {
+					// some drivers report SUCCESS_NO_INFO (-2) for batched statements
+					count += (u == Statement.SUCCESS_NO_INFO) ? 1 : u;
+				}
+			}
+		} catch (DataAccessException ex) {
+           log.warn("addEvents: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+		}
+		return count;
+	}
+	
 	public boolean updateCalendarItem(CalendarItem calendarItem) {
 		if(log.isDebugEnabled()) {
 			log.debug("updateCalendarItem( " + calendarItem + ")");
@@ -1799,6 +3172,9 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		}
 
 		template.update(sql,params);
+		template.update(getStatement("update.CalendarLinks.calendarTime.by.itemId"), 
+				new Object[]{calendarItem.getCalendarTime(), calendarItem.getId()});
+		removeCachedItem(calendarItemCache, calendarItem.getId());
 		return true;
 	}
 
@@ -1814,6 +3190,10 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			getJdbcTemplate().update(getStatement("update.CalendarItem.calendarTime"),
 				new Object[]{newTime, id}
 			);
+			getJdbcTemplate().update(getStatement("update.CalendarLinks.calendarTime.by.itemId"),
+				new Object[]{newTime, id}
+			);
+			removeCachedItem(calendarItemCache, id);
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("updateCalendarItemTime: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -1838,6 +3218,9 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 				getJdbcTemplate().update(getStatement("update.CalendarItem.calendarTime.entityReference.labelKey.sequenceNumber"),
 						new Object[]{newDate, entityReference, labelKey, sequenceNumber });
 			}
+			getJdbcTemplate().update(getStatement("update.CalendarLinks.calendarTime.by.entityReference"),
+					new Object[]{entityReference });
+			removeCachedCalendarItems(entityReference);
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("updateCalendarItemTime: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -1857,6 +3240,7 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			getJdbcTemplate().update(getStatement("update.CalendarItemsLabelKey.entityReference.oldLabelKey"),
 				new Object[]{newLabelKey, entityReference, oldLabelKey}
 			);
+			removeCachedCalendarItems(entityReference);
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("updateCalendarsItemLabelKey: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -1876,6 +3260,7 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			getJdbcTemplate().update(getStatement("update.CalendarItem.title"),
 				new Object[]{newTitle, id}
 			);
+			removeCachedItem(calendarItemCache, id);
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("updateCalendarItemTitle: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -1917,6 +3302,9 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			getJdbcTemplate().update(getStatement("update.Context.title"),
 				new Object[]{newContextTitle, contextId}
 			);
+			// every cached item in the site carries the old title
+			removeAllCachedItems(calendarItemCache);
+			removeAllCachedItems(newsItemCache);
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("updateContextTitle: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -1934,9 +3322,16 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		}
 		
 		try {
+			Set<String> groupingIds = getNewsGroupingIds(id);
 			getJdbcTemplate().update(getStatement("update.NewsItem.newsTime"),
 				new Object[]{newTime, newGroupingIdentifier, id}
 			);
+			getJdbcTemplate().update(getStatement("update.NewsLinks.newsTime.by.itemId"),
+				new Object[]{newTime, id}
+			);
+			removeCachedItem(newsItemCache, id);
+			groupingIds.addAll(getNewsGroupingIds(id));
+			refreshNewsGroups(null, groupingIds);
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("updateNewsItemTime: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -1958,9 +3353,16 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		}
 		
 		try {
+			Set<String> groupingIds = getNewsGroupingIds(id);
 			getJdbcTemplate().update(getStatement("update.NewsItem.title"),
 				new Object[]{newTitle, newNewsTime, newLabelKey, newGroupingIdentifier, id}
 			);
+			getJdbcTemplate().update(getStatement("update.NewsLinks.newsTime.by.itemId"),
+				new Object[]{newNewsTime, id}
+			);
+			removeCachedItem(newsItemCache, id);
+			groupingIds.addAll(getNewsGroupingIds(id));
+			refreshNewsGroups(null, groupingIds);
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("updateNewsItemTitle: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -1984,6 +3386,8 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 				new Object[]{newsLink.getPerson().getId(), newsLink.getNewsItem().getId(), 
 						newsLink.getContext().getId(), newsLink.isHidden(), newsLink.isSticky(), newsLink.getId()}
 			);
+			// hiding or unhiding changes the person's group counts
+			refreshNewsGroups(newsLink.getPerson().getId(), getNewsGroupingIds(newsLink.getNewsItem().getId()));
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("updateNewsLink: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -2004,6 +3408,8 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			getJdbcTemplate().update(getStatement("update.RepeatingEventsFrequency.entityReference"),
 				new Object[]{frequency, entityReference}
 			);
+			// cached instances carry the repeating event's fields
+			removeCachedCalendarItems(entityReference);
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("updateRepeatingCalendarItemFrequency: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -2023,6 +3429,7 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			getJdbcTemplate().update(getStatement("update.RepeatingEventsLabelKey.entityReference.oldLabelKey"),
 				new Object[]{newLabelKey, entityReference, oldLabelKey}
 			);
+			removeCachedCalendarItems(entityReference);
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("updateRepeatingCalendarItemsLabelKey: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -2043,6 +3450,8 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			getJdbcTemplate().update(getStatement("update.RepeatingEventsTime.entityReference"),
 				new Object[]{newFirstTime, newLastTime, entityReference}
 			);
+			// cached instances carry the repeating event's fields
+			removeCachedCalendarItems(entityReference);
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("updateRepeatingCalendarItemTime: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -2062,6 +3471,8 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			getJdbcTemplate().update(getStatement("update.RepeatingEventsTitle.entityReference"),
 				new Object[]{newTitle, entityReference}
 			);
+			// cached instances carry the repeating event's fields
+			removeCachedCalendarItems(entityReference);
 			return true;
 		} catch (DataAccessException ex) {
            log.warn("updateRepeatingCalendarItemTitle: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
@@ -2145,6 +3556,30 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 			initTables();
 		}
 		
+		if(serverConfigurationService.getBoolean(PROP_PARTITION_LINKS, false)) {
+			if("mysql".equalsIgnoreCase(databaseVendor) || "oracle".equalsIgnoreCase(databaseVendor)) {
+				initLinkPartitions(DashboardLogic.TYPE_CALENDAR, autoddl);
+				initLinkPartitions(DashboardLogic.TYPE_NEWS, autoddl);
+			} else {
+				log.warn("init() " + PROP_PARTITION_LINKS + " is not supported for " + databaseVendor);
+			}
+		}
+		
+		final int personCacheSize = serverConfigurationService.getInt(PROP_PERSON_CACHE_SIZE, DEFAULT_PERSON_CACHE_SIZE);
+		if(personCacheSize > 0) {
+			personCache = Collections.synchronizedMap(new LinkedHashMap<String, Person>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Person> eldest) {
+					return size() > personCacheSize;
+				}
+			});
+			if(serverConfigurationService.getBoolean(PROP_PERSON_CACHE_WARMUP, false)) {
+				warmPersonCache(personCacheSize);
+			}
+		}
+		
 	}
 	
 	/**
@@ -2172,32 +3607,122 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 	 */
 	protected void initTables() {
 		try {
-			executeSqlStatement("create.Context.table");
-			executeSqlStatement("create.Person.table");
-			executeSqlStatement("create.SourceType.table");
-			executeSqlStatement("create.NewsItem.table");
-			executeSqlStatement("create.NewsLink.table");
-			executeSqlStatement("create.CalendarItem.table");
-			executeSqlStatement("create.CalendarLink.table");
-			executeSqlStatement("create.AvailabilityCheck.table");
-			executeSqlStatement("create.RepeatingEvent.table");
+			// tables that already exist are left to migrateSchema(), since the create statements
+			// would add the current indexes to them ahead of the migration that adds them
+			createTable("create.Context.table", "dash_context");
+			createTable("create.Person.table", "dash_person");
+			createTable("create.SourceType.table", "dash_sourcetype");
+			createTable("create.NewsItem.table", "dash_news_item");
+			createTable("create.NewsLink.table", "dash_news_link");
+			createTable("create.NewsGroup.table", "dash_news_group");
+			createTable("create.CalendarItem.table", "dash_calendar_item");
+			createTable("create.CalendarLink.table", "dash_calendar_link");
+			createTable("create.AvailabilityCheck.table", "dash_availability_check");
+			createTable("create.RepeatingEvent.table", "dash_repeating_event");
+			// this statement also inserts the default config values, so it runs on every startup
 			executeSqlStatement("create.Config.table");
-			executeSqlStatement("create.EventLog.table");
-			executeSqlStatement("create.TaskLock.table");
+			createTable("create.EventLog.table", "dash_event");
+			createTable("create.TaskLock.table", "dash_task_lock");
+			
+			// the create statements build the current schema, so a new install needs no migration.
+			// An install without a recorded version is new if its link tables already have the
+			// columns added by the migrations; otherwise it predates them and starts from version 0.
+			if(getConfigProperty(DashboardConfig.PROP_SCHEMA_VERSION) == null 
+					&& columnExists("dash_calendar_link", "calendar_time") 
+					&& columnExists("dash_news_link", "news_time")) {
+				setConfigProperty(DashboardConfig.PROP_SCHEMA_VERSION, SCHEMA_VERSION);
+			} else {
+				migrateSchema();
+			}
+			
+			// fill the news group summary the first time it is created, including on upgrade
+			if(getConfigProperty(DashboardConfig.PROP_NEWS_GROUPS_BUILT) == null && rebuildNewsGroups() >= 0) {
+				setConfigProperty(DashboardConfig.PROP_NEWS_GROUPS_BUILT, 1);
+			}
 		} catch(Exception e) {
 	        //System.out.println("\ninitTables: Error executing query: " + e.getClass() + ":\n" + e.getMessage() + "\n");
 			log.warn("initTables() " + e);
 		}
 	}
 
+	/**
+	 * Runs a create statement unless its table is already there.
+	 * @param key the create statement
+	 * @param tableName the table it creates
+	 */
+	protected void createTable(String key, String tableName) {
+		if(! tableExists(tableName)) {
+			executeSqlStatement(key);
+		}
+	}
+
+	/**
+	 * @param tableName
+	 * @return true if the table can be queried, false otherwise
+	 */
+	protected boolean tableExists(String tableName) {
+		return canQuery(getStatement("check.table.exists"), tableName);
+	}
+
+	/**
+	 * @param tableName
+	 * @param columnName
+	 * @return true if the column can be selected from the table, false otherwise
+	 */
+	protected boolean columnExists(String tableName, String columnName) {
+		return canQuery(getStatement("check.column.exists"), columnName, tableName);
+	}
+
+	/**
+	 * @param sql a select statement with format specifiers for the args
+	 * @param args
+	 * @return true if the select runs, false otherwise
+	 */
+	protected boolean canQuery(String sql, Object... args) {
+		try {
+			getJdbcTemplate().queryForList(String.format(sql, args));
+			return true;
+		} catch (DataAccessException ex) {
+			// an expected condition before the table or column has been created
+			log.debug("canQuery: " + ex.getClass() + ":" + ex.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Applies each migrate.schema.N statement above the version recorded in dash_config,
+	 * recording each version as it completes. A step that fails is retried at the next
+	 * startup and no later step is applied before it.
+	 */
+	protected void migrateSchema() {
+		Integer applied = getConfigProperty(DashboardConfig.PROP_SCHEMA_VERSION);
+		int version = (applied == null) ? 0 : applied.intValue();
+		while(version < SCHEMA_VERSION) {
+			log.info("migrateSchema() applying schema version " + (version + 1));
+			if(! executeSqlStatement("migrate.schema." + (version + 1))) {
+				log.warn("migrateSchema() stopped at schema version " + version + "; the next version will be tried again at startup");
+				return;
+			}
+			version++;
+			setConfigProperty(DashboardConfig.PROP_SCHEMA_VERSION, version);
+		}
+	}
+
 	/**
 	 * @param sqlStatement
+	 * @param args values for the format specifiers in the statement, if any
+	 * @return true if every part of the statement ran (duplicate inserts count as run), false otherwise
 	 */
-	protected void executeSqlStatement(String key) {
+	protected boolean executeSqlStatement(String key, Object... args) {
+		boolean success = true;
 		String sqlStatement = getStatement(key);
 		if(sqlStatement == null || sqlStatement.trim().equals("")) {
 			log.warn("Missing key in database properties file (" + statements.getFileName() + "): " + key);
+			success = false;
 		} else {
+			if(args.length > 0) {
+				sqlStatement = String.format(sqlStatement, args);
+			}
 			String parts[] = sqlStatement.split(";");
 			if( parts != null) {
 				for(String sql : parts) {
@@ -2211,11 +3736,13 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 						} catch (DataAccessException ex) {
 							log.warn("Error executing SQL statement with key: " + key + " -- " + ex.getClass() + ": " + ex.getMessage());
 					        //System.out.println("\nError executing SQL statement with key: " + key + " -- " + ex.getClass() + ": \n" + ex.getMessage() + "\n");
+							success = false;
 						}
 					}
 				}
 			}
 		}
+		return success;
 	}
 
 	/* (non-Javadoc)
@@ -2248,6 +3775,39 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		return value ;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getConfigProperties()
+	 */
+	public Map<String, Integer> getConfigProperties() {
+		
+		if(log.isDebugEnabled()) {
+			log.debug("getConfigProperties()");
+		}
+		
+		String sql = getStatement("select.Config.all");
+		final Map<String, Integer> properties = new HashMap<String, Integer>();
+		try {
+			getJdbcTemplate().query(sql, new RowMapper(){
+
+				public Object mapRow(ResultSet rs, int rowNum)
+						throws SQLException {
+					
+					int value = rs.getInt(2);
+					if(! rs.wasNull()) {
+						properties.put(rs.getString(1), value);
+					}
+					return null;
+				}
+				
+			});
+		} catch (DataAccessException ex) {
+            log.warn("getConfigProperties: Error executing query: " + ex.getClass() + ":" + ex.getMessage());
+            return null;
+		}
+		
+		return properties;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#setConfigProperty(java.lang.String, java.lang.Integer)
 	 */
@@ -2272,10 +3832,8 @@ public class DashboardDaoImpl extends JdbcDaoSupport implements DashboardDao {
 		JdbcTemplate jdbcTemplate = getJdbcTemplate();
 		try {
 			jdbcTemplate.update(sql_insert, params_insert);
-		} catch (DataIntegrityViolationException e) {
-			// this means we're trying to insert a duplicate
-			log.debug("setConfigProperty() " + e);
 		} catch (Exception e) {
+			// a duplicate property name shows up as DataIntegrityViolationException
 			// insert failed -- try update instead of insert
 	        try {
 	        	jdbcTemplate.update(sql_update, params_update);
@@ -0,0 +1,64 @@
+/********************************************************************************** 
+ * $URL$ 
+ * $Id$ 
+ *********************************************************************************** 
+ * 
+ * Copyright (c) 2011 The Sakai Foundation 
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ * http://www.osedu.org/licenses/ECL-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ * 
+ **********************************************************************************/ 
+
+package org.sakaiproject.dash.dao.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.sakaiproject.dash.model.Context;
+import org.sakaiproject.dash.model.SourceType;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Base for the mappers of the link list statements. The rows of one list come from a
+ * handful of sites and tools, so each query makes one Context and one SourceType per id 
+ * and shares it between rows. The shared instances end up in the item caches, so they
+ * must be treated as read-only. Use a new mapper for each query.
+ */
+public abstract class ListViewMapper implements RowMapper {
+	
+	private Map<Long, Context> contexts = new HashMap<Long, Context>();
+	private Map<Long, SourceType> sourceTypes = new HashMap<Long, SourceType>();
+
+	protected Context getContext(ResultSet rs, int rowNum) throws SQLException {
+		Long id = rs.getLong("site_id");
+		Context context = contexts.get(id);
+		if(context == null) {
+			context = (Context) (new ContextMapper()).mapRow(rs, rowNum);
+			contexts.put(id, context);
+		}
+		return context;
+	}
+
+	protected SourceType getSourceType(ResultSet rs, int rowNum) throws SQLException {
+		Long id = rs.getLong("type_id");
+		SourceType sourceType = sourceTypes.get(id);
+		if(sourceType == null) {
+			sourceType = (SourceType) (new SourceTypeMapper()).mapRow(rs, rowNum);
+			sourceTypes.put(id, sourceType);
+		}
+		return sourceType;
+	}
+
+}
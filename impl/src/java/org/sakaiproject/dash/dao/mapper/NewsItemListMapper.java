@@ -0,0 +1,50 @@
+/********************************************************************************** 
+ * $URL$ 
+ * $Id$ 
+ *********************************************************************************** 
+ * 
+ * Copyright (c) 2011 The Sakai Foundation 
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ * http://www.osedu.org/licenses/ECL-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ * 
+ **********************************************************************************/ 
+
+package org.sakaiproject.dash.dao.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.sakaiproject.dash.model.NewsItem;
+
+/**
+ * Maps the rows of select.NewsItems.by.ids, sharing sites and types between rows.
+ */
+public class NewsItemListMapper extends ListViewMapper {
+
+	/* (non-Javadoc)
+	 * @see org.springframework.jdbc.core.RowMapper#mapRow(java.sql.ResultSet, int)
+	 */
+	public Object mapRow(ResultSet rs, int rowNum) throws SQLException {
+		NewsItem newsItem = mapNewsItem(rs, rowNum);
+		newsItem.setItemCount(1);
+		return newsItem;
+	}
+
+	protected NewsItem mapNewsItem(ResultSet rs, int rowNum) throws SQLException {
+		// the full constructor works out the grouping identifier once rather than in every setter
+		return new NewsItem(rs.getLong("ni_id"), rs.getString("ni_title"), rs.getTimestamp("ni_news_time"), 
+				rs.getString("ni_news_time_label_key"), rs.getString("ni_entity_ref"), 
+				getContext(rs, rowNum), getSourceType(rs, rowNum), rs.getString("ni_subtype"));
+	}
+
+}
@@ -0,0 +1,55 @@
+/********************************************************************************** 
+ * $URL$ 
+ * $Id$ 
+ *********************************************************************************** 
+ * 
+ * Copyright (c) 2011 The Sakai Foundation 
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ * http://www.osedu.org/licenses/ECL-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ * 
+ **********************************************************************************/ 
+
+package org.sakaiproject.dash.dao.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.sakaiproject.dash.model.NewsItem;
+import org.sakaiproject.dash.model.NewsLink;
+
+/**
+ * Maps the rows of the current news links statements: links to single items and group
+ * summaries (item id 0, with the number of items in ni_count). The person is not part
+ * of the rows; the caller already knows whose links they are.
+ */
+public class NewsLinkListMapper extends NewsItemListMapper {
+
+	/* (non-Javadoc)
+	 * @see org.springframework.jdbc.core.RowMapper#mapRow(java.sql.ResultSet, int)
+	 */
+	public Object mapRow(ResultSet rs, int rowNum) throws SQLException {
+		
+		NewsItem newsItem = mapNewsItem(rs, rowNum);
+		newsItem.setItemCount(rs.getInt("ni_count"));
+		
+		NewsLink link = new NewsLink();
+		link.setNewsItem(newsItem);
+		link.setContext(newsItem.getContext());
+		link.setId(rs.getLong("link_id"));
+		link.setHidden(rs.getBoolean("link_hidden"));
+		link.setSticky(rs.getBoolean("link_sticky"));
+
+		return link;
+	}
+
+}
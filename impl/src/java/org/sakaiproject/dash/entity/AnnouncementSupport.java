@@ -23,12 +23,14 @@ package org.sakaiproject.dash.entity;
 
 import java.text.DateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -51,9 +53,7 @@ import org.sakaiproject.entity.api.EntityPropertyTypeException;
 import org.sakaiproject.entity.api.Reference;
 import org.sakaiproject.entity.api.ResourceProperties;
 import org.sakaiproject.event.api.Event;
-import org.sakaiproject.exception.IdUnusedException;
-import org.sakaiproject.exception.PermissionException;
-import org.sakaiproject.message.api.Message;
+import org.sakaiproject.message.api.MessageHeader;
 import org.sakaiproject.site.api.Site;
 import org.sakaiproject.site.api.ToolConfiguration;
 import org.sakaiproject.thread_local.api.ThreadLocalManager;
@@ -404,39 +404,83 @@ public class AnnouncementSupport{
 		
 		public boolean isUserPermitted(String sakaiUserId, String entityReference,
 				String contextId) {
-			boolean rv = false;
-			
-			String channelId = getChannelIdFromReference(entityReference);
-			if (announcementService.allowGetChannel(channelId))
-			{
-				try
-				{
-					AnnouncementChannel c = announcementService.getAnnouncementChannel(channelId);
-					List<Message> messages = c.getMessages(null, true);
-					if (messages != null)
-					{
-						for (Message m : messages)
-						{
-							if (m.getReference().equals(entityReference))
-							{
-								rv = true;
-								break;
-							}
-						}
-					}
+			return getPermittedEntities(sakaiUserId, Collections.singletonList(entityReference), contextId).contains(entityReference);
+		}
+
+		/* (non-Javadoc)
+		 * @see org.sakaiproject.dash.entity.DashboardEntityInfo#getPermittedEntities(java.lang.String, java.util.List, java.lang.String)
+		 */
+		public Set<String> getPermittedEntities(String sakaiUserId, List<String> entityReferences,
+				String contextId) {
+			// the same read permissions used to find users with access when links are created; 
+			// drafts and messages outside their release and retract dates need the draft permission
+			List<String> available = new ArrayList<String>();
+			List<String> drafts = new ArrayList<String>();
+			for(String entityReference : entityReferences) {
+				if(this.isAvailable(entityReference)) {
+					available.add(entityReference);
+				} else {
+					drafts.add(entityReference);
 				}
-				catch (IdUnusedException e)
-				{
-					logger.debug("isUserPermitted IdUnusedException: cannot find announcement channel id=" + channelId);
+			}
+			Set<String> permitted = new HashSet<String>();
+			if(! available.isEmpty()) {
+				Set<String> refs = sakaiProxy.getPermittedReferences(sakaiUserId, SakaiProxy.PERMIT_ANNOUNCEMENT_ACCESS, available);
+				if(refs != null) {
+					permitted.addAll(refs);
 				}
-				catch (PermissionException e)
-				{
-					logger.debug("isUserPermitted PermissionException: cannot get announcement channel id=" + channelId);
+			}
+			if(! drafts.isEmpty()) {
+				Set<String> refs = sakaiProxy.getPermittedReferences(sakaiUserId, SakaiProxy.PERMIT_ANNOUNCEMENT_ACCESS_DRAFT, drafts);
+				if(refs != null) {
+					permitted.addAll(refs);
+				}
+			}
+			// the realm checks above don't see which groups a message was posted to
+			Set<String> rv = new HashSet<String>();
+			Map<String, Boolean> allGroupsByChannel = new HashMap<String, Boolean>();
+			for(String entityReference : permitted) {
+				if(isVisibleInGroups(sakaiUserId, entityReference, allGroupsByChannel)) {
+					rv.add(entityReference);
 				}
 			}
-			
 			return rv;
 		}
+		
+		/**
+		 * Check whether a message restricted to some of a site's groups can be seen by a 
+		 * user, which is the case if the user can read messages in one of the groups or may 
+		 * see the messages of all groups in the channel.
+		 * @param sakaiUserId
+		 * @param entityReference
+		 * @param allGroupsByChannel the all-groups permission of the user, by channel, 
+		 * 	so it is checked once per channel
+		 * @return true if the message is not restricted to groups or the user can see it
+		 */
+		protected boolean isVisibleInGroups(String sakaiUserId, String entityReference, Map<String, Boolean> allGroupsByChannel) {
+			AnnouncementMessage announcement = (AnnouncementMessage) sakaiProxy.getEntity(entityReference);
+			if(announcement == null) {
+				return false;
+			}
+			MessageHeader header = announcement.getHeader();
+			if(header.getAccess() != MessageHeader.MessageAccess.GROUPED) {
+				return true;
+			}
+			Collection<String> groups = header.getGroups();
+			if(groups != null && ! groups.isEmpty()) {
+				Set<String> permitted = sakaiProxy.getPermittedReferences(sakaiUserId, SakaiProxy.PERMIT_ANNOUNCEMENT_ACCESS, groups);
+				if(permitted != null && ! permitted.isEmpty()) {
+					return true;
+				}
+			}
+			String channelId = getChannelIdFromReference(entityReference);
+			Boolean allGroups = allGroupsByChannel.get(channelId);
+			if(allGroups == null) {
+				allGroups = Boolean.valueOf(sakaiProxy.isUserPermitted(sakaiUserId, SakaiProxy.PERMIT_ANNOUNCEMENT_ALL_GROUPS, channelId));
+				allGroupsByChannel.put(channelId, allGroups);
+			}
+			return allGroups.booleanValue();
+		}
 
 		/**
 		 * {@inheritDoc}
@@ -471,13 +515,41 @@ public class AnnouncementSupport{
 		}
 
 		public List<String> getUsersWithAccess(String entityReference) {
-			SortedSet<String> list = new TreeSet<String>();
-			if(this.isAvailable(entityReference)) {
-				list.addAll(sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_ANNOUNCEMENT_ACCESS , entityReference));
-			} else {
-				list.addAll(sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_ANNOUNCEMENT_ACCESS_DRAFT, entityReference));
+			List<String> users = getUsersWithAccess(Collections.singletonList(entityReference)).get(entityReference);
+			List<String> rv = new ArrayList<String>();
+			if(users != null) {
+				rv.addAll(users);
+			}
+			return rv;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.sakaiproject.dash.entity.DashboardEntityInfo#getUsersWithAccess(java.util.List)
+		 */
+		public Map<String, List<String>> getUsersWithAccess(List<String> entityReferences) {
+			List<String> available = new ArrayList<String>();
+			List<String> drafts = new ArrayList<String>();
+			for(String entityReference : entityReferences) {
+				if(this.isAvailable(entityReference)) {
+					available.add(entityReference);
+				} else {
+					drafts.add(entityReference);
+				}
+			}
+			Map<String, List<String>> rv = new HashMap<String, List<String>>();
+			if(! available.isEmpty()) {
+				Map<String, List<String>> users = sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_ANNOUNCEMENT_ACCESS, available);
+				if(users != null) {
+					rv.putAll(users);
+				}
 			}
-			return new ArrayList<String>(list);
+			if(! drafts.isEmpty()) {
+				Map<String, List<String>> users = sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_ANNOUNCEMENT_ACCESS_DRAFT, drafts);
+				if(users != null) {
+					rv.putAll(users);
+				}
+			}
+			return rv;
 		}
 	}
 	
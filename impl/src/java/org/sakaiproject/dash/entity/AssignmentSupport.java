@@ -23,12 +23,13 @@ package org.sakaiproject.dash.entity;
 
 import java.text.DateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.sakaiproject.assignment.api.Assignment;
@@ -341,17 +342,51 @@ public class AssignmentSupport {
 		
 		public boolean isUserPermitted(String sakaiUserId, String entityReference,
 				String contextId) {
-			// for now just check the permission for submit assignment
-			List users = assignmentService.allowAddSubmissionUsers(entityReference);
-			for (Object user : users)
-			{
-				if (sakaiUserId.equals(((User) user).getId()))
-				{
-					// user can submit
-					return true;
+			return getPermittedEntities(sakaiUserId, Collections.singletonList(entityReference), contextId).contains(entityReference);
+		}
+
+		/* (non-Javadoc)
+		 * @see org.sakaiproject.dash.entity.DashboardEntityInfo#getPermittedEntities(java.lang.String, java.util.List, java.lang.String)
+		 */
+		public Set<String> getPermittedEntities(String sakaiUserId, List<String> entityReferences,
+				String contextId) {
+			// check the same permissions that getUsersWithAccess() uses to create the links
+			List<String> available = new ArrayList<String>();
+			List<String> drafts = new ArrayList<String>();
+			sortByAccess(entityReferences, available, drafts);
+			Set<String> rv = new HashSet<String>();
+			if(! available.isEmpty()) {
+				Set<String> permitted = sakaiProxy.getPermittedReferences(sakaiUserId, SakaiProxy.PERMIT_ASSIGNMENT_ACCESS, available);
+				if(permitted != null) {
+					rv.addAll(permitted);
+				}
+			}
+			if(! drafts.isEmpty()) {
+				Set<String> permitted = sakaiProxy.getPermittedReferences(sakaiUserId, SakaiProxy.PERMIT_ASSIGNMENT_SHARE_DRAFTS, drafts);
+				if(permitted != null) {
+					rv.addAll(permitted);
+				}
+			}
+			return rv;
+		}
+		
+		/**
+		 * Sort assignments into those that are open to students and those that 
+		 * have opened but are still drafts. Any others are left out of both lists.
+		 * @param entityReferences
+		 * @param available
+		 * @param drafts
+		 */
+		protected void sortByAccess(List<String> entityReferences, List<String> available, List<String> drafts) {
+			Date now = new Date();
+			for(String entityReference : entityReferences) {
+				Assignment assn = (Assignment) sakaiProxy.getEntity(entityReference);
+				if(this.isAvailable(assn)) {
+					available.add(entityReference);
+				} else if(assn != null && assn.getOpenTime() != null && new Date(assn.getOpenTime().getTime()).before(now)) {
+					drafts.add(entityReference);
 				}
 			}
-			return false;
 		}
 		
 		public String getGroupTitle(int numberOfItems, String contextTitle, String labelKey) {
@@ -370,17 +405,42 @@ public class AssignmentSupport {
 		}
 
 		public List<String> getUsersWithAccess(String entityReference) {
-			SortedSet<String> list = new TreeSet<String>();
-			Assignment assn = (Assignment) sakaiProxy.getEntity(entityReference);
-			if(this.isAvailable(assn)) {
-				list.addAll(sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_ASSIGNMENT_ACCESS , entityReference));
-			} else {
-				Date openTime = new Date(assn.getOpenTime().getTime());
-				if (openTime == null || openTime.before(new Date())){
-					list.addAll(sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_ASSIGNMENT_SHARE_DRAFTS, entityReference));
+			List<String> users = getUsersWithAccess(Collections.singletonList(entityReference)).get(entityReference);
+			List<String> rv = new ArrayList<String>();
+			if(users != null) {
+				rv.addAll(users);
+			}
+			return rv;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.sakaiproject.dash.entity.DashboardEntityInfo#getUsersWithAccess(java.util.List)
+		 */
+		public Map<String, List<String>> getUsersWithAccess(List<String> entityReferences) {
+			List<String> available = new ArrayList<String>();
+			List<String> drafts = new ArrayList<String>();
+			Map<String, List<String>> rv = new HashMap<String, List<String>>();
+			sortByAccess(entityReferences, available, drafts);
+			Set<String> sorted = new HashSet<String>(available);
+			sorted.addAll(drafts);
+			for(String entityReference : entityReferences) {
+				if(! sorted.contains(entityReference)) {
+					rv.put(entityReference, new ArrayList<String>());
+				}
+			}
+			if(! available.isEmpty()) {
+				Map<String, List<String>> users = sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_ASSIGNMENT_ACCESS, available);
+				if(users != null) {
+					rv.putAll(users);
+				}
+			}
+			if(! drafts.isEmpty()) {
+				Map<String, List<String>> users = sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_ASSIGNMENT_SHARE_DRAFTS, drafts);
+				if(users != null) {
+					rv.putAll(users);
 				}
 			}
-			return new ArrayList<String>(list);
+			return rv;
 		}
 	}
 	
@@ -25,10 +25,13 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.text.DateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -306,14 +309,38 @@ public class ResourceSupport {
 		
 		public boolean isUserPermitted(String sakaiUserId, String entityReference,
 				String contextId) {
-			boolean permitted = false;
-			if(this.isAvailable(entityReference)) {
-				permitted = sakaiProxy.isUserPermitted(sakaiUserId, SakaiProxy.PERMIT_RESOURCE_ACCESS, entityReference);
-			} else {
-				permitted = sakaiProxy.isUserPermitted(sakaiUserId, SakaiProxy.PERMIT_RESOURCE_MAINTAIN_1, entityReference)
-					|| sakaiProxy.isUserPermitted(sakaiUserId, SakaiProxy.PERMIT_RESOURCE_MAINTAIN_2, entityReference);
+			return getPermittedEntities(sakaiUserId, Collections.singletonList(entityReference), contextId).contains(entityReference);
+		}
+
+		/* (non-Javadoc)
+		 * @see org.sakaiproject.dash.entity.DashboardEntityInfo#getPermittedEntities(java.lang.String, java.util.List, java.lang.String)
+		 */
+		public Set<String> getPermittedEntities(String sakaiUserId, List<String> entityReferences,
+				String contextId) {
+			List<String> available = new ArrayList<String>();
+			List<String> hidden = new ArrayList<String>();
+			for(String entityReference : entityReferences) {
+				if(this.isAvailable(entityReference)) {
+					available.add(entityReference);
+				} else {
+					hidden.add(entityReference);
+				}
+			}
+			Set<String> rv = new HashSet<String>();
+			if(! available.isEmpty()) {
+				addAll(rv, sakaiProxy.getPermittedReferences(sakaiUserId, SakaiProxy.PERMIT_RESOURCE_ACCESS, available));
+			}
+			if(! hidden.isEmpty()) {
+				addAll(rv, sakaiProxy.getPermittedReferences(sakaiUserId, SakaiProxy.PERMIT_RESOURCE_MAINTAIN_1, hidden));
+				addAll(rv, sakaiProxy.getPermittedReferences(sakaiUserId, SakaiProxy.PERMIT_RESOURCE_MAINTAIN_2, hidden));
+			}
+			return rv;
+		}
+		
+		private void addAll(Set<String> rv, Set<String> references) {
+			if(references != null) {
+				rv.addAll(references);
 			}
-			return permitted;
 		}
 
 		/**
@@ -349,28 +376,66 @@ public class ResourceSupport {
 		}
 
 		public List<String> getUsersWithAccess(String entityReference) {
-			
-			boolean isDropboxResource = false;
-			Entity entity = sakaiProxy.getEntity(entityReference);
-			if(entity != null && entity instanceof ContentResource) {
-				isDropboxResource = sakaiProxy.isDropboxResource(entity.getId());
+			List<String> users = getUsersWithAccess(Collections.singletonList(entityReference)).get(entityReference);
+			List<String> rv = new ArrayList<String>();
+			if(users != null) {
+				rv.addAll(users);
 			}
-			SortedSet<String> list = new TreeSet<String>();
-			if(this.isAvailable(entityReference)) {
-				if(!isDropboxResource ) {
-					// resource item
-					list.addAll(sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_RESOURCE_ACCESS , entityReference));
+			return rv;
+		}
+
+		/* (non-Javadoc)
+		 * @see org.sakaiproject.dash.entity.DashboardEntityInfo#getUsersWithAccess(java.util.List)
+		 */
+		public Map<String, List<String>> getUsersWithAccess(List<String> entityReferences) {
+			List<String> resources = new ArrayList<String>();
+			List<String> dropboxResources = new ArrayList<String>();
+			List<String> hidden = new ArrayList<String>();
+			for(String entityReference : entityReferences) {
+				boolean isDropboxResource = false;
+				Entity entity = sakaiProxy.getEntity(entityReference);
+				if(entity != null && entity instanceof ContentResource) {
+					isDropboxResource = sakaiProxy.isDropboxResource(entity.getId());
 				}
-				else
-				{
-					// dropbox item
-					list.addAll(sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_DROPBOX_MAINTAIN , entityReference));
+				if(! this.isAvailable(entityReference)) {
+					hidden.add(entityReference);
+				} else if(isDropboxResource) {
+					dropboxResources.add(entityReference);
+				} else {
+					resources.add(entityReference);
+				}
+			}
+			Map<String, List<String>> rv = new HashMap<String, List<String>>();
+			if(! resources.isEmpty()) {
+				// resource items
+				Map<String, List<String>> users = sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_RESOURCE_ACCESS, resources);
+				if(users != null) {
+					rv.putAll(users);
+				}
+			}
+			if(! dropboxResources.isEmpty()) {
+				// dropbox items
+				Map<String, List<String>> users = sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_DROPBOX_MAINTAIN, dropboxResources);
+				if(users != null) {
+					rv.putAll(users);
+				}
+			}
+			if(! hidden.isEmpty()) {
+				// hidden items are seen by users with either maintain permission
+				Map<String, List<String>> users1 = sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_RESOURCE_MAINTAIN_1, hidden);
+				Map<String, List<String>> users2 = sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_RESOURCE_MAINTAIN_2, hidden);
+				for(String entityReference : hidden) {
+					SortedSet<String> list = new TreeSet<String>();
+					if(users1 != null && users1.get(entityReference) != null) {
+						list.addAll(users1.get(entityReference));
+					}
+					if(users2 != null && users2.get(entityReference) != null) {
+						list.addAll(users2.get(entityReference));
+					}
+					rv.put(entityReference, new ArrayList<String>(list));
 				}
-			} else {
-				list.addAll(sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_RESOURCE_MAINTAIN_1 , entityReference));
-				list.addAll(sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_RESOURCE_MAINTAIN_2 , entityReference));
 			}
-			return new ArrayList<String>(list);
+			return rv;
 		}
 	}
 	
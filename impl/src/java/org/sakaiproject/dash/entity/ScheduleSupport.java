@@ -25,8 +25,10 @@ import java.lang.reflect.InvocationTargetException;
 import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -61,7 +63,6 @@ import org.sakaiproject.site.api.Site;
 import org.sakaiproject.site.api.SiteService;
 import org.sakaiproject.time.api.TimeRange;
 import org.sakaiproject.time.api.TimeService;
-import org.sakaiproject.user.api.User;
 import org.sakaiproject.util.ResourceLoader;
 
 /**
@@ -331,19 +332,22 @@ public class ScheduleSupport{
 		
 		public boolean isUserPermitted(String sakaiUserId, String entityReference,
 				String contextId) {
-			// use message read permission
-			
-			String accessPermission = SakaiProxy.PERMIT_SCHEDULE_ACCESS;
-			List users = sakaiProxy.unlockUsers(accessPermission , sakaiProxy.getSiteReference(contextId));
-			for (Object user : users)
-			{
-				if (sakaiUserId.equals(((User) user).getId()))
-				{
-					// user can submit
-					return true;
-				}
+			return getPermittedEntities(sakaiUserId, Collections.singletonList(entityReference), contextId).contains(entityReference);
+		}
+
+		/* (non-Javadoc)
+		 * @see org.sakaiproject.dash.entity.DashboardEntityInfo#getPermittedEntities(java.lang.String, java.util.List, java.lang.String)
+		 */
+		public Set<String> getPermittedEntities(String sakaiUserId, List<String> entityReferences,
+				String contextId) {
+			// use calendar read permission in the site, which is the same for every event
+			Set<String> rv = new HashSet<String>();
+			String siteReference = sakaiProxy.getSiteReference(contextId);
+			Set<String> permitted = sakaiProxy.getPermittedReferences(sakaiUserId, SakaiProxy.PERMIT_SCHEDULE_ACCESS, Collections.singletonList(siteReference));
+			if(permitted != null && permitted.contains(siteReference)) {
+				rv.addAll(entityReferences);
 			}
-			return false;
+			return rv;
 		}
 		
 		/**
@@ -428,14 +432,24 @@ public class ScheduleSupport{
 		}
 
 		public List<String> getUsersWithAccess(String entityReference) {
-			Collection<String> users = null;
-			users = sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_SCHEDULE_ACCESS, entityReference);
+			List<String> users = getUsersWithAccess(Collections.singletonList(entityReference)).get(entityReference);
 			List<String> rv = new ArrayList<String>();
-			if(users != null && ! users.isEmpty()) {
+			if(users != null) {
 				rv.addAll(users);
 			}
 			return rv;
 		}
+
+		/* (non-Javadoc)
+		 * @see org.sakaiproject.dash.entity.DashboardEntityInfo#getUsersWithAccess(java.util.List)
+		 */
+		public Map<String, List<String>> getUsersWithAccess(List<String> entityReferences) {
+			Map<String, List<String>> rv = sakaiProxy.getAuthorizedUsers(SakaiProxy.PERMIT_SCHEDULE_ACCESS, entityReferences);
+			if(rv == null) {
+				rv = new HashMap<String, List<String>>();
+			}
+			return rv;
+		}
 	}
 	
 	/**
@@ -27,6 +27,12 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -41,6 +47,7 @@ import org.sakaiproject.event.api.Event;
 import org.sakaiproject.dash.listener.EventProcessor;
 import org.sakaiproject.dash.logic.DashboardLogic;
 import org.sakaiproject.dash.model.JobRun;
+import org.sakaiproject.dash.app.DashboardCommonLogic;
 import org.sakaiproject.dash.app.SakaiProxy;
 import org.sakaiproject.dash.dao.JobRunImpl;
 import org.sakaiproject.dash.dao.DashHibernateDao;
@@ -54,6 +61,8 @@ public class DashAggregateJob implements StatefulJob {
 	// Spring fields
 	private int					maxEventsPerRun		= 0;
 	private int					sqlBlockSize		= 10000;
+	private int					workerCount			= 4;
+	private int					workerQueueSize		= 1000;
 	private long				startEventId		= -1;
 	private long 				lastEventIdInTable	= -1;
 	private long 				firstEventIdInTable	= -1;
@@ -69,8 +78,16 @@ public class DashAggregateJob implements StatefulJob {
 	private String				sqlGetEvent			= null;
 	private String				sqlPastSiteEvents	= null;
 	private boolean				isOracle 			= false;
+	private boolean				isMySql 			= false;
 	private boolean				isEventContextSupported = false;
 
+	// Event ids read but not yet processed, with their dates; the committed watermark sits just below the first
+	private final ConcurrentSkipListMap<Long, Date> outstandingEvents = new ConcurrentSkipListMap<Long, Date>();
+	private final AtomicLong	failedEventId		= new AtomicLong(-1L);
+
+	private final static long	TIME_BETWEEN_CHECKPOINTS = 1000L * 10L;	// ten seconds
+	private final static AggregateEvent END_OF_EVENTS = new AggregateEvent(-1L, null);
+
 	private final static String LAST_EVENT_ID		= "select max(EVENT_ID) LAST_ID from SAKAI_EVENT";
 	private final static String FIRST_EVENT_ID		= "select min(EVENT_ID) FIRST_ID from SAKAI_EVENT";
 	private final static String MYSQL_DEFAULT_COLUMNS  = "EVENT_ID as EVENT_ID,EVENT_DATE as EVENT_DATE,EVENT as EVENT,REF as REF,SESSION_USER as SESSION_USER,e.SESSION_ID as SESSION_ID";
@@ -79,18 +96,13 @@ public class DashAggregateJob implements StatefulJob {
 	private final static String ORACLE_CHECK_FOR_CONTEXT = "select column_name from USER_TAB_COLUMNS where table_name='SAKAI_EVENT' and column_name='CONTEXT'";
 	private final static String MYSQL_CONTEXT_COLUMN   = ",CONTEXT as CONTEXT";
 	private final static String ORACLE_CONTEXT_COLUMN  = ",CONTEXT";
+	private final static String GET_EVENT_ORDER		= "order by EVENT_ID asc";
 	private String MYSQL_GET_EVENT					= "select " + MYSQL_DEFAULT_COLUMNS + MYSQL_CONTEXT_COLUMN + " " +
 														"from SAKAI_EVENT e join SAKAI_SESSION s on e.SESSION_ID=s.SESSION_ID " +
-														"where EVENT_ID >= ? and EVENT_ID < ? " +
-														"order by EVENT_ID asc ";
-	private String ORACLE_GET_EVENT					= "SELECT * FROM ( " +
-														"SELECT " +
-															" ROW_NUMBER() OVER (ORDER BY EVENT_ID ASC) AS rn, " +
-															ORACLE_DEFAULT_COLUMNS + ORACLE_CONTEXT_COLUMN + " " +
+														"where EVENT_ID >= ? and EVENT_ID <= ? ";
+	private String ORACLE_GET_EVENT					= "SELECT " + ORACLE_DEFAULT_COLUMNS + ORACLE_CONTEXT_COLUMN + " " +
 														"from SAKAI_EVENT e join SAKAI_SESSION s on e.SESSION_ID=s.SESSION_ID " +
-														"where EVENT_ID >= ? " +
-														") " +
-														"WHERE rn BETWEEN ? AND  ?";
+														"where EVENT_ID >= ? and EVENT_ID <= ? ";
 	private String MYSQL_PAST_SITE_EVENTS			= "select " + MYSQL_DEFAULT_COLUMNS + MYSQL_CONTEXT_COLUMN + " " +
 														"from SAKAI_EVENT e join SAKAI_SESSION s on e.SESSION_ID=s.SESSION_ID " +
 														"where (CONTEXT = ? or (EVENT in ('pres.begin','pres.end') and REF = ?)) " +
@@ -113,6 +125,11 @@ public class DashAggregateJob implements StatefulJob {
     public void setDashboardLogic(DashboardLogic dashboardLogic) {
         this.dashboardLogic = dashboardLogic;
     }
+    
+	protected DashboardCommonLogic dashboardCommonLogic;
+    public void setDashboardCommonLogic(DashboardCommonLogic dashboardCommonLogic) {
+        this.dashboardCommonLogic = dashboardCommonLogic;
+    }
 	
 	public void init(){
 		doInitialCheck();
@@ -184,6 +201,9 @@ public class DashAggregateJob implements StatefulJob {
 		jobRun = new JobRunImpl();
 		jobRun.setJobStartDate(new Date(System.currentTimeMillis()));
 		long lastEventIdInTable = 0;
+		// this bean outlives a single run, so look the bounds up again
+		this.lastEventIdInTable = -1;
+		this.firstEventIdInTable = -1;
 
 		try{
 			lastEventIdInTable = getLastEventIdInTable();
@@ -303,130 +323,107 @@ public class DashAggregateJob implements StatefulJob {
 	}
 
 	private String startJob() throws SQLException {
-		List<Event> eventsQueue = new ArrayList<Event>();
 		long counter = 0;
-		long offset = 0;
-		long lastProcessedEventId = 0;
-		long lastProcessedEventIdWithSuccess = 0;
+		long lastReadEventId = -1;
+		long committedEventId = -1;
 		long firstEventIdProcessed = -1;
-		long firstEventIdProcessedInBlock = -1;
-		Date lastEventDate = null;
-		Date lastEventDateWithSuccess = null;
-		boolean abortIteration = false;
+		Date lastReadEventDate = null;
 		long start = System.currentTimeMillis();
+		long lastCheckpoint = start;
 		boolean sqlError = false;
 		String returnMessage = null;
 		
 		Connection connection = getEventDbConnection();
 		long eventIdLowerLimit = getEventIdLowerLimit();
+		long eventIdUpperLimit = (lastEventIdInTable > 0) ? lastEventIdInTable : Long.MAX_VALUE;
+		outstandingEvents.clear();
+		failedEventId.set(-1L);
+		EventProcessingWorker[] workers = startWorkers();
 		PreparedStatement st = null;
 		ResultSet rs = null;
 		try{
-			st = connection.prepareStatement(sqlGetEvent);
-			rs = null;
+			// forward-only, read-only cursor: rows are streamed to the workers as they 
+			// arrive instead of being collected into a list one block at a time
+			// only event types with a registered processor are read at all
+			List<String> eventTypes = new ArrayList<String>(dashboardLogic.getEventProcessorIdentifiers());
+			st = connection.prepareStatement(getEventQuery(eventTypes.size()), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			if(isMySql) {
+				// the only fetch size Connector/J honours for streaming
+				st.setFetchSize(Integer.MIN_VALUE);
+			}else{
+				st.setFetchSize(sqlBlockSize);
+			}
+			if(getMaxEventsPerRun() > 0){
+				st.setMaxRows(getMaxEventsPerRun());
+			}
+			st.setLong(1, eventIdLowerLimit);		// >= startId
+			st.setLong(2, eventIdUpperLimit);		// <= last id when the job started
+			for(int i = 0; i < eventTypes.size(); i++){
+				st.setString(3 + i, eventTypes.get(i));	// EVENT in (...)
+			}
+			rs = st.executeQuery();
+			lastReadEventId = eventIdLowerLimit - 1;
+			committedEventId = lastReadEventId;
+			LOG.info("Streaming events from id " + eventIdLowerLimit + " to " + workers.length + " workers.");
 			
-			while(!abortIteration) {
-				abortIteration = true;
-				st.clearParameters();		
-				if(!isOracle){
-					if(firstEventIdProcessed == -1)
-						offset = eventIdLowerLimit;
-					st.setLong(1, offset);					// MySQL >= startId	
-					st.setLong(2, sqlBlockSize + offset);	// MySQL < endId
-				}else{
-					st.setLong(1, eventIdLowerLimit);		// Oracle lower limit	
-					st.setLong(2, offset);					// Oracle offset
-					st.setLong(3, sqlBlockSize + offset);	// Oracle limit	
-				}
-				rs = st.executeQuery();
-				
-				while(rs.next()){
-					abortIteration = false;
-					Date date = null;
-					String event = null;
-					String ref = null;
-					String context = null;
-					String sessionUser = null;
-					String sessionId = null;
-					try{
-						//If an exception is launched, iteration is not aborted but no event is added to event queue
-						date = new Date(rs.getTimestamp("EVENT_DATE").getTime());
-						event = rs.getString("EVENT");
-						ref = rs.getString("REF");
-						sessionUser = rs.getString("SESSION_USER");
-						sessionId = rs.getString("SESSION_ID");
-						if(isEventContextSupported)
-							context = rs.getString("CONTEXT");
-						EventCopy eventcopy = new EventCopy(date,event,ref,context,sessionUser,sessionId, ' ',0);
-						eventsQueue.add(eventcopy);
-						
-						counter++;					
-						lastProcessedEventId = rs.getInt("EVENT_ID");
-						lastEventDate = date;
-						if(firstEventIdProcessed == -1)
-							firstEventIdProcessed = jobRun.getStartEventId(); //was: lastProcessedEventId;
-						if(firstEventIdProcessedInBlock == -1)
-							firstEventIdProcessedInBlock = lastProcessedEventId;
-					}catch(Exception e){
-						if(LOG.isDebugEnabled())
-							LOG.debug("Ignoring "+event+", "+ref+", "+date+", "+sessionUser+", "+sessionId+" due to: "+e.toString());
+			while(failedEventId.get() < 0 && rs.next()){
+				long eventId = rs.getLong("EVENT_ID");
+				Date date = null;
+				String event = null;
+				String ref = null;
+				String context = null;
+				String sessionUser = null;
+				String sessionId = null;
+				try{
+					//If an exception is launched, iteration is not aborted but no event is added to event queue
+					event = rs.getString("EVENT");
+					if(dashboardLogic.getEventProcessor(event) == null){
+						lastReadEventId = eventId;
+						continue;
 					}
+					date = new Date(rs.getTimestamp("EVENT_DATE").getTime());
+					ref = rs.getString("REF");
+					sessionUser = rs.getString("SESSION_USER");
+					sessionId = rs.getString("SESSION_ID");
+					if(isEventContextSupported)
+						context = rs.getString("CONTEXT");
+					EventCopy eventcopy = new EventCopy(date,event,ref,context,sessionUser,sessionId, ' ',0);
+					
+					outstandingEvents.put(eventId, date);
+					if(! dispatch(workers, new AggregateEvent(eventId, eventcopy))){
+						break;
+					}
+					counter++;
+					lastReadEventDate = date;
+					if(firstEventIdProcessed == -1)
+						firstEventIdProcessed = jobRun.getStartEventId(); //was: lastProcessedEventId;
+				}catch(InterruptedException e){
+					throw e;
+				}catch(Exception e){
+					if(LOG.isDebugEnabled())
+						LOG.debug("Ignoring "+event+", "+ref+", "+date+", "+sessionUser+", "+sessionId+" due to: "+e.toString());
 				}
-				rs.close();
+				lastReadEventId = eventId;
 				
-				if(!abortIteration){
-					// process events
-					boolean processedOk = true;
-					LOG.info("Found "+counter+" events, starting processing.");
-					for (Event event : eventsQueue) {
-						if(LOG.isDebugEnabled()) {
-							LOG.debug("Dashboard Event Processing Thread is processing event: " + event.getEvent());
-						}
-						//TODO: This seems efficient to retrieve, may want to cache event processors for each event?
-						EventProcessor eventProcessor = dashboardLogic.getEventProcessor(event.getEvent());
-
-						SecurityAdvisor advisor = new DashboardAggregateSecurityAdvisor();
-						sakaiProxy.pushSecurityAdvisor(advisor);
-						try {
-							if (eventProcessor != null) {
-								eventProcessor.processEvent(event);
-								LOG.debug("Event " + event.getEvent() +" successfully processed.");
-							}
-							else {
-								LOG.debug("No processor to process event "+event.getEvent());
-							}
-						} catch (Exception e) {
-							LOG.warn("Error processing event: " + event, e);
-							processedOk=false;
-						} finally {
-							sakaiProxy.popSecurityAdvisor(advisor);
-							sakaiProxy.clearThreadLocalCache();
-						}
-					}
-					eventsQueue.clear();
-					if(processedOk){
-						lastProcessedEventIdWithSuccess = lastProcessedEventId;
-						lastEventDateWithSuccess = lastEventDate;
-						jobRun.setStartEventId(firstEventIdProcessed);
-						jobRun.setEndEventId(lastProcessedEventIdWithSuccess);
-						jobRun.setLastEventDate(lastEventDateWithSuccess);
-						jobRun.setJobEndDate(new Date(System.currentTimeMillis()));
-						saveJobRun(jobRun);
-						firstEventIdProcessedInBlock = -1;
-						if(counter >= getMaxEventsPerRun()){
-							abortIteration = true;
-						}else if(counter + sqlBlockSize < getMaxEventsPerRun()){
-							offset += sqlBlockSize;	
-						}else{
-							offset += getMaxEventsPerRun() - counter;
-						}
-					}else{
-						returnMessage = "An error occurred while processing/persisting events to db. Please check your logs, fix possible problems and re-run this job (will start after last successful processed event).";
-						LOG.error(returnMessage);
-						throw new Exception(returnMessage);
-					}
+				if(firstEventIdProcessed != -1 && ((sqlBlockSize > 0 && counter % sqlBlockSize == 0) || System.currentTimeMillis() - lastCheckpoint > TIME_BETWEEN_CHECKPOINTS)){
+					committedEventId = checkpoint(firstEventIdProcessed, committedEventId, lastReadEventId, lastReadEventDate);
+					lastCheckpoint = System.currentTimeMillis();
 				}
 			}
+			rs.close();
+			rs = null;
+			
+			stopWorkers(workers);
+			if(failedEventId.get() >= 0){
+				returnMessage = "An error occurred while processing/persisting events to db. Please check your logs, fix possible problems and re-run this job (will start after last successful processed event).";
+				LOG.error(returnMessage);
+			}
+			if(firstEventIdProcessed != -1){
+				committedEventId = checkpoint(firstEventIdProcessed, committedEventId, lastReadEventId, lastReadEventDate);
+			}
+			if(returnMessage != null){
+				throw new Exception(returnMessage);
+			}
 
 		}catch(SQLException e){
 			sqlError = true;
@@ -442,6 +439,11 @@ public class DashAggregateJob implements StatefulJob {
 			}
 		}finally{
 			try{
+				stopWorkers(workers);
+				if(sqlError && firstEventIdProcessed != -1){
+					// keep whatever the workers finished before the failure
+					checkpoint(firstEventIdProcessed, committedEventId, lastReadEventId, lastReadEventDate);
+				}
 				if(rs != null)
 					rs.close();
 			}finally{
@@ -463,20 +465,142 @@ public class DashAggregateJob implements StatefulJob {
 		
 		if(firstEventIdProcessed == -1 && jobRun != null){
 			// no data was processed: do not persist to DB
-//			long eventId = jobRun.getEndEventId();
-//			firstEventIdProcessed = eventId;
-//			lastProcessedEventIdWithSuccess = eventId;
-//			jobRun.setEndEventId(lastProcessedEventId > 0 ? lastProcessedEventId : jobRun.getStartEventId());
-//			jobRun.setLastEventDate(lastEventDate != null ? lastEventDate : null);
-//			jobRun.setJobEndDate(new Date(System.currentTimeMillis()));
 			return "0 events processed in "+processingTime+"s (no entry will be added to DASH_JOB_RUN; only events associated with a session are processed)";
-		}else{
-			saveJobRun(jobRun);
 		}
 		
-		return counter + " events processed (ids: "+firstEventIdProcessed+" - "+lastProcessedEventIdWithSuccess+") in "+processingTime+"s (only events associated with a session are processed)";
+		return counter + " events processed (ids: "+firstEventIdProcessed+" - "+committedEventId+") in "+processingTime+"s (only events associated with a session are processed)";
+	}
+
+	/**
+	 * @param eventTypeCount the number of event types to restrict the query to; 0 for no restriction
+	 * @return the event query with an EVENT in (...) clause holding eventTypeCount parameters
+	 */
+	private String getEventQuery(int eventTypeCount) {
+		StringBuilder buf = new StringBuilder(sqlGetEvent);
+		if(eventTypeCount > 0){
+			buf.append("and EVENT in (");
+			for(int i = 0; i < eventTypeCount; i++){
+				if(i > 0){
+					buf.append(",");
+				}
+				buf.append("?");
+			}
+			buf.append(") ");
+		}
+		buf.append(GET_EVENT_ORDER);
+		return buf.toString();
 	}
 
+	/**
+	 * Advance the committed EVENT_ID watermark to just below the oldest event that
+	 * has been read but not yet processed, and save it to DASH_JOB_RUN if it moved.
+	 * A failed event is never removed from the outstanding events, so the watermark
+	 * never passes it.
+	 * @return the committed watermark
+	 */
+	private long checkpoint(long firstEventIdProcessed, long committedEventId, long lastReadEventId, Date lastReadEventDate) {
+		long watermark = lastReadEventId;
+		Date watermarkDate = lastReadEventDate;
+		Map.Entry<Long, Date> oldest = outstandingEvents.firstEntry();
+		if(oldest != null){
+			watermark = oldest.getKey().longValue() - 1;
+			// events are read in id order, so the oldest pending event's date bounds the watermark's
+			watermarkDate = oldest.getValue();
+		}
+		if(watermark <= committedEventId){
+			return committedEventId;
+		}
+		jobRun.setStartEventId(firstEventIdProcessed);
+		jobRun.setEndEventId(watermark);
+		jobRun.setLastEventDate(watermarkDate);
+		jobRun.setJobEndDate(new Date(System.currentTimeMillis()));
+		if(! saveJobRun(jobRun)){
+			return committedEventId;
+		}
+		if(LOG.isDebugEnabled()){
+			LOG.debug("Committed events up to id " + watermark);
+		}
+		return watermark;
+	}
+	
+	/**
+	 * Hand an event to the worker for its entity, waiting while that worker's queue is full.
+	 * @return false if the worker has died and the event could not be handed over.
+	 */
+	private boolean dispatch(EventProcessingWorker[] workers, AggregateEvent aggregateEvent) throws InterruptedException {
+		EventProcessingWorker worker = workers[getEventPartition(aggregateEvent.event, workers.length)];
+		while(! worker.eventQueue.offer(aggregateEvent, 1L, TimeUnit.SECONDS)){
+			if(! worker.isAlive()){
+				LOG.error("Dashboard Aggregate Job worker " + worker.getName() + " has stopped; aborting job.");
+				markFailed(aggregateEvent.eventId);
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Select the worker that should handle an event. All events for the same entity 
+	 * are handled by the same worker, in order.
+	 */
+	private int getEventPartition(EventCopy event, int workerCount) {
+		String key = event.getResource();
+		if(key == null) {
+			key = event.getContext();
+		}
+		if(key == null) {
+			key = event.getEvent();
+		}
+		if(key == null || workerCount < 2) {
+			return 0;
+		}
+		return (key.hashCode() & Integer.MAX_VALUE) % workerCount;
+	}
+	
+	private EventProcessingWorker[] startWorkers() {
+		int count = (getWorkerCount() > 0) ? getWorkerCount() : 1;
+		EventProcessingWorker[] workers = new EventProcessingWorker[count];
+		for(int i = 0; i < count; i++){
+			workers[i] = new EventProcessingWorker(i, (getWorkerQueueSize() > 0) ? getWorkerQueueSize() : 1);
+			workers[i].start();
+		}
+		return workers;
+	}
+	
+	/**
+	 * Ask each worker to stop once its queue is drained and wait for all of them. 
+	 * Safe to call more than once.
+	 */
+	private void stopWorkers(EventProcessingWorker[] workers) {
+		for(EventProcessingWorker worker : workers){
+			if(worker.isAlive() && ! worker.stopRequested){
+				worker.stopRequested = true;
+				try{
+					while(worker.isAlive() && ! worker.eventQueue.offer(END_OF_EVENTS, 1L, TimeUnit.SECONDS)){
+						// wait for room in the queue
+					}
+				}catch(InterruptedException e){
+					worker.interrupt();
+				}
+			}
+		}
+		for(EventProcessingWorker worker : workers){
+			try{
+				worker.join();
+			}catch(InterruptedException e){
+				LOG.warn("Interrupted while waiting for " + worker.getName());
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+	
+	private void markFailed(long eventId) {
+		long current = failedEventId.get();
+		while((current < 0 || eventId < current) && ! failedEventId.compareAndSet(current, eventId)){
+			current = failedEventId.get();
+		}
+	}
 	private long getEventIdLowerLimit() {
 		long start = getStartEventId();
 		long nextEventId = jobRun.getStartEventId();
@@ -524,8 +648,11 @@ public class DashAggregateJob implements StatefulJob {
 				String sessionId = null;
 				try{
 					//If an exception is launched, iteration is not aborted but no event is added to event queue
-					date = new Date(rs.getTimestamp("EVENT_DATE").getTime());
 					event = rs.getString("EVENT");
+					if(dashboardLogic.getEventProcessor(event) == null){
+						continue;
+					}
+					date = new Date(rs.getTimestamp("EVENT_DATE").getTime());
 					ref = rs.getString("REF");
 					sessionUser = rs.getString("SESSION_USER");
 					sessionId = rs.getString("SESSION_ID");
@@ -541,23 +668,19 @@ public class DashAggregateJob implements StatefulJob {
 			
 			// process events
 			boolean processedOk = true;
+			LOG.info("Found "+counter+" events, starting processing.");
 			for (Event event : eventsQueue) {
 				if(LOG.isDebugEnabled()) {
 					LOG.debug("Dashboard Event Processing Thread is processing event: " + event.getEvent());
 				}
+				// only events with a processor were queued above
 				EventProcessor eventProcessor = dashboardLogic.getEventProcessor(event.getEvent());
-				LOG.info("Found "+counter+" events, starting processing.");
-
+				
 				SecurityAdvisor advisor = new DashboardAggregateSecurityAdvisor();
 				sakaiProxy.pushSecurityAdvisor(advisor);
 				try {
-					if (eventProcessor != null) {
-						eventProcessor.processEvent(event);
-						LOG.debug("Event " + event.getEvent() +" successfully processed.");
-					}
-					else {
-						LOG.debug("No processor to process event "+event.getEvent());
-					}
+					eventProcessor.processEvent(event);
+					LOG.debug("Event " + event.getEvent() +" successfully processed.");
 				} catch (Exception e) {
 					LOG.warn("Error processing event: " + event, e);
 					processedOk = false;
@@ -611,6 +734,7 @@ public class DashAggregateJob implements StatefulJob {
 			// SAKAI_EVENT and SAKAI_SESSION are on the same database
 			try{
 				connection = sqlService.borrowConnection();
+				isMySql = "mysql".equals(sqlService.getVendor());
 				if(sqlService.getVendor().equals("oracle")){
 					isOracle = true;
 					if(isEventContextSupported)
@@ -643,6 +767,7 @@ public class DashAggregateJob implements StatefulJob {
 			try{
 				if(extDbdriver == null){
 					extDbdriver = Class.forName(getDriverClassName()).newInstance();
+					isMySql = getDriverClassName().indexOf("mysql") >= 0;
 					if(getDriverClassName().equals("oracle.jdbc.driver.OracleDriver")){
 						isOracle = true;
 						if(isEventContextSupported)
@@ -743,6 +868,22 @@ public class DashAggregateJob implements StatefulJob {
 		this.sqlBlockSize = sqlBlockSize;
 	}
 
+	public int getWorkerCount() {
+		return workerCount;
+	}
+
+	public void setWorkerCount(int workerCount) {
+		this.workerCount = workerCount;
+	}
+
+	public int getWorkerQueueSize() {
+		return workerQueueSize;
+	}
+
+	public void setWorkerQueueSize(int workerQueueSize) {
+		this.workerQueueSize = workerQueueSize;
+	}
+
 	public long getStartEventId() {
 		return startEventId;
 	}
@@ -795,6 +936,84 @@ public class DashAggregateJob implements StatefulJob {
 		this.dashHibernateDao = dashHibernateDao;
 	}
 	
+	/**
+	 * An event read from SAKAI_EVENT together with its EVENT_ID.
+	 */
+	private static class AggregateEvent {
+		private final long eventId;
+		private final EventCopy event;
+		
+		private AggregateEvent(long eventId, EventCopy event) {
+			this.eventId = eventId;
+			this.event = event;
+		}
+	}
+	
+	/**
+	 * Processes the events for its share of the entities, in the order they were read.
+	 * The security advisor is pushed for each event that has a processor, since clearing 
+	 * the thread local cache after the event also clears the advisor stack.
+	 */
+	private class EventProcessingWorker extends Thread {
+		private final BlockingQueue<AggregateEvent> eventQueue;
+		private volatile boolean stopRequested = false;
+		
+		private EventProcessingWorker(int partition, int queueSize) {
+			super("Dashboard Aggregate Job Worker " + partition);
+			this.eventQueue = new ArrayBlockingQueue<AggregateEvent>(queueSize);
+			setDaemon(true);
+		}
+		
+		public void run() {
+			try {
+				while(true) {
+					AggregateEvent aggregateEvent = eventQueue.take();
+					if(aggregateEvent == END_OF_EVENTS) {
+						break;
+					}
+					if(failedEventId.get() >= 0) {
+						// the job is being aborted; leave the event outstanding for the next run
+						continue;
+					}
+					if(processEvent(aggregateEvent.event)) {
+						outstandingEvents.remove(aggregateEvent.eventId);
+					} else {
+						markFailed(aggregateEvent.eventId);
+					}
+				}
+			} catch (InterruptedException e) {
+				LOG.warn(getName() + " interrupted");
+			}
+		}
+		
+		private boolean processEvent(Event event) {
+			if(LOG.isDebugEnabled()) {
+				LOG.debug(getName() + " is processing event: " + event.getEvent());
+			}
+			EventProcessor eventProcessor = dashboardLogic.getEventProcessor(event.getEvent());
+			if (eventProcessor == null) {
+				LOG.debug("No processor to process event "+event.getEvent());
+				return true;
+			}
+			SecurityAdvisor advisor = new DashboardAggregateSecurityAdvisor();
+			sakaiProxy.pushSecurityAdvisor(advisor);
+			try {
+				if(dashboardCommonLogic != null) {
+					dashboardCommonLogic.removeCachedEntityMapping(event.getResource());
+				}
+				eventProcessor.processEvent(event);
+				LOG.debug("Event " + event.getEvent() +" successfully processed.");
+			} catch (Exception e) {
+				LOG.warn("Error processing event: " + event, e);
+				return false;
+			} finally {
+				sakaiProxy.popSecurityAdvisor(advisor);
+				sakaiProxy.clearThreadLocalCache();
+			}
+			return true;
+		}
+	}
+	
 	/**
 	 * This job has full access
 	 *
@@ -21,24 +21,36 @@
 
 package org.sakaiproject.dash.logic;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
-import java.util.Queue;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.Collection;
+import java.util.Collections;
 
 import net.sf.ehcache.Cache;
+import net.sf.ehcache.Element;
 
 import org.apache.log4j.Logger;
 import org.sakaiproject.authz.api.SecurityAdvisor;
@@ -54,6 +66,7 @@ import org.sakaiproject.dash.model.AvailabilityCheck;
 import org.sakaiproject.dash.model.CalendarItem;
 import org.sakaiproject.dash.model.CalendarLink;
 import org.sakaiproject.dash.model.Context;
+import org.sakaiproject.dash.model.EventLogEntry;
 import org.sakaiproject.dash.model.NewsItem;
 import org.sakaiproject.dash.model.NewsLink;
 import org.sakaiproject.dash.model.Person;
@@ -79,17 +92,78 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 	private static final long ONE_WEEK_IN_MILLIS = 1000L * 60L * 60L * 24L * 7L;
 	public static final long TIME_BETWEEN_AVAILABILITY_CHECKS = 1000L * 60L * 1L;  // one minute
 	public static final long TIME_BETWEEN_EXPIRING_AND_PURGING = 1000L * 60L * 60L; // one hour
+	public static final long TIME_BETWEEN_PURGE_SLICES = 1000L * 60L * 1L;  // one minute
+	public static final int DEFAULT_PURGE_BATCH_SIZE = 1000;
+	public static final int DEFAULT_PURGE_MAX_ROWS_PER_SECOND = 2000;
+	public static final int DEFAULT_PURGE_MAX_SECONDS_PER_RUN = 20;
+	public static final int LINK_PARTITION_WEEKS_AHEAD = 4;
+	// repeating events read per query when extending the horizon
+	public static final int REPEATING_EVENT_PAGE_SIZE = 200;
 
 	protected Date nextHorizonUpdate = new Date();
 		
 	protected long nextTimeToQueryAvailabilityChecks = System.currentTimeMillis();
 	protected long nextTimeToExpireAndPurge = System.currentTimeMillis();
 	
-	protected DashboardEventProcessingThread eventProcessingThread = new DashboardEventProcessingThread();
-	protected Queue<EventCopy> eventQueue = new ConcurrentLinkedQueue<EventCopy>();
+	public static final String PROP_EVENT_WORKER_COUNT = "dashboard_eventWorkerCount";
+	public static final int DEFAULT_EVENT_WORKER_COUNT = 4;
+	
+	public static final String PROP_EVENT_QUEUE_CAPACITY = "dashboard_eventQueueCapacity";
+	public static final int DEFAULT_EVENT_QUEUE_CAPACITY = 8192;
+	public static final String PROP_EVENT_JOURNAL_ENABLED = "dashboard_eventJournalEnabled";
+	public static final String PROP_EVENT_JOURNAL_DIR = "dashboard_eventJournalDir";
+	public static final String PROP_EVENT_QUEUE_AGE_WARNING = "dashboard_eventQueueAgeWarning";
+	public static final int DEFAULT_EVENT_QUEUE_AGE_WARNING = 300; // seconds
+	
+	protected static final String EVENT_JOURNAL_PREFIX = "dashboard-events-";
+	protected static final String EVENT_JOURNAL_SUFFIX = ".journal";
+	protected static final String EVENT_REPLAY_SUFFIX = ".replay";
+	protected static final int EVENT_JOURNAL_READ_SIZE = 500;
+	protected static final long WORKER_SHUTDOWN_WAIT = 1000L * 10L;
+	protected static final long TIME_BETWEEN_EVENT_QUEUE_SAMPLES = 1000L * 60L * 1L;  // one minute
+	protected static final long TIME_BETWEEN_TASK_LOCK_CHECKS = 1000L * 30L;  // thirty seconds
+	protected static final long TIME_BETWEEN_ADMIN_CHECKS = 1000L * 60L * 1L;  // one minute
+	protected static final long MINIMUM_HOUSEKEEPING_INTERVAL = 1000L * 2L;
+	protected static final long MAXIMUM_WORKER_IDLE_NANOS = 1000L * 1000L * 1000L * 60L;  // one minute
+	
+	public static final String PROP_ACTIVITY_LOG_QUEUE_CAPACITY = "dashboard_activityLogQueueCapacity";
+	public static final int DEFAULT_ACTIVITY_LOG_QUEUE_CAPACITY = 10000;
+	public static final String PROP_ACTIVITY_LOG_BATCH_SIZE = "dashboard_activityLogBatchSize";
+	public static final int DEFAULT_ACTIVITY_LOG_BATCH_SIZE = 100;
+	public static final String PROP_ACTIVITY_LOG_FLUSH_INTERVAL = "dashboard_activityLogFlushInterval";
+	public static final int DEFAULT_ACTIVITY_LOG_FLUSH_INTERVAL = 5000; // milliseconds
+	
+	public static final String PROP_EVENT_COALESCE_WINDOW = "dashboard_eventCoalesceWindow";
+	public static final int DEFAULT_EVENT_COALESCE_WINDOW = 2000; // milliseconds
+	protected static final String COALESCE_KEY_SEPARATOR = "::";
+	
+	// revise events that are safe to coalesce because their processors read the current 
+	// state of the entity rather than relying on details of the event
+	public static final Set<String> COALESCED_EVENTS = new HashSet<String>();
+	
+	protected volatile DashboardEventProcessingThread[] eventProcessingThreads = null;
+	protected long eventCoalesceWindow = DEFAULT_EVENT_COALESCE_WINDOW;
+	protected DashboardHousekeepingThread housekeepingThread = null;
 	protected Object eventQueueLock = new Object();
 	
-	protected static long dashboardEventProcessorThreadId = 0L;
+	protected static Set<Long> dashboardEventProcessorThreadIds = new CopyOnWriteArraySet<Long>();
+	
+	protected AtomicLong enqueuedEventCount = new AtomicLong(0L);
+	protected AtomicLong spilledEventCount = new AtomicLong(0L);
+	protected AtomicLong droppedEventCount = new AtomicLong(0L);
+	protected AtomicLong coalescedEventCount = new AtomicLong(0L);
+	protected volatile long enqueueRatePerMinute = 0L;
+	
+	protected DashboardActivityLogThread activityLogThread = null;
+	protected AtomicLong droppedActivityCount = new AtomicLong(0L);
+	
+	protected AtomicLong entityCacheHits = new AtomicLong(0L);
+	protected AtomicLong entityCacheMisses = new AtomicLong(0L);
+	protected AtomicLong entityCacheInvalidations = new AtomicLong(0L);
+	protected long lastEventQueueSampleCount = 0L;
+	protected long lastEventQueueSampleTime = 0L;
+	protected volatile long nextEventQueueSample = 0L;
+	protected final Object eventQueueSampleLock = new Object();
 
 	protected String serverId = null;
 	protected String serverHandlingAvailabilityChecks = "";
@@ -132,6 +206,27 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 		PREFERENCE_EVENTS.add(EVENT_DASH_HIDE);
 		PREFERENCE_EVENTS.add(EVENT_DASH_SHOW);
 		PREFERENCE_EVENTS.add(EVENT_DASH_HIDE_MOTD);
+		
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_UPDATE_ASSIGNMENT_TITLE);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_UPDATE_ASSIGNMENT_ACCESS);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_UPDATE_ASSIGNMENT_OPENDATE);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_UPDATE_ASSIGNMENT_DUEDATE);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_UPDATE_ASSIGNMENT_CLOSEDATE);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_UPDATE_ASSIGNMENT);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_ANNC_UPDATE_TITLE);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_ANNC_UPDATE_ACCESS);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_ANNC_UPDATE_AVAILABILITY);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_ANNC_UPDATE_ANY);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_ANNC_UPDATE_OWN);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_MODIFY_CALENDAR_EVENT_TITLE);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_MODIFY_CALENDAR_EVENT_TIME);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_MODIFY_CALENDAR_EVENT_ACCESS);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_MODIFY_CALENDAR_EVENT_FREQUENCY);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_SCHEDULE_REVISE_EVENT);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_CONTENT_REVISE);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_CONTENT_UPD_ACCESS);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_CONTENT_UPD_TITLE);
+		COALESCED_EVENTS.add(SakaiProxy.EVENT_CONTENT_UPD_VISIBILITY);
 	}	
 	
 	protected String propLoopTimerEnabledLocally = null;
@@ -181,6 +276,21 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 		this.cache = cache;
 	}
 	
+	/** Results of getEntityMapping(), keyed by entity reference. Each value maps a user and locale to a mapping. */
+	protected Cache entityCache;
+	protected static final String ENTITY_MAPPING_KEY_SEPARATOR = "|";
+	
+	public void setEntityCache(Cache entityCache) {
+		this.entityCache = entityCache;
+	}
+	
+	/** Link lists cached per user by DashboardUserLogicImpl, keyed by sakai id. */
+	protected Cache linkCache;
+	
+	public void setLinkCache(Cache linkCache) {
+		this.linkCache = linkCache;
+	}
+	
 	public void updateTimeOfRepeatingCalendarItem(RepeatingCalendarItem repeatingEvent, Date oldTime, Date newTime) {
 		if(repeatingEvent == null) {
 			logger.warn("updateTimeOfRepeatingCalendarItem() called with null parameter ");
@@ -240,14 +350,93 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 			if(logger.isDebugEnabled()) {
 				logger.debug("getEntityMapping(" + entityType + "," + entityReference + "," + locale + ") " + entityTypeDef);
 			}
+			String sakaiUserId = sakaiProxy.getCurrentUserId();
+			Map<String, Object> cached = getCachedEntityMapping(entityReference, sakaiUserId, locale.toString());
+			if(cached != null) {
+				entityCacheHits.incrementAndGet();
+				map.putAll(cached);
+				return map;
+			}
+			if(entityCache != null && entityReference != null) {
+				entityCacheMisses.incrementAndGet();
+			}
 			Map<String, Object> values = processFormattedText(entityTypeDef.getValues(entityReference, locale.toString()), 6);
 			map.putAll(values);
 			map.putAll(entityTypeDef.getProperties(entityReference, locale.toString()));
 			map.put(DashboardEntityInfo.VALUES_ORDER, entityTypeDef.getOrder(entityReference, locale.toString()));
+			// an entity that is not available yet may show more (e.g. its link) once it is, so it is not cached
+			if(! values.isEmpty() && entityCache != null && entityTypeDef.isAvailable(entityReference)) {
+				cacheEntityMapping(entityReference, sakaiUserId, locale.toString(), map);
+			}
 		}
 		
 		return map;
 	}
+	
+	/**
+	 * Get a mapping cached for one user. Fetching the entity is what enforces the user's 
+	 * permissions, and the values may include links built for that user (such as deep 
+	 * links), so mappings are never shared between users.
+	 * @param entityReference
+	 * @param sakaiUserId
+	 * @param localeCode
+	 * @return the mapping, or null if none has been cached for the user.
+	 */
+	protected Map<String, Object> getCachedEntityMapping(String entityReference, String sakaiUserId, String localeCode) {
+		if(entityCache == null || entityReference == null || sakaiUserId == null) {
+			return null;
+		}
+		Element element = entityCache.get(entityReference);
+		if(element == null) {
+			return null;
+		}
+		Map<String, Map<String, Object>> mappings = (Map<String, Map<String, Object>>) element.getObjectValue();
+		return mappings.get(getEntityMappingKey(sakaiUserId, localeCode));
+	}
+	
+	protected void cacheEntityMapping(String entityReference, String sakaiUserId, String localeCode, Map<String, Object> mapping) {
+		if(entityCache == null || entityReference == null || sakaiUserId == null) {
+			return;
+		}
+		Map<String, Map<String, Object>> mappings = null;
+		Element element = entityCache.get(entityReference);
+		if(element != null) {
+			mappings = (Map<String, Map<String, Object>>) element.getObjectValue();
+		} else {
+			mappings = new ConcurrentHashMap<String, Map<String, Object>>();
+			entityCache.put(new Element(entityReference, mappings));
+		}
+		mappings.put(getEntityMappingKey(sakaiUserId, localeCode), Collections.unmodifiableMap(new HashMap<String, Object>(mapping)));
+	}
+	
+	/**
+	 * Each entity's cache entry holds one mapping per user and locale, so removing 
+	 * the entry clears them all.
+	 */
+	protected String getEntityMappingKey(String sakaiUserId, String localeCode) {
+		return sakaiUserId + ENTITY_MAPPING_KEY_SEPARATOR + localeCode;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.DashboardCommonLogic#removeCachedEntityMapping(java.lang.String)
+	 */
+	public void removeCachedEntityMapping(String entityReference) {
+		if(entityCache != null && entityReference != null && entityCache.remove(entityReference)) {
+			entityCacheInvalidations.incrementAndGet();
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.DashboardCommonLogic#getEntityMappingCacheStatistics()
+	 */
+	public Map<String, Long> getEntityMappingCacheStatistics() {
+		Map<String, Long> stats = new TreeMap<String, Long>();
+		stats.put(STAT_ENTITY_CACHE_HITS, entityCacheHits.get());
+		stats.put(STAT_ENTITY_CACHE_MISSES, entityCacheMisses.get());
+		stats.put(STAT_ENTITY_CACHE_INVALIDATIONS, entityCacheInvalidations.get());
+		stats.put(STAT_ENTITY_CACHE_SIZE, (long) (entityCache == null ? 0 : entityCache.getSize()));
+		return stats;
+	}
 
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.app.DashboardCommonLogic#getString(java.lang.String, java.lang.String, java.lang.String)
@@ -365,23 +554,21 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 				if(checks != null) {
 					logger.debug("DashboardCommonLogicImpl.handleAvailabilityChecks checks size=" + checks.size());
 					int count = 0;
+					// entities that became available, by entity type, so that users with 
+					// access can be resolved for all of them at once
+					Map<DashboardEntityInfo, Set<String>> availableEntities = new LinkedHashMap<DashboardEntityInfo, Set<String>>();
 					for(AvailabilityCheck check : checks) {
 						DashboardEntityInfo dashboardEntityInfo = this.dashboardLogic.getDashboardEntityInfo(check.getEntityTypeId());
 						if(dashboardEntityInfo == null) {
 							logger.warn("Unable to process AvailabilityCheck because entityType is null " + check.toString());
 						} else if(dashboardEntityInfo.isAvailable(check.getEntityReference())) {
 							// need to add links
-							List<CalendarItem> calendarItems = dao.getCalendarItems(check.getEntityReference());
-							for(CalendarItem calendarItem : calendarItems) {
-								if(calendarItem != null) {
-									createCalendarLinks(calendarItem);
-								}
-							}
-							
-							NewsItem newsItem = getNewsItem(check.getEntityReference());
-							if(newsItem != null) {
-								createNewsLinks(newsItem);
+							Set<String> entityReferences = availableEntities.get(dashboardEntityInfo);
+							if(entityReferences == null) {
+								entityReferences = new LinkedHashSet<String>();
+								availableEntities.put(dashboardEntityInfo, entityReferences);
 							}
+							entityReferences.add(check.getEntityReference());
 						} else {
 							// verify that users with permissions in alwaysAllowPermission have links and others do not
 							
@@ -395,6 +582,26 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 							logger.debug("DashboardCommonLogicImpl.handleAvailabilityChecks processed " + count + " checks.");
 						}
 					}
+					for(Map.Entry<DashboardEntityInfo, Set<String>> entry : availableEntities.entrySet()) {
+						Map<String, List<String>> usersWithAccess = entry.getKey().getUsersWithAccess(new ArrayList<String>(entry.getValue()));
+						for(String entityReference : entry.getValue()) {
+							List<String> sakaiIds = (usersWithAccess == null ? null : usersWithAccess.get(entityReference));
+							if(sakaiIds == null) {
+								continue;
+							}
+							List<CalendarItem> calendarItems = dao.getCalendarItems(entityReference);
+							for(CalendarItem calendarItem : calendarItems) {
+								if(calendarItem != null) {
+									createCalendarLinks(calendarItem, sakaiIds);
+								}
+							}
+							
+							NewsItem newsItem = getNewsItem(entityReference);
+							if(newsItem != null) {
+								createNewsLinks(newsItem, sakaiIds);
+							}
+						}
+					}
 					logger.debug("DashboardCommonLogicImpl.handleAvailabilityChecks end of the loop processed " + count + " checks.");
 					removeAvailabilityChecksBeforeTime(currentTime);
 				}
@@ -495,7 +702,15 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 		String sessionId = sakaiProxy.getCurrentSessionId();
 		String eventCode = "X";
 		
-		boolean success = dao.addEvent(eventDate, event, itemRef, contextId, sessionId, eventCode);
+		DashboardActivityLogThread writer = this.activityLogThread;
+		if(writer == null) {
+			dao.addEvent(eventDate, event, itemRef, contextId, sessionId, eventCode);
+		} else if(! writer.add(new EventLogEntry(eventDate, event, itemRef, contextId, sessionId, eventCode))) {
+			long dropped = droppedActivityCount.incrementAndGet();
+			if(dropped % TASK_LOGGING_INTERVAL == 1) {
+				logger.warn("Dashboard activity log queue is full; " + dropped + " records dropped so far");
+			}
+		}
 	}
 
 	/**
@@ -517,13 +732,73 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 		if(serverId == null) {
 			serverId = sakaiProxy.getServerId();
 		}
+		if(propLoopTimerEnabledLocally == null) {
+			propLoopTimerEnabledLocally = DashboardConfig.PROP_LOOP_TIMER_ENABLED + "_" + serverId;
+		}
+		
+		// activity is recorded by the tool, so the writer runs even if event processing is disabled
+		this.activityLogThread = new DashboardActivityLogThread(
+				sakaiProxy.getConfigParam(PROP_ACTIVITY_LOG_QUEUE_CAPACITY, DEFAULT_ACTIVITY_LOG_QUEUE_CAPACITY),
+				sakaiProxy.getConfigParam(PROP_ACTIVITY_LOG_BATCH_SIZE, DEFAULT_ACTIVITY_LOG_BATCH_SIZE),
+				sakaiProxy.getConfigParam(PROP_ACTIVITY_LOG_FLUSH_INTERVAL, DEFAULT_ACTIVITY_LOG_FLUSH_INTERVAL));
+		this.activityLogThread.start();
 		
 		if (!sakaiProxy.isEventProcessingThreadDisabled())
 		{
-			if(this.eventProcessingThread == null) {
-				this.eventProcessingThread = new DashboardEventProcessingThread();
+			int workerCount = sakaiProxy.getConfigParam(PROP_EVENT_WORKER_COUNT, DEFAULT_EVENT_WORKER_COUNT);
+			if(workerCount < 1) {
+				workerCount = 1;
+			}
+			int queueCapacity = sakaiProxy.getConfigParam(PROP_EVENT_QUEUE_CAPACITY, DEFAULT_EVENT_QUEUE_CAPACITY);
+			eventCoalesceWindow = sakaiProxy.getConfigParam(PROP_EVENT_COALESCE_WINDOW, DEFAULT_EVENT_COALESCE_WINDOW);
+			
+			// journal files left by a previous run are renamed so they can be replayed 
+			// without being confused with the journals of the new workers
+			List<File> replayFiles = new ArrayList<File>();
+			File journalDir = getEventJournalDirectory();
+			if(journalDir != null) {
+				File[] oldJournals = journalDir.listFiles();
+				if(oldJournals != null) {
+					for(File oldJournal : oldJournals) {
+						String name = oldJournal.getName();
+						if(name.startsWith(getEventJournalPrefix())) {
+							if(name.endsWith(EVENT_JOURNAL_SUFFIX)) {
+								File replayFile = new File(journalDir, name + EVENT_REPLAY_SUFFIX);
+								if(oldJournal.renameTo(replayFile)) {
+									// the read position moves with the journal, so replay skips events already handled
+									File positionFile = EventJournal.getPositionFile(oldJournal);
+									if(positionFile.exists() && ! positionFile.renameTo(EventJournal.getPositionFile(replayFile))) {
+										logger.warn("init() Unable to rename " + positionFile);
+									}
+									replayFiles.add(replayFile);
+								}
+							} else if(name.endsWith(EVENT_REPLAY_SUFFIX)) {
+								replayFiles.add(oldJournal);
+							}
+						}
+					}
+				}
+			}
+			
+			DashboardEventProcessingThread[] workers = new DashboardEventProcessingThread[workerCount];
+			for(int i = 0; i < workerCount; i++) {
+				workers[i] = new DashboardEventProcessingThread(i, new EventRingBuffer<EventCopy>(queueCapacity), openEventJournal(journalDir, i));
+			}
+			synchronized(eventQueueLock) {
+				this.eventProcessingThreads = workers;
+				for(DashboardEventProcessingThread worker : workers) {
+					worker.start();
+				}
+			}
+			logger.info("Started " + workerCount + " Dashboard Event Processing Threads with queue capacity " + workers[0].eventQueue.getCapacity());
+			
+			replayEventJournals(replayFiles);
+			
+			// housekeeping is handled by quartz jobs if a quartz server is configured 
+			if(sakaiProxy.getConfigParam("dashboard_quartzServer", null) == null) {
+				this.housekeepingThread = new DashboardHousekeepingThread();
+				this.housekeepingThread.start();
 			}
-			this.eventProcessingThread.start();
 			
 //			this.sakaiProxy.registerFunction(DASHBOARD_NEGOTIATE_AVAILABILITY_CHECKS);
 //			this.sakaiProxy.registerFunction(DASHBOARD_NEGOTIATE_REPEAT_EVENTS);
@@ -539,20 +814,64 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 	public void destroy() {
 		logger.info("destroy()");
 		
+		DashboardEventProcessingThread[] workers = null;
 		synchronized(eventQueueLock) {
-			if(this.eventQueue != null) {
-				// empty the event queue 
-				this.eventQueue.clear();
-				
-				// shut down daemon once it's done processing events
-				if(this.eventProcessingThread != null) {
-					this.eventProcessingThread.close();
-					this.eventProcessingThread = null;
+			workers = this.eventProcessingThreads;
+			// signals to update() that we are shutting down
+			this.eventProcessingThreads = null;
+		}
+		
+		if(this.housekeepingThread != null) {
+			this.housekeepingThread.close();
+			this.housekeepingThread = null;
+		}
+		
+		DashboardActivityLogThread writer = this.activityLogThread;
+		if(writer != null) {
+			// later activity is written directly
+			this.activityLogThread = null;
+			writer.close();
+			try {
+				writer.join(WORKER_SHUTDOWN_WAIT);
+			} catch (InterruptedException e) {
+				logger.warn("InterruptedException waiting for Dashboard Activity Log Thread to stop: " + e);
+			}
+			// write anything added after the writer's last flush
+			writer.flush();
+		}
+		
+		if(workers != null) {
+			// shut down daemons once they are done with the current event
+			for(DashboardEventProcessingThread worker : workers) {
+				worker.close();
+			}
+			int saved = 0;
+			for(DashboardEventProcessingThread worker : workers) {
+				try {
+					worker.join(WORKER_SHUTDOWN_WAIT);
+				} catch (InterruptedException e) {
+					logger.warn("InterruptedException waiting for Dashboard Event Processing Thread to stop: " + e);
+				}
+				// save events still in the queue so they can be replayed on restart
+				synchronized(worker.journalLock) {
+					EventCopy event = worker.eventQueue.poll();
+					while(event != null) {
+						if(worker.eventJournal != null && worker.eventJournal.append(event)) {
+							saved++;
+						}
+						event = worker.eventQueue.poll();
+					}
+					if(worker.eventJournal != null) {
+						if(worker.isAlive()) {
+							// the worker may still append to its journal, so leave it open
+							logger.warn("destroy() " + worker.getName() + " is still running; its event journal is left open");
+						} else {
+							worker.eventJournal.close();
+						}
+					}
 				}
-				
-				// destroy the event queue 
-				this.eventQueue = null;
 			}
+			logger.info("destroy() saved " + saved + " queued events to the event journal");
 		}
 	}
 
@@ -567,57 +886,290 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 		if(obj instanceof Event) {
 			Event event = (Event) obj;
 			if(this.dashboardLogic.getEventProcessor(event.getEvent()) != null) {
+				// the entity may have changed, so don't wait for the worker to drop it from the cache
+				removeCachedEntityMapping(event.getResource());
 				if(logger.isDebugEnabled()) {
 					logger.debug("adding event to queue: " + event.getEvent());
 				}
-				synchronized(this.eventQueueLock) {
-					if(this.eventQueue != null) {
-						this.eventQueue.add(new EventCopy(event));	
+				enqueueEvent(new EventCopy(event));
+			}
+		}
+	}
+
+	/**
+	 * Add an event to the queue of the worker responsible for its entity. If the queue
+	 * is full, the event is appended to that worker's journal and the worker reads it 
+	 * back once its queue has been drained. 
+	 * @param event
+	 * @return true if the event was queued or journaled, false otherwise.
+	 */
+	protected boolean enqueueEvent(EventCopy event) {
+		DashboardEventProcessingThread[] workers = this.eventProcessingThreads;
+		if(workers == null) {
+			// we are shutting down
+			return false;
+		}
+		if(event.getQueueTime() == 0L) {
+			event.setQueueTime(System.currentTimeMillis());
+		}
+		int partition = getEventPartition(event, workers.length);
+		DashboardEventProcessingThread worker = workers[partition];
+		boolean queued = false;
+		if(worker.spilling || ! worker.eventQueue.offer(event)) {
+			queued = worker.spill(event);
+		} else {
+			queued = true;
+		}
+		if(queued) {
+			enqueuedEventCount.incrementAndGet();
+			worker.signal();
+		}
+		if(! worker.isAlive()) {
+			restartEventProcessingThread(partition, worker);
+		}
+		return queued;
+	}
+	
+	/**
+	 * The update() method gets called if and only if DashboardCommonLogic is registered as an observer.
+	 * DashboardCommonLogic is registered as an observer if and only if event processing is enabled.
+	 * So if a worker thread has died in some way, we should restart it with the same queue, 
+	 * unless eventProcessingThreads is null, which should happen if and only if we are shutting down.
+	 * @param partition
+	 * @param deadWorker
+	 */
+	protected void restartEventProcessingThread(int partition, DashboardEventProcessingThread deadWorker) {
+		synchronized(eventQueueLock) {
+			if(this.eventProcessingThreads != null && this.eventProcessingThreads[partition] == deadWorker) {
+				DashboardEventProcessingThread worker = new DashboardEventProcessingThread(partition, deadWorker.eventQueue, deadWorker.eventJournal);
+				this.eventProcessingThreads[partition] = worker;
+				worker.start();
+			}
+		}
+	}
+
+	/**
+	 * Select the worker that should handle an event. All events for the same entity 
+	 * are assigned to the same worker so they are processed in the order received.
+	 * @param event
+	 * @param workerCount
+	 * @return
+	 */
+	protected int getEventPartition(EventCopy event, int workerCount) {
+		String key = event.getResource();
+		if(key == null) {
+			key = event.getContext();
+		}
+		if(key == null) {
+			key = event.getEvent();
+		}
+		if(key == null || workerCount < 2) {
+			return 0;
+		}
+		return (key.hashCode() & Integer.MAX_VALUE) % workerCount;
+	}
+	
+	/**
+	 * @return the directory in which event journals are kept, or null if journaling is disabled.
+	 */
+	protected File getEventJournalDirectory() {
+		if(! sakaiProxy.getConfigParam(PROP_EVENT_JOURNAL_ENABLED, true)) {
+			return null;
+		}
+		String path = sakaiProxy.getConfigParam(PROP_EVENT_JOURNAL_DIR, null);
+		if(path == null) {
+			String sakaiHome = sakaiProxy.getSakaiHomePath();
+			if(sakaiHome == null) {
+				logger.info("getEventJournalDirectory: sakai home is not set; event journaling is disabled");
+				return null;
+			}
+			path = sakaiHome + File.separator + "dashboard";
+		}
+		File dir = new File(path);
+		if(! dir.isDirectory() && ! dir.mkdirs()) {
+			logger.warn("getEventJournalDirectory: Unable to create " + dir + "; event journaling is disabled");
+			return null;
+		}
+		return dir;
+	}
+	
+	protected String getEventJournalPrefix() {
+		return EVENT_JOURNAL_PREFIX + serverId + "-";
+	}
+	
+	protected EventJournal openEventJournal(File journalDir, int partition) {
+		if(journalDir == null) {
+			return null;
+		}
+		File file = new File(journalDir, getEventJournalPrefix() + partition + EVENT_JOURNAL_SUFFIX);
+		try {
+			return new EventJournal(file);
+		} catch (IOException e) {
+			logger.warn("openEventJournal: Unable to open " + file + "; overflow events will be dropped : " + e);
+		}
+		return null;
+	}
+	
+	/**
+	 * Queue the events saved in journals by a previous run, then remove the journals. 
+	 * @param replayFiles
+	 */
+	protected void replayEventJournals(List<File> replayFiles) {
+		for(File replayFile : replayFiles) {
+			int count = 0;
+			try {
+				EventJournal journal = new EventJournal(replayFile);
+				List<EventCopy> events = journal.read(EVENT_JOURNAL_READ_SIZE);
+				while(! events.isEmpty()) {
+					for(EventCopy event : events) {
+						if(enqueueEvent(event)) {
+							count++;
+						}
 					}
+					// a restart during the replay resumes after this batch
+					journal.commit();
+					events = journal.read(EVENT_JOURNAL_READ_SIZE);
 				}
-				if(this.eventProcessingThread == null || ! this.eventProcessingThread.isAlive()) {
-					if( eventQueue != null) {
-						// the update() method gets called if and only if DashboardCommonLogic is registered as an observer.
-						// DashboardCommonLogic is registered as an observer if and only if event processing is enabled.
-						// So if the eventProcessingThread is null or disabled in some way, we should restart it, 
-						// unless the eventQueue is null, which should happen if and only if we are shutting down.
-						this.eventProcessingThread = null;
-						this.eventProcessingThread = new DashboardEventProcessingThread();
-						this.eventProcessingThread.start();
+				if(! journal.delete()) {
+					logger.warn("replayEventJournals: Unable to delete " + replayFile);
+				}
+			} catch (IOException e) {
+				logger.warn("replayEventJournals: Unable to replay " + replayFile + " : " + e);
+			}
+			logger.info("replayEventJournals: queued " + count + " events from " + replayFile);
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public Map<String, Long> getEventQueueStatistics() {
+		Map<String, Long> stats = new TreeMap<String, Long>();
+		long depth = 0L;
+		long journaled = 0L;
+		long oldestQueueTime = 0L;
+		DashboardEventProcessingThread[] workers = this.eventProcessingThreads;
+		if(workers != null) {
+			for(DashboardEventProcessingThread worker : workers) {
+				depth += worker.eventQueue.size() + worker.pendingEventCount;
+				EventCopy head = worker.eventQueue.peek();
+				if(head != null && head.getQueueTime() > 0L && (oldestQueueTime == 0L || head.getQueueTime() < oldestQueueTime)) {
+					oldestQueueTime = head.getQueueTime();
+				}
+				if(worker.eventJournal != null) {
+					journaled += worker.eventJournal.getPendingCount();
+					long journalTime = worker.eventJournal.getOldestPendingTime();
+					if(journalTime > 0L && (oldestQueueTime == 0L || journalTime < oldestQueueTime)) {
+						oldestQueueTime = journalTime;
 					}
 				}
 			}
 		}
+		stats.put(STAT_QUEUE_DEPTH, depth + journaled);
+		stats.put(STAT_JOURNAL_DEPTH, journaled);
+		stats.put(STAT_ENQUEUED_EVENTS, enqueuedEventCount.get());
+		stats.put(STAT_ENQUEUE_RATE, enqueueRatePerMinute);
+		stats.put(STAT_SPILLED_EVENTS, spilledEventCount.get());
+		stats.put(STAT_DROPPED_EVENTS, droppedEventCount.get());
+		stats.put(STAT_COALESCED_EVENTS, coalescedEventCount.get());
+		stats.put(STAT_OLDEST_EVENT_AGE, oldestQueueTime == 0L ? 0L : System.currentTimeMillis() - oldestQueueTime);
+		DashboardActivityLogThread writer = this.activityLogThread;
+		stats.put(STAT_ACTIVITY_LOG_DEPTH, (long) (writer == null ? 0 : writer.activityQueue.size()));
+		stats.put(STAT_DROPPED_ACTIVITY, droppedActivityCount.get());
+		return stats;
+	}
+	
+	/**
+	 * Update the enqueue rate and log the queue statistics, at most once per 
+	 * TIME_BETWEEN_EVENT_QUEUE_SAMPLES. Called by the event processing threads, which run 
+	 * whether or not housekeeping is left to quartz jobs, and by the housekeeping thread.
+	 */
+	protected void sampleEventQueueStatistics() {
+		long now = System.currentTimeMillis();
+		if(now < nextEventQueueSample) {
+			return;
+		}
+		synchronized(eventQueueSampleLock) {
+			if(now < nextEventQueueSample) {
+				// another thread took this sample
+				return;
+			}
+			long enqueued = enqueuedEventCount.get();
+			if(lastEventQueueSampleTime > 0L && now > lastEventQueueSampleTime) {
+				enqueueRatePerMinute = (enqueued - lastEventQueueSampleCount) * 60000L / (now - lastEventQueueSampleTime);
+			}
+			lastEventQueueSampleCount = enqueued;
+			lastEventQueueSampleTime = now;
+			nextEventQueueSample = now + TIME_BETWEEN_EVENT_QUEUE_SAMPLES;
+		}
+		
+		Map<String, Long> stats = getEventQueueStatistics();
+		long oldestEventAge = stats.get(STAT_OLDEST_EVENT_AGE).longValue();
+		if(oldestEventAge > sakaiProxy.getConfigParam(PROP_EVENT_QUEUE_AGE_WARNING, DEFAULT_EVENT_QUEUE_AGE_WARNING) * 1000L) {
+			logger.warn("Dashboard event queue is falling behind: " + stats);
+		} else if(loopTimerEnabled || logger.isDebugEnabled()) {
+			logger.info("Dashboard event queue statistics: " + stats);
+		}
+	}
+	
+	/**
+	 * @param threadId
+	 * @return true if the thread is one of the dashboard event processing or housekeeping threads.
+	 */
+	protected static boolean isDashboardEventProcessorThread(long threadId) {
+		return dashboardEventProcessorThreadIds.contains(Long.valueOf(threadId));
+	}
+	
+	protected void logActivityTimer(long loopTimer, String loopActivity) {
+		long elapsedTime = System.currentTimeMillis() - loopTimer;
+		StringBuilder buf = new StringBuilder("DashboardEventProcessingThread.activityTimer\t");
+		buf.append(loopTimer);
+		buf.append("\t");
+		buf.append(elapsedTime);
+		buf.append("\t");
+		buf.append(loopActivity);
+		logger.info(buf.toString());
 	}
-
 
 	
 	/************************************************************************
-	 * Event processing daemon (or thread?)
+	 * Event processing daemons
 	 ************************************************************************/
 	
 	/**
-	 * 
+	 * One of a pool of worker threads that process dashboard events. Each worker owns  
+	 * a bounded queue and a journal for overflow, and handles the events for a 
+	 * partition of the entity references.
 	 */
 	public class DashboardEventProcessingThread extends Thread
 	{
 		protected static final String EVENT_PROCESSING_THREAD_SHUT_DOWN_MESSAGE = 
 			"\n===================================================\n  Dashboard Event Processing Thread shutting down  \n===================================================";
 
-		protected boolean timeToQuit = false;
+		protected volatile boolean timeToQuit = false;
 		
-		protected Date handlingAvailabilityChecksTimer = null;
-		protected Date handlingRepeatedEventsTimer = null;
-		protected Date handlingExpirationAndPurgingTime = null;
+		protected final int partition;
+		protected final EventRingBuffer<EventCopy> eventQueue;
+		protected final EventJournal eventJournal;
+		// true while there are events in the journal, so new events are journaled behind them 
+		protected volatile boolean spilling = false;
+		protected final Object journalLock = new Object();
+		// true while the worker is parked or about to park, so producers know to wake it
+		protected volatile boolean idle = false;
+		// revise events held for coalescing, in the order they were first seen  
+		protected final Map<String, PendingEvent> pendingEvents = new LinkedHashMap<String, PendingEvent>();
+		protected volatile int pendingEventCount = 0;
 		
 		protected long loopTimer = 0L;
 		protected String loopActivity = "";
 		
-		private long sleepTime = 2L;
-
-		public DashboardEventProcessingThread() {
-			super("Dashboard Event Processing Thread");
-			logger.info("Created Dashboard Event Processing Thread");
+		public DashboardEventProcessingThread(int partition, EventRingBuffer<EventCopy> eventQueue, EventJournal eventJournal) {
+			super("Dashboard Event Processing Thread " + partition);
+			this.partition = partition;
+			this.eventQueue = eventQueue;
+			this.eventJournal = eventJournal;
+			this.spilling = (eventJournal != null && eventJournal.getPendingCount() > 0);
+			logger.info("Created Dashboard Event Processing Thread " + partition);
 			
 			this.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler(){
 
@@ -629,6 +1181,349 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 			});
 		}
 
+		public void close() {
+			timeToQuit = true;
+			LockSupport.unpark(this);
+		}
+		
+		/**
+		 * Wake the worker if it is waiting for events.
+		 */
+		protected void signal() {
+			if(idle) {
+				LockSupport.unpark(this);
+			}
+		}
+		
+		/**
+		 * Save an event that does not fit in the queue.
+		 * @param event
+		 * @return true if the event was saved in the journal, false if it was dropped.
+		 */
+		protected boolean spill(EventCopy event) {
+			synchronized(journalLock) {
+				if(eventJournal != null && eventJournal.append(event)) {
+					spilling = true;
+					spilledEventCount.incrementAndGet();
+					return true;
+				}
+			}
+			long dropped = droppedEventCount.incrementAndGet();
+			if(dropped % TASK_LOGGING_INTERVAL == 1L) {
+				logger.warn("Dashboard event queue " + partition + " is full. Events dropped so far: " + dropped + " Latest: " + event);
+			}
+			return false;
+		}
+		
+		/**
+		 * @return the next batch of events from the journal, or an empty list if the journal has been drained.
+		 */
+		protected List<EventCopy> readJournal() {
+			synchronized(journalLock) {
+				List<EventCopy> events = eventJournal.read(EVENT_JOURNAL_READ_SIZE);
+				if(events.isEmpty()) {
+					spilling = false;
+					eventJournal.commit();
+				}
+				return events;
+			}
+		}
+		
+		/**
+		 * Record that a batch read from the journal has been handled.
+		 */
+		protected void commitJournal() {
+			synchronized(journalLock) {
+				eventJournal.commit();
+			}
+		}
+
+		public void run() {
+			Long threadId = Long.valueOf(Thread.currentThread().getId());
+			try {
+				dashboardEventProcessorThreadIds.add(threadId);
+				logger.info("Started Dashboard Event Processing Thread " + partition + ": " + threadId);
+								
+				sakaiProxy.startAdminSession();
+				while(! timeToQuit) {
+					if(logger.isDebugEnabled()) {
+						logger.debug("Dashboard Event Processing Thread " + partition + " checking event queue: " + eventQueue.size());
+					}
+					EventCopy event = eventQueue.poll();
+					
+					if(event != null) {
+						coalesceEvent(event);
+					} else if(spilling && eventJournal != null) {
+						// the queue is empty, so catch up on the events that overflowed it
+						List<EventCopy> events = readJournal();
+						for(EventCopy journaledEvent : events) {
+							coalesceEvent(journaledEvent);
+						}
+						if(! events.isEmpty()) {
+							commitJournal();
+						}
+					}
+					
+					long now = System.currentTimeMillis();
+					processPendingEvents(now, null);
+					sampleEventQueueStatistics();
+					
+					if(eventQueue.isEmpty() && ! spilling) {
+						// idle is set before the queue is checked again, so an event added after  
+						// the check will unpark this thread (or the permit will make park return)
+						idle = true;
+						if(eventQueue.isEmpty() && ! spilling && ! timeToQuit) {
+							long parkNanos = MAXIMUM_WORKER_IDLE_NANOS;
+							if(! pendingEvents.isEmpty()) {
+								long due = pendingEvents.values().iterator().next().dueTime;
+								parkNanos = Math.min(parkNanos, (due - now) * 1000000L);
+							}
+							if(parkNanos > 0L) {
+								LockSupport.parkNanos(this, parkNanos);
+							}
+						}
+						idle = false;
+					}
+
+				}
+				
+				if(spilling) {
+					// events held for coalescing or still in the queue are older than those in 
+					// the journal, so process them now rather than append them after the journal's 
+					// records, where a replay would run them out of order
+					processPendingEvents(Long.MAX_VALUE, null);
+					EventCopy event = eventQueue.poll();
+					while(event != null) {
+						processEvent(event);
+						event = eventQueue.poll();
+					}
+				} else {
+					// events held for coalescing are older than any still in the queue, 
+					// which destroy() appends to the journal after them
+					for(PendingEvent pending : pendingEvents.values()) {
+						if(eventJournal == null || ! eventJournal.append(pending.event)) {
+							processEvent(pending.event);
+						}
+					}
+				}
+				pendingEvents.clear();
+				pendingEventCount = 0;
+				
+				logger.warn(EVENT_PROCESSING_THREAD_SHUT_DOWN_MESSAGE);
+				
+			} catch(Throwable t) {
+				logger.error("Unhandled throwable is stopping Dashboard Event Processing Thread", t);
+				throw new RuntimeException(t);
+			} finally {
+				dashboardEventProcessorThreadIds.remove(threadId);
+			}
+		}
+		
+		/**
+		 * Hold a revise event for up to eventCoalesceWindow milliseconds, replacing any 
+		 * held event of the same type for the same entity, so that a burst of identical 
+		 * updates is processed once against the final state of the entity. Other events 
+		 * are processed immediately, after any held events for the same entity.
+		 * @param event
+		 */
+		protected void coalesceEvent(EventCopy event) {
+			if(eventCoalesceWindow <= 0L || event.getResource() == null) {
+				processEvent(event);
+			} else if(COALESCED_EVENTS.contains(event.getEvent())) {
+				String key = event.getEvent() + COALESCE_KEY_SEPARATOR + event.getResource();
+				PendingEvent pending = pendingEvents.get(key);
+				if(pending == null) {
+					pendingEvents.put(key, new PendingEvent(event, System.currentTimeMillis() + eventCoalesceWindow));
+					pendingEventCount = pendingEvents.size();
+				} else {
+					// keep the position and deadline of the first event, but the data of the latest
+					pending.event = event;
+					coalescedEventCount.incrementAndGet();
+				}
+			} else {
+				processPendingEvents(Long.MAX_VALUE, event.getResource());
+				processEvent(event);
+			}
+		}
+		
+		/**
+		 * Process held events that are due.
+		 * @param now 
+		 * @param entityReference if not null, process all held events for this entity regardless of due time.
+		 */
+		protected void processPendingEvents(long now, String entityReference) {
+			Iterator<PendingEvent> it = pendingEvents.values().iterator();
+			while(it.hasNext()) {
+				PendingEvent pending = it.next();
+				if(entityReference == null) {
+					if(pending.dueTime > now) {
+						// events are held in order of due time
+						break;
+					}
+				} else if(! entityReference.equals(pending.event.getResource())) {
+					continue;
+				}
+				it.remove();
+				processEvent(pending.event);
+			}
+			pendingEventCount = pendingEvents.size();
+		}
+		
+		protected void processEvent(EventCopy event) {
+			EventProcessor eventProcessor = dashboardLogic.getEventProcessor(event.getEvent());
+			if(eventProcessor == null) {
+				// nothing to do, so skip the security advisor and thread-local cleanup
+				return;
+			}
+			if(loopTimerEnabled) {
+				loopTimer = System.currentTimeMillis();
+				loopActivity = "processingEvents";
+			}
+			if(logger.isDebugEnabled()) {
+				logger.debug("Dashboard Event Processing Thread " + partition + " is processing event: " + event.getEvent());
+			}
+			
+			SecurityAdvisor advisor = new DashboardLogicSecurityAdvisor();
+			sakaiProxy.pushSecurityAdvisor(advisor);
+			try {
+				eventProcessor.processEvent(event);
+			} catch (Exception e) {
+				logger.warn("Error processing event: " + event, e);
+			} finally {
+				sakaiProxy.popSecurityAdvisor(advisor);
+				sakaiProxy.clearThreadLocalCache();
+			}
+			// in case the entity was cached again while the event was queued
+			removeCachedEntityMapping(event.getResource());
+			
+			if(loopTimerEnabled) {
+				logActivityTimer(loopTimer, loopActivity);
+			}
+		}
+
+	}
+	
+	/**
+	 * An event held by a worker for coalescing, with the time by which it must be processed.
+	 */
+	protected static class PendingEvent {
+		protected EventCopy event;
+		protected final long dueTime;
+		
+		protected PendingEvent(EventCopy event, long dueTime) {
+			this.event = event;
+			this.dueTime = dueTime;
+		}
+	}
+	
+	/**
+	 * Writes dashboard activity to the dash_event table in batches, so recording 
+	 * activity does not add a database write to the user's request. Records are written 
+	 * once batchSize of them are waiting or flushInterval has passed since the last write.
+	 */
+	public class DashboardActivityLogThread extends Thread
+	{
+		protected volatile boolean timeToQuit = false;
+		protected final ArrayBlockingQueue<EventLogEntry> activityQueue;
+		protected final int batchSize;
+		protected final long flushInterval;
+		protected final Object flushLock = new Object();
+		
+		public DashboardActivityLogThread(int queueCapacity, int batchSize, long flushInterval) {
+			super("Dashboard Activity Log Thread");
+			this.activityQueue = new ArrayBlockingQueue<EventLogEntry>(Math.max(1, queueCapacity));
+			this.batchSize = Math.max(1, batchSize);
+			this.flushInterval = Math.max(1L, flushInterval);
+			this.setDaemon(true);
+			logger.info("Created Dashboard Activity Log Thread");
+		}
+		
+		/**
+		 * @param entry
+		 * @return true if the entry was queued, false if the queue is full.
+		 */
+		public boolean add(EventLogEntry entry) {
+			if(! activityQueue.offer(entry)) {
+				return false;
+			}
+			if(activityQueue.size() >= batchSize) {
+				LockSupport.unpark(this);
+			}
+			return true;
+		}
+		
+		public void close() {
+			timeToQuit = true;
+			LockSupport.unpark(this);
+		}
+		
+		public void run() {
+			long nextFlush = System.currentTimeMillis() + flushInterval;
+			while(! timeToQuit) {
+				try {
+					long now = System.currentTimeMillis();
+					if(activityQueue.size() >= batchSize || now >= nextFlush) {
+						flush();
+						nextFlush = System.currentTimeMillis() + flushInterval;
+					} else {
+						LockSupport.parkNanos(this, (nextFlush - now) * 1000L * 1000L);
+					}
+				} catch (Exception e) {
+					logger.warn("Dashboard Activity Log Thread: ", e);
+				}
+			}
+			flush();
+		}
+		
+		/**
+		 * Write everything in the queue, batchSize records at a time.
+		 */
+		protected void flush() {
+			synchronized(flushLock) {
+				List<EventLogEntry> batch = new ArrayList<EventLogEntry>(batchSize);
+				while(activityQueue.drainTo(batch, batchSize) > 0) {
+					dao.addEvents(batch);
+					batch.clear();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Runs availability checks, repeating-event updates, expiration and purging and
+	 * admin checks on a thread of its own so that these tasks never delay the processing 
+	 * of events. Each task has a deadline, and the thread waits until the earliest one.
+	 */
+	public class DashboardHousekeepingThread extends Thread
+	{
+		protected static final String HOUSEKEEPING_THREAD_SHUT_DOWN_MESSAGE = 
+			"\n===================================================\n  Dashboard Housekeeping Thread shutting down  \n===================================================";
+
+		protected volatile boolean timeToQuit = false;
+		protected final Object housekeepingLock = new Object();
+		
+		protected long loopTimer = 0L;
+		protected String loopActivity = "";
+		
+		protected long nextAvailabilityTask = 0L;
+		protected long nextRepeatingEventsTask = 0L;
+		protected long nextExpirationAndPurgingTask = 0L;
+		protected long nextAdminChangesTask = 0L;
+
+		public DashboardHousekeepingThread() {
+			super("Dashboard Housekeeping Thread");
+			logger.info("Created Dashboard Housekeeping Thread");
+			
+			this.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler(){
+
+				public void uncaughtException(Thread arg0, Throwable arg1) {
+					logger.error(HOUSEKEEPING_THREAD_SHUT_DOWN_MESSAGE, arg1);
+					
+				}
+				
+			});
+		}
+
 		public void close() {
 			if(handlingRepeatedEvents) {
 				removeTaskLocks(TaskLock.UPDATE_REPEATING_EVENTS);
@@ -636,153 +1531,109 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 			
 			
 			timeToQuit = true;
+			synchronized(housekeepingLock) {
+				housekeepingLock.notifyAll();
+			}
+		}
+		
+		/**
+		 * @param deadline
+		 * @param now
+		 * @return the deadline, but never sooner than MINIMUM_HOUSEKEEPING_INTERVAL from now, 
+		 * so a task that fails without moving its deadline does not run continuously.
+		 */
+		protected long nextDeadline(long deadline, long now) {
+			return Math.max(deadline, now + MINIMUM_HOUSEKEEPING_INTERVAL);
 		}
 
 		public void run() {
+			Long threadId = Long.valueOf(Thread.currentThread().getId());
 			try {
-				dashboardEventProcessorThreadId = Thread.currentThread().getId();
-				logger.info("Started Dashboard Event Processing Thread: " + dashboardEventProcessorThreadId);
-				if(propLoopTimerEnabledLocally == null) {
-					propLoopTimerEnabledLocally = DashboardConfig.PROP_LOOP_TIMER_ENABLED + "_" + serverId;
-				}
-				String dashboardQuartzServer = sakaiProxy.getConfigParam("dashboard_quartzServer", null);
-				boolean timeToHandleAvailabilityChecks = true;
-				boolean timeToHandleRepeatedEvents = false;
-				boolean timeToHandleExpirationAndPurging = false;
-				boolean timeToCheckForAdminChanges = false;
+				dashboardEventProcessorThreadIds.add(threadId);
+				logger.info("Started Dashboard Housekeeping Thread: " + threadId);
 								
 				sakaiProxy.startAdminSession();
 				while(! timeToQuit) {
+					long now = System.currentTimeMillis();
 					if(loopTimerEnabled) {
-						loopTimer = System.currentTimeMillis();
+						loopTimer = now;
 						loopActivity = "nothing";
 					}
-					if(logger.isDebugEnabled()) {
-						logger.debug("Dashboard Event Processing Thread checking event queue: " + eventQueue.size());
-					}
-					EventCopy event = null;
-					synchronized(eventQueueLock) {
-						if(eventQueue != null && ! eventQueue.isEmpty()) {
-							event = eventQueue.poll();
-						}
-					}
-					
-					// always give precedence to handling events from queue
-					// so skip other tasks if there's an event to process
-					if(event == null) {
-						if (dashboardQuartzServer == null)
-						{
-							if(timeToHandleAvailabilityChecks) {
-								if(handlingAvailabilityChecks) {
-									if(loopTimerEnabled) {
-										loopActivity = "checkingTimeForAvailabilityChecks";
-									}
-									handleAvailabilityChecks(true);
-								} else {
-									// TODO: move to checkForAdminUpdates
-									if(loopTimerEnabled) {
-										loopActivity = "checkingTaskLock_handleAvailabilityChecks";
-									}
-									handlingAvailabilityChecks = dashboardLogic.checkTaskLock(TaskLock.CHECK_AVAILABILITY_OF_HIDDEN_ITEMS);
-								} 
-								timeToHandleRepeatedEvents = true;
-								timeToHandleAvailabilityChecks = false;
-							} else if(timeToHandleRepeatedEvents) {
-								if (true){//if(handlingRepeatedEvents) {
-									if(loopTimerEnabled) {
-										loopActivity = "checkingTimeForRepeatedEvents";
-									}
-									updateRepeatingEvents(true);	
-								} else {
-									// TODO: move to checkForAdminUpdates
-									if(loopTimerEnabled) {
-										loopActivity = "checkingTaskLock_handleRepeatedEvents";
-									}
-									handlingRepeatedEvents = dashboardLogic.checkTaskLock(TaskLock.UPDATE_REPEATING_EVENTS);
-								}
-								timeToHandleExpirationAndPurging = true;
-								timeToHandleRepeatedEvents = false;
-							} else if(timeToHandleExpirationAndPurging) {
-								if(handlingExpirationAndPurging) {
-									if(loopTimerEnabled) {
-										loopActivity = "checkingTimeForExpirationAndPurging";
-									}
-									expireAndPurge(true);
-								} else {
-									// TODO: move to checkForAdminUpdates
-									if(loopTimerEnabled) {
-										loopActivity = "checkingTaskLock_handleExpirationAndPurging";
-									}
-									handlingExpirationAndPurging = dashboardLogic.checkTaskLock(TaskLock.EXPIRE_AND_PURGE_OLD_DASHBOARD_ITEMS);
-								}
-								timeToCheckForAdminChanges= true;
-								timeToHandleExpirationAndPurging = false;
-							} else if(timeToCheckForAdminChanges) {
-								if(loopTimerEnabled) {
-									loopActivity = "checkingForAdminChanges";
-								}
-								checkForAdminChanges();
-								timeToHandleAvailabilityChecks= true;
-								timeToCheckForAdminChanges = false;
+					if(now >= nextAvailabilityTask) {
+						if(handlingAvailabilityChecks) {
+							if(loopTimerEnabled) {
+								loopActivity = "handlingAvailabilityChecks";
 							}
+							handleAvailabilityChecks(true);
+						} else {
 							if(loopTimerEnabled) {
-								long elapsedTime = System.currentTimeMillis() - loopTimer;
-								StringBuilder buf = new StringBuilder("DashboardEventProcessingThread.activityTimer\t");
-								buf.append(loopTimer);
-								buf.append("\t");
-								buf.append(elapsedTime);
-								buf.append("\t");
-								buf.append(loopActivity);
-								logger.info(buf.toString());
+								loopActivity = "checkingTaskLock_handleAvailabilityChecks";
 							}
-						}
-					} else {
+							handlingAvailabilityChecks = dashboardLogic.checkTaskLock(TaskLock.CHECK_AVAILABILITY_OF_HIDDEN_ITEMS);
+						} 
+						now = System.currentTimeMillis();
+						nextAvailabilityTask = nextDeadline(handlingAvailabilityChecks ? nextTimeToQueryAvailabilityChecks : now + TIME_BETWEEN_TASK_LOCK_CHECKS, now);
+					} else if(now >= nextRepeatingEventsTask) {
 						if(loopTimerEnabled) {
-							loopActivity = "processingEvents";
+							loopActivity = "handlingRepeatedEvents";
 						}
-						if(logger.isDebugEnabled()) {
-							logger.debug("Dashboard Event Processing Thread is processing event: " + event.getEvent());
+						updateRepeatingEvents(true);
+						now = System.currentTimeMillis();
+						nextRepeatingEventsTask = nextDeadline(nextHorizonUpdate == null ? now + TIME_BETWEEN_TASK_LOCK_CHECKS : nextHorizonUpdate.getTime(), now);
+					} else if(now >= nextExpirationAndPurgingTask) {
+						if(handlingExpirationAndPurging) {
+							if(loopTimerEnabled) {
+								loopActivity = "handlingExpirationAndPurging";
+							}
+							expireAndPurge(true);
+						} else {
+							if(loopTimerEnabled) {
+								loopActivity = "checkingTaskLock_handleExpirationAndPurging";
+							}
+							handlingExpirationAndPurging = dashboardLogic.checkTaskLock(TaskLock.EXPIRE_AND_PURGE_OLD_DASHBOARD_ITEMS);
 						}
-						EventProcessor eventProcessor = dashboardLogic.getEventProcessor(event.getEvent());
-						
-						SecurityAdvisor advisor = new DashboardLogicSecurityAdvisor();
-						sakaiProxy.pushSecurityAdvisor(advisor);
-						try {
-							eventProcessor.processEvent(event);
-						} catch (Exception e) {
-							logger.warn("Error processing event: " + event, e);
-						} finally {
-							sakaiProxy.popSecurityAdvisor(advisor);
-							sakaiProxy.clearThreadLocalCache();
+						now = System.currentTimeMillis();
+						nextExpirationAndPurgingTask = nextDeadline(handlingExpirationAndPurging ? nextTimeToExpireAndPurge : now + TIME_BETWEEN_TASK_LOCK_CHECKS, now);
+					} else if(now >= nextAdminChangesTask) {
+						if(loopTimerEnabled) {
+							loopActivity = "checkingForAdminChanges";
 						}
+						checkForAdminChanges();
+						now = System.currentTimeMillis();
+						nextAdminChangesTask = nextDeadline(now + TIME_BETWEEN_ADMIN_CHECKS, now);
+					} else {
+						sampleEventQueueStatistics();
 						
-						if(loopTimerEnabled) {
-							long elapsedTime = System.currentTimeMillis() - loopTimer;
-							StringBuilder buf = new StringBuilder("DashboardEventProcessingThread.activityTimer\t");
-							buf.append(loopTimer);
-							buf.append("\t");
-							buf.append(elapsedTime);
-							buf.append("\t");
-							buf.append(loopActivity);
-							logger.info(buf.toString());
+						// nothing is due, so wait for the earliest deadline
+						long deadline = Math.min(Math.min(nextAvailabilityTask, nextRepeatingEventsTask), 
+								Math.min(Math.min(nextExpirationAndPurgingTask, nextAdminChangesTask), nextEventQueueSample));
+						long waitTime = deadline - System.currentTimeMillis();
+						if(waitTime > 0L) {
+							synchronized(housekeepingLock) {
+								if(! timeToQuit) {
+									try {
+										housekeepingLock.wait(waitTime);
+									} catch (InterruptedException e) {
+										logger.warn("InterruptedException in Dashboard Housekeeping Thread: " + e);
+									}
+								}
+							}
 						}
+						continue;
 					}
-					
-					if(eventQueue == null || eventQueue.isEmpty()) {
-						try {
-							Thread.sleep(sleepTime * 1000L);
-						} catch (InterruptedException e) {
-							logger.warn("InterruptedException in Dashboard Event Processing Thread: " + e);
-						}
+					sakaiProxy.clearThreadLocalCache();
+					if(loopTimerEnabled) {
+						logActivityTimer(loopTimer, loopActivity);
 					}
-
 				}
 				
-				logger.warn(EVENT_PROCESSING_THREAD_SHUT_DOWN_MESSAGE);
+				logger.warn(HOUSEKEEPING_THREAD_SHUT_DOWN_MESSAGE);
 				
 			} catch(Throwable t) {
-				logger.error("Unhandled throwable is stopping Dashboard Event Processing Thread", t);
+				logger.error("Unhandled throwable is stopping Dashboard Housekeeping Thread", t);
 				throw new RuntimeException(t);
+			} finally {
+				dashboardEventProcessorThreadIds.remove(threadId);
 			}
 		}
 
@@ -809,7 +1660,7 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 
 			long threadId = Thread.currentThread().getId();
 
-			if(threadId == DashboardCommonLogicImpl.dashboardEventProcessorThreadId) {
+			if(DashboardCommonLogicImpl.isDashboardEventProcessorThread(threadId)) {
 				return SecurityAdvice.ALLOWED;
 			}
 			return SecurityAdvice.PASS;
@@ -889,6 +1740,15 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 		this.dashboardLogic.createCalendarLinks(calendarItem);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.logic.DashboardLogic#createCalendarLinks(org.sakaiproject.dash.model.CalendarItem, java.util.Collection)
+	 */
+	@Override
+	public void createCalendarLinks(CalendarItem calendarItem, Collection<String> sakaiIds) {
+		
+		this.dashboardLogic.createCalendarLinks(calendarItem, sakaiIds);
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.logic.DashboardLogic#createContext(java.lang.String)
 	 */
@@ -918,6 +1778,15 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 		this.dashboardLogic.createNewsLinks(newsItem);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.logic.DashboardLogic#createNewsLinks(org.sakaiproject.dash.model.NewsItem, java.util.Collection)
+	 */
+	@Override
+	public void createNewsLinks(NewsItem newsItem, Collection<String> sakaiIds) {
+		
+		this.dashboardLogic.createNewsLinks(newsItem, sakaiIds);
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.logic.DashboardLogic#createRepeatingCalendarItem(java.lang.String, java.util.Date, java.util.Date, java.lang.String, java.lang.String, org.sakaiproject.dash.model.Context, org.sakaiproject.dash.model.SourceType, java.lang.String, int)
 	 */
@@ -993,6 +1862,13 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 		return this.dashboardLogic.getEventProcessor(eventIdentifier);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.logic.DashboardLogic#getEventProcessorIdentifiers()
+	 */
+	public Set<String> getEventProcessorIdentifiers() {
+		return this.dashboardLogic.getEventProcessorIdentifiers();
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.logic.DashboardLogic#getFutureSequnceNumbers(java.lang.String, java.lang.String, java.lang.Integer)
 	 */
@@ -1326,6 +2202,25 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 		
 		return this.dashboardUserLogic.getCurrentNewsLinks(sakaiUserId, contextId);
 	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.DashboardUserLogic#countCurrentNewsLinks(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public int countCurrentNewsLinks(String sakaiUserId, String contextId) {
+		
+		return this.dashboardUserLogic.countCurrentNewsLinks(sakaiUserId, contextId);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.DashboardUserLogic#getCurrentNewsLinks(java.lang.String, java.lang.String, java.util.Date, long, int, int)
+	 */
+	@Override
+	public List<NewsLink> getCurrentNewsLinks(String sakaiUserId,
+			String contextId, Date afterTime, long afterId, int offset, int limit) {
+		
+		return this.dashboardUserLogic.getCurrentNewsLinks(sakaiUserId, contextId, afterTime, afterId, offset, limit);
+	}
 	
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.app.DashboardUserLogic#getFutureCalendarLinks(java.lang.String, java.lang.String, boolean)
@@ -1337,6 +2232,27 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 		return this.dashboardUserLogic.getFutureCalendarLinks(sakaiUserId, contextId, hidden);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.DashboardUserLogic#countFutureCalendarLinks(java.lang.String, java.lang.String, boolean)
+	 */
+	@Override
+	public int countFutureCalendarLinks(String sakaiUserId, String contextId,
+			boolean hidden) {
+		
+		return this.dashboardUserLogic.countFutureCalendarLinks(sakaiUserId, contextId, hidden);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.DashboardUserLogic#getFutureCalendarLinks(java.lang.String, java.lang.String, boolean, java.util.Date, long, int, int)
+	 */
+	@Override
+	public List<CalendarLink> getFutureCalendarLinks(String sakaiUserId,
+			String contextId, boolean hidden, Date afterTime, long afterId,
+			int offset, int limit) {
+		
+		return this.dashboardUserLogic.getFutureCalendarLinks(sakaiUserId, contextId, hidden, afterTime, afterId, offset, limit);
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.app.DashboardUserLogic#getHiddenNewsLinks(java.lang.String, java.lang.String)
 	 */
@@ -1366,6 +2282,27 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 		return this.dashboardUserLogic.getPastCalendarLinks(sakaiUserId, contextId, hidden);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.DashboardUserLogic#countPastCalendarLinks(java.lang.String, java.lang.String, boolean)
+	 */
+	@Override
+	public int countPastCalendarLinks(String sakaiUserId, String contextId,
+			boolean hidden) {
+		
+		return this.dashboardUserLogic.countPastCalendarLinks(sakaiUserId, contextId, hidden);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.DashboardUserLogic#getPastCalendarLinks(java.lang.String, java.lang.String, boolean, java.util.Date, long, int, int)
+	 */
+	@Override
+	public List<CalendarLink> getPastCalendarLinks(String sakaiUserId,
+			String contextId, boolean hidden, Date afterTime, long afterId,
+			int offset, int limit) {
+		
+		return this.dashboardUserLogic.getPastCalendarLinks(sakaiUserId, contextId, hidden, afterTime, afterId, offset, limit);
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.app.DashboardUserLogic#getStarredCalendarLinks(java.lang.String, java.lang.String)
 	 */
@@ -1480,10 +2417,17 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 			try {
 				long startTime = System.currentTimeMillis();
 				logger.debug("DashboardCommonLogicImpl.expireAndPurge start " + serverId);
-				expireAndPurgeCalendarItems();
-				expireAndPurgeNewsItems();
+				PurgeThrottle throttle = new PurgeThrottle(
+						dashboardConfig.getConfigValue(DashboardConfig.PROP_PURGE_MAX_ROWS_PER_SECOND, DEFAULT_PURGE_MAX_ROWS_PER_SECOND).intValue(),
+						dashboardConfig.getConfigValue(DashboardConfig.PROP_PURGE_MAX_SECONDS_PER_RUN, DEFAULT_PURGE_MAX_SECONDS_PER_RUN).intValue());
+				boolean finished = expireAndPurgeCalendarItems(throttle) && expireAndPurgeNewsItems(throttle);
 				
-				nextTimeToExpireAndPurge = System.currentTimeMillis() + TIME_BETWEEN_EXPIRING_AND_PURGING;
+				if(finished) {
+					nextTimeToExpireAndPurge = System.currentTimeMillis() + TIME_BETWEEN_EXPIRING_AND_PURGING;
+				} else {
+					// pick up from the checkpoints shortly rather than in an hour
+					nextTimeToExpireAndPurge = System.currentTimeMillis() + TIME_BETWEEN_PURGE_SLICES;
+				}
 	
 				if (taskLockApproach)
 				{
@@ -1491,11 +2435,20 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 				}
 	
 				long elapsedTime = System.currentTimeMillis() - startTime;
-				StringBuilder buf = new StringBuilder("DashboardCommonLogicImpl.expireAndPurge done. ");
+				StringBuilder buf = new StringBuilder("DashboardCommonLogicImpl.expireAndPurge ");
+				buf.append(finished ? "done. " : "paused. ");
 				buf.append(serverId);
+				buf.append(" Rows removed: ");
+				buf.append(throttle.getRowsDeleted());
+				buf.append(" Rows per second: ");
+				buf.append(elapsedTime > 0 ? throttle.getRowsDeleted() * 1000L / elapsedTime : throttle.getRowsDeleted());
 				buf.append(" Elapsed Time (ms): ");
 				buf.append(elapsedTime);
-				logger.debug(buf.toString());
+				if(throttle.getRowsDeleted() > 0) {
+					logger.info(buf.toString());
+				} else {
+					logger.debug(buf.toString());
+				}
 			} catch (Exception e) {
 				logger.warn(this + " expireAndPurge: ", e);
 			} finally {
@@ -1505,62 +2458,224 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 		
 	}
 
-	protected void expireAndPurgeNewsItems() {
+	/**
+	 * @return true if expiring and purging of news items is complete, false if it 
+	 * stopped early and should be resumed from its checkpoints.
+	 */
+	protected boolean expireAndPurgeNewsItems(PurgeThrottle throttle) {
 		Integer weeksToExpireItems = dashboardConfig.getConfigValue(DashboardConfig.PROP_REMOVE_NEWS_ITEMS_AFTER_WEEKS, DEFAULT_NEWS_ITEM_EXPIRATION);
 		Integer weeksToExpireStarredItems = dashboardConfig.getConfigValue(DashboardConfig.PROP_REMOVE_STARRED_NEWS_ITEMS_AFTER_WEEKS, DEFAULT_NEWS_ITEM_EXPIRATION);
 		Integer weeksToExpireHiddenItems = dashboardConfig.getConfigValue(DashboardConfig.PROP_REMOVE_HIDDEN_NEWS_ITEMS_AFTER_WEEKS, DEFAULT_NEWS_ITEM_EXPIRATION);
 		Integer purgeItemsWithoutLinks = dashboardConfig.getConfigValue(DashboardConfig.PROP_REMOVE_NEWS_ITEMS_WITH_NO_LINKS, 0);
 		
+		List<LinkExpiration> expirations = new ArrayList<LinkExpiration>();
 		if(weeksToExpireItems.intValue() > 0) {
-			expireNewsLinks(new Date(System.currentTimeMillis() - weeksToExpireItems.intValue() * ONE_WEEK_IN_MILLIS), false, false);
+			expirations.add(new LinkExpiration(new Date(System.currentTimeMillis() - weeksToExpireItems.intValue() * ONE_WEEK_IN_MILLIS), false, false));
 		}
 		if(weeksToExpireStarredItems.intValue() > 0) {
-			expireNewsLinks(new Date(System.currentTimeMillis() - weeksToExpireStarredItems.intValue() * ONE_WEEK_IN_MILLIS), false, false);
+			expirations.add(new LinkExpiration(new Date(System.currentTimeMillis() - weeksToExpireStarredItems.intValue() * ONE_WEEK_IN_MILLIS), false, false));
 		}
 		if(weeksToExpireHiddenItems.intValue() > 0) {
-			expireNewsLinks(new Date(System.currentTimeMillis() - weeksToExpireHiddenItems.intValue() * ONE_WEEK_IN_MILLIS), false, true);
+			expirations.add(new LinkExpiration(new Date(System.currentTimeMillis() - weeksToExpireHiddenItems.intValue() * ONE_WEEK_IN_MILLIS), false, true));
+		}
+		maintainLinkPartitions(DashboardLogic.TYPE_NEWS, weeksToExpireItems.intValue(), weeksToExpireHiddenItems.intValue());
+		if(! expireLinks(DashboardLogic.TYPE_NEWS, expirations, DashboardConfig.PROP_PURGE_CHECKPOINT_NEWS_LINKS, throttle)) {
+			return false;
 		}
 		if(purgeItemsWithoutLinks.intValue() > 0) {
-			purgeNewsItems();
+			return purgeItems(DashboardLogic.TYPE_NEWS, DashboardConfig.PROP_PURGE_CHECKPOINT_NEWS_ITEMS, throttle);
 		}
+		return true;
 	}
 
-	private void purgeNewsItems() {
-		dao.deleteNewsItemsWithoutLinks();
-	}
-
-	protected void expireNewsLinks(Date expireBefore, boolean starred, boolean hidden) {
-		dao.deleteNewsLinksBefore(expireBefore,starred,hidden);
-		
-	}
-
-	protected void expireAndPurgeCalendarItems() {
+	/**
+	 * @return true if expiring and purging of calendar items is complete, false if it 
+	 * stopped early and should be resumed from its checkpoints.
+	 */
+	protected boolean expireAndPurgeCalendarItems(PurgeThrottle throttle) {
 		Integer weeksToExpireItems = dashboardConfig.getConfigValue(DashboardConfig.PROP_REMOVE_CALENDAR_ITEMS_AFTER_WEEKS, DEFAULT_CALENDAR_ITEM_EXPIRATION);
 		Integer weeksToExpireStarredItems = dashboardConfig.getConfigValue(DashboardConfig.PROP_REMOVE_STARRED_CALENDAR_ITEMS_AFTER_WEEKS, DEFAULT_CALENDAR_ITEM_EXPIRATION);
 		Integer weeksToExpireHiddenItems = dashboardConfig.getConfigValue(DashboardConfig.PROP_REMOVE_HIDDEN_CALENDAR_ITEMS_AFTER_WEEKS, DEFAULT_CALENDAR_ITEM_EXPIRATION);
 		Integer purgeItemsWithoutLinks = dashboardConfig.getConfigValue(DashboardConfig.PROP_REMOVE_CALENDAR_ITEMS_WITH_NO_LINKS, 0);
 
+		List<LinkExpiration> expirations = new ArrayList<LinkExpiration>();
 		if(weeksToExpireItems.intValue() > 0) {
-			expireCalendarLinks(new Date(System.currentTimeMillis() - weeksToExpireItems.intValue() * ONE_WEEK_IN_MILLIS), false, false);
+			expirations.add(new LinkExpiration(new Date(System.currentTimeMillis() - weeksToExpireItems.intValue() * ONE_WEEK_IN_MILLIS), false, false));
 		}
 		if(weeksToExpireStarredItems.intValue() > 0) {
-			expireCalendarLinks(new Date(System.currentTimeMillis() - weeksToExpireStarredItems.intValue() * ONE_WEEK_IN_MILLIS), false, false);
+			expirations.add(new LinkExpiration(new Date(System.currentTimeMillis() - weeksToExpireStarredItems.intValue() * ONE_WEEK_IN_MILLIS), false, false));
 		}
 		if(weeksToExpireHiddenItems.intValue() > 0) {
-			expireCalendarLinks(new Date(System.currentTimeMillis() - weeksToExpireHiddenItems.intValue() * ONE_WEEK_IN_MILLIS), false, true);
+			expirations.add(new LinkExpiration(new Date(System.currentTimeMillis() - weeksToExpireHiddenItems.intValue() * ONE_WEEK_IN_MILLIS), false, true));
+		}
+		maintainLinkPartitions(DashboardLogic.TYPE_CALENDAR, weeksToExpireItems.intValue(), weeksToExpireHiddenItems.intValue());
+		if(! expireLinks(DashboardLogic.TYPE_CALENDAR, expirations, DashboardConfig.PROP_PURGE_CHECKPOINT_CALENDAR_LINKS, throttle)) {
+			return false;
 		}
 		if(purgeItemsWithoutLinks.intValue() > 0) {
-			purgeCalendarItems();
+			return purgeItems(DashboardLogic.TYPE_CALENDAR, DashboardConfig.PROP_PURGE_CHECKPOINT_CALENDAR_ITEMS, throttle);
+		}
+		return true;
+	}
+
+	/**
+	 * Where the links of one type are kept in weekly partitions (dashboard_partitionLinks),
+	 * add partitions for the coming weeks and drop those whose links have all expired, 
+	 * leaving the rest to expireLinks(). Nothing happens for tables that are not partitioned.
+	 */
+	protected void maintainLinkPartitions(String type, int weeksToExpireItems, int weeksToExpireHiddenItems) {
+		dao.addLinkPartitions(type, new Date(System.currentTimeMillis() + LINK_PARTITION_WEEKS_AHEAD * ONE_WEEK_IN_MILLIS));
+		if(weeksToExpireItems > 0 && weeksToExpireHiddenItems > 0) {
+			// a partition can go once its unstarred links, hidden or not, have expired
+			int weeks = Math.max(weeksToExpireItems, weeksToExpireHiddenItems);
+			int dropped = dao.dropExpiredLinkPartitions(type, new Date(System.currentTimeMillis() - weeks * ONE_WEEK_IN_MILLIS));
+			removeCachedLinks(dropped > 0);
 		}
 	}
 
-	private void purgeCalendarItems() {
-		dao.deleteCalendarItemsWithoutLinks();
+	/**
+	 * Walk the links of one type in ranges of PROP_PURGE_BATCH_SIZE ids, removing those 
+	 * matching any of the expirations. Progress is saved in dash_config after each range 
+	 * so a run that stops early resumes where it left off.
+	 * @return true if every link has been checked, false if the walk stopped early.
+	 */
+	protected boolean expireLinks(String type, List<LinkExpiration> expirations, String checkpointProperty, PurgeThrottle throttle) {
+		if(expirations.isEmpty()) {
+			return true;
+		}
+		int batchSize = Math.max(1, dashboardConfig.getConfigValue(DashboardConfig.PROP_PURGE_BATCH_SIZE, DEFAULT_PURGE_BATCH_SIZE).intValue());
+		long cursor = dashboardConfig.getConfigValue(checkpointProperty, 0).longValue();
+		boolean deletedAny = false;
+		Long firstId = dao.getNextLinkId(type, cursor);
+		while(firstId != null) {
+			if(throttle.isOutOfTime()) {
+				saveCheckpoint(checkpointProperty, cursor);
+				removeCachedLinks(deletedAny);
+				return false;
+			}
+			long lastId = firstId.longValue() + batchSize;
+			int deleted = 0;
+			for(LinkExpiration expiration : expirations) {
+				int count = dao.deleteLinksBefore(type, expiration.expireBefore, expiration.starred, expiration.hidden, firstId.longValue(), lastId);
+				if(count < 0) {
+					saveCheckpoint(checkpointProperty, cursor);
+					removeCachedLinks(deletedAny);
+					return false;
+				}
+				deleted += count;
+			}
+			deletedAny = deletedAny || deleted > 0;
+			cursor = lastId;
+			saveCheckpoint(checkpointProperty, cursor);
+			throttle.rowsDeleted(deleted);
+			firstId = dao.getNextLinkId(type, cursor);
+		}
+		saveCheckpoint(checkpointProperty, 0L);
+		removeCachedLinks(deletedAny);
+		return true;
+	}
+	
+	/**
+	 * Expired links belong to no particular set of users, so once any have been removed 
+	 * the cached link lists of all users are dropped.
+	 * @param deletedAny
+	 */
+	protected void removeCachedLinks(boolean deletedAny) {
+		if(deletedAny && linkCache != null) {
+			linkCache.removeAll();
+		}
+	}
+
+	/**
+	 * Walk the items of one type in ranges of PROP_PURGE_BATCH_SIZE ids, removing those
+	 * with no links. Progress is saved as in expireLinks().
+	 * @return true if every item has been checked, false if the walk stopped early.
+	 */
+	protected boolean purgeItems(String type, String checkpointProperty, PurgeThrottle throttle) {
+		int batchSize = Math.max(1, dashboardConfig.getConfigValue(DashboardConfig.PROP_PURGE_BATCH_SIZE, DEFAULT_PURGE_BATCH_SIZE).intValue());
+		long cursor = dashboardConfig.getConfigValue(checkpointProperty, 0).longValue();
+		Long firstId = dao.getNextItemId(type, cursor);
+		while(firstId != null) {
+			if(throttle.isOutOfTime()) {
+				saveCheckpoint(checkpointProperty, cursor);
+				return false;
+			}
+			long lastId = firstId.longValue() + batchSize;
+			int count = dao.deleteItemsWithoutLinks(type, firstId.longValue(), lastId);
+			if(count < 0) {
+				saveCheckpoint(checkpointProperty, cursor);
+				return false;
+			}
+			cursor = lastId;
+			saveCheckpoint(checkpointProperty, cursor);
+			throttle.rowsDeleted(count);
+			firstId = dao.getNextItemId(type, cursor);
+		}
+		saveCheckpoint(checkpointProperty, 0L);
+		return true;
+	}
+
+	protected void saveCheckpoint(String checkpointProperty, long cursor) {
+		if(cursor > Integer.MAX_VALUE) {
+			// dash_config holds integers; the walk will start over next time
+			logger.debug("saveCheckpoint() id out of range for " + checkpointProperty + ": " + cursor);
+			cursor = 0L;
+		}
+		dashboardConfig.setConfigValue(checkpointProperty, Integer.valueOf((int) cursor));
+	}
+
+	/**
+	 * The rule for one of the expiration passes over a link table.
+	 */
+	protected static class LinkExpiration {
+		protected final Date expireBefore;
+		protected final boolean starred;
+		protected final boolean hidden;
 		
+		protected LinkExpiration(Date expireBefore, boolean starred, boolean hidden) {
+			this.expireBefore = expireBefore;
+			this.starred = starred;
+			this.hidden = hidden;
+		}
 	}
 
-	protected void expireCalendarLinks(Date expireBefore, boolean starred, boolean hidden) {
-		dao.deleteCalendarLinksBefore(expireBefore, starred, hidden);
+	/**
+	 * Paces a purge run. After each batch, sleeps long enough to keep the rate of deletes 
+	 * at or below maxRowsPerSecond, and reports when the run has used up its time.
+	 */
+	protected static class PurgeThrottle {
+		protected final int maxRowsPerSecond;
+		protected final long startTime = System.currentTimeMillis();
+		protected final long deadline;
+		protected long rowsDeleted = 0L;
+		
+		protected PurgeThrottle(int maxRowsPerSecond, int maxSecondsPerRun) {
+			this.maxRowsPerSecond = maxRowsPerSecond;
+			this.deadline = (maxSecondsPerRun > 0) ? startTime + maxSecondsPerRun * 1000L : Long.MAX_VALUE;
+		}
+		
+		protected void rowsDeleted(int count) {
+			rowsDeleted += count;
+			if(maxRowsPerSecond > 0) {
+				long now = System.currentTimeMillis();
+				long pause = Math.min(startTime + rowsDeleted * 1000L / maxRowsPerSecond, deadline) - now;
+				if(pause > 0L) {
+					try {
+						Thread.sleep(pause);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+		}
+		
+		protected boolean isOutOfTime() {
+			return Thread.currentThread().isInterrupted() || System.currentTimeMillis() >= deadline;
+		}
+		
+		protected long getRowsDeleted() {
+			return rowsDeleted;
+		}
 	}
 
 	/**
@@ -1583,12 +2698,19 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 				dashboardLogic.setRepeatingEventHorizon(newHorizon);
 				
 				if(newHorizon.after(oldHorizon)) {
-					List<RepeatingCalendarItem> repeatingEvents = dao.getRepeatingCalendarItems();
-					if(repeatingEvents != null) {
-						logger.debug("DashboardCommonLogicImpl.updateRepeatingEvents repeatingEvent list size=" + repeatingEvents.size() + " new horizon=" + newHorizon + " oldHorizon=" + oldHorizon);
-						int count = 0;
+					logger.debug("DashboardCommonLogicImpl.updateRepeatingEvents new horizon=" + newHorizon + " oldHorizon=" + oldHorizon);
+					// page through the events by id; only those ending after the old horizon can need instances
+					int count = 0;
+					long lastId = 0L;
+					List<RepeatingCalendarItem> repeatingEvents = null;
+					do {
+						repeatingEvents = dao.getRepeatingCalendarItems(oldHorizon, lastId, REPEATING_EVENT_PAGE_SIZE);
+						if(repeatingEvents == null) {
+							break;
+						}
 						for(RepeatingCalendarItem repeatingEvent: repeatingEvents) {
 							addCalendarItemsForRepeatingCalendarItem(repeatingEvent, oldHorizon, newHorizon);
+							lastId = repeatingEvent.getId().longValue();
 							count++;
 							if (count % TASK_LOGGING_INTERVAL == 0)
 							{
@@ -1596,8 +2718,8 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 								logger.debug("DashboardCommonLogicImpl.updateRepeatingEvents processed " + count  + " repeating events. "); 
 							}
 						}
-						logger.debug("DashboardCommonLogicImpl.updateRepeatingEvents end of the loop processed " + count  + " repeating events. ");
-					}
+					} while(repeatingEvents.size() >= REPEATING_EVENT_PAGE_SIZE);
+					logger.debug("DashboardCommonLogicImpl.updateRepeatingEvents end of the loop processed " + count  + " repeating events. ");
 				}
 				Integer daysBetweenHorizonUpdates = dashboardConfig.getConfigValue(DashboardConfig.PROP_DAYS_BETWEEN_HORIZ0N_UPDATES, new Integer(1));
 				nextHorizonUpdate = new Date(nextHorizonUpdate.getTime() + daysBetweenHorizonUpdates.longValue() * DashboardLogic.ONE_DAY);
@@ -1667,7 +2789,7 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 			public SecurityAdvice isAllowed(String userId, String function, String reference) {
 				long threadId = Thread.currentThread().getId();
 
-				if(threadId == dashboardEventProcessorThreadId) {
+				if(isDashboardEventProcessorThread(threadId)) {
 					// calling from the dashboard thread
 					return SecurityAdvice.ALLOWED;
 				}
@@ -1687,6 +2809,18 @@ public class DashboardCommonLogicImpl implements DashboardCommonLogic, Observer
 		};
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	public void rebuildNewsGroups() {
+		long startTime = System.currentTimeMillis();
+		int count = dao.rebuildNewsGroups();
+		if(count >= 0 && linkCache != null) {
+			linkCache.removeAll();
+		}
+		logger.info(this + ".rebuildNewsGroups wrote " + count + " news group summaries in " + (System.currentTimeMillis() - startTime) + " ms");
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -21,31 +21,39 @@
 
 package org.sakaiproject.dash.logic;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-
-import net.sf.ehcache.Cache;
-import net.sf.ehcache.Element;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.sakaiproject.dash.app.DashboardConfig;
 import org.sakaiproject.dash.dao.DashboardDao;
 
+/**
+ * Holds the dash_config table in an immutable snapshot that is replaced as a whole 
+ * when a value is set on this server or when a periodic reload finds that the table 
+ * was changed on another server. Reads take no lock.
+ */
 public class DashboardConfigImpl implements DashboardConfig {
 	
 	private static Log logger = LogFactory.getLog(DashboardConfigImpl.class);
 	
-	public static final String DASHBOARD_CACHE_PREFIX = "org.sakaiproject.dash.app.DashboardConfig.";
-
-	private static final Boolean CACHE_ETERNAL = new Boolean(false);
-	private static final Integer CACHE_TIME_TO_IDLE = new Integer(300);
-	private static final Integer CACHE_TIME_TO_LIVE = new Integer(300);
+	// how long changes made on other servers may take to show up
+	protected static final long CONFIG_REFRESH_INTERVAL = 300L * 1000L;
+	// how soon to try again after dash_config could not be read
+	protected static final long CONFIG_RETRY_INTERVAL = 60L * 1000L;
 	
 	protected Map<String,String> actionIconMap = new HashMap<String,String>();
 
+	// guards writers of configValues; readers never take it
 	private Object configLock = new Object();
 	
+	private volatile Map<String,Integer> configValues = null;
+	private volatile long nextRefreshTime = 0L;
+	private final AtomicBoolean refreshing = new AtomicBoolean(false);
+	
 	
 	/************************************************************************
 	 * Spring-injected classes
@@ -55,11 +63,6 @@ public class DashboardConfigImpl implements DashboardConfig {
 	public void setDao(DashboardDao dao) {
 		this.dao = dao;
 	}
-	
-	protected Cache cache;
-	public void setCache(Cache cache) {
-		this.cache = cache;
-	}
 		
 	/************************************************************************
 	 * DashboardConfig methods
@@ -67,37 +70,77 @@ public class DashboardConfigImpl implements DashboardConfig {
 		
 	public Integer getConfigValue(String propertyName, Integer defaultValue) {
 		
-		String cacheKey = DASHBOARD_CACHE_PREFIX + propertyName;
-		Integer value = null;
-		synchronized(configLock) {
-			Element element = cache.get(cacheKey);
-			if(element != null) {
-				value = (Integer) element.getObjectValue();
-			}
-			if(value == null) {
-				value = dao.getConfigProperty(propertyName);
-				element = null;
-			}
-			if(value == null) {
-				value = defaultValue;
-			}
-			if(element == null) {
-				cache.put(new Element(cacheKey, value, CACHE_ETERNAL, CACHE_TIME_TO_IDLE, CACHE_TIME_TO_LIVE));
-			}
+		Integer value = getConfigValues().get(propertyName);
+		if(value == null) {
+			value = defaultValue;
 		}
 		return value;
 	}
 	
 	public void setConfigValue(String propertyName, Integer propertyValue) {
 
-		String cacheKey = DASHBOARD_CACHE_PREFIX + propertyName;
-
 		synchronized(configLock) {
 	
 			dao.setConfigProperty(propertyName, propertyValue);
-			cache.remove(cacheKey);
-			cache.put(new Element(cacheKey, propertyValue, CACHE_ETERNAL, CACHE_TIME_TO_IDLE, CACHE_TIME_TO_LIVE));
 			
+			Map<String,Integer> values = new HashMap<String,Integer>(getConfigValues());
+			if(propertyValue == null) {
+				values.remove(propertyName);
+			} else {
+				values.put(propertyName, propertyValue);
+			}
+			configValues = Collections.unmodifiableMap(values);
+			
+		}
+	}
+	
+	/**
+	 * Returns the current snapshot. The first call loads it. After that, once the
+	 * refresh interval has passed, one caller reloads it while the others keep 
+	 * reading the snapshot they already have.
+	 */
+	protected Map<String,Integer> getConfigValues() {
+		Map<String,Integer> values = configValues;
+		if(values == null) {
+			synchronized(configLock) {
+				if(configValues == null) {
+					refreshConfigValues();
+				}
+				values = configValues;
+			}
+		} else if(System.currentTimeMillis() >= nextRefreshTime && refreshing.compareAndSet(false, true)) {
+			try {
+				synchronized(configLock) {
+					refreshConfigValues();
+					values = configValues;
+				}
+			} finally {
+				refreshing.set(false);
+			}
+		}
+		return values;
+	}
+	
+	/**
+	 * Reads dash_config and replaces the snapshot if anything changed. If the table 
+	 * cannot be read, the current snapshot is kept until the next refresh. The caller 
+	 * must hold configLock.
+	 */
+	protected void refreshConfigValues() {
+		Map<String,Integer> loaded = dao.getConfigProperties();
+		if(loaded == null) {
+			nextRefreshTime = System.currentTimeMillis() + CONFIG_RETRY_INTERVAL;
+			if(configValues == null) {
+				configValues = Collections.emptyMap();
+			}
+			return;
+		}
+		nextRefreshTime = System.currentTimeMillis() + CONFIG_REFRESH_INTERVAL;
+		if(! loaded.equals(configValues)) {
+			if(configValues != null && logger.isDebugEnabled()) {
+				logger.debug("refreshConfigValues() dash_config changed: " + loaded);
+			}
+			configValues = Collections.unmodifiableMap(loaded);
 		}
 	}
 	
@@ -23,9 +23,12 @@ package org.sakaiproject.dash.logic;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -82,7 +85,8 @@ public class DashboardLogicImpl implements DashboardLogic {
 			TaskLock.UPDATE_REPEATING_EVENTS
 	})); 
 
-	protected Map<String,EventProcessor> eventProcessors = new HashMap<String,EventProcessor>();
+	// Immutable dispatch table, replaced as a whole on registration so lookups need no locking
+	protected volatile Map<String,EventProcessor> eventProcessors = Collections.emptyMap();
 	protected Map<String,DashboardEntityInfo> dashboardEntityInfoMap = new HashMap<String,DashboardEntityInfo>();
 	
 	protected Map<String,Date> taskLockNegotiationsDeadlines = new HashMap<String,Date>();
@@ -127,6 +131,12 @@ public class DashboardLogicImpl implements DashboardLogic {
 		this.cache = cache;
 	}
 
+	// per-user link lists cached by DashboardUserLogicImpl, keyed by sakai id
+	protected Cache linkCache;
+	public void setLinkCache(Cache linkCache) {
+		this.linkCache = linkCache;
+	}
+
 	/************************************************************************
 	 * init() and destroy()
 	 ************************************************************************/
@@ -162,14 +172,22 @@ public class DashboardLogicImpl implements DashboardLogic {
 					// TODO: handle error: entityType cannot be null
 					logger.warn("TODO: handle error: entityType cannot be null");
 				} else if(dashboardEntityInfo instanceof RepeatingEventGenerator) {
-					List<CalendarItem> oldDates = dao.getCalendarItems(repeatingEvent);
-					Map<Date, CalendarItem> oldDatesMap = new HashMap<Date, CalendarItem>();
-					for(CalendarItem cItem: oldDates) {
-						if(cItem.getSequenceNumber() == null || cItem.getCalendarTime() == null) {
+					// bogus instances can be anywhere in the series, so they are found apart from the window
+					List<CalendarItem> bogusItems = dao.getUnsequencedCalendarItems(repeatingEvent);
+					if(bogusItems != null && ! bogusItems.isEmpty()) {
+						Set<String> linkedUsers = getUsersWithCalendarLinks(repeatingEvent.getEntityReference());
+						for(CalendarItem cItem : bogusItems) {
 							logger.warn("addCalendarItemsForRepeatingCalendarItem() -- Deleting bogus CalendarItem and all links to it: " + cItem);
 							dao.deleteCalendarLinks(cItem.getId());
 							dao.deleteCalendarItem(cItem.getId());
-						} else {
+						}
+						removeCachedLinks(linkedUsers);
+					}
+					// only the instances in the window can match the dates generated for it
+					List<CalendarItem> oldDates = dao.getCalendarItems(repeatingEvent, beginDate, endDate);
+					Map<Date, CalendarItem> oldDatesMap = new HashMap<Date, CalendarItem>();
+					for(CalendarItem cItem: oldDates) {
+						if(cItem.getSequenceNumber() != null && cItem.getCalendarTime() != null) {
 							oldDatesMap.put(cItem.getCalendarTime(), cItem);
 						}
 					}
@@ -177,55 +195,21 @@ public class DashboardLogicImpl implements DashboardLogic {
 					if(newDates == null) {
 						// ignore: there are no new dates to add at this time
 					} else {
+						List<CalendarItem> newItems = new ArrayList<CalendarItem>();
 						for(Map.Entry<Integer, Date> entry : newDates.entrySet()) {
-							try {
-								if(oldDatesMap.containsKey(entry.getValue())) {
-									verifyCalendarItem(oldDatesMap.get(entry.getValue()), repeatingEvent, entry.getKey(), entry.getValue());
-								} else {
-									// create an instance
-									CalendarItem calendarItem = createCalendarItem(repeatingEvent.getTitle(), entry.getValue(), repeatingEvent.getCalendarTimeLabelKey(), 
-											repeatingEvent.getEntityReference(), repeatingEvent.getContext(), repeatingEvent.getSourceType(), repeatingEvent.getSubtype(), repeatingEvent, entry.getKey());
-									// dao.addCalendarItem(calendarItem);
-									// calendarItem = dao.getCalendarItem(repeatingEvent.getEntityReference(), repeatingEvent.getCalendarTimeLabelKey(), entry.getKey());
-									if(calendarItem == null) {
-										// this could occur if we are trying to add an instance that has already been added
-										StringBuilder buf = new StringBuilder();
-										buf.append("Error trying to add calendar item for repeating event (");
-										buf.append(repeatingEvent);
-										buf.append(") for date (");
-										buf.append(entry.getValue());
-										buf.append(") and sequence number (");
-										buf.append(entry.getKey());
-										buf.append("). Calendar item is null for repeating event: ");
-										buf.append(repeatingEvent);
-										buf.append(" :: Sequence Number: ");
-										buf.append(entry.getKey());
-										buf.append(" Date: ");
-										buf.append(entry.getValue());
-										logger.warn(buf);
-									} else {
-
-										if (dashboardEntityInfo.isAvailable(calendarItem.getEntityReference()))
-										{
-											// after checking for availability
-											createCalendarLinks(calendarItem);
-										}
-									}
-								}
-							} catch(Exception e) {
-								// this could occur if we are trying to add an instance that has already been added
-								StringBuilder buf = new StringBuilder();
-								buf.append("Error trying to add calendar item for repeating event (");
-								buf.append(repeatingEvent);
-								buf.append(") for date (");
-								buf.append(entry.getValue());
-								buf.append(") and sequence number (");
-								buf.append(entry.getKey());
-								buf.append("). Exception: ");
-								buf.append(e);
-								buf.append(" Message: ");
-								buf.append(e.getMessage());
-								logger.warn(buf);
+							if(oldDatesMap.containsKey(entry.getValue())) {
+								verifyCalendarItem(oldDatesMap.get(entry.getValue()), repeatingEvent, entry.getKey(), entry.getValue());
+							} else {
+								newItems.add(new CalendarItem(repeatingEvent.getTitle(), entry.getValue(), repeatingEvent.getCalendarTimeLabelKey(), 
+										repeatingEvent.getEntityReference(), repeatingEvent.getContext(), repeatingEvent.getSourceType(), 
+										repeatingEvent.getSubtype(), repeatingEvent, entry.getKey()));
+							}
+						}
+						if(! newItems.isEmpty()) {
+							List<CalendarItem> addedItems = addRepeatingEventInstances(repeatingEvent, newItems, beginDate, endDate);
+							if(! addedItems.isEmpty() && dashboardEntityInfo.isAvailable(repeatingEvent.getEntityReference())) {
+								// every instance shares the entity reference, so one access check covers the series
+								createCalendarLinks(addedItems, dashboardEntityInfo.getUsersWithAccess(repeatingEvent.getEntityReference()));
 							}
 						}
 					}
@@ -240,6 +224,83 @@ public class DashboardLogicImpl implements DashboardLogic {
 		}
 	}
 
+	/**
+	 * Adds new instances of a repeating event in one batch and reads them back to get their ids. 
+	 * If the batch does not add all of them (for example, because one already exists with 
+	 * another time), the missing instances are added one at a time so the rest are not lost.
+	 * @param repeatingEvent
+	 * @param newItems instances that are not yet saved, all within the window
+	 * @param beginDate
+	 * @param endDate
+	 * @return the saved instances
+	 */
+	protected List<CalendarItem> addRepeatingEventInstances(RepeatingCalendarItem repeatingEvent, List<CalendarItem> newItems, Date beginDate, Date endDate) {
+		int count = dao.addCalendarItems(newItems);
+		Map<Integer, CalendarItem> savedItems = new HashMap<Integer, CalendarItem>();
+		for(CalendarItem cItem : dao.getCalendarItems(repeatingEvent, beginDate, endDate)) {
+			savedItems.put(cItem.getSequenceNumber(), cItem);
+		}
+		List<CalendarItem> addedItems = new ArrayList<CalendarItem>();
+		for(CalendarItem newItem : newItems) {
+			CalendarItem calendarItem = savedItems.get(newItem.getSequenceNumber());
+			if(calendarItem != null && calendarItem.getCalendarTime().getTime() != newItem.getCalendarTime().getTime()) {
+				// an older instance with this sequence number, not the one we added
+				calendarItem = null;
+			} else if(calendarItem == null && count < newItems.size() && dao.addCalendarItem(newItem)) {
+				calendarItem = dao.getCalendarItem(newItem.getEntityReference(), newItem.getCalendarTimeLabelKey(), newItem.getSequenceNumber());
+			}
+			if(calendarItem == null) {
+				// this could occur if we are trying to add an instance that has already been added
+				StringBuilder buf = new StringBuilder();
+				buf.append("Error trying to add calendar item for repeating event (");
+				buf.append(repeatingEvent);
+				buf.append(") for date (");
+				buf.append(newItem.getCalendarTime());
+				buf.append(") and sequence number (");
+				buf.append(newItem.getSequenceNumber());
+				buf.append(").");
+				logger.warn(buf);
+			} else {
+				addedItems.add(calendarItem);
+			}
+		}
+		return addedItems;
+	}
+
+	/**
+	 * Adds links to new calendar items for the same users in a single batch. The items 
+	 * must not have links yet, so existing links are not checked.
+	 * @param calendarItems
+	 * @param sakaiIdsWithAccess
+	 * @return the number of links that were added
+	 */
+	protected int createCalendarLinks(List<CalendarItem> calendarItems, Collection<String> sakaiIdsWithAccess) {
+		int count = 0;
+		if(calendarItems != null && sakaiIdsWithAccess != null && ! sakaiIdsWithAccess.isEmpty()) {
+			Set<String> sakaiIds = new TreeSet<String>(sakaiIdsWithAccess);
+			Map<String,Person> people = getOrCreatePeople(sakaiIds);
+			List<CalendarLink> calendarLinks = new ArrayList<CalendarLink>();
+			for(String sakaiId : sakaiIds) {
+				Person person = people.get(sakaiId);
+				if(person == null) {
+					logger.warn("Error retrieving user " + sakaiId);
+				} else {
+					for(CalendarItem calendarItem : calendarItems) {
+						calendarLinks.add(new CalendarLink(person, calendarItem, calendarItem.getContext(), false, false));
+					}
+				}
+			}
+			if(calendarLinks.size() > 0) {
+				count = dao.addCalendarLinks(calendarLinks);
+				removeCachedLinks(sakaiIds);
+			}
+		}
+		if(logger.isDebugEnabled()) {
+			logger.debug("createCalendarLinks(" + (calendarItems == null ? 0 : calendarItems.size()) + " items) added " + count + " calendarLinks");
+		}
+		return count;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.logic.DashboardLogic#addCalendarLinks(java.lang.String, java.lang.String)
 	 */
@@ -265,10 +326,13 @@ public class DashboardLogicImpl implements DashboardLogic {
 				logger.info(message.toString());
 			} else {
 				final List<CalendarLink> calendarLinks = new ArrayList<CalendarLink>();
+				Map<DashboardEntityInfo, Set<String>> availableEntities = new HashMap<DashboardEntityInfo, Set<String>>();
+				for(CalendarItem item: items) {
+					addAvailableEntity(availableEntities, item.getSourceType(), item.getEntityReference());
+				}
+				Set<String> permitted = getPermittedEntities(sakaiUserId, availableEntities, contextId);
 				for(CalendarItem item: items) {
-					SourceType sourceType = item.getSourceType();
-					DashboardEntityInfo dashboardEntityInfo = this.dashboardEntityInfoMap.get(sourceType.getIdentifier());
-					if(dashboardEntityInfo != null && dashboardEntityInfo.isAvailable(item.getEntityReference()) && dashboardEntityInfo.isUserPermitted(sakaiUserId, item.getEntityReference(), item.getContext().getContextId())) {
+					if(permitted.contains(item.getEntityReference())) {
 						CalendarLink calendarLink = new CalendarLink(person, item, item.getContext(), false, false);
 						calendarLinks.add(calendarLink);
 					}
@@ -283,7 +347,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 							int count = dao.addCalendarLinks(calendarLinks);
 							return count;
 						}});
-					
+					removeCachedLinks(sakaiUserId);
 				}
 			}
 		}
@@ -322,12 +386,16 @@ public class DashboardLogicImpl implements DashboardLogic {
 						logger.info(this + " modifyLinksByContext: There is no calendar events in context (" + contextId + ")");
 					} else {
 						logger.info(this + " modifyLinksByContext: start adding calendar links for context  (" + contextId + ") and calendar item list size=" + items.size());
+						Map<DashboardEntityInfo, Set<String>> availableEntities = new HashMap<DashboardEntityInfo, Set<String>>();
 						for(CalendarItem item: items) {
-							SourceType sourceType = item.getSourceType();
-							DashboardEntityInfo dashboardEntityInfo = this.dashboardEntityInfoMap.get(sourceType.getIdentifier());
-							if(dashboardEntityInfo != null && dashboardEntityInfo.isAvailable(item.getEntityReference()) ) {
+							addAvailableEntity(availableEntities, item.getSourceType(), item.getEntityReference());
+						}
+						Map<String, List<String>> usersWithAccess = getUsersWithAccess(availableEntities);
+						for(CalendarItem item: items) {
+							List<String> sakaiIds = usersWithAccess.get(item.getEntityReference());
+							if(sakaiIds != null) {
 								// add links to the calendar item
-								createCalendarLinks(item);
+								createCalendarLinks(item, sakaiIds);
 							}
 						}
 						logger.info(this + " modifyLinksByContext: end adding calendar links for context  (" + contextId + ")");
@@ -341,12 +409,16 @@ public class DashboardLogicImpl implements DashboardLogic {
 						logger.info(this + " modifyLinksByContext: There is no news events in context (" + contextId + ")");
 					} else {
 						logger.info(this + " modifyLinksByContext: start adding news links for context  (" + contextId + ") and calendar item list size=" + items.size());
+						Map<DashboardEntityInfo, Set<String>> availableEntities = new HashMap<DashboardEntityInfo, Set<String>>();
 						for(NewsItem item: items) {
-							SourceType sourceType = item.getSourceType();
-							DashboardEntityInfo dashboardEntityInfo = this.dashboardEntityInfoMap.get(sourceType.getIdentifier());
-							if(dashboardEntityInfo != null && dashboardEntityInfo.isAvailable(item.getEntityReference()) ) {
-								// add links to the calendar item
-								createNewsLinks(item);
+							addAvailableEntity(availableEntities, item.getSourceType(), item.getEntityReference());
+						}
+						Map<String, List<String>> usersWithAccess = getUsersWithAccess(availableEntities);
+						for(NewsItem item: items) {
+							List<String> sakaiIds = usersWithAccess.get(item.getEntityReference());
+							if(sakaiIds != null) {
+								// add links to the news item
+								createNewsLinks(item, sakaiIds);
 							}
 						}
 						logger.info(this + " modifyLinksByContext: end adding news links for context  (" + contextId + ")");
@@ -357,10 +429,76 @@ public class DashboardLogicImpl implements DashboardLogic {
 			{
 				// for link removals
 				dao.deleteLinksByContext(contextId, type);
+				// every member of the site may be affected
+				if(linkCache != null) {
+					linkCache.removeAll();
+				}
 			}
 		}
 	}
 	
+	/**
+	 * Adds the entityReference to the set for its entity type if that type is known 
+	 * and the entity is available. Availability is checked once per entity, however 
+	 * many items refer to it. 
+	 * @param availableEntities
+	 * @param sourceType
+	 * @param entityReference
+	 */
+	protected void addAvailableEntity(Map<DashboardEntityInfo, Set<String>> availableEntities, SourceType sourceType, String entityReference) {
+		DashboardEntityInfo dashboardEntityInfo = this.dashboardEntityInfoMap.get(sourceType.getIdentifier());
+		if(dashboardEntityInfo == null) {
+			return;
+		}
+		Set<String> entityReferences = availableEntities.get(dashboardEntityInfo);
+		if(entityReferences != null && entityReferences.contains(entityReference)) {
+			return;
+		}
+		if(dashboardEntityInfo.isAvailable(entityReference)) {
+			if(entityReferences == null) {
+				entityReferences = new LinkedHashSet<String>();
+				availableEntities.put(dashboardEntityInfo, entityReferences);
+			}
+			entityReferences.add(entityReference);
+		}
+	}
+	
+	/**
+	 * Resolves the users with access to many entities with one batch per entity type, 
+	 * so that entities in the same realm share one permission query.
+	 * @param entityReferencesByType
+	 * @return a map from entity reference to the sakai-ids of users with access
+	 */
+	protected Map<String, List<String>> getUsersWithAccess(Map<DashboardEntityInfo, Set<String>> entityReferencesByType) {
+		Map<String, List<String>> usersWithAccess = new HashMap<String, List<String>>();
+		for(Map.Entry<DashboardEntityInfo, Set<String>> entry : entityReferencesByType.entrySet()) {
+			Map<String, List<String>> users = entry.getKey().getUsersWithAccess(new ArrayList<String>(entry.getValue()));
+			if(users != null) {
+				usersWithAccess.putAll(users);
+			}
+		}
+		return usersWithAccess;
+	}
+	
+	/**
+	 * Finds the entities one user may access with one batch per entity type, so that 
+	 * the user's permission is evaluated once per realm rather than once per entity.
+	 * @param sakaiUserId
+	 * @param entityReferencesByType
+	 * @param contextId
+	 * @return the references of the entities the user may access
+	 */
+	protected Set<String> getPermittedEntities(String sakaiUserId, Map<DashboardEntityInfo, Set<String>> entityReferencesByType, String contextId) {
+		Set<String> permitted = new HashSet<String>();
+		for(Map.Entry<DashboardEntityInfo, Set<String>> entry : entityReferencesByType.entrySet()) {
+			Set<String> references = entry.getKey().getPermittedEntities(sakaiUserId, new ArrayList<String>(entry.getValue()), contextId);
+			if(references != null) {
+				permitted.addAll(references);
+			}
+		}
+		return permitted;
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.logic.DashboardLogic#addNewsLinks(java.lang.String, java.lang.String)
 	 */
@@ -386,10 +524,13 @@ public class DashboardLogicImpl implements DashboardLogic {
 				logger.info(message.toString());
 			} else {
 				final List<NewsLink> newsLinks = new ArrayList<NewsLink>();
+				Map<DashboardEntityInfo, Set<String>> availableEntities = new HashMap<DashboardEntityInfo, Set<String>>();
 				for(NewsItem item: items) {
-					SourceType sourceType = item.getSourceType();
-					DashboardEntityInfo dashboardEntityInfo = this.dashboardEntityInfoMap.get(sourceType.getIdentifier());
-					if(dashboardEntityInfo != null && dashboardEntityInfo.isAvailable(item.getEntityReference()) && dashboardEntityInfo.isUserPermitted(sakaiUserId, item.getEntityReference(), item.getContext().getContextId()) ) {
+					addAvailableEntity(availableEntities, item.getSourceType(), item.getEntityReference());
+				}
+				Set<String> permitted = getPermittedEntities(sakaiUserId, availableEntities, contextId);
+				for(NewsItem item: items) {
+					if(permitted.contains(item.getEntityReference())) {
 						NewsLink newsLink = new NewsLink(person, item, item.getContext(), false, false);
 						newsLinks.add(newsLink);
 					}
@@ -403,6 +544,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 							int count = dao.addNewsLinks(newsLinks);
 							return count;
 						}});
+					removeCachedLinks(sakaiUserId);
 				}
 			}
 		}
@@ -452,31 +594,41 @@ public class DashboardLogicImpl implements DashboardLogic {
 		if(logger.isDebugEnabled()) {
 			logger.debug("createCalendarLinks(" + calendarItem + ")");
 		}
-		int count = 0;
 		if(calendarItem != null) {
 			DashboardEntityInfo dashboardEntityInfo = this.dashboardEntityInfoMap.get(calendarItem.getSourceType().getIdentifier());
 			if(dashboardEntityInfo != null) {
-				Set<String> usersWithLinks = dao.listUsersWithLinks(calendarItem);
-				
-				List<CalendarLink> calendarLinks = new ArrayList<CalendarLink>();
-				List<String> sakaiIds = dashboardEntityInfo.getUsersWithAccess(calendarItem.getEntityReference());
-				for(String sakaiId : sakaiIds) {
-					if(usersWithLinks.contains(sakaiId)) {
-						// do nothing -- link already exists
-					} else {
-						Person person = getOrCreatePerson(sakaiId);
-						if(person == null) {
-							logger.warn("Error retrieving user " + sakaiId);
-						} else {
-							CalendarLink link = new CalendarLink(person, calendarItem, calendarItem.getContext(), false, false);
-							calendarLinks.add(link);
-						}
-					}
-				}
-				if(calendarLinks.size() > 0) {
-					count = dao.addCalendarLinks(calendarLinks);
+				createCalendarLinks(calendarItem, dashboardEntityInfo.getUsersWithAccess(calendarItem.getEntityReference()));
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.logic.DashboardLogic#createCalendarLinks(org.sakaiproject.dash.model.CalendarItem, java.util.Collection)
+	 */
+	@Override
+	public void createCalendarLinks(CalendarItem calendarItem, Collection<String> sakaiIdsWithAccess) {
+		int count = 0;
+		if(calendarItem != null && sakaiIdsWithAccess != null) {
+			Set<String> usersWithLinks = dao.listUsersWithLinks(calendarItem);
+			
+			List<CalendarLink> calendarLinks = new ArrayList<CalendarLink>();
+			Set<String> sakaiIds = new TreeSet<String>(sakaiIdsWithAccess);
+			// do nothing for users whose link already exists
+			sakaiIds.removeAll(usersWithLinks);
+			Map<String,Person> people = getOrCreatePeople(sakaiIds);
+			for(String sakaiId : sakaiIds) {
+				Person person = people.get(sakaiId);
+				if(person == null) {
+					logger.warn("Error retrieving user " + sakaiId);
+				} else {
+					CalendarLink link = new CalendarLink(person, calendarItem, calendarItem.getContext(), false, false);
+					calendarLinks.add(link);
 				}
 			}
+			if(calendarLinks.size() > 0) {
+				count = dao.addCalendarLinks(calendarLinks);
+				removeCachedLinks(sakaiIds);
+			}
 		}
 		if(logger.isDebugEnabled()) {
 			StringBuilder buf = new StringBuilder("createCalendarLinks(");
@@ -549,24 +701,29 @@ public class DashboardLogicImpl implements DashboardLogic {
 		}
 		if(newsItem != null) {
 			DashboardEntityInfo dashboardEntityInfo = this.dashboardEntityInfoMap.get(newsItem.getSourceType().getIdentifier());
-			List<String> sakaiIds = dashboardEntityInfo.getUsersWithAccess(newsItem.getEntityReference());
-			if(sakaiIds != null && sakaiIds.size() > 0) {
-				List<NewsLink> newsLinks = new ArrayList<NewsLink>();
-				for(String sakaiId : sakaiIds) {
-					try {
-						Person person = getOrCreatePerson(sakaiId);
-						if(person != null) {
-							NewsLink link = new NewsLink(person, newsItem, newsItem.getContext(), false, false);
-							newsLinks.add(link);
-						}
-					} catch(Exception e) {
-						logger.warn("Error trying to retrieve or add person " + sakaiId + " for news-item " + newsItem, e);
-					}
-				}
-				if(newsLinks.size() > 0) {
-					dao.addNewsLinks(newsLinks);
+			createNewsLinks(newsItem, dashboardEntityInfo.getUsersWithAccess(newsItem.getEntityReference()));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.logic.DashboardLogic#createNewsLinks(org.sakaiproject.dash.model.NewsItem, java.util.Collection)
+	 */
+	@Override
+	public void createNewsLinks(NewsItem newsItem, Collection<String> sakaiIds) {
+		if(newsItem != null && sakaiIds != null && sakaiIds.size() > 0) {
+			List<NewsLink> newsLinks = new ArrayList<NewsLink>();
+			Map<String,Person> people = getOrCreatePeople(sakaiIds);
+			for(String sakaiId : sakaiIds) {
+				Person person = people.get(sakaiId);
+				if(person != null) {
+					NewsLink link = new NewsLink(person, newsItem, newsItem.getContext(), false, false);
+					newsLinks.add(link);
 				}
 			}
+			if(newsLinks.size() > 0) {
+				dao.addNewsLinks(newsLinks);
+				removeCachedLinks(sakaiIds);
+			}
 		}
 	}
 
@@ -664,9 +821,20 @@ public class DashboardLogicImpl implements DashboardLogic {
 	 */
 	@Override
 	public EventProcessor getEventProcessor(String eventIdentifier) {
+		if(eventIdentifier == null) {
+			return null;
+		}
 		return this.eventProcessors.get(eventIdentifier);
 	}
 	
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.logic.DashboardLogic#getEventProcessorIdentifiers()
+	 */
+	@Override
+	public Set<String> getEventProcessorIdentifiers() {
+		return this.eventProcessors.keySet();
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.logic.DashboardLogic#getFutureSequnceNumbers(java.lang.String, java.lang.String, java.lang.Integer)
 	 */
@@ -769,7 +937,11 @@ public class DashboardLogicImpl implements DashboardLogic {
 	public void registerEventProcessor(EventProcessor eventProcessor) {
 		
 		if(eventProcessor != null && eventProcessor.getEventIdentifer() != null) {
-			this.eventProcessors.put(eventProcessor.getEventIdentifer(), eventProcessor);
+			synchronized(this) {
+				Map<String,EventProcessor> table = new HashMap<String,EventProcessor>(this.eventProcessors);
+				table.put(eventProcessor.getEventIdentifer(), eventProcessor);
+				this.eventProcessors = Collections.unmodifiableMap(table);
+			}
 		}
 		
 	}
@@ -799,6 +971,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 				logger.debug("removing calendar links and calendar item for item: " + item);
 			}
 			
+			Set<String> linkedUsers = getUsersWithCalendarLinks(entityReference);
 			if(logger.isDebugEnabled()) {
 				logger.debug("removing calendar links for item: " + item);
 			}
@@ -807,6 +980,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 				logger.debug("removing calendar item: " + item);
 			}
 			dao.deleteCalendarItem(item.getId());
+			removeCachedLinks(linkedUsers);
 		}
 		
 	}
@@ -825,6 +999,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 		
 		List<CalendarItem> items = dao.getCalendarItems(entityReference);
 		if(items != null && items.size() > 0) {
+			Set<String> linkedUsers = getUsersWithCalendarLinks(entityReference);
 			for(CalendarItem item : items) {
 				if(logger.isDebugEnabled()) {
 					logger.debug("removing calendar links and calendar item for item: " + item);
@@ -844,6 +1019,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 				}
 				dao.deleteCalendarItem(item.getId());
 			}
+			removeCachedLinks(linkedUsers);
 		}
 		
 		// find out whether this is associated with repeating calendar item 
@@ -873,6 +1049,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 			Context context = dao.getContext(contextId);
 			if(context != null) {
 				dao.deleteCalendarLinks(person.getId(), context.getId());
+				removeCachedLinks(sakaiUserId);
 			}
 		}
 	}
@@ -895,9 +1072,11 @@ public class DashboardLogicImpl implements DashboardLogic {
 		
 		List<CalendarItem> items = dao.getCalendarItems(entityReference);
 		if(items != null && items.size() > 0) {
+			Set<String> linkedUsers = getUsersWithCalendarLinks(entityReference);
 			for(CalendarItem item : items) {
 				dao.deleteCalendarLinks(item.getId());
 			}
+			removeCachedLinks(linkedUsers);
 		}
 	}
 
@@ -915,6 +1094,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 			logger.debug("removing news links and news item for item: " + item);
 		}
 		if(item != null) {
+			Set<String> linkedUsers = getUsersWithNewsLinks(entityReference);
 			if(logger.isDebugEnabled()) {
 				logger.debug("removing news links for item: " + item);
 			}
@@ -923,6 +1103,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 				logger.debug("removing news item: " + item);
 			}
 			dao.deleteNewsItem(item.getId());
+			removeCachedLinks(linkedUsers);
 		}
 		
 		
@@ -936,7 +1117,9 @@ public class DashboardLogicImpl implements DashboardLogic {
 		
 		NewsItem item = dao.getNewsItem(entityReference);
 		if(item != null) {
+			Set<String> linkedUsers = getUsersWithNewsLinks(entityReference);
 			dao.deleteNewsLinks(item.getId());
+			removeCachedLinks(linkedUsers);
 		}
 	}
 
@@ -953,6 +1136,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 			Context context = dao.getContext(contextId);
 			if(context != null) {
 				dao.deleteNewsLinks(person.getId(), context.getId());
+				removeCachedLinks(sakaiUserId);
 			}
 		}
 	}
@@ -967,6 +1151,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 		}
 		
 		dao.updateCalendarItemsLabelKey(entityReference, oldLabelKey, newLabelKey);
+		removeCachedLinks(getUsersWithCalendarLinks(entityReference));
 	}
 
 	/* (non-Javadoc)
@@ -980,6 +1165,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 			for(CalendarItem item : items) {
 				dao.updateCalendarItemTime(item.getId(), newTime);
 			}
+			removeCachedLinks(getUsersWithCalendarLinks(entityReference));
 		}
 				
 	}
@@ -995,6 +1181,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 			for(CalendarItem item : items) {
 				dao.updateCalendarItemTitle(item.getId(), newTitle);
 			}
+			removeCachedLinks(getUsersWithCalendarLinks(entityReference));
 		}
 	}
 
@@ -1006,6 +1193,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 			String labelKey, Integer sequenceNumber, Date newDate) {
 		
 		dao.updateCalendarItemTime(entityReference, labelKey, sequenceNumber, newDate);
+		removeCachedLinks(getUsersWithCalendarLinks(entityReference));
 	}
 
 	/* (non-Javadoc)
@@ -1019,6 +1207,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 			logger.warn("Attempting to revise time of non-existent news item: " + entityReference);
 		} else {
 			dao.updateNewsItemTime(item.getId(), newTime, newGroupingIdentifier);
+			removeCachedLinks(getUsersWithNewsLinks(entityReference));
 		}
 	}
 
@@ -1033,6 +1222,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 			logger.warn("Attempting to revise title of non-existent news item: " + entityReference);
 		} else {
 			dao.updateNewsItemTitle(item.getId(), newTitle, newNewsTime, newLabelKey, newGroupingIdentifier);
+			removeCachedLinks(getUsersWithNewsLinks(entityReference));
 		}
 		
 	}
@@ -1043,7 +1233,9 @@ public class DashboardLogicImpl implements DashboardLogic {
 	@Override
 	public boolean reviseRepeatingCalendarItemFrequency(String entityReference,
 			String frequency) {
-		return dao.updateRepeatingCalendarItemFrequency(entityReference, frequency);
+		boolean updated = dao.updateRepeatingCalendarItemFrequency(entityReference, frequency);
+		removeCachedLinks(getUsersWithCalendarLinks(entityReference));
+		return updated;
 	}
 
 	/* (non-Javadoc)
@@ -1052,6 +1244,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 	@Override
 	public void reviseRepeatingCalendarItemsLabelKey(String entityReference, String oldLabelKey, String newLabelKey) {
 		dao.updateRepeatingCalendarItemsLabelKey(entityReference, oldLabelKey, newLabelKey);	
+		removeCachedLinks(getUsersWithCalendarLinks(entityReference));
 	}
 	
 	/* (non-Javadoc)
@@ -1061,6 +1254,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 	public void reviseRepeatingCalendarItemTime(String entityReference, Date newFirstTime, Date newLastTime) {
 		// boolean done = 
 		dao.updateRepeatingCalendarItemTime(entityReference, newFirstTime, newLastTime);
+		removeCachedLinks(getUsersWithCalendarLinks(entityReference));
 	}
 	
 	/* (non-Javadoc)
@@ -1069,6 +1263,7 @@ public class DashboardLogicImpl implements DashboardLogic {
 	@Override
 	public void reviseRepeatingCalendarItemTitle(String entityReference, String newTitle) {
 		dao.updateRepeatingCalendarItemTitle(entityReference, newTitle);
+		removeCachedLinks(getUsersWithCalendarLinks(entityReference));
 	}
 
 	/* (non-Javadoc)
@@ -1115,18 +1310,25 @@ public class DashboardLogicImpl implements DashboardLogic {
 				logger.debug("addSet.size == " + addSet.size());
 			}
 			
-			for(String sakaiUserId : removeSet) {
-				Person person = dao.getPersonBySakaiId(sakaiUserId);
-				if(person != null) {
-					for(CalendarItem item : items) {
-						dao.deleteCalendarLink(person.getId(), item.getId());
-					}
+			if(! removeSet.isEmpty()) {
+				List<Long> personIds = new ArrayList<Long>();
+				for(Person person : dao.getPeopleBySakaiIds(removeSet).values()) {
+					personIds.add(person.getId());
+				}
+				List<Long> itemIds = new ArrayList<Long>();
+				for(CalendarItem item : items) {
+					itemIds.add(item.getId());
+				}
+				int removed = dao.deleteCalendarLinks(personIds, itemIds);
+				if(logger.isDebugEnabled()) {
+					logger.debug("removed " + removed + " calendarLinks");
 				}
 			}
 			
 			List<CalendarLink> calendarLinks = new ArrayList<CalendarLink>();
+			Map<String,Person> people = dao.getPeopleBySakaiIds(addSet);
 			for(String sakaiUserId : addSet) {
-				Person person = dao.getPersonBySakaiId(sakaiUserId);
+				Person person = people.get(sakaiUserId);
 				if(person != null) {
 					for(CalendarItem item : items) {
 						CalendarLink link = new CalendarLink(person, item, item.getContext(),false, false);
@@ -1137,6 +1339,8 @@ public class DashboardLogicImpl implements DashboardLogic {
 			if(calendarLinks.size() > 0) {
 				count = dao.addCalendarLinks(calendarLinks);
 			}
+			removeCachedLinks(removeSet);
+			removeCachedLinks(addSet);
 			// TODO: Log count
 		}
 		if(logger.isDebugEnabled()) {
@@ -1175,17 +1379,19 @@ public class DashboardLogicImpl implements DashboardLogic {
 				logger.debug("addSet.size == " + addSet.size());
 			}
 			
-			for(String sakaiUserId : removeSet) {
-				Person person = dao.getPersonBySakaiId(sakaiUserId);
-				if(person != null) {
+			if(! removeSet.isEmpty()) {
+				List<Long> personIds = new ArrayList<Long>();
+				for(Person person : dao.getPeopleBySakaiIds(removeSet).values()) {
 					logger.debug("Attempting to remove link for person: " + person);
-					dao.deleteNewsLink(person.getId(), item.getId());
+					personIds.add(person.getId());
 				}
+				dao.deleteNewsLinks(personIds, Collections.singletonList(item.getId()));
 			}
 
 			List<NewsLink> newsLinks = new ArrayList<NewsLink>();
+			Map<String,Person> people = dao.getPeopleBySakaiIds(addSet);
 			for(String sakaiUserId : addSet) {
-				Person person = dao.getPersonBySakaiId(sakaiUserId);
+				Person person = people.get(sakaiUserId);
 				if(person != null) {
 					logger.debug("Attempting to add link for person: " + person);
 					NewsLink link = new NewsLink(person, item, item.getContext(),false, false);
@@ -1195,9 +1401,57 @@ public class DashboardLogicImpl implements DashboardLogic {
 			if(newsLinks.size() > 0) {
 				dao.addNewsLinks(newsLinks);
 			}
+			removeCachedLinks(removeSet);
+			removeCachedLinks(addSet);
 		}
 	}
 	
+	/**
+	 * Drop the cached link lists of a user whose links have changed.
+	 * @param sakaiUserId
+	 */
+	protected void removeCachedLinks(String sakaiUserId) {
+		if(linkCache != null && sakaiUserId != null) {
+			linkCache.remove(sakaiUserId);
+		}
+	}
+
+	/**
+	 * Drop the cached link lists of users whose links have changed.
+	 * @param sakaiUserIds
+	 */
+	protected void removeCachedLinks(Collection<String> sakaiUserIds) {
+		if(linkCache != null && sakaiUserIds != null) {
+			for(String sakaiUserId : sakaiUserIds) {
+				linkCache.remove(sakaiUserId);
+			}
+		}
+	}
+
+	/**
+	 * @param entityReference
+	 * @return the users linked to calendar items for the entity, or an empty set if 
+	 * link lists are not cached (so there is nothing to invalidate).
+	 */
+	protected Set<String> getUsersWithCalendarLinks(String entityReference) {
+		if(linkCache == null) {
+			return Collections.emptySet();
+		}
+		return dao.getSakaIdsForUserWithCalendarLinks(entityReference);
+	}
+
+	/**
+	 * @param entityReference
+	 * @return the users linked to the news item for the entity, or an empty set if 
+	 * link lists are not cached (so there is nothing to invalidate).
+	 */
+	protected Set<String> getUsersWithNewsLinks(String entityReference) {
+		if(linkCache == null) {
+			return Collections.emptySet();
+		}
+		return dao.getSakaiIdsForUserWithNewsLinks(entityReference);
+	}
+
 	/**
 	 * @param sakaiId
 	 * @return
@@ -1216,6 +1470,31 @@ public class DashboardLogicImpl implements DashboardLogic {
 		return person;
 	}
 
+	/**
+	 * Look up the Person for each of the sakai ids, creating any that do not exist yet.
+	 * Existing people are read in bulk, and missing ones are added in a single batch.
+	 * @param sakaiIds
+	 * @return a map from sakai id to Person; ids that do not identify a user are left out
+	 */
+	protected Map<String,Person> getOrCreatePeople(Collection<String> sakaiIds) {
+		Map<String,Person> people = dao.getPeopleBySakaiIds(sakaiIds);
+		Set<String> missing = new HashSet<String>(sakaiIds);
+		missing.removeAll(people.keySet());
+		if(! missing.isEmpty()) {
+			List<User> users = this.sakaiProxy.getUsers(missing);
+			if(users != null && ! users.isEmpty()) {
+				List<Person> newPeople = new ArrayList<Person>();
+				for(User userObj : users) {
+					newPeople.add(new Person(userObj.getId(), userObj.getEid()));
+				}
+				dao.addPeople(newPeople);
+				// read them back to get their ids
+				people.putAll(dao.getPeopleBySakaiIds(missing));
+			}
+		}
+		return people;
+	}
+
 	/**
 	 * Verify that all properties of a CalendarItem correspond to the values of a RepeatingCalendarItem, 
 	 * a sequenceNumber and a calendarTime.  Update any incorrect values in the database.  
@@ -3,10 +3,15 @@
  */
 package org.sakaiproject.dash.logic;
 
+import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.sf.ehcache.Cache;
+import net.sf.ehcache.Element;
 
 import org.apache.log4j.Logger;
 import org.sakaiproject.dash.app.DashboardConfig;
@@ -29,6 +34,9 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 
 	private static Logger logger = Logger.getLogger(DashboardUserLogicImpl.class);
 	
+	// the key holding the time (in millis) at which a user's cached calendar lists go stale
+	protected static final String CALENDAR_EXPIRY_KEY = "calendarExpiry|";
+	
 	/************************************************************************
 	 * Spring-injected classes
 	 ************************************************************************/
@@ -58,6 +66,11 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 	public void setDashboardLogic(DashboardLogic dashboardLogic) {
 		this.dashboardLogic = dashboardLogic;
 	}
+
+	protected Cache linkCache;
+	public void setLinkCache(Cache linkCache) {
+		this.linkCache = linkCache;
+	}
 	
 	/************************************************************************
 	 * init() and destroy()
@@ -82,7 +95,13 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 	@Override
 	public int countNewsLinksByGroupId(String sakaiUserId,
 			String groupId) {
-		return dao.countNewsLinksByGroupId(sakaiUserId,groupId);
+		Map<String, Object> userLinks = getUserLinks(sakaiUserId);
+		String key = "countGroup|" + groupId;
+		Integer count = getCachedCount(userLinks, key);
+		if(count == null) {
+			count = cacheCount(userLinks, key, dao.countNewsLinksByGroupId(sakaiUserId,groupId));
+		}
+		return count.intValue();
 	}
 
 	/* (non-Javadoc)
@@ -90,8 +109,45 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 	 */
 	@Override
 	public List<NewsLink> getCurrentNewsLinks(String sakaiId, String siteId) {
-		List<NewsLink> links = dao.getCurrentNewsLinks(sakaiId, siteId);
-		
+		Map<String, Object> userLinks = getUserLinks(sakaiId);
+		String key = "current|" + siteId;
+		List<NewsLink> links = getCachedList(userLinks, key);
+		if(links == null) {
+			links = cacheList(userLinks, key, setGroupTitles(dao.getCurrentNewsLinks(sakaiId, siteId)));
+		}
+		return links;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.DashboardUserLogic#countCurrentNewsLinks(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public int countCurrentNewsLinks(String sakaiUserId, String contextId) {
+		Map<String, Object> userLinks = getUserLinks(sakaiUserId);
+		String key = "countCurrent|" + contextId;
+		Integer count = getCachedCount(userLinks, key);
+		if(count == null) {
+			count = cacheCount(userLinks, key, dao.countCurrentNewsLinks(sakaiUserId, contextId));
+		}
+		return count.intValue();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.DashboardUserLogic#getCurrentNewsLinks(java.lang.String, java.lang.String, java.util.Date, long, int, int)
+	 */
+	@Override
+	public List<NewsLink> getCurrentNewsLinks(String sakaiUserId, String contextId, 
+			Date afterTime, long afterId, int offset, int limit) {
+		Map<String, Object> userLinks = getUserLinks(sakaiUserId);
+		String key = pageKey("current|" + contextId, afterTime, afterId, offset, limit);
+		List<NewsLink> links = getCachedList(userLinks, key);
+		if(links == null) {
+			links = cacheList(userLinks, key, setGroupTitles(dao.getCurrentNewsLinks(sakaiUserId, contextId, afterTime, afterId, offset, limit)));
+		}
+		return links;
+	}
+
+	protected List<NewsLink> setGroupTitles(List<NewsLink> links) {
 		if(links != null) {
 			for(NewsLink link : links) {
 				NewsItem item = link.getNewsItem();
@@ -120,7 +176,45 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 	 */
 	@Override
 	public List<CalendarLink> getFutureCalendarLinks(String sakaiUserId, String contextId, boolean hidden) {
-		return dao.getFutureCalendarLinks(sakaiUserId, contextId, hidden);
+		Map<String, Object> userLinks = getUserLinks(sakaiUserId);
+		String key = "future|" + contextId + "|" + hidden;
+		List<CalendarLink> links = getCachedList(userLinks, key);
+		if(links == null) {
+			setCalendarExpiry(userLinks, sakaiUserId);
+			links = cacheList(userLinks, key, dao.getFutureCalendarLinks(sakaiUserId, contextId, hidden));
+		}
+		return links;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.DashboardUserLogic#countFutureCalendarLinks(java.lang.String, java.lang.String, boolean)
+	 */
+	@Override
+	public int countFutureCalendarLinks(String sakaiUserId, String contextId, boolean hidden) {
+		Map<String, Object> userLinks = getUserLinks(sakaiUserId);
+		String key = "countFuture|" + contextId + "|" + hidden;
+		Integer count = getCachedCount(userLinks, key);
+		if(count == null) {
+			setCalendarExpiry(userLinks, sakaiUserId);
+			count = cacheCount(userLinks, key, dao.countFutureCalendarLinks(sakaiUserId, contextId, hidden));
+		}
+		return count.intValue();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.DashboardUserLogic#getFutureCalendarLinks(java.lang.String, java.lang.String, boolean, java.util.Date, long, int, int)
+	 */
+	@Override
+	public List<CalendarLink> getFutureCalendarLinks(String sakaiUserId, String contextId, boolean hidden, 
+			Date afterTime, long afterId, int offset, int limit) {
+		Map<String, Object> userLinks = getUserLinks(sakaiUserId);
+		String key = pageKey("future|" + contextId + "|" + hidden, afterTime, afterId, offset, limit);
+		List<CalendarLink> links = getCachedList(userLinks, key);
+		if(links == null) {
+			setCalendarExpiry(userLinks, sakaiUserId);
+			links = cacheList(userLinks, key, dao.getFutureCalendarLinks(sakaiUserId, contextId, hidden, afterTime, afterId, offset, limit));
+		}
+		return links;
 	}
 
 	/* (non-Javadoc)
@@ -128,7 +222,13 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 	 */
 	@Override
 	public List<NewsLink> getHiddenNewsLinks(String sakaiId, String siteId) {
-		return dao.getHiddenNewsLinks(sakaiId, siteId);
+		Map<String, Object> userLinks = getUserLinks(sakaiId);
+		String key = "hiddenNews|" + siteId;
+		List<NewsLink> links = getCachedList(userLinks, key);
+		if(links == null) {
+			links = cacheList(userLinks, key, dao.getHiddenNewsLinks(sakaiId, siteId));
+		}
+		return links;
 	}
 
 	/* (non-Javadoc)
@@ -137,7 +237,13 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 	@Override
 	public List<NewsLink> getNewsLinksByGroupId(String sakaiUserId,
 			String groupId, int limit, int offset) {
-		return dao.getNewsLinksByGroupId(sakaiUserId, groupId, limit, offset);
+		Map<String, Object> userLinks = getUserLinks(sakaiUserId);
+		String key = pageKey("group|" + groupId, null, 0L, offset, limit);
+		List<NewsLink> links = getCachedList(userLinks, key);
+		if(links == null) {
+			links = cacheList(userLinks, key, dao.getNewsLinksByGroupId(sakaiUserId, groupId, limit, offset));
+		}
+		return links;
 	}
 	
 	/* (non-Javadoc)
@@ -145,7 +251,45 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 	 */
 	@Override
 	public List<CalendarLink> getPastCalendarLinks(String sakaiUserId, String contextId, boolean hidden) {
-		return dao.getPastCalendarLinks(sakaiUserId, contextId, hidden);
+		Map<String, Object> userLinks = getUserLinks(sakaiUserId);
+		String key = "past|" + contextId + "|" + hidden;
+		List<CalendarLink> links = getCachedList(userLinks, key);
+		if(links == null) {
+			setCalendarExpiry(userLinks, sakaiUserId);
+			links = cacheList(userLinks, key, dao.getPastCalendarLinks(sakaiUserId, contextId, hidden));
+		}
+		return links;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.DashboardUserLogic#countPastCalendarLinks(java.lang.String, java.lang.String, boolean)
+	 */
+	@Override
+	public int countPastCalendarLinks(String sakaiUserId, String contextId, boolean hidden) {
+		Map<String, Object> userLinks = getUserLinks(sakaiUserId);
+		String key = "countPast|" + contextId + "|" + hidden;
+		Integer count = getCachedCount(userLinks, key);
+		if(count == null) {
+			setCalendarExpiry(userLinks, sakaiUserId);
+			count = cacheCount(userLinks, key, dao.countPastCalendarLinks(sakaiUserId, contextId, hidden));
+		}
+		return count.intValue();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.DashboardUserLogic#getPastCalendarLinks(java.lang.String, java.lang.String, boolean, java.util.Date, long, int, int)
+	 */
+	@Override
+	public List<CalendarLink> getPastCalendarLinks(String sakaiUserId, String contextId, boolean hidden, 
+			Date afterTime, long afterId, int offset, int limit) {
+		Map<String, Object> userLinks = getUserLinks(sakaiUserId);
+		String key = pageKey("past|" + contextId + "|" + hidden, afterTime, afterId, offset, limit);
+		List<CalendarLink> links = getCachedList(userLinks, key);
+		if(links == null) {
+			setCalendarExpiry(userLinks, sakaiUserId);
+			links = cacheList(userLinks, key, dao.getPastCalendarLinks(sakaiUserId, contextId, hidden, afterTime, afterId, offset, limit));
+		}
+		return links;
 	}
 
 	/* (non-Javadoc)
@@ -153,7 +297,13 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 	 */
 	@Override
 	public List<CalendarLink> getStarredCalendarLinks(String sakaiUserId, String contextId) {
-		return dao.getStarredCalendarLinks(sakaiUserId, contextId);
+		Map<String, Object> userLinks = getUserLinks(sakaiUserId);
+		String key = "starredCalendar|" + contextId;
+		List<CalendarLink> links = getCachedList(userLinks, key);
+		if(links == null) {
+			links = cacheList(userLinks, key, dao.getStarredCalendarLinks(sakaiUserId, contextId));
+		}
+		return links;
 	}
 
 	/* (non-Javadoc)
@@ -161,7 +311,13 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 	 */
 	@Override
 	public List<NewsLink> getStarredNewsLinks(String sakaiId, String siteId) {
-		return dao.getStarredNewsLinks(sakaiId, siteId);
+		Map<String, Object> userLinks = getUserLinks(sakaiId);
+		String key = "starredNews|" + siteId;
+		List<NewsLink> links = getCachedList(userLinks, key);
+		if(links == null) {
+			links = cacheList(userLinks, key, dao.getStarredNewsLinks(sakaiId, siteId));
+		}
+		return links;
 	}
 	
 	/* (non-Javadoc)
@@ -172,7 +328,9 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 		Person person = dao.getPersonBySakaiId(sakaiUserId);
 		CalendarLink link = dao.getCalendarLink(calendarItemId, person.getId().longValue());
 		link.setHidden(true);
-		return dao.updateCalendarLink(link);
+		boolean updated = dao.updateCalendarLink(link);
+		removeCachedLinks(sakaiUserId);
+		return updated;
 	}
 
 	/* (non-Javadoc)
@@ -183,7 +341,9 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 		Person person = dao.getPersonBySakaiId(sakaiUserId);
 		NewsLink link = dao.getNewsLink(newsItemId, person.getId().longValue());
 		link.setHidden(true);
-		return dao.updateNewsLink(link);
+		boolean updated = dao.updateNewsLink(link);
+		removeCachedLinks(sakaiUserId);
+		return updated;
 	}
 
 	/* (non-Javadoc)
@@ -194,7 +354,9 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 		Person person = dao.getPersonBySakaiId(sakaiUserId);
 		CalendarLink link = dao.getCalendarLink(calendarItemId, person.getId().longValue());
 		link.setSticky(true);
-		return dao.updateCalendarLink(link);
+		boolean updated = dao.updateCalendarLink(link);
+		removeCachedLinks(sakaiUserId);
+		return updated;
 	}
 
 	/* (non-Javadoc)
@@ -205,7 +367,9 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 		Person person = dao.getPersonBySakaiId(sakaiUserId);
 		NewsLink link = dao.getNewsLink(newsItemId, person.getId().longValue());
 		link.setSticky(true);
-		return dao.updateNewsLink(link);
+		boolean updated = dao.updateNewsLink(link);
+		removeCachedLinks(sakaiUserId);
+		return updated;
 	}
 
 	/* (non-Javadoc)
@@ -216,7 +380,9 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 		Person person = dao.getPersonBySakaiId(sakaiUserId);
 		CalendarLink link = dao.getCalendarLink(calendarItemId, person.getId().longValue());
 		link.setHidden(false);
-		return dao.updateCalendarLink(link);
+		boolean updated = dao.updateCalendarLink(link);
+		removeCachedLinks(sakaiUserId);
+		return updated;
 	}
 
 	/* (non-Javadoc)
@@ -227,7 +393,9 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 		Person person = dao.getPersonBySakaiId(sakaiUserId);
 		NewsLink link = dao.getNewsLink(newsItemId, person.getId().longValue());
 		link.setHidden(false);
-		return dao.updateNewsLink(link);
+		boolean updated = dao.updateNewsLink(link);
+		removeCachedLinks(sakaiUserId);
+		return updated;
 	}
 
 	/* (non-Javadoc)
@@ -238,7 +406,9 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 		Person person = dao.getPersonBySakaiId(sakaiUserId);
 		CalendarLink link = dao.getCalendarLink(calendarItemId, person.getId().longValue());
 		link.setSticky(false);
-		return dao.updateCalendarLink(link);
+		boolean updated = dao.updateCalendarLink(link);
+		removeCachedLinks(sakaiUserId);
+		return updated;
 	}
 
 	/* (non-Javadoc)
@@ -249,7 +419,154 @@ public class DashboardUserLogicImpl implements DashboardUserLogic {
 		Person person = dao.getPersonBySakaiId(sakaiUserId);
 		NewsLink link = dao.getNewsLink(newsItemId, person.getId().longValue());
 		link.setSticky(false);
-		return dao.updateNewsLink(link);
+		boolean updated = dao.updateNewsLink(link);
+		removeCachedLinks(sakaiUserId);
+		return updated;
+	}
+
+	/************************************************************************
+	 * Link list cache
+	 ************************************************************************/
+	
+	/**
+	 * Get the map of cached link lists and counts for one user, creating it if necessary. 
+	 * The map is fetched before the database is queried, so a result read before one of 
+	 * the user's links changes lands in a map that removeCachedLinks() has already dropped.
+	 * @param sakaiUserId
+	 * @return the map, or null if link caching is not configured.
+	 */
+	protected Map<String, Object> getUserLinks(String sakaiUserId) {
+		if(linkCache == null || sakaiUserId == null) {
+			return null;
+		}
+		Element element = linkCache.get(sakaiUserId);
+		if(element != null) {
+			Long expiry = (Long) ((Map<String, Object>) element.getObjectValue()).get(CALENDAR_EXPIRY_KEY);
+			if(expiry != null && expiry.longValue() <= System.currentTimeMillis()) {
+				// a calendar item has moved from the future to the past since the lists were cached
+				linkCache.removeElement(element);
+				element = null;
+			}
+		}
+		if(element == null) {
+			Map<String, Object> userLinks = new ConcurrentHashMap<String, Object>();
+			element = linkCache.putIfAbsent(new Element(sakaiUserId, userLinks));
+			if(element == null) {
+				return userLinks;
+			}
+		}
+		return (Map<String, Object>) element.getObjectValue();
+	}
+	
+	/**
+	 * Record when the user's future and past calendar lists stop being valid, if that has not 
+	 * been done since the user's map was created. Past lists end now, so they change when the 
+	 * user's next calendar item comes due. Future lists start at DashboardDao's "previous 
+	 * midnight", which clears Calendar.HOUR and so moves at noon as well as at midnight.
+	 * This is called before the lists are read, so a link that comes due in between 
+	 * only makes the lists expire sooner.
+	 * @param userLinks
+	 * @param sakaiUserId
+	 */
+	protected void setCalendarExpiry(Map<String, Object> userLinks, String sakaiUserId) {
+		if(userLinks == null || userLinks.containsKey(CALENDAR_EXPIRY_KEY)) {
+			return;
+		}
+		Date now = new Date();
+		Calendar boundary = Calendar.getInstance();
+		boundary.setTime(now);
+		boundary.set(Calendar.MILLISECOND, 0);
+		boundary.set(Calendar.SECOND, 0);
+		boundary.set(Calendar.MINUTE, 0);
+		boundary.set(Calendar.HOUR, 0);
+		boundary.add(Calendar.HOUR_OF_DAY, 12);
+		long expiry = boundary.getTimeInMillis();
+		Date next = dao.getNextCalendarLinkTime(sakaiUserId, now);
+		if(next != null && next.getTime() < expiry) {
+			// the past lists take links strictly before now, so the link moves a millisecond later
+			expiry = next.getTime() + 1;
+		}
+		userLinks.put(CALENDAR_EXPIRY_KEY, Long.valueOf(expiry));
+	}
+	
+	/**
+	 * Drop everything cached for one user. Called after any change to that user's links.
+	 * @param sakaiUserId
+	 */
+	protected void removeCachedLinks(String sakaiUserId) {
+		if(linkCache != null && sakaiUserId != null) {
+			linkCache.remove(sakaiUserId);
+		}
+	}
+	
+	protected String pageKey(String listKey, Date afterTime, long afterId, int offset, int limit) {
+		StringBuilder buf = new StringBuilder(listKey);
+		buf.append("|");
+		if(afterTime != null) {
+			buf.append(afterTime.getTime());
+			buf.append(":");
+			buf.append(afterId);
+		}
+		buf.append("|");
+		buf.append(offset);
+		buf.append("|");
+		buf.append(limit);
+		return buf.toString();
+	}
+	
+	protected <T> List<T> getCachedList(Map<String, Object> userLinks, String key) {
+		if(userLinks == null) {
+			return null;
+		}
+		List<T> list = (List<T>) userLinks.get(key);
+		if(list == null) {
+			return null;
+		}
+		// callers are free to change the list and the links they get back
+		return copyLinks(list);
+	}
+	
+	protected <T> List<T> cacheList(Map<String, Object> userLinks, String key, List<T> list) {
+		// a null list means the query failed, so it is not kept
+		if(userLinks != null && list != null) {
+			userLinks.put(key, copyLinks(list));
+		}
+		return list;
+	}
+	
+	/**
+	 * Copy a list of links along with the links and their items, so nothing in the cache is 
+	 * shared with a caller.
+	 * @param list
+	 * @return
+	 */
+	protected <T> List<T> copyLinks(List<T> list) {
+		List<T> copy = new ArrayList<T>(list.size());
+		for(T link : list) {
+			if(link instanceof CalendarLink) {
+				copy.add((T) new CalendarLink((CalendarLink) link));
+			} else if(link instanceof NewsLink) {
+				copy.add((T) new NewsLink((NewsLink) link));
+			} else {
+				copy.add(link);
+			}
+		}
+		return copy;
+	}
+	
+	protected Integer getCachedCount(Map<String, Object> userLinks, String key) {
+		if(userLinks == null) {
+			return null;
+		}
+		return (Integer) userLinks.get(key);
+	}
+	
+	protected Integer cacheCount(Map<String, Object> userLinks, String key, int count) {
+		Integer value = Integer.valueOf(count);
+		if(userLinks != null) {
+			userLinks.put(key, value);
+		}
+		return value;
 	}
 
 }
@@ -30,6 +30,9 @@ public class EventCopy implements Event
 	protected String entityReference;
 	protected String sessionId;
 	protected String userId;
+	
+	// time at which the event was added to a dashboard event queue
+	protected long queueTime = 0L;
 
 	public EventCopy() {
 		super();
@@ -44,6 +47,7 @@ public class EventCopy implements Event
         this.userId = userId;
         this.sessionId = sessionId;
         this.modify = ('m' == eventCode);
+        this.priority = priority;
     }
 
 	
@@ -117,6 +121,14 @@ public class EventCopy implements Event
 		return userId;
 	}
 
+	public long getQueueTime() {
+		return queueTime;
+	}
+
+	public void setQueueTime(long queueTime) {
+		this.queueTime = queueTime;
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
@@ -0,0 +1,301 @@
+/**
+ *
+ */
+package org.sakaiproject.dash.logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An append-only file of EventCopy records, used to hold events that do not fit
+ * in an event queue. Events are read back in the order they were appended. Once a
+ * batch has been handled, commit() saves the read position in a small position file
+ * beside the journal, so a journal that is reopened after a restart resumes after
+ * the last committed batch. The journal is truncated when a commit finds that every 
+ * record has been read. Each record is one line of URL-encoded, tab-separated 
+ * fields, so the file is plain ASCII.
+ */
+public class EventJournal {
+
+	private static Logger logger = Logger.getLogger(EventJournal.class);
+
+	protected static final String ENCODING = "UTF-8";
+	protected static final String NULL_FIELD = "~";
+	protected static final String SEPARATOR = "\t";
+	protected static final int FIELD_COUNT = 9;
+	protected static final String POSITION_SUFFIX = ".pos";
+
+	protected File file;
+	protected RandomAccessFile raf;
+	protected File positionFile;
+	protected long readPosition = 0L;
+	protected int pendingCount = 0;
+	protected long oldestPendingTime = 0L;
+
+	/**
+	 * Open a journal, creating the file if it does not exist. Records after the
+	 * last committed read position are treated as pending.
+	 * @param file
+	 * @throws IOException
+	 */
+	public EventJournal(File file) throws IOException {
+		super();
+		this.file = file;
+		this.positionFile = getPositionFile(file);
+		this.raf = new RandomAccessFile(file, "rw");
+		this.readPosition = readCommittedPosition();
+		if(this.raf.length() > this.readPosition) {
+			this.raf.seek(this.readPosition);
+			String line = this.raf.readLine();
+			while(line != null) {
+				if(line.length() > 0) {
+					this.pendingCount++;
+				}
+				line = this.raf.readLine();
+			}
+			this.oldestPendingTime = file.lastModified();
+		}
+	}
+
+	/**
+	 * Append an event to the end of the journal.
+	 * @param event
+	 * @return true if the event was written, false otherwise.
+	 */
+	public synchronized boolean append(EventCopy event) {
+		if(raf == null) {
+			return false;
+		}
+		try {
+			StringBuilder buf = new StringBuilder();
+			buf.append(event.getQueueTime());
+			buf.append(SEPARATOR);
+			buf.append(event.getEventTime() == null ? 0L : event.getEventTime().getTime());
+			buf.append(SEPARATOR);
+			buf.append(encode(event.getEvent()));
+			buf.append(SEPARATOR);
+			buf.append(encode(event.getResource()));
+			buf.append(SEPARATOR);
+			buf.append(encode(event.getContext()));
+			buf.append(SEPARATOR);
+			buf.append(encode(event.getUserId()));
+			buf.append(SEPARATOR);
+			buf.append(encode(event.getSessionId()));
+			buf.append(SEPARATOR);
+			buf.append(event.getModify() ? 'm' : 'a');
+			buf.append(SEPARATOR);
+			buf.append(event.getPriority());
+			buf.append("\n");
+
+			raf.seek(raf.length());
+			raf.write(buf.toString().getBytes(ENCODING));
+			if(pendingCount == 0) {
+				oldestPendingTime = event.getQueueTime();
+			}
+			pendingCount++;
+			return true;
+		} catch (IOException e) {
+			logger.warn("append: Error writing event to journal " + file + " : " + e);
+		}
+		return false;
+	}
+
+	/**
+	 * @param journalFile
+	 * @return the file in which the committed read position of a journal is kept.
+	 */
+	public static File getPositionFile(File journalFile) {
+		return new File(journalFile.getPath() + POSITION_SUFFIX);
+	}
+
+	/**
+	 * Read up to maxEvents events from the journal, in the order they were appended.
+	 * The events are read again after a restart unless commit() is called once they 
+	 * have been handled.
+	 * @param maxEvents
+	 * @return a list of events, which is empty if there are no more events in the journal.
+	 */
+	public synchronized List<EventCopy> read(int maxEvents) {
+		List<EventCopy> events = new ArrayList<EventCopy>();
+		if(raf == null || pendingCount == 0) {
+			return events;
+		}
+		try {
+			raf.seek(readPosition);
+			while(events.size() < maxEvents) {
+				String line = raf.readLine();
+				if(line == null) {
+					break;
+				}
+				readPosition = raf.getFilePointer();
+				if(line.length() > 0) {
+					pendingCount--;
+					EventCopy event = decode(line);
+					if(event != null) {
+						events.add(event);
+					}
+				}
+			}
+			if(! events.isEmpty() && readPosition < raf.length()) {
+				// the remaining events were queued no earlier than the last one read
+				oldestPendingTime = events.get(events.size() - 1).getQueueTime();
+			}
+		} catch (IOException e) {
+			logger.warn("read: Error reading events from journal " + file + " : " + e);
+		}
+		return events;
+	}
+
+	/**
+	 * Record that the events read so far have been handled. If every record has been 
+	 * read, the journal is truncated; otherwise the read position is saved so that a 
+	 * restart resumes after it.
+	 */
+	public synchronized void commit() {
+		if(raf == null) {
+			return;
+		}
+		try {
+			if(readPosition >= raf.length()) {
+				raf.setLength(0L);
+				readPosition = 0L;
+				pendingCount = 0;
+				oldestPendingTime = 0L;
+			}
+			writeCommittedPosition();
+		} catch (IOException e) {
+			logger.warn("commit: Error saving read position of journal " + file + " : " + e);
+		}
+	}
+
+	/**
+	 * Close the journal and remove it and its position file.
+	 * @return true if the journal was removed.
+	 */
+	public synchronized boolean delete() {
+		close();
+		if(positionFile.exists() && ! positionFile.delete()) {
+			logger.warn("delete: Unable to delete " + positionFile);
+		}
+		return file.delete();
+	}
+
+	/**
+	 * @return the number of events in the journal that have not been read.
+	 */
+	public synchronized int getPendingCount() {
+		return pendingCount;
+	}
+
+	/**
+	 * @return the approximate time at which the oldest unread event was queued,
+	 * or 0 if there are no unread events.
+	 */
+	public synchronized long getOldestPendingTime() {
+		return pendingCount == 0 ? 0L : oldestPendingTime;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public synchronized void close() {
+		if(raf != null) {
+			try {
+				raf.close();
+			} catch (IOException e) {
+				logger.warn("close: Error closing journal " + file + " : " + e);
+			}
+			raf = null;
+		}
+	}
+
+	/**
+	 * @return the saved read position, or 0 if there is none or it does not fit the journal.
+	 */
+	protected long readCommittedPosition() throws IOException {
+		long position = 0L;
+		if(positionFile.exists()) {
+			RandomAccessFile positionRaf = new RandomAccessFile(positionFile, "r");
+			try {
+				String line = positionRaf.readLine();
+				if(line != null && line.trim().length() > 0) {
+					position = Long.parseLong(line.trim());
+				}
+			} catch (NumberFormatException e) {
+				logger.warn("readCommittedPosition: Ignoring malformed position file " + positionFile + " : " + e);
+			} finally {
+				positionRaf.close();
+			}
+		}
+		if(position < 0L || position > raf.length()) {
+			logger.warn("readCommittedPosition: Ignoring position " + position + " beyond the end of journal " + file);
+			position = 0L;
+			if(! positionFile.delete()) {
+				logger.warn("readCommittedPosition: Unable to delete " + positionFile);
+			}
+		}
+		return position;
+	}
+
+	protected void writeCommittedPosition() throws IOException {
+		if(readPosition == 0L) {
+			if(positionFile.exists() && ! positionFile.delete()) {
+				logger.warn("writeCommittedPosition: Unable to delete " + positionFile);
+			}
+			return;
+		}
+		RandomAccessFile positionRaf = new RandomAccessFile(positionFile, "rw");
+		try {
+			byte[] bytes = (Long.toString(readPosition) + "\n").getBytes(ENCODING);
+			positionRaf.setLength(0L);
+			positionRaf.write(bytes);
+		} finally {
+			positionRaf.close();
+		}
+	}
+
+	protected String encode(String value) throws UnsupportedEncodingException {
+		if(value == null) {
+			return NULL_FIELD;
+		}
+		return URLEncoder.encode(value, ENCODING);
+	}
+
+	protected String decodeField(String value) throws UnsupportedEncodingException {
+		if(NULL_FIELD.equals(value)) {
+			return null;
+		}
+		return URLDecoder.decode(value, ENCODING);
+	}
+
+	protected EventCopy decode(String line) {
+		String[] fields = line.split(SEPARATOR);
+		if(fields.length != FIELD_COUNT) {
+			logger.warn("decode: Skipping malformed record in journal " + file + " : " + line);
+			return null;
+		}
+		try {
+			long queueTime = Long.parseLong(fields[0]);
+			Date eventTime = new Date(Long.parseLong(fields[1]));
+			EventCopy event = new EventCopy(eventTime, decodeField(fields[2]), decodeField(fields[3]),
+					decodeField(fields[4]), decodeField(fields[5]), decodeField(fields[6]), fields[7].charAt(0),
+					Integer.parseInt(fields[8]));
+			event.setQueueTime(queueTime);
+			return event;
+		} catch (Exception e) {
+			logger.warn("decode: Skipping malformed record in journal " + file + " : " + line + " : " + e);
+		}
+		return null;
+	}
+
+}
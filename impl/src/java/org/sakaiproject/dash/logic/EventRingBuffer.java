@@ -0,0 +1,135 @@
+/**
+ *
+ */
+package org.sakaiproject.dash.logic;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue backed by a ring buffer. Any number of threads may
+ * offer and poll concurrently. The capacity is rounded up to a power of two.
+ * offer() returns false rather than blocking or growing when the buffer is full.
+ */
+public class EventRingBuffer<E> {
+
+	protected final int capacity;
+	protected final int mask;
+	protected final AtomicReferenceArray<E> buffer;
+	protected final AtomicLongArray sequences;
+	protected final AtomicLong enqueuePosition = new AtomicLong(0L);
+	protected final AtomicLong dequeuePosition = new AtomicLong(0L);
+
+	/**
+	 * @param requestedCapacity
+	 */
+	public EventRingBuffer(int requestedCapacity) {
+		super();
+		int size = 2;
+		while(size < requestedCapacity && size < (1 << 30)) {
+			size = size << 1;
+		}
+		this.capacity = size;
+		this.mask = size - 1;
+		this.buffer = new AtomicReferenceArray<E>(size);
+		this.sequences = new AtomicLongArray(size);
+		for(int i = 0; i < size; i++) {
+			this.sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * Add an element to the tail of the queue.
+	 * @param element
+	 * @return true if the element was added, false if the queue is full.
+	 */
+	public boolean offer(E element) {
+		if(element == null) {
+			throw new IllegalArgumentException("EventRingBuffer does not accept null elements");
+		}
+		while(true) {
+			long position = enqueuePosition.get();
+			int index = (int) (position & mask);
+			long diff = sequences.get(index) - position;
+			if(diff == 0L) {
+				if(enqueuePosition.compareAndSet(position, position + 1L)) {
+					buffer.set(index, element);
+					sequences.set(index, position + 1L);
+					return true;
+				}
+			} else if(diff < 0L) {
+				// the slot has not been released by a consumer yet
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Remove and return the element at the head of the queue.
+	 * @return the element, or null if the queue is empty.
+	 */
+	public E poll() {
+		while(true) {
+			long position = dequeuePosition.get();
+			int index = (int) (position & mask);
+			long diff = sequences.get(index) - (position + 1L);
+			if(diff == 0L) {
+				if(dequeuePosition.compareAndSet(position, position + 1L)) {
+					E element = buffer.get(index);
+					buffer.set(index, null);
+					sequences.set(index, position + capacity);
+					return element;
+				}
+			} else if(diff < 0L) {
+				// nothing has been published in this slot yet
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Return the element at the head of the queue without removing it. The result
+	 * is only a hint if other threads are polling concurrently.
+	 * @return the element, or null if the queue is empty.
+	 */
+	public E peek() {
+		long position = dequeuePosition.get();
+		int index = (int) (position & mask);
+		if(sequences.get(index) == position + 1L) {
+			return buffer.get(index);
+		}
+		return null;
+	}
+
+	/**
+	 * @return the approximate number of elements in the queue.
+	 */
+	public int size() {
+		long size = enqueuePosition.get() - dequeuePosition.get();
+		if(size < 0L) {
+			return 0;
+		} else if(size > capacity) {
+			return capacity;
+		}
+		return (int) size;
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Remove all elements from the queue.
+	 */
+	public void clear() {
+		while(poll() != null) {
+			// discard
+		}
+	}
+
+}
@@ -24,7 +24,11 @@ package org.sakaiproject.dash.logic;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Observer;
 import java.util.Set;
 import java.util.TreeSet;
@@ -106,6 +110,62 @@ public class SakaiProxyImpl implements SakaiProxy {
 		return userIds;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.SakaiProxy#getAuthorizedUsers(java.lang.String, java.util.Collection)
+	 */
+	public Map<String, List<String>> getAuthorizedUsers(String permission, Collection<String> entityReferences) {
+		Map<String, List<String>> usersByReference = new HashMap<String, List<String>>();
+		if(permission == null || entityReferences == null) {
+			return usersByReference;
+		}
+		// SecurityService.unlockUsers() resolves the realms of each reference and asks 
+		// AuthzGroupService for the users allowed in them.  Doing the same here lets 
+		// references in the same realms share one query.
+		Map<Set<String>, List<String>> usersByRealms = new HashMap<Set<String>, List<String>>();
+		for(String entityReference : entityReferences) {
+			if(entityReference == null || usersByReference.containsKey(entityReference)) {
+				continue;
+			}
+			Set<String> realms = new TreeSet<String>();
+			Collection<String> authzGroups = this.entityManager.newReference(entityReference).getAuthzGroups();
+			if(authzGroups != null) {
+				realms.addAll(authzGroups);
+			}
+			List<String> userIds = usersByRealms.get(realms);
+			if(userIds == null) {
+				userIds = getUsersIsAllowed(permission, realms);
+				usersByRealms.put(realms, userIds);
+			}
+			usersByReference.put(entityReference, userIds);
+		}
+		if(logger.isDebugEnabled()) {
+			logger.debug("getAuthorizedUsers(" + permission + ") " + usersByReference.size() + " references in " + usersByRealms.size() + " realm sets");
+		}
+		return usersByReference;
+	}
+	
+	/**
+	 * @param permission
+	 * @param realms
+	 * @return an unmodifiable sorted list of sakai-ids of existing users with the permission in any of the realms
+	 */
+	protected List<String> getUsersIsAllowed(String permission, Collection<String> realms) {
+		Set<String> userIds = new TreeSet<String>();
+		if(! realms.isEmpty()) {
+			Set<String> allowed = this.authzGroupService.getUsersIsAllowed(permission, realms);
+			if(allowed != null && ! allowed.isEmpty()) {
+				// getUsers() drops ids of users that no longer exist, as unlockUsers() does
+				List<User> users = this.userDirectoryService.getUsers(allowed);
+				if(users != null) {
+					for(User user : users) {
+						userIds.add(user.getId());
+					}
+				}
+			}
+		}
+		return Collections.unmodifiableList(new ArrayList<String>(userIds));
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.sakaiproject.dash.app.SakaiProxy#getConfigParam(java.lang.String, boolean)
@@ -122,6 +182,14 @@ public class SakaiProxyImpl implements SakaiProxy {
 		return serverConfigurationService.getString(param, dflt);
 	}
 	
+	/*
+	 * (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.SakaiProxy#getConfigParam(java.lang.String, int)
+	 */
+	public int getConfigParam(String param, int dflt) {
+		return serverConfigurationService.getInt(param, dflt);
+	}
+	
 	public String getContentTypeImageUrl(String contenttype) {
 		return this.contentTypeImageService.getContentTypeImage(contenttype);
 	}
@@ -256,6 +324,14 @@ public class SakaiProxyImpl implements SakaiProxy {
 		}
 		return null;
 	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.SakaiProxy#getUsers(java.util.Collection)
+	 */
+	public List<User> getUsers(Collection<String> sakaiIds) {
+		return this.userDirectoryService.getUsers(sakaiIds);
+	}
 
 	public boolean isDropboxResource(String resourceId) {
 		return contentHostingService.isInDropbox(resourceId);
@@ -278,6 +354,55 @@ public class SakaiProxyImpl implements SakaiProxy {
 		return this.securityService.unlock(sakaiUserId, accessPermission, entityReference);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.SakaiProxy#getPermittedReferences(java.lang.String, java.lang.String, java.util.Collection)
+	 */
+	public Set<String> getPermittedReferences(String sakaiUserId, String accessPermission, 
+			Collection<String> entityReferences) {
+		Set<String> permitted = new HashSet<String>();
+		if(sakaiUserId == null || accessPermission == null || entityReferences == null || entityReferences.isEmpty()) {
+			return permitted;
+		}
+		if(this.securityService.isSuperUser(sakaiUserId)) {
+			for(String entityReference : entityReferences) {
+				if(entityReference != null) {
+					permitted.add(entityReference);
+				}
+			}
+			return permitted;
+		}
+		Map<String, Collection<String>> realmsByReference = new HashMap<String, Collection<String>>();
+		Set<String> realms = new HashSet<String>();
+		for(String entityReference : entityReferences) {
+			if(entityReference == null || realmsByReference.containsKey(entityReference)) {
+				continue;
+			}
+			Collection<String> authzGroups = this.entityManager.newReference(entityReference).getAuthzGroups();
+			if(authzGroups == null) {
+				authzGroups = Collections.emptyList();
+			}
+			realmsByReference.put(entityReference, authzGroups);
+			realms.addAll(authzGroups);
+		}
+		if(realms.isEmpty()) {
+			return permitted;
+		}
+		// one evaluation of the user's roles in all of the realms
+		Set<String> allowedRealms = this.authzGroupService.getAuthzGroupsIsAllowed(sakaiUserId, accessPermission, realms);
+		if(allowedRealms == null || allowedRealms.isEmpty()) {
+			return permitted;
+		}
+		for(Map.Entry<String, Collection<String>> entry : realmsByReference.entrySet()) {
+			for(String realm : entry.getValue()) {
+				if(allowedRealms.contains(realm)) {
+					permitted.add(entry.getKey());
+					break;
+				}
+			}
+		}
+		return permitted;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.sakaiproject.dash.app.SakaiProxy#isWorksite(java.lang.String)
@@ -390,6 +515,14 @@ public class SakaiProxyImpl implements SakaiProxy {
 		return this.serverConfigurationService.getServerId();
 	}
 	
+	/*
+	 * (non-Javadoc)
+	 * @see org.sakaiproject.dash.app.SakaiProxy#getSakaiHomePath()
+	 */
+	public String getSakaiHomePath() {
+		return this.serverConfigurationService.getSakaiHomePath();
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -12,12 +12,13 @@ repeating_event_id bigint, sequence_num integer);
 create index dash_calendar_time_idx on dash_calendar_item (calendar_time); 
 create unique index dash_calendar_entity_label_idx on dash_calendar_item (entity_ref, calendar_time_label_key, sequence_num); 
 create index dash_calendar_entity_idx on dash_calendar_item (entity_ref); 
+create index dash_calendar_repeat_idx on dash_calendar_item (repeating_event_id, calendar_time);
 create sequence dash_id_seq;
 
 create table dash_calendar_link ( id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1, INCREMENT BY 1) PRIMARY KEY, 
 person_id bigint not null, context_id bigint not null, item_id bigint not null, hidden bit default 0, 
-sticky bit default 0, unique (person_id, context_id, item_id)); 
-create index dash_calendar_link_idx on dash_calendar_link (person_id, context_id, item_id, hidden, sticky);
+sticky bit default 0, calendar_time timestamp(6), unique (person_id, context_id, item_id)); 
+create index dash_calendar_link_time_idx on dash_calendar_link (person_id, hidden, calendar_time);
 create index dash_calendar_link_item_id_idx on dash_calendar_link (item_id);
 
 create table dash_config ( id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1, INCREMENT BY 1) PRIMARY KEY, 
@@ -42,6 +43,7 @@ insert into dash_config (id, property_name, property_value) values (NULL, 'PROP_
 insert into dash_config (id, property_name, property_value) values (NULL, 'PROP_LOG_MODE_FOR_PREFERENCE_EVENTS', 2); 
 insert into dash_config (id, property_name, property_value) values (NULL, 'PROP_LOG_MODE_FOR_DASH_NAV_EVENTS', 2);
 insert into dash_config (id, property_name, property_value) values (NULL, 'PROP_LOOP_TIMER_ENABLED', 0);
+insert into dash_config (id, property_name, property_value) values (NULL, 'PROP_SCHEMA_VERSION', 4);
 
 create table dash_context ( id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1, INCREMENT BY 1) PRIMARY KEY, context_id varchar(255) not null, 
 context_url varchar(1024) not null, context_title varchar(255) not null); 
@@ -54,13 +56,13 @@ create table dash_news_item ( id BIGINT GENERATED BY DEFAULT AS IDENTITY (START
 news_time_label_key varchar(40), title varchar(255) not null, entity_ref varchar(255) not null, entity_type bigint not null, subtype varchar(255), 
 context_id bigint not null, grouping_id varchar(90)); 
 create index dash_news_time_idx on dash_news_item (news_time); 
-create index dash_news_grouping_idx on dash_news_item (grouping_id); 
+create index dash_news_grouping_time_idx on dash_news_item (grouping_id, news_time); 
 create unique index dash_news_entity_idx on dash_news_item (entity_ref);
 
 create table dash_news_link ( id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1, INCREMENT BY 1) PRIMARY KEY, person_id bigint not null, 
 context_id bigint not null, item_id bigint not null, hidden bit default 0, sticky bit default 0, 
-unique (person_id, context_id, item_id)); 
-create index dash_news_link_idx on dash_news_link (person_id, context_id, item_id, hidden, sticky);
+news_time timestamp(6), unique (person_id, context_id, item_id)); 
+create index dash_news_link_time_idx on dash_news_link (person_id, hidden, news_time);
 create index dash_news_link_item_id_idx on dash_news_link (item_id);
 
 create table dash_person ( id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1, INCREMENT BY 1) PRIMARY KEY,user_id varchar(99) not null,
@@ -88,3 +90,25 @@ last_update timestamp,
 has_lock bit default 0);
 create index dash_lock_ct_idx on dash_task_lock (claim_time); 
 create unique index dash_lock_ts_idx on dash_task_lock (task, server_id);
+
+-- Upgrading existing dashboard tables when auto.ddl is off. Each step matches migrate.schema.N in
+-- hsqldb.properties; after applying a step, record it in dash_config as PROP_SCHEMA_VERSION.
+
+-- schema version 1
+-- alter table dash_calendar_link add column calendar_time timestamp(6);
+-- update dash_calendar_link set calendar_time=(select ci.calendar_time from dash_calendar_item ci where ci.id=dash_calendar_link.item_id);
+-- create index dash_calendar_link_time_idx on dash_calendar_link (person_id, hidden, calendar_time);
+-- drop index dash_calendar_link_idx;
+
+-- schema version 2
+-- alter table dash_news_link add column news_time timestamp(6);
+-- update dash_news_link set news_time=(select ni.news_time from dash_news_item ni where ni.id=dash_news_link.item_id);
+-- create index dash_news_link_time_idx on dash_news_link (person_id, hidden, news_time);
+-- drop index dash_news_link_idx;
+
+-- schema version 3
+-- create index dash_news_grouping_time_idx on dash_news_item (grouping_id, news_time);
+-- drop index dash_news_grouping_idx;
+
+-- schema version 4
+-- create index dash_calendar_repeat_idx on dash_calendar_item (repeating_event_id, calendar_time);
@@ -12,11 +12,12 @@ repeating_event_id bigint, sequence_num integer, primary key (id) );
 create index dash_calendar_time_idx on dash_calendar_item (calendar_time); 
 create unique index dash_calendar_entity_label_idx on dash_calendar_item (entity_ref, calendar_time_label_key, sequence_num); 
 create index dash_calendar_entity_idx on dash_calendar_item (entity_ref); 
+create index dash_calendar_repeat_idx on dash_calendar_item (repeating_event_id, calendar_time);
 
 create table if not exists dash_calendar_link ( id bigint not null auto_increment, 
 person_id bigint not null, context_id bigint not null, item_id bigint not null, hidden bit default 0, 
-sticky bit default 0, unique (person_id, context_id, item_id), primary key (id) ); 
-create index dash_calendar_link_idx on dash_calendar_link (person_id, context_id, item_id, hidden, sticky);
+sticky bit default 0, calendar_time datetime, unique (person_id, context_id, item_id), primary key (id) ); 
+create index dash_calendar_link_time_idx on dash_calendar_link (person_id, hidden, calendar_time);
 create index dash_calendar_link_item_id_idx on dash_calendar_link (item_id);
 
 create table if not exists dash_config ( id bigint not null auto_increment, 
@@ -41,6 +42,7 @@ insert into dash_config (property_name, property_value) values ('PROP_LOG_MODE_F
 insert into dash_config (property_name, property_value) values ('PROP_LOG_MODE_FOR_PREFERENCE_EVENTS', 2); 
 insert into dash_config (property_name, property_value) values ('PROP_LOG_MODE_FOR_DASH_NAV_EVENTS', 2);
 insert into dash_config (property_name, property_value) values ('PROP_LOOP_TIMER_ENABLED', 0);
+insert into dash_config (property_name, property_value) values ('PROP_SCHEMA_VERSION', 4);
 
 
 create table if not exists dash_context ( id bigint not null auto_increment, context_id varchar(255) not null, 
@@ -55,13 +57,13 @@ news_time_label_key varchar(40), title varchar(255) not null,
 entity_ref varchar(255) not null, entity_type bigint not null, subtype varchar(255), 
 context_id bigint not null, grouping_id varchar(90), primary key (id) ); 
 create index dash_news_time_idx on dash_news_item (news_time); 
-create index dash_news_grouping_idx on dash_news_item (grouping_id); 
+create index dash_news_grouping_time_idx on dash_news_item (grouping_id, news_time); 
 create unique index dash_news_entity_idx on dash_news_item (entity_ref);
 
 create table if not exists dash_news_link ( id bigint not null auto_increment, person_id bigint not null, 
 context_id bigint not null, item_id bigint not null, hidden bit default 0, sticky bit default 0, 
-unique (person_id, context_id, item_id), primary key (id) ); 
-create index dash_news_link_idx on dash_news_link (person_id, context_id, item_id, hidden, sticky);
+news_time datetime, unique (person_id, context_id, item_id), primary key (id) ); 
+create index dash_news_link_time_idx on dash_news_link (person_id, hidden, news_time);
 create index dash_news_link_item_id_idx on dash_news_link (item_id);
 
 create table if not exists dash_person ( id bigint not null auto_increment,user_id varchar(99) not null,
@@ -91,3 +93,25 @@ has_lock bit default 0,
 primary key (id));
 create index dash_lock_ct_idx on dash_task_lock (claim_time); 
 create unique index dash_lock_ts_idx on dash_task_lock (task, server_id);
+
+-- Upgrading existing dashboard tables when auto.ddl is off. Each step matches migrate.schema.N in
+-- mysql.properties; after applying a step, record it in dash_config as PROP_SCHEMA_VERSION.
+
+-- schema version 1
+-- alter table dash_calendar_link add column calendar_time datetime;
+-- update dash_calendar_link set calendar_time=(select ci.calendar_time from dash_calendar_item ci where ci.id=dash_calendar_link.item_id);
+-- create index dash_calendar_link_time_idx on dash_calendar_link (person_id, hidden, calendar_time);
+-- drop index dash_calendar_link_idx on dash_calendar_link;
+
+-- schema version 2
+-- alter table dash_news_link add column news_time datetime;
+-- update dash_news_link set news_time=(select ni.news_time from dash_news_item ni where ni.id=dash_news_link.item_id);
+-- create index dash_news_link_time_idx on dash_news_link (person_id, hidden, news_time);
+-- drop index dash_news_link_idx on dash_news_link;
+
+-- schema version 3
+-- create index dash_news_grouping_time_idx on dash_news_item (grouping_id, news_time);
+-- drop index dash_news_grouping_idx on dash_news_item;
+
+-- schema version 4
+-- create index dash_calendar_repeat_idx on dash_calendar_item (repeating_event_id, calendar_time);
@@ -15,13 +15,14 @@ create sequence dash_calendar_item_seq start with 1 increment by 1 nomaxvalue;
 create index dash_cal_time_idx on dash_calendar_item (calendar_time); 
 create unique index dash_cal_entity_label_idx on dash_calendar_item (entity_ref, calendar_time_label_key, sequence_num); 
 create index dash_cal_entity_idx on dash_calendar_item (entity_ref);
+create index dash_cal_repeat_idx on dash_calendar_item (repeating_event_id, calendar_time);
 
 create table dash_calendar_link 
 ( id number not null primary key, person_id number not null, context_id number not null, 
 item_id number not null, hidden number(1,0) default 0, sticky number(1,0) default 0, 
-unique (person_id, context_id, item_id) ); 
+calendar_time timestamp(0), unique (person_id, context_id, item_id) ); 
 create sequence dash_calendar_link_seq start with 1 increment by 1 nomaxvalue; 
-create index dash_calendar_link_idx on dash_calendar_link (person_id, context_id, item_id, hidden, sticky);
+create index dash_calendar_link_time_idx on dash_calendar_link (person_id, hidden, calendar_time);
 create index dash_calendar_link_item_id_idx on dash_calendar_link (item_id);
 
 create table dash_config ( id number not null primary key, 
@@ -47,6 +48,7 @@ insert into dash_config (id, property_name, property_value) values (dash_config_
 insert into dash_config (id, property_name, property_value) values (dash_config_seq.nextval, 'PROP_LOG_MODE_FOR_PREFERENCE_EVENTS', 2); 
 insert into dash_config (id, property_name, property_value) values (dash_config_seq.nextval, 'PROP_LOG_MODE_FOR_DASH_NAV_EVENTS', 2);
 insert into dash_config (id, property_name, property_value) values (dash_config_seq.nextval, 'PROP_LOOP_TIMER_ENABLED', 0);
+insert into dash_config (id, property_name, property_value) values (dash_config_seq.nextval, 'PROP_SCHEMA_VERSION', 4);
 
 create table dash_context 
 ( id number not null primary key, context_id varchar2(255) not null, 
@@ -65,14 +67,15 @@ entity_ref varchar2(255) not null,
 entity_type number not null, subtype varchar2(255), context_id number not null, grouping_id varchar2(90) ); 
 create sequence dash_news_item_seq start with 1 increment by 1 nomaxvalue; 
 create index dash_news_time_idx on dash_news_item (news_time); 
-create index dash_news_grouping_idx on dash_news_item (grouping_id); 
+create index dash_news_grouping_time_idx on dash_news_item (grouping_id, news_time); 
 create unique index dash_news_entity_idx on dash_news_item (entity_ref);
 
 create table dash_news_link 
 ( id number not null primary key, person_id number not null, context_id number not null, 
-item_id number not null, hidden number(1,0) default 0, sticky number(1,0) default 0, unique (person_id, context_id, item_id) ); 
+item_id number not null, hidden number(1,0) default 0, sticky number(1,0) default 0, news_time timestamp(0), 
+unique (person_id, context_id, item_id) ); 
 create sequence dash_news_link_seq start with 1 increment by 1 nomaxvalue; 
-create index dash_news_link_idx on dash_news_link (person_id, context_id, item_id, hidden, sticky);
+create index dash_news_link_time_idx on dash_news_link (person_id, hidden, news_time);
 create index dash_news_link_item_id_idx on dash_news_link (item_id);
 
 create table dash_person 
@@ -104,3 +107,25 @@ has_lock number(1,0) default 0);
 create sequence dash_task_lock_seq start with 1 increment by 1 nomaxvalue; 
 create index dash_lock_ct_idx on dash_task_lock (claim_time); 
 create unique index dash_lock_ts_idx on dash_task_lock (task, server_id);
+
+-- Upgrading existing dashboard tables when auto.ddl is off. Each step matches migrate.schema.N in
+-- oracle.properties; after applying a step, record it in dash_config as PROP_SCHEMA_VERSION.
+
+-- schema version 1
+-- alter table dash_calendar_link add (calendar_time timestamp(0));
+-- update dash_calendar_link set calendar_time=(select ci.calendar_time from dash_calendar_item ci where ci.id=dash_calendar_link.item_id);
+-- create index dash_calendar_link_time_idx on dash_calendar_link (person_id, hidden, calendar_time);
+-- drop index dash_calendar_link_idx;
+
+-- schema version 2
+-- alter table dash_news_link add (news_time timestamp(0));
+-- update dash_news_link set news_time=(select ni.news_time from dash_news_item ni where ni.id=dash_news_link.item_id);
+-- create index dash_news_link_time_idx on dash_news_link (person_id, hidden, news_time);
+-- drop index dash_news_link_idx;
+
+-- schema version 3
+-- create index dash_news_grouping_time_idx on dash_news_item (grouping_id, news_time);
+-- drop index dash_news_grouping_idx;
+
+-- schema version 4
+-- create index dash_cal_repeat_idx on dash_calendar_item (repeating_event_id, calendar_time);
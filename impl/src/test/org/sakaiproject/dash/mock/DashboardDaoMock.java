@@ -22,6 +22,7 @@
 package org.sakaiproject.dash.mock;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
@@ -39,6 +40,7 @@ import org.sakaiproject.dash.model.AvailabilityCheck;
 import org.sakaiproject.dash.model.CalendarItem;
 import org.sakaiproject.dash.model.CalendarLink;
 import org.sakaiproject.dash.model.Context;
+import org.sakaiproject.dash.model.EventLogEntry;
 import org.sakaiproject.dash.model.NewsItem;
 import org.sakaiproject.dash.model.NewsLink;
 import org.sakaiproject.dash.model.Person;
@@ -128,6 +130,14 @@ public class DashboardDaoMock implements DashboardDao {
 		return false;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#addPeople(java.util.List)
+	 */
+	public int addPeople(List<Person> people) {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#addRepeatingCalendarItem(org.sakaiproject.dash.model.RepeatingCalendarItem)
 	 */
@@ -239,6 +249,52 @@ public class DashboardDaoMock implements DashboardDao {
 		return null;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#countFutureCalendarLinks(java.lang.String, java.lang.String, boolean)
+	 */
+	public int countFutureCalendarLinks(String sakaiUserId, String contextId,
+			boolean hidden) {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getFutureCalendarLinks(java.lang.String, java.lang.String, boolean, java.util.Date, long, int, int)
+	 */
+	public List<CalendarLink> getFutureCalendarLinks(String sakaiUserId,
+			String contextId, boolean hidden, Date afterTime, long afterId,
+			int offset, int limit) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#countPastCalendarLinks(java.lang.String, java.lang.String, boolean)
+	 */
+	public int countPastCalendarLinks(String sakaiUserId, String contextId,
+			boolean hidden) {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getNextCalendarLinkTime(java.lang.String, java.util.Date)
+	 */
+	public Date getNextCalendarLinkTime(String sakaiUserId, Date after) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getPastCalendarLinks(java.lang.String, java.lang.String, boolean, java.util.Date, long, int, int)
+	 */
+	public List<CalendarLink> getPastCalendarLinks(String sakaiUserId,
+			String contextId, boolean hidden, Date afterTime, long afterId,
+			int offset, int limit) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#getStarredCalendarLinks(java.lang.String, java.lang.String)
 	 */
@@ -280,6 +336,14 @@ public class DashboardDaoMock implements DashboardDao {
 		return null;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getPeopleBySakaiIds(java.util.Collection)
+	 */
+	public Map<String, Person> getPeopleBySakaiIds(Collection<String> sakaiIds) {
+		// TODO Auto-generated method stub
+		return new HashMap<String, Person>();
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#getNewsItem(java.lang.String)
 	 */
@@ -338,6 +402,31 @@ public class DashboardDaoMock implements DashboardDao {
 		return null;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#countCurrentNewsLinks(java.lang.String, java.lang.String)
+	 */
+	public int countCurrentNewsLinks(String sakaiId, String siteId) {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#rebuildNewsGroups()
+	 */
+	public int rebuildNewsGroups() {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getCurrentNewsLinks(java.lang.String, java.lang.String, java.util.Date, long, int, int)
+	 */
+	public List<NewsLink> getCurrentNewsLinks(String sakaiId, String siteId,
+			Date afterTime, long afterId, int offset, int limit) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#getStarredNewsLinks(java.lang.String, java.lang.String)
 	 */
@@ -396,6 +485,38 @@ public class DashboardDaoMock implements DashboardDao {
 		return null;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getRepeatingCalendarItems(java.util.Date, long, int)
+	 */
+	public List<RepeatingCalendarItem> getRepeatingCalendarItems(Date horizon, long afterId, int limit) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getCalendarItems(org.sakaiproject.dash.model.RepeatingCalendarItem, java.util.Date, java.util.Date)
+	 */
+	public List<CalendarItem> getCalendarItems(RepeatingCalendarItem repeatingEvent, Date beginDate, Date endDate) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getUnsequencedCalendarItems(org.sakaiproject.dash.model.RepeatingCalendarItem)
+	 */
+	public List<CalendarItem> getUnsequencedCalendarItems(RepeatingCalendarItem repeatingEvent) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#addCalendarItems(java.util.List)
+	 */
+	public int addCalendarItems(List<CalendarItem> calendarItems) {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#getLastIndexInSequence(java.lang.String, java.lang.String)
 	 */
@@ -446,6 +567,14 @@ public class DashboardDaoMock implements DashboardDao {
 		return false;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#deleteCalendarLinks(java.util.Collection, java.util.Collection)
+	 */
+	public int deleteCalendarLinks(Collection<Long> personIds, Collection<Long> calendarItemIds) {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#deleteCalendarLinks(java.lang.Long)
 	 */
@@ -478,6 +607,14 @@ public class DashboardDaoMock implements DashboardDao {
 		return false;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#deleteNewsLinks(java.util.Collection, java.util.Collection)
+	 */
+	public int deleteNewsLinks(Collection<Long> personIds, Collection<Long> newsItemIds) {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#deleteNewsLinks(java.lang.Long)
 	 */
@@ -503,6 +640,14 @@ public class DashboardDaoMock implements DashboardDao {
 		return false;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#addEvents(java.util.List)
+	 */
+	public int addEvents(List<EventLogEntry> entries) {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#updateCalendarItem(java.lang.Long, java.lang.String, java.util.Date)
 	 */
@@ -706,6 +851,14 @@ public class DashboardDaoMock implements DashboardDao {
 		return null;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getConfigProperties()
+	 */
+	public Map<String, Integer> getConfigProperties() {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.sakaiproject.dash.dao.DashboardDao#setConfigProperty(java.lang.String, java.lang.Integer)
 	 */
@@ -751,6 +904,54 @@ public class DashboardDaoMock implements DashboardDao {
 		return false;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#deleteLinksBefore(java.lang.String, java.util.Date, boolean, boolean, long, long)
+	 */
+	public int deleteLinksBefore(String type, Date expireBefore, boolean starred, boolean hidden, long firstId, long lastId) {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#deleteItemsWithoutLinks(java.lang.String, long, long)
+	 */
+	public int deleteItemsWithoutLinks(String type, long firstId, long lastId) {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getNextLinkId(java.lang.String, long)
+	 */
+	public Long getNextLinkId(String type, long fromId) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#getNextItemId(java.lang.String, long)
+	 */
+	public Long getNextItemId(String type, long fromId) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#addLinkPartitions(java.lang.String, java.util.Date)
+	 */
+	public int addLinkPartitions(String type, Date through) {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.sakaiproject.dash.dao.DashboardDao#dropExpiredLinkPartitions(java.lang.String, java.util.Date)
+	 */
+	public int dropExpiredLinkPartitions(String type, Date expireBefore) {
+		// TODO Auto-generated method stub
+		return 0;
+	}
+
 	public boolean deleteNewsLinksBefore(Date expireBefore, boolean starred,
 			boolean hidden) {
 		// TODO Auto-generated method stub
@@ -26,6 +26,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Observer;
+import java.util.Set;
 
 import org.sakaiproject.authz.api.SecurityAdvisor;
 import org.sakaiproject.content.api.ContentResource;
@@ -69,6 +70,10 @@ public class SakaiProxyMock implements SakaiProxy {
 		return null;
 	}
 
+	public int getConfigParam(String param, int dflt) {
+		return dflt;
+	}
+
 	public String getCurrentSiteId() {
 		// TODO Auto-generated method stub
 		return null;
@@ -148,6 +153,11 @@ public class SakaiProxyMock implements SakaiProxy {
 		return null;
 	}
 
+	public List<User> getUsers(Collection<String> sakaiIds) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
 	public boolean isWorksite(String siteId) {
 		// TODO Auto-generated method stub
 		return false;
@@ -226,6 +236,18 @@ public class SakaiProxyMock implements SakaiProxy {
 		return null;
 	}
 
+	public Map<String, List<String>> getAuthorizedUsers(String permission,
+			Collection<String> entityReferences) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
+	public Set<String> getPermittedReferences(String sakaiUserId,
+			String accessPermission, Collection<String> entityReferences) {
+		// TODO Auto-generated method stub
+		return null;
+	}
+
 	/**
 	 * 
 	 */
@@ -234,6 +256,10 @@ public class SakaiProxyMock implements SakaiProxy {
 		return this.serverId;
 	}
 
+	public String getSakaiHomePath() {
+		return null;
+	}
+
 	public void registerFunction(String functionName) {
 		// TODO Auto-generated method stub
 		
@@ -25,18 +25,30 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+
+import org.hsqldb.jdbc.jdbcDataSource;
+import org.sakaiproject.dash.app.DashboardConfig;
 import org.sakaiproject.dash.dao.DashboardDao;
+import org.sakaiproject.dash.dao.impl.DashboardDaoImpl;
+import org.sakaiproject.dash.logic.DashboardLogic;
 import org.sakaiproject.dash.logic.TaskLock;
+import org.sakaiproject.dash.mock.MockServerConfigurationService;
 import org.sakaiproject.dash.model.CalendarItem;
 import org.sakaiproject.dash.model.CalendarLink;
 import org.sakaiproject.dash.model.Context;
+import org.sakaiproject.dash.model.EventLogEntry;
 import org.sakaiproject.dash.model.NewsItem;
 import org.sakaiproject.dash.model.NewsLink;
 import org.sakaiproject.dash.model.Person;
 import org.sakaiproject.dash.model.RepeatingCalendarItem;
 import org.sakaiproject.dash.model.SourceType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.AbstractTransactionalSpringContextTests;
 
 /**
@@ -359,6 +371,134 @@ public class DashboardDaoTest extends AbstractTransactionalSpringContextTests {
 		assertEquals(userId,person.getUserId());
 	}
 	
+	public void testAddPeople() {
+		
+		List<Person> people = new ArrayList<Person>();
+		List<String> sakaiIds = new ArrayList<String>();
+		for(int i = 0; i < 3; i++) {
+			String sakaiId = getUniqueIdentifier();
+			sakaiIds.add(sakaiId);
+			people.add(new Person(sakaiId, getUniqueIdentifier()));
+		}
+		
+		int count = dao.addPeople(people);
+		assertEquals(people.size(), count);
+		
+		// adding them again should skip the existing people
+		count = dao.addPeople(people);
+		assertEquals(0, count);
+		
+		Map<String, Person> saved = dao.getPeopleBySakaiIds(sakaiIds);
+		assertEquals(people.size(), saved.size());
+		for(Person person : people) {
+			Person savedPerson = saved.get(person.getSakaiId());
+			assertNotNull(savedPerson);
+			assertNotNull(savedPerson.getId());
+			assertEquals(person.getUserId(), savedPerson.getUserId());
+		}
+	}
+	
+	public void testGetPeopleBySakaiIds() {
+		
+		String sakaiId = getUniqueIdentifier();
+		String userId = getUniqueIdentifier();
+		dao.addPerson(new Person(sakaiId, userId));
+		
+		List<String> sakaiIds = new ArrayList<String>();
+		sakaiIds.add(sakaiId);
+		sakaiIds.add(getUniqueIdentifier());
+		
+		Map<String, Person> people = dao.getPeopleBySakaiIds(sakaiIds);
+		assertEquals(1, people.size());
+		assertEquals(userId, people.get(sakaiId).getUserId());
+	}
+	
+	public void testPersonCacheHitsAndMisses() {
+		DashboardDao cachingDao = createCachingDao(10, false);
+		JdbcTemplate jdbcTemplate = ((DashboardDaoImpl) dao).getJdbcTemplate();
+		
+		String sakaiId = getUniqueIdentifier();
+		String userId = getUniqueIdentifier();
+		assertTrue(cachingDao.addPerson(new Person(sakaiId, userId)));
+		
+		// the first lookup reads the row and caches it, so later changes to the row are not seen
+		Person person = cachingDao.getPersonBySakaiId(sakaiId);
+		assertNotNull(person);
+		assertEquals(userId, person.getUserId());
+		jdbcTemplate.update("update dash_person set user_id=? where sakai_id=?", new Object[]{getUniqueIdentifier(), sakaiId});
+		assertEquals(userId, cachingDao.getPersonBySakaiId(sakaiId).getUserId());
+		
+		// callers get copies, so changing one does not change the cache
+		person.setUserId(getUniqueIdentifier());
+		assertEquals(userId, cachingDao.getPersonBySakaiId(sakaiId).getUserId());
+		
+		// people who are not found are not cached
+		String missingSakaiId = getUniqueIdentifier();
+		assertNull(cachingDao.getPersonBySakaiId(missingSakaiId));
+		String missingUserId = getUniqueIdentifier();
+		dao.addPerson(new Person(missingSakaiId, missingUserId));
+		assertEquals(missingUserId, cachingDao.getPersonBySakaiId(missingSakaiId).getUserId());
+		
+		// the batch lookup uses the cache too, and reads only the people it is missing
+		String otherSakaiId = getUniqueIdentifier();
+		String otherUserId = getUniqueIdentifier();
+		dao.addPerson(new Person(otherSakaiId, otherUserId));
+		List<String> sakaiIds = new ArrayList<String>();
+		sakaiIds.add(sakaiId);
+		sakaiIds.add(otherSakaiId);
+		Map<String, Person> people = cachingDao.getPeopleBySakaiIds(sakaiIds);
+		assertEquals(2, people.size());
+		assertEquals(userId, people.get(sakaiId).getUserId());
+		assertEquals(otherUserId, people.get(otherSakaiId).getUserId());
+		jdbcTemplate.update("update dash_person set user_id=? where sakai_id=?", new Object[]{getUniqueIdentifier(), otherSakaiId});
+		assertEquals(otherUserId, cachingDao.getPersonBySakaiId(otherSakaiId).getUserId());
+	}
+	
+	public void testPersonCacheEvictsLeastRecentlyUsed() {
+		DashboardDao cachingDao = createCachingDao(2, false);
+		JdbcTemplate jdbcTemplate = ((DashboardDaoImpl) dao).getJdbcTemplate();
+		
+		String[] sakaiIds = new String[3];
+		String[] userIds = new String[3];
+		for(int i = 0; i < 3; i++) {
+			sakaiIds[i] = getUniqueIdentifier();
+			userIds[i] = getUniqueIdentifier();
+			dao.addPerson(new Person(sakaiIds[i], userIds[i]));
+		}
+		cachingDao.getPersonBySakaiId(sakaiIds[0]);
+		cachingDao.getPersonBySakaiId(sakaiIds[1]);
+		// using the first person again makes the second one the least recently used
+		cachingDao.getPersonBySakaiId(sakaiIds[0]);
+		cachingDao.getPersonBySakaiId(sakaiIds[2]);
+		
+		for(int i = 0; i < 3; i++) {
+			jdbcTemplate.update("update dash_person set user_id=? where sakai_id=?", new Object[]{"changed-" + userIds[i], sakaiIds[i]});
+		}
+		assertEquals(userIds[0], cachingDao.getPersonBySakaiId(sakaiIds[0]).getUserId());
+		assertEquals(userIds[2], cachingDao.getPersonBySakaiId(sakaiIds[2]).getUserId());
+		assertEquals("changed-" + userIds[1], cachingDao.getPersonBySakaiId(sakaiIds[1]).getUserId());
+	}
+	
+	public void testPersonCacheWarmup() {
+		JdbcTemplate jdbcTemplate = ((DashboardDaoImpl) dao).getJdbcTemplate();
+		String[] sakaiIds = new String[3];
+		String[] userIds = new String[3];
+		for(int i = 0; i < 3; i++) {
+			sakaiIds[i] = getUniqueIdentifier();
+			userIds[i] = getUniqueIdentifier();
+			dao.addPerson(new Person(sakaiIds[i], userIds[i]));
+		}
+		
+		// the two people added last are loaded when the dao starts
+		DashboardDao cachingDao = createCachingDao(2, true);
+		for(int i = 0; i < 3; i++) {
+			jdbcTemplate.update("update dash_person set user_id=? where sakai_id=?", new Object[]{"changed-" + userIds[i], sakaiIds[i]});
+		}
+		assertEquals(userIds[1], cachingDao.getPersonBySakaiId(sakaiIds[1]).getUserId());
+		assertEquals(userIds[2], cachingDao.getPersonBySakaiId(sakaiIds[2]).getUserId());
+		assertEquals("changed-" + userIds[0], cachingDao.getPersonBySakaiId(sakaiIds[0]).getUserId());
+	}
+	
 	public void testAddRepeatingCalendarItem() {
 		String title = getUniqueIdentifier();
 		String entityReference = getUniqueIdentifier();
@@ -412,6 +552,74 @@ public class DashboardDaoTest extends AbstractTransactionalSpringContextTests {
 		assertEquals(identifier1, repeatingCalendarItem1.getSourceType().getIdentifier());
 	}
 
+	public void testAddRepeatingCalendarItemInstances() {
+		String identifier1 = getUniqueIdentifier();
+		dao.addSourceType(new SourceType(identifier1));
+		SourceType sourceType = dao.getSourceType(identifier1);
+		assertNotNull(sourceType);
+		
+		String contextId = getUniqueIdentifier();
+		dao.addContext(new Context(contextId, getUniqueIdentifier(), getUniqueIdentifier()));
+		Context context = dao.getContext(contextId);
+		assertNotNull(context);
+		
+		Date horizon = new Date();
+		Date firstTime = new Date(horizon.getTime() - ONE_WEEK);
+		
+		// one series ends before the horizon, the other after it
+		String timeLabel = getUniqueIdentifier();
+		String entityReference1 = getUniqueIdentifier();
+		dao.addRepeatingCalendarItem(new RepeatingCalendarItem(getUniqueIdentifier(), firstTime, new Date(horizon.getTime() - ONE_DAY), 
+				timeLabel, entityReference1, null, context, sourceType, RepeatingCalendarItem.REPEATS_DAILY, 0));
+		RepeatingCalendarItem ended = dao.getRepeatingCalendarItem(entityReference1, timeLabel);
+		assertNotNull(ended);
+		String entityReference2 = getUniqueIdentifier();
+		dao.addRepeatingCalendarItem(new RepeatingCalendarItem(getUniqueIdentifier(), firstTime, new Date(horizon.getTime() + ONE_WEEK), 
+				timeLabel, entityReference2, null, context, sourceType, RepeatingCalendarItem.REPEATS_DAILY, 0));
+		RepeatingCalendarItem repeatingEvent = dao.getRepeatingCalendarItem(entityReference2, timeLabel);
+		assertNotNull(repeatingEvent);
+		
+		List<RepeatingCalendarItem> page = dao.getRepeatingCalendarItems(horizon, ended.getId().longValue() - 1L, 100);
+		assertNotNull(page);
+		assertEquals(1, page.size());
+		assertEquals(repeatingEvent.getId(), page.get(0).getId());
+		assertTrue(dao.getRepeatingCalendarItems(horizon, repeatingEvent.getId().longValue(), 100).isEmpty());
+		
+		List<CalendarItem> instances = new ArrayList<CalendarItem>();
+		for(int i = 0; i < 3; i++) {
+			instances.add(new CalendarItem(repeatingEvent.getTitle(), new Date(horizon.getTime() + i * ONE_DAY), timeLabel, 
+					entityReference2, context, sourceType, null, repeatingEvent, Integer.valueOf(i)));
+		}
+		assertEquals(3, dao.addCalendarItems(instances));
+		assertEquals(3, dao.getCalendarItems(repeatingEvent).size());
+		
+		List<CalendarItem> window = dao.getCalendarItems(repeatingEvent, new Date(horizon.getTime() + ONE_HOUR), new Date(horizon.getTime() + ONE_WEEK));
+		assertEquals(2, window.size());
+		assertEquals(Integer.valueOf(1), window.get(0).getSequenceNumber());
+		assertEquals(Integer.valueOf(2), window.get(1).getSequenceNumber());
+		
+		// an instance without a sequence number is found outside any window
+		Date unsequencedTime = new Date(horizon.getTime() + ONE_WEEK * 2L);
+		dao.addCalendarItem(new CalendarItem(repeatingEvent.getTitle(), unsequencedTime, getUniqueIdentifier(), 
+				entityReference2, context, sourceType, null, repeatingEvent, null));
+		List<CalendarItem> unsequenced = dao.getUnsequencedCalendarItems(repeatingEvent);
+		assertEquals(1, unsequenced.size());
+		assertEquals(unsequencedTime.getTime(), unsequenced.get(0).getCalendarTime().getTime());
+		
+		// a series that already has all of its instances is not paged
+		String entityReference3 = getUniqueIdentifier();
+		dao.addRepeatingCalendarItem(new RepeatingCalendarItem(getUniqueIdentifier(), firstTime, null, 
+				timeLabel, entityReference3, null, context, sourceType, RepeatingCalendarItem.REPEATS_DAILY, 2));
+		RepeatingCalendarItem counted = dao.getRepeatingCalendarItem(entityReference3, timeLabel);
+		assertNotNull(counted);
+		dao.addCalendarItem(new CalendarItem(counted.getTitle(), firstTime, timeLabel, 
+				entityReference3, context, sourceType, null, counted, Integer.valueOf(0)));
+		assertEquals(2, dao.getRepeatingCalendarItems(horizon, ended.getId().longValue() - 1L, 100).size());
+		dao.addCalendarItem(new CalendarItem(counted.getTitle(), new Date(firstTime.getTime() + ONE_DAY), timeLabel, 
+				entityReference3, context, sourceType, null, counted, Integer.valueOf(1)));
+		assertEquals(1, dao.getRepeatingCalendarItems(horizon, ended.getId().longValue() - 1L, 100).size());
+	}
+
     /**
      * This method actually depends on being able to save and retrieve SourceType objects. 
      * It then verifies that the retrieved items have the same attribute values as the 
@@ -588,6 +796,57 @@ public class DashboardDaoTest extends AbstractTransactionalSpringContextTests {
 		assertTrue(items.size() == 0);
 	}
 
+	public void testDeleteCalendarLinksCollectionCollection() {
+		Date calendarTime = new Date(System.currentTimeMillis() + ONE_DAY);
+		String title = getUniqueIdentifier();
+		String entityReference = getUniqueIdentifier();
+		
+		String contextId = getUniqueIdentifier();
+		String contextTitle = getUniqueIdentifier();
+		String contextUrl = getUniqueIdentifier();
+		Context context = new Context(contextId, contextTitle, contextUrl );
+		dao.addContext(context);
+		context = dao.getContext(contextId);
+		
+		String sourceTypeIdentifier = getUniqueIdentifier();
+		SourceType sourceType = new SourceType(sourceTypeIdentifier);
+		dao.addSourceType(sourceType);
+		sourceType = dao.getSourceType(sourceTypeIdentifier);
+
+		List<CalendarItem> calendarItems = new ArrayList<CalendarItem>();
+		List<Long> calendarItemIds = new ArrayList<Long>();
+		for(int i = 0; i < 2; i++) {
+			String calendarTimeLabelKey = getUniqueIdentifier();
+			dao.addCalendarItem(new CalendarItem(title, calendarTime,
+					calendarTimeLabelKey, entityReference, context, sourceType, null, null, null));
+			CalendarItem calendarItem = dao.getCalendarItem(entityReference, calendarTimeLabelKey, null);
+			assertNotNull(calendarItem);
+			calendarItems.add(calendarItem);
+			calendarItemIds.add(calendarItem.getId());
+		}
+		
+		List<Person> people = new ArrayList<Person>();
+		for(int i = 0; i < 3; i++) {
+			String sakaiId = getUniqueIdentifier();
+			dao.addPerson(new Person(sakaiId, getUniqueIdentifier()));
+			Person person = dao.getPersonBySakaiId(sakaiId);
+			people.add(person);
+			for(CalendarItem calendarItem : calendarItems) {
+				assertTrue(dao.addCalendarLink(new CalendarLink(person, calendarItem, context, false, false)));
+			}
+		}
+		
+		List<Long> personIds = new ArrayList<Long>();
+		personIds.add(people.get(0).getId());
+		personIds.add(people.get(1).getId());
+		int deleted = dao.deleteCalendarLinks(personIds, calendarItemIds);
+		assertEquals(4, deleted);
+		
+		Set<String> remaining = dao.getSakaIdsForUserWithCalendarLinks(entityReference);
+		assertEquals(1, remaining.size());
+		assertTrue(remaining.contains(people.get(2).getSakaiId()));
+	}
+
     /**
      * This method actually depends on being able to save and retrieve objects of type
      * Context, SourceType and NewsItem. It then deletes the NewsItem and verifies 
@@ -606,6 +865,50 @@ public class DashboardDaoTest extends AbstractTransactionalSpringContextTests {
 		Long contextId;
 	}
 
+	public void testDeleteNewsLinksCollectionCollection() {
+		Date eventTime = new Date(System.currentTimeMillis() - ONE_DAY);
+		String title = getUniqueIdentifier();
+		String entityReference = getUniqueIdentifier();
+		
+		String contextId = getUniqueIdentifier();
+		String contextTitle = getUniqueIdentifier();
+		String contextUrl = getUniqueIdentifier();
+		Context context = new Context(contextId, contextTitle, contextUrl );
+		dao.addContext(context);
+		context = dao.getContext(contextId);
+		
+		String sourceTypeIdentifier = getUniqueIdentifier();
+		SourceType sourceType = new SourceType(sourceTypeIdentifier);
+		dao.addSourceType(sourceType);
+		sourceType = dao.getSourceType(sourceTypeIdentifier);
+
+		NewsItem newsItem = new NewsItem(title, eventTime,
+			null, entityReference, context, sourceType, null);
+		dao.addNewsItem(newsItem);
+		newsItem = dao.getNewsItem(entityReference);
+		
+		List<Person> people = new ArrayList<Person>();
+		for(int i = 0; i < 3; i++) {
+			String sakaiId = getUniqueIdentifier();
+			dao.addPerson(new Person(sakaiId, getUniqueIdentifier()));
+			Person person = dao.getPersonBySakaiId(sakaiId);
+			people.add(person);
+			assertTrue(dao.addNewsLink(new NewsLink(person, newsItem, context, false, false)));
+		}
+		
+		List<Long> personIds = new ArrayList<Long>();
+		personIds.add(people.get(0).getId());
+		personIds.add(people.get(1).getId());
+		List<Long> newsItemIds = new ArrayList<Long>();
+		newsItemIds.add(newsItem.getId());
+		int deleted = dao.deleteNewsLinks(personIds, newsItemIds);
+		assertEquals(2, deleted);
+		
+		Set<String> remaining = dao.getSakaiIdsForUserWithNewsLinks(entityReference);
+		assertEquals(1, remaining.size());
+		assertTrue(remaining.contains(people.get(2).getSakaiId()));
+	}
+
 	public void testGetCalendarItemLong() {
 		Date calendarTime = new Date(System.currentTimeMillis() + ONE_DAY);
 		String calendarTimeLabelKey = getUniqueIdentifier();
@@ -1462,6 +1765,763 @@ public class DashboardDaoTest extends AbstractTransactionalSpringContextTests {
 		assertEquals(expectedCount, links.size());	
 	}
 
+	public void testGetFutureCalendarLinksPaged() {
+		String sakaiId = getUniqueIdentifier();
+		String userId = getUniqueIdentifier();
+		dao.addPerson(new Person(sakaiId, userId));
+		Person person = dao.getPersonBySakaiId(sakaiId);
+		assertNotNull(person);
+		
+		String contextId = getUniqueIdentifier();
+		Context context = new Context(contextId, getUniqueIdentifier(), getUniqueIdentifier());
+		dao.addContext(context);
+		context = dao.getContext(contextId);
+		
+		String sourceTypeIdentifier = getUniqueIdentifier();
+		dao.addSourceType(new SourceType(sourceTypeIdentifier));
+		SourceType sourceType = dao.getSourceType(sourceTypeIdentifier);
+		
+		// two items share a time so the link id has to break the tie
+		long base = (System.currentTimeMillis() / 1000L) * 1000L + ONE_DAY;
+		long[] offsets = new long[]{0L, 1L, 1L, 2L, 3L};
+		for(long offset : offsets) {
+			String entityReference = getUniqueIdentifier();
+			String calendarTimeLabelKey = getUniqueIdentifier();
+			dao.addCalendarItem(new CalendarItem(getUniqueIdentifier(), new Date(base + offset * ONE_DAY),
+					calendarTimeLabelKey, entityReference, context, sourceType, null, null, null));
+			CalendarItem item = dao.getCalendarItem(entityReference, calendarTimeLabelKey, null);
+			assertNotNull(item);
+			assertTrue(dao.addCalendarLink(new CalendarLink(person, item, context, false, false)));
+		}
+		
+		assertEquals(offsets.length, dao.countFutureCalendarLinks(sakaiId, contextId, false));
+		assertEquals(offsets.length, dao.countFutureCalendarLinks(sakaiId, null, false));
+		assertEquals(0, dao.countFutureCalendarLinks(sakaiId, contextId, true));
+		
+		List<CalendarLink> firstPage = dao.getFutureCalendarLinks(sakaiId, contextId, false, null, 0L, 0, 2);
+		assertEquals(2, firstPage.size());
+		
+		CalendarLink last = firstPage.get(1);
+		List<CalendarLink> byKey = dao.getFutureCalendarLinks(sakaiId, contextId, false, 
+				last.getCalendarItem().getCalendarTime(), last.getId(), 0, 2);
+		List<CalendarLink> byOffset = dao.getFutureCalendarLinks(sakaiId, contextId, false, null, 0L, 2, 2);
+		assertEquals(2, byKey.size());
+		assertEquals(2, byOffset.size());
+		for(int i = 0; i < byKey.size(); i++) {
+			assertEquals(byOffset.get(i).getId(), byKey.get(i).getId());
+		}
+		
+		last = byKey.get(1);
+		List<CalendarLink> lastPage = dao.getFutureCalendarLinks(sakaiId, null, false, 
+				last.getCalendarItem().getCalendarTime(), last.getId(), 0, 2);
+		assertEquals(1, lastPage.size());
+		
+		List<CalendarLink> all = dao.getFutureCalendarLinks(sakaiId, contextId, false);
+		assertEquals(offsets.length, all.size());
+		Date previous = null;
+		for(CalendarLink link : all) {
+			Date time = link.getCalendarItem().getCalendarTime();
+			assertTrue(previous == null || ! time.before(previous));
+			previous = time;
+		}
+		assertEquals(all.get(offsets.length - 1).getId(), lastPage.get(0).getId());
+	}
+
+	public void testGetPastCalendarLinksPaged() {
+		String sakaiId = getUniqueIdentifier();
+		String userId = getUniqueIdentifier();
+		dao.addPerson(new Person(sakaiId, userId));
+		Person person = dao.getPersonBySakaiId(sakaiId);
+		assertNotNull(person);
+		
+		String contextId = getUniqueIdentifier();
+		Context context = new Context(contextId, getUniqueIdentifier(), getUniqueIdentifier());
+		dao.addContext(context);
+		context = dao.getContext(contextId);
+		
+		String sourceTypeIdentifier = getUniqueIdentifier();
+		dao.addSourceType(new SourceType(sourceTypeIdentifier));
+		SourceType sourceType = dao.getSourceType(sourceTypeIdentifier);
+		
+		long base = (System.currentTimeMillis() / 1000L) * 1000L - ONE_DAY;
+		long[] offsets = new long[]{0L, 1L, 1L, 2L};
+		for(long offset : offsets) {
+			String entityReference = getUniqueIdentifier();
+			String calendarTimeLabelKey = getUniqueIdentifier();
+			dao.addCalendarItem(new CalendarItem(getUniqueIdentifier(), new Date(base - offset * ONE_DAY),
+					calendarTimeLabelKey, entityReference, context, sourceType, null, null, null));
+			CalendarItem item = dao.getCalendarItem(entityReference, calendarTimeLabelKey, null);
+			assertNotNull(item);
+			assertTrue(dao.addCalendarLink(new CalendarLink(person, item, context, false, false)));
+		}
+		
+		assertEquals(offsets.length, dao.countPastCalendarLinks(sakaiId, contextId, false));
+		assertEquals(0, dao.countPastCalendarLinks(sakaiId, contextId, true));
+		
+		List<CalendarLink> all = dao.getPastCalendarLinks(sakaiId, contextId, false, null, 0L, 0, 10);
+		assertEquals(offsets.length, all.size());
+		
+		// walking the list two at a time by key should visit every link once, newest first
+		List<CalendarLink> walked = new ArrayList<CalendarLink>();
+		List<CalendarLink> page = dao.getPastCalendarLinks(sakaiId, contextId, false, null, 0L, 0, 2);
+		while(! page.isEmpty()) {
+			walked.addAll(page);
+			CalendarLink last = page.get(page.size() - 1);
+			page = dao.getPastCalendarLinks(sakaiId, contextId, false, 
+					last.getCalendarItem().getCalendarTime(), last.getId(), 0, 2);
+		}
+		assertEquals(all.size(), walked.size());
+		for(int i = 0; i < all.size(); i++) {
+			assertEquals(all.get(i).getId(), walked.get(i).getId());
+			if(i > 0) {
+				assertFalse(walked.get(i).getCalendarItem().getCalendarTime().after(walked.get(i - 1).getCalendarItem().getCalendarTime()));
+			}
+		}
+	}
+
+	public void testGetNextCalendarLinkTime() {
+		String sakaiId = getUniqueIdentifier();
+		dao.addPerson(new Person(sakaiId, getUniqueIdentifier()));
+		Person person = dao.getPersonBySakaiId(sakaiId);
+		
+		String contextId = getUniqueIdentifier();
+		dao.addContext(new Context(contextId, getUniqueIdentifier(), getUniqueIdentifier()));
+		Context context = dao.getContext(contextId);
+		
+		String sourceTypeIdentifier = getUniqueIdentifier();
+		dao.addSourceType(new SourceType(sourceTypeIdentifier));
+		SourceType sourceType = dao.getSourceType(sourceTypeIdentifier);
+		
+		Date now = new Date((System.currentTimeMillis() / 1000L) * 1000L);
+		assertNull(dao.getNextCalendarLinkTime(sakaiId, now));
+		
+		// the next link counts whether or not it is hidden, and past links are ignored
+		long[] offsets = new long[]{-ONE_DAY, 2 * ONE_DAY, ONE_DAY};
+		boolean[] hidden = new boolean[]{false, false, true};
+		for(int i = 0; i < offsets.length; i++) {
+			String entityReference = getUniqueIdentifier();
+			String calendarTimeLabelKey = getUniqueIdentifier();
+			dao.addCalendarItem(new CalendarItem(getUniqueIdentifier(), new Date(now.getTime() + offsets[i]),
+					calendarTimeLabelKey, entityReference, context, sourceType, null, null, null));
+			CalendarItem item = dao.getCalendarItem(entityReference, calendarTimeLabelKey, null);
+			assertTrue(dao.addCalendarLink(new CalendarLink(person, item, context, hidden[i], false)));
+		}
+		
+		Date next = dao.getNextCalendarLinkTime(sakaiId, now);
+		assertNotNull(next);
+		assertEquals(now.getTime() + ONE_DAY, next.getTime());
+		assertNull(dao.getNextCalendarLinkTime(sakaiId, new Date(now.getTime() + 2 * ONE_DAY)));
+	}
+
+	public void testGetCurrentNewsLinksPaged() {
+		String sakaiId = getUniqueIdentifier();
+		String userId = getUniqueIdentifier();
+		dao.addPerson(new Person(sakaiId, userId));
+		Person person = dao.getPersonBySakaiId(sakaiId);
+		assertNotNull(person);
+		
+		String contextId = getUniqueIdentifier();
+		Context context = new Context(contextId, getUniqueIdentifier(), getUniqueIdentifier());
+		dao.addContext(context);
+		context = dao.getContext(contextId);
+		
+		String sourceTypeIdentifier = getUniqueIdentifier();
+		dao.addSourceType(new SourceType(sourceTypeIdentifier));
+		SourceType sourceType = dao.getSourceType(sourceTypeIdentifier);
+		
+		long base = (System.currentTimeMillis() / 1000L) * 1000L;
+		for(int i = 0; i < 5; i++) {
+			String entityReference = getUniqueIdentifier();
+			dao.addNewsItem(new NewsItem(getUniqueIdentifier(), new Date(base - i * ONE_DAY),
+					getUniqueIdentifier(), entityReference, context, sourceType, null));
+			NewsItem item = dao.getNewsItem(entityReference);
+			assertNotNull(item);
+			assertTrue(dao.addNewsLink(new NewsLink(person, item, context, i == 4, false)));
+		}
+		
+		assertEquals(4, dao.countCurrentNewsLinks(sakaiId, contextId));
+		assertEquals(4, dao.countCurrentNewsLinks(sakaiId, null));
+		
+		List<NewsLink> all = dao.getCurrentNewsLinks(sakaiId, contextId);
+		assertEquals(4, all.size());
+		
+		List<NewsLink> firstPage = dao.getCurrentNewsLinks(sakaiId, contextId, null, 0L, 0, 3);
+		assertEquals(3, firstPage.size());
+		NewsItem last = firstPage.get(2).getNewsItem();
+		List<NewsLink> byKey = dao.getCurrentNewsLinks(sakaiId, null, last.getNewsTime(), last.getId(), 0, 3);
+		List<NewsLink> byOffset = dao.getCurrentNewsLinks(sakaiId, contextId, null, 0L, 3, 3);
+		assertEquals(1, byKey.size());
+		assertEquals(1, byOffset.size());
+		assertEquals(all.get(3).getNewsItem().getId(), byKey.get(0).getNewsItem().getId());
+		assertEquals(all.get(3).getNewsItem().getId(), byOffset.get(0).getNewsItem().getId());
+	}
+
+	public void testNewsGroupSummaries() {
+		String sakaiId = getUniqueIdentifier();
+		dao.addPerson(new Person(sakaiId, getUniqueIdentifier()));
+		Person person = dao.getPersonBySakaiId(sakaiId);
+		String otherSakaiId = getUniqueIdentifier();
+		dao.addPerson(new Person(otherSakaiId, getUniqueIdentifier()));
+		Person other = dao.getPersonBySakaiId(otherSakaiId);
+		
+		String contextId = getUniqueIdentifier();
+		dao.addContext(new Context(contextId, getUniqueIdentifier(), getUniqueIdentifier()));
+		Context context = dao.getContext(contextId);
+		
+		String sourceTypeIdentifier = getUniqueIdentifier();
+		dao.addSourceType(new SourceType(sourceTypeIdentifier));
+		SourceType sourceType = dao.getSourceType(sourceTypeIdentifier);
+		
+		// items on the same day with the same label key share a grouping id
+		String labelKey = getUniqueIdentifier();
+		long base = (System.currentTimeMillis() / ONE_DAY) * ONE_DAY + 1000L;
+		List<NewsItem> items = new ArrayList<NewsItem>();
+		List<NewsLink> newsLinks = new ArrayList<NewsLink>();
+		for(int i = 0; i < 4; i++) {
+			String entityReference = getUniqueIdentifier();
+			dao.addNewsItem(new NewsItem(getUniqueIdentifier(), new Date(base + i * 1000L),
+					labelKey, entityReference, context, sourceType, null));
+			NewsItem item = dao.getNewsItem(entityReference);
+			assertNotNull(item);
+			items.add(item);
+			newsLinks.add(new NewsLink(person, item, context, false, false));
+		}
+		assertEquals(4, dao.addNewsLinks(newsLinks));
+		assertTrue(dao.addNewsLink(new NewsLink(other, items.get(0), context, false, false)));
+		
+		List<NewsLink> links = dao.getCurrentNewsLinks(sakaiId, contextId);
+		assertEquals(1, links.size());
+		assertEquals(4, links.get(0).getNewsItem().getItemCount());
+		assertEquals(items.get(0).getGroupingIdentifier(), links.get(0).getNewsItem().getGroupingIdentifier());
+		assertEquals(1, dao.getCurrentNewsLinks(otherSakaiId, null).size());
+		
+		// hiding a link takes it out of the group
+		NewsLink hidden = dao.getNewsLink(items.get(3).getId(), person.getId());
+		hidden.setHidden(true);
+		assertTrue(dao.updateNewsLink(hidden));
+		links = dao.getCurrentNewsLinks(sakaiId, null);
+		assertEquals(1, links.size());
+		assertEquals(3, links.get(0).getNewsItem().getItemCount());
+		
+		// two links or fewer are listed individually
+		assertTrue(dao.deleteNewsLink(person.getId(), items.get(2).getId()));
+		links = dao.getCurrentNewsLinks(sakaiId, contextId);
+		assertEquals(2, links.size());
+		assertEquals(2, dao.countCurrentNewsLinks(sakaiId, null));
+		
+		hidden.setHidden(false);
+		assertTrue(dao.updateNewsLink(hidden));
+		links = dao.getCurrentNewsLinks(sakaiId, contextId);
+		assertEquals(1, links.size());
+		assertEquals(3, links.get(0).getNewsItem().getItemCount());
+		
+		// other people's summaries are untouched
+		links = dao.getCurrentNewsLinks(otherSakaiId, contextId);
+		assertEquals(1, links.size());
+		assertEquals(items.get(0).getId(), links.get(0).getNewsItem().getId());
+		
+		assertTrue(dao.rebuildNewsGroups() > 0);
+		links = dao.getCurrentNewsLinks(sakaiId, contextId);
+		assertEquals(1, links.size());
+		assertEquals(3, links.get(0).getNewsItem().getItemCount());
+		assertEquals(1, dao.getCurrentNewsLinks(otherSakaiId, contextId).size());
+		
+		assertTrue(dao.deleteLinksByContext(contextId, DashboardLogic.TYPE_NEWS));
+		assertEquals(0, dao.getCurrentNewsLinks(sakaiId, null).size());
+		assertEquals(0, dao.getCurrentNewsLinks(otherSakaiId, null).size());
+	}
+
+	public void testNewsGroupSummariesFollowItemRevisions() {
+		String sakaiId = getUniqueIdentifier();
+		dao.addPerson(new Person(sakaiId, getUniqueIdentifier()));
+		Person person = dao.getPersonBySakaiId(sakaiId);
+		
+		String contextId = getUniqueIdentifier();
+		dao.addContext(new Context(contextId, getUniqueIdentifier(), getUniqueIdentifier()));
+		Context context = dao.getContext(contextId);
+		
+		String sourceTypeIdentifier = getUniqueIdentifier();
+		dao.addSourceType(new SourceType(sourceTypeIdentifier));
+		SourceType sourceType = dao.getSourceType(sourceTypeIdentifier);
+		
+		String labelKey = getUniqueIdentifier();
+		long base = (System.currentTimeMillis() / ONE_DAY) * ONE_DAY + 1000L;
+		List<NewsItem> items = new ArrayList<NewsItem>();
+		for(int i = 0; i < 3; i++) {
+			String entityReference = getUniqueIdentifier();
+			dao.addNewsItem(new NewsItem(getUniqueIdentifier(), new Date(base + i * 1000L),
+					labelKey, entityReference, context, sourceType, null));
+			NewsItem item = dao.getNewsItem(entityReference);
+			items.add(item);
+			assertTrue(dao.addNewsLink(new NewsLink(person, item, context, false, false)));
+		}
+		assertEquals(1, dao.getCurrentNewsLinks(sakaiId, contextId).size());
+		
+		// moving an item to another day moves it to another group
+		NewsItem moved = items.get(2);
+		Date newTime = new Date(base - 2 * ONE_DAY);
+		NewsItem revised = new NewsItem(moved.getTitle(), newTime, labelKey, moved.getEntityReference(), context, sourceType, null);
+		assertTrue(dao.updateNewsItemTime(moved.getId(), newTime, revised.getGroupingIdentifier()));
+		List<NewsLink> links = dao.getCurrentNewsLinks(sakaiId, contextId);
+		assertEquals(3, links.size());
+		
+		assertTrue(dao.deleteNewsLinks(items.get(0).getId()));
+		assertEquals(2, dao.countCurrentNewsLinks(sakaiId, contextId));
+	}
+
+	public void testLinkTimesFollowItemTimes() {
+		assertEquals(Integer.valueOf(4), dao.getConfigProperty(DashboardConfig.PROP_SCHEMA_VERSION));
+		
+		String sakaiId = getUniqueIdentifier();
+		dao.addPerson(new Person(sakaiId, getUniqueIdentifier()));
+		Person person = dao.getPersonBySakaiId(sakaiId);
+		
+		String contextId = getUniqueIdentifier();
+		dao.addContext(new Context(contextId, getUniqueIdentifier(), getUniqueIdentifier()));
+		Context context = dao.getContext(contextId);
+		
+		String sourceTypeIdentifier = getUniqueIdentifier();
+		dao.addSourceType(new SourceType(sourceTypeIdentifier));
+		SourceType sourceType = dao.getSourceType(sourceTypeIdentifier);
+		
+		// calendar lists filter and sort on the time copied to the link
+		long now = (System.currentTimeMillis() / 1000L) * 1000L;
+		String entityReference = getUniqueIdentifier();
+		String calendarTimeLabelKey = getUniqueIdentifier();
+		dao.addCalendarItem(new CalendarItem(getUniqueIdentifier(), new Date(now + ONE_DAY),
+				calendarTimeLabelKey, entityReference, context, sourceType, null, null, null));
+		CalendarItem calendarItem = dao.getCalendarItem(entityReference, calendarTimeLabelKey, null);
+		assertTrue(dao.addCalendarLink(new CalendarLink(person, calendarItem, context, false, false)));
+		assertEquals(1, dao.countFutureCalendarLinks(sakaiId, contextId, false));
+		assertEquals(0, dao.countPastCalendarLinks(sakaiId, contextId, false));
+		
+		assertTrue(dao.updateCalendarItemTime(calendarItem.getId(), new Date(now - ONE_DAY)));
+		assertEquals(0, dao.countFutureCalendarLinks(sakaiId, contextId, false));
+		assertEquals(1, dao.countPastCalendarLinks(sakaiId, contextId, false));
+		
+		assertTrue(dao.updateCalendarItemTime(entityReference, calendarTimeLabelKey, null, new Date(now + 2 * ONE_DAY)));
+		assertEquals(1, dao.getFutureCalendarLinks(sakaiId, contextId, false).size());
+		assertEquals(0, dao.countPastCalendarLinks(sakaiId, contextId, false));
+		
+		// starred news is ordered by the time copied to the link
+		List<NewsItem> items = new ArrayList<NewsItem>();
+		for(int i = 0; i < 2; i++) {
+			String newsEntityReference = getUniqueIdentifier();
+			dao.addNewsItem(new NewsItem(getUniqueIdentifier(), new Date(now - (i + 1) * ONE_DAY),
+					getUniqueIdentifier(), newsEntityReference, context, sourceType, null));
+			NewsItem item = dao.getNewsItem(newsEntityReference);
+			items.add(item);
+			assertTrue(dao.addNewsLink(new NewsLink(person, item, context, false, true)));
+		}
+		List<NewsLink> starred = dao.getStarredNewsLinks(sakaiId, contextId);
+		assertEquals(2, starred.size());
+		assertEquals(items.get(0).getId(), starred.get(0).getNewsItem().getId());
+		
+		NewsItem older = items.get(1);
+		assertTrue(dao.updateNewsItemTime(older.getId(), new Date(now), older.getGroupingIdentifier()));
+		starred = dao.getStarredNewsLinks(sakaiId, contextId);
+		assertEquals(older.getId(), starred.get(0).getNewsItem().getId());
+	}
+
+	public void testLinkPartitionsNeedPartitionedTables() {
+		// the test database is HSQLDB, whose link tables are never partitioned
+		Date now = new Date();
+		assertEquals(0, dao.addLinkPartitions(DashboardLogic.TYPE_CALENDAR, new Date(now.getTime() + ONE_DAY * 28)));
+		assertEquals(0, dao.addLinkPartitions(DashboardLogic.TYPE_NEWS, new Date(now.getTime() + ONE_DAY * 28)));
+		assertEquals(0, dao.dropExpiredLinkPartitions(DashboardLogic.TYPE_CALENDAR, now));
+		assertEquals(0, dao.dropExpiredLinkPartitions(DashboardLogic.TYPE_NEWS, now));
+	}
+
+	public void testGetStarredLinksResolvesItems() {
+		String sakaiId = getUniqueIdentifier();
+		String userId = getUniqueIdentifier();
+		dao.addPerson(new Person(sakaiId, userId));
+		Person person = dao.getPersonBySakaiId(sakaiId);
+		assertNotNull(person);
+
+		String contextId = getUniqueIdentifier();
+		Context context = new Context(contextId, getUniqueIdentifier(), getUniqueIdentifier());
+		dao.addContext(context);
+		context = dao.getContext(contextId);
+
+		String sourceTypeIdentifier = getUniqueIdentifier();
+		dao.addSourceType(new SourceType(sourceTypeIdentifier));
+		SourceType sourceType = dao.getSourceType(sourceTypeIdentifier);
+
+		String calendarTitle = getUniqueIdentifier();
+		String calendarEntityReference = getUniqueIdentifier();
+		String calendarTimeLabelKey = getUniqueIdentifier();
+		dao.addCalendarItem(new CalendarItem(calendarTitle, new Date(System.currentTimeMillis() + ONE_DAY),
+				calendarTimeLabelKey, calendarEntityReference, context, sourceType, null, null, null));
+		CalendarItem calendarItem = dao.getCalendarItem(calendarEntityReference, calendarTimeLabelKey, null);
+		assertNotNull(calendarItem);
+		assertTrue(dao.addCalendarLink(new CalendarLink(person, calendarItem, context, false, true)));
+
+		String newsTitle = getUniqueIdentifier();
+		String newsEntityReference = getUniqueIdentifier();
+		dao.addNewsItem(new NewsItem(newsTitle, new Date(), getUniqueIdentifier(), newsEntityReference, context, sourceType, null));
+		NewsItem newsItem = dao.getNewsItem(newsEntityReference);
+		assertNotNull(newsItem);
+		assertTrue(dao.addNewsLink(new NewsLink(person, newsItem, context, true, true)));
+
+		// the list queries return only ids and flags, so check that the items were filled in
+		List<CalendarLink> calendarLinks = dao.getStarredCalendarLinks(sakaiId, contextId);
+		assertNotNull(calendarLinks);
+		assertEquals(1, calendarLinks.size());
+		CalendarLink calendarLink = calendarLinks.get(0);
+		assertTrue(calendarLink.isSticky());
+		assertFalse(calendarLink.isHidden());
+		assertEquals(sakaiId, calendarLink.getPerson().getSakaiId());
+		assertEquals(contextId, calendarLink.getContext().getContextId());
+		assertEquals(calendarItem.getId(), calendarLink.getCalendarItem().getId());
+		assertEquals(calendarTitle, calendarLink.getCalendarItem().getTitle());
+		assertEquals(calendarEntityReference, calendarLink.getCalendarItem().getEntityReference());
+		assertEquals(sourceTypeIdentifier, calendarLink.getCalendarItem().getSourceType().getIdentifier());
+		assertEquals(calendarLinks.size(), dao.getFutureCalendarLinks(sakaiId, null, false).size());
+
+		List<NewsLink> newsLinks = dao.getStarredNewsLinks(sakaiId, null);
+		assertEquals(1, newsLinks.size());
+		NewsLink newsLink = newsLinks.get(0);
+		assertTrue(newsLink.isSticky());
+		assertTrue(newsLink.isHidden());
+		assertEquals(sakaiId, newsLink.getPerson().getSakaiId());
+		assertEquals(contextId, newsLink.getContext().getContextId());
+		assertEquals(newsItem.getId(), newsLink.getNewsItem().getId());
+		assertEquals(newsTitle, newsLink.getNewsItem().getTitle());
+		assertEquals(sourceTypeIdentifier, newsLink.getNewsItem().getSourceType().getIdentifier());
+		assertEquals(1, dao.getHiddenNewsLinks(sakaiId, contextId).size());
+	}
+
+	public void testItemCachesFollowDaoWrites() {
+		Cache calendarItemCache = new Cache("dashboardDaoTestCalendarItemCache", 100, false, false, 600, 600);
+		Cache newsItemCache = new Cache("dashboardDaoTestNewsItemCache", 100, false, false, 600, 600);
+		CacheManager cacheManager = CacheManager.create();
+		cacheManager.addCache(calendarItemCache);
+		cacheManager.addCache(newsItemCache);
+		try {
+			DashboardDaoImpl cachingDao = (DashboardDaoImpl) createCachingDao(0, false);
+			cachingDao.setCalendarItemCache(calendarItemCache);
+			cachingDao.setNewsItemCache(newsItemCache);
+			
+			String sakaiId = getUniqueIdentifier();
+			dao.addPerson(new Person(sakaiId, getUniqueIdentifier()));
+			Person person = dao.getPersonBySakaiId(sakaiId);
+			
+			String contextId = getUniqueIdentifier();
+			dao.addContext(new Context(contextId, getUniqueIdentifier(), getUniqueIdentifier()));
+			Context context = dao.getContext(contextId);
+			
+			String sourceTypeIdentifier = getUniqueIdentifier();
+			dao.addSourceType(new SourceType(sourceTypeIdentifier));
+			SourceType sourceType = dao.getSourceType(sourceTypeIdentifier);
+			
+			String calendarTitle = getUniqueIdentifier();
+			String calendarEntityReference = getUniqueIdentifier();
+			String calendarTimeLabelKey = getUniqueIdentifier();
+			dao.addCalendarItem(new CalendarItem(calendarTitle, new Date(System.currentTimeMillis() + ONE_DAY),
+					calendarTimeLabelKey, calendarEntityReference, context, sourceType, null, null, null));
+			CalendarItem calendarItem = dao.getCalendarItem(calendarEntityReference, calendarTimeLabelKey, null);
+			assertTrue(dao.addCalendarLink(new CalendarLink(person, calendarItem, context, false, true)));
+			
+			String newsTitle = getUniqueIdentifier();
+			String newsEntityReference = getUniqueIdentifier();
+			dao.addNewsItem(new NewsItem(newsTitle, new Date(), getUniqueIdentifier(), newsEntityReference, context, sourceType, null));
+			NewsItem newsItem = dao.getNewsItem(newsEntityReference);
+			assertTrue(dao.addNewsLink(new NewsLink(person, newsItem, context, false, true)));
+			
+			// callers get copies, so changing an item does not change the cache
+			CalendarItem cachedCalendarItem = cachingDao.getStarredCalendarLinks(sakaiId, contextId).get(0).getCalendarItem();
+			assertEquals(calendarTitle, cachedCalendarItem.getTitle());
+			cachedCalendarItem.setTitle(getUniqueIdentifier());
+			cachedCalendarItem.getContext().setContextTitle(getUniqueIdentifier());
+			cachedCalendarItem = cachingDao.getStarredCalendarLinks(sakaiId, contextId).get(0).getCalendarItem();
+			assertEquals(calendarTitle, cachedCalendarItem.getTitle());
+			assertEquals(context.getContextTitle(), cachedCalendarItem.getContext().getContextTitle());
+			
+			NewsItem cachedNewsItem = cachingDao.getStarredNewsLinks(sakaiId, contextId).get(0).getNewsItem();
+			assertEquals(newsTitle, cachedNewsItem.getTitle());
+			cachedNewsItem.setTitle(getUniqueIdentifier());
+			assertEquals(newsTitle, cachingDao.getStarredNewsLinks(sakaiId, contextId).get(0).getNewsItem().getTitle());
+			
+			// writes through the dao drop the items they change
+			String newCalendarTitle = getUniqueIdentifier();
+			assertTrue(cachingDao.updateCalendarItemTitle(calendarItem.getId(), newCalendarTitle));
+			assertEquals(newCalendarTitle, cachingDao.getStarredCalendarLinks(sakaiId, contextId).get(0).getCalendarItem().getTitle());
+			
+			Date newTime = new Date(((System.currentTimeMillis() + 2 * ONE_DAY) / 1000L) * 1000L);
+			assertTrue(cachingDao.updateCalendarItemTime(calendarEntityReference, calendarTimeLabelKey, null, newTime));
+			assertEquals(newTime.getTime(), cachingDao.getStarredCalendarLinks(sakaiId, contextId).get(0).getCalendarItem().getCalendarTime().getTime());
+			
+			String newNewsTitle = getUniqueIdentifier();
+			assertTrue(cachingDao.updateNewsItemTitle(newsItem.getId(), newNewsTitle, newsItem.getNewsTime(), newsItem.getNewsTimeLabelKey(), newsItem.getGroupingIdentifier()));
+			assertEquals(newNewsTitle, cachingDao.getStarredNewsLinks(sakaiId, contextId).get(0).getNewsItem().getTitle());
+			
+			String newContextTitle = getUniqueIdentifier();
+			assertTrue(cachingDao.updateContextTitle(contextId, newContextTitle));
+			assertEquals(newContextTitle, cachingDao.getStarredCalendarLinks(sakaiId, contextId).get(0).getCalendarItem().getContext().getContextTitle());
+			assertEquals(newContextTitle, cachingDao.getStarredNewsLinks(sakaiId, contextId).get(0).getNewsItem().getContext().getContextTitle());
+		} finally {
+			cacheManager.removeCache(calendarItemCache.getName());
+			cacheManager.removeCache(newsItemCache.getName());
+		}
+	}
+
+	public void testListViewsShareSitesAndTypes() {
+		String sakaiId = getUniqueIdentifier();
+		dao.addPerson(new Person(sakaiId, getUniqueIdentifier()));
+		Person person = dao.getPersonBySakaiId(sakaiId);
+
+		String contextId = getUniqueIdentifier();
+		dao.addContext(new Context(contextId, getUniqueIdentifier(), getUniqueIdentifier()));
+		Context context = dao.getContext(contextId);
+
+		String sourceTypeIdentifier = getUniqueIdentifier();
+		dao.addSourceType(new SourceType(sourceTypeIdentifier));
+		SourceType sourceType = dao.getSourceType(sourceTypeIdentifier);
+
+		for(int i = 1; i <= 2; i++) {
+			String calendarEntityReference = getUniqueIdentifier();
+			String calendarTimeLabelKey = getUniqueIdentifier();
+			dao.addCalendarItem(new CalendarItem(getUniqueIdentifier(), new Date(System.currentTimeMillis() + i * ONE_DAY),
+					calendarTimeLabelKey, calendarEntityReference, context, sourceType, null, null, null));
+			CalendarItem calendarItem = dao.getCalendarItem(calendarEntityReference, calendarTimeLabelKey, null);
+			assertTrue(dao.addCalendarLink(new CalendarLink(person, calendarItem, context, false, false)));
+
+			String newsEntityReference = getUniqueIdentifier();
+			dao.addNewsItem(new NewsItem(getUniqueIdentifier(), new Date(System.currentTimeMillis() - i * ONE_DAY), 
+					getUniqueIdentifier(), newsEntityReference, context, sourceType, null));
+			assertTrue(dao.addNewsLink(new NewsLink(person, dao.getNewsItem(newsEntityReference), context, false, false)));
+		}
+
+		List<CalendarLink> calendarLinks = dao.getFutureCalendarLinks(sakaiId, contextId, false);
+		assertEquals(2, calendarLinks.size());
+		assertSame(calendarLinks.get(0).getContext(), calendarLinks.get(1).getContext());
+		assertSame(calendarLinks.get(0).getCalendarItem().getSourceType(), calendarLinks.get(1).getCalendarItem().getSourceType());
+		assertEquals(contextId, calendarLinks.get(0).getContext().getContextId());
+		assertNull(calendarLinks.get(0).getCalendarItem().getRepeatingCalendarItem());
+
+		List<NewsLink> newsLinks = dao.getCurrentNewsLinks(sakaiId, null);
+		assertEquals(2, newsLinks.size());
+		assertSame(newsLinks.get(0).getContext(), newsLinks.get(1).getContext());
+		assertSame(newsLinks.get(0).getNewsItem().getSourceType(), newsLinks.get(1).getNewsItem().getSourceType());
+		assertEquals(sourceTypeIdentifier, newsLinks.get(0).getNewsItem().getSourceType().getIdentifier());
+		assertEquals(1, newsLinks.get(0).getNewsItem().getItemCount());
+		assertEquals(sakaiId, newsLinks.get(0).getPerson().getSakaiId());
+		assertSame(newsLinks.get(0).getPerson(), newsLinks.get(1).getPerson());
+		
+		assertEquals(0, dao.getCurrentNewsLinks(getUniqueIdentifier(), null).size());
+		assertEquals(0, dao.countCurrentNewsLinks(getUniqueIdentifier(), null));
+	}
+
+	public void testDeleteLinksBefore() {
+		String sakaiId = getUniqueIdentifier();
+		String userId = getUniqueIdentifier();
+		dao.addPerson(new Person(sakaiId, userId));
+		Person person = dao.getPersonBySakaiId(sakaiId);
+		assertNotNull(person);
+		
+		String contextId = getUniqueIdentifier();
+		String contextTitle = getUniqueIdentifier();
+		String contextUrl = getUniqueIdentifier();
+		Context context = new Context(contextId, contextTitle, contextUrl );
+		dao.addContext(context);
+		context = dao.getContext(contextId);
+		
+		String sourceTypeIdentifier = getUniqueIdentifier();
+		SourceType sourceType = new SourceType(sourceTypeIdentifier);
+		dao.addSourceType(sourceType);
+		sourceType = dao.getSourceType(sourceTypeIdentifier);
+		
+		String oldReference = getUniqueIdentifier();
+		dao.addNewsItem(new NewsItem(getUniqueIdentifier(), new Date(System.currentTimeMillis() - 7 * ONE_DAY),
+				null, oldReference, context, sourceType, null));
+		NewsItem oldItem = dao.getNewsItem(oldReference);
+		assertNotNull(oldItem);
+		
+		String newReference = getUniqueIdentifier();
+		dao.addNewsItem(new NewsItem(getUniqueIdentifier(), new Date(),
+				null, newReference, context, sourceType, null));
+		NewsItem newItem = dao.getNewsItem(newReference);
+		assertNotNull(newItem);
+		
+		assertTrue(dao.addNewsLink(new NewsLink(person, oldItem, context, false, false)));
+		assertTrue(dao.addNewsLink(new NewsLink(person, newItem, context, false, false)));
+		NewsLink oldLink = dao.getNewsLink(oldItem.getId(), person.getId());
+		NewsLink newLink = dao.getNewsLink(newItem.getId(), person.getId());
+		assertNotNull(oldLink);
+		assertNotNull(newLink);
+		
+		long firstId = Math.min(oldLink.getId(), newLink.getId());
+		long lastId = Math.max(oldLink.getId(), newLink.getId()) + 1;
+		Date expireBefore = new Date(System.currentTimeMillis() - ONE_DAY);
+		
+		assertEquals(0, dao.deleteLinksBefore(DashboardLogic.TYPE_NEWS, expireBefore, false, true, firstId, lastId));
+		assertEquals(0, dao.deleteLinksBefore(DashboardLogic.TYPE_NEWS, expireBefore, false, false, lastId, lastId + 1000));
+		assertEquals(1, dao.deleteLinksBefore(DashboardLogic.TYPE_NEWS, expireBefore, false, false, firstId, lastId));
+		assertNull(dao.getNewsLink(oldItem.getId(), person.getId()));
+		assertNotNull(dao.getNewsLink(newItem.getId(), person.getId()));
+		
+		assertEquals(-1, dao.deleteLinksBefore("bogus", expireBefore, false, false, firstId, lastId));
+	}
+	
+	public void testDeleteItemsWithoutLinks() {
+		String sakaiId = getUniqueIdentifier();
+		String userId = getUniqueIdentifier();
+		dao.addPerson(new Person(sakaiId, userId));
+		Person person = dao.getPersonBySakaiId(sakaiId);
+		assertNotNull(person);
+		
+		String contextId = getUniqueIdentifier();
+		String contextTitle = getUniqueIdentifier();
+		String contextUrl = getUniqueIdentifier();
+		Context context = new Context(contextId, contextTitle, contextUrl );
+		dao.addContext(context);
+		context = dao.getContext(contextId);
+		
+		String sourceTypeIdentifier = getUniqueIdentifier();
+		SourceType sourceType = new SourceType(sourceTypeIdentifier);
+		dao.addSourceType(sourceType);
+		sourceType = dao.getSourceType(sourceTypeIdentifier);
+		
+		String oldReference = getUniqueIdentifier();
+		dao.addNewsItem(new NewsItem(getUniqueIdentifier(), new Date(System.currentTimeMillis() - 7 * ONE_DAY),
+				null, oldReference, context, sourceType, null));
+		NewsItem oldItem = dao.getNewsItem(oldReference);
+		assertNotNull(oldItem);
+		
+		String newReference = getUniqueIdentifier();
+		dao.addNewsItem(new NewsItem(getUniqueIdentifier(), new Date(),
+				null, newReference, context, sourceType, null));
+		NewsItem newItem = dao.getNewsItem(newReference);
+		assertNotNull(newItem);
+		
+		assertTrue(dao.addNewsLink(new NewsLink(person, newItem, context, false, false)));
+		
+		long firstId = Math.min(oldItem.getId(), newItem.getId());
+		long lastId = Math.max(oldItem.getId(), newItem.getId()) + 1;
+		
+		assertEquals(1, dao.deleteItemsWithoutLinks(DashboardLogic.TYPE_NEWS, firstId, lastId));
+		assertNull(dao.getNewsItem(oldReference));
+		assertNotNull(dao.getNewsItem(newReference));
+		
+		assertEquals(-1, dao.deleteItemsWithoutLinks("bogus", firstId, lastId));
+	}
+	
+	public void testGetNextLinkId() {
+		String sakaiId = getUniqueIdentifier();
+		String userId = getUniqueIdentifier();
+		dao.addPerson(new Person(sakaiId, userId));
+		Person person = dao.getPersonBySakaiId(sakaiId);
+		assertNotNull(person);
+		
+		String contextId = getUniqueIdentifier();
+		String contextTitle = getUniqueIdentifier();
+		String contextUrl = getUniqueIdentifier();
+		Context context = new Context(contextId, contextTitle, contextUrl );
+		dao.addContext(context);
+		context = dao.getContext(contextId);
+		
+		String sourceTypeIdentifier = getUniqueIdentifier();
+		SourceType sourceType = new SourceType(sourceTypeIdentifier);
+		dao.addSourceType(sourceType);
+		sourceType = dao.getSourceType(sourceTypeIdentifier);
+		
+		String oldReference = getUniqueIdentifier();
+		dao.addNewsItem(new NewsItem(getUniqueIdentifier(), new Date(System.currentTimeMillis() - 7 * ONE_DAY),
+				null, oldReference, context, sourceType, null));
+		NewsItem oldItem = dao.getNewsItem(oldReference);
+		assertNotNull(oldItem);
+		
+		String newReference = getUniqueIdentifier();
+		dao.addNewsItem(new NewsItem(getUniqueIdentifier(), new Date(),
+				null, newReference, context, sourceType, null));
+		NewsItem newItem = dao.getNewsItem(newReference);
+		assertNotNull(newItem);
+		
+		assertTrue(dao.addNewsLink(new NewsLink(person, oldItem, context, false, false)));
+		assertTrue(dao.addNewsLink(new NewsLink(person, newItem, context, false, false)));
+		NewsLink oldLink = dao.getNewsLink(oldItem.getId(), person.getId());
+		NewsLink newLink = dao.getNewsLink(newItem.getId(), person.getId());
+		assertNotNull(oldLink);
+		assertNotNull(newLink);
+		
+		long firstId = Math.min(oldLink.getId(), newLink.getId());
+		long lastId = Math.max(oldLink.getId(), newLink.getId());
+		
+		assertEquals(Long.valueOf(firstId), dao.getNextLinkId(DashboardLogic.TYPE_NEWS, firstId));
+		assertEquals(Long.valueOf(lastId), dao.getNextLinkId(DashboardLogic.TYPE_NEWS, firstId + 1));
+		assertNull(dao.getNextLinkId(DashboardLogic.TYPE_NEWS, lastId + 1));
+		assertNull(dao.getNextLinkId("bogus", 0L));
+	}
+	
+	public void testGetNextItemId() {
+		String sakaiId = getUniqueIdentifier();
+		String userId = getUniqueIdentifier();
+		dao.addPerson(new Person(sakaiId, userId));
+		Person person = dao.getPersonBySakaiId(sakaiId);
+		assertNotNull(person);
+		
+		String contextId = getUniqueIdentifier();
+		String contextTitle = getUniqueIdentifier();
+		String contextUrl = getUniqueIdentifier();
+		Context context = new Context(contextId, contextTitle, contextUrl );
+		dao.addContext(context);
+		context = dao.getContext(contextId);
+		
+		String sourceTypeIdentifier = getUniqueIdentifier();
+		SourceType sourceType = new SourceType(sourceTypeIdentifier);
+		dao.addSourceType(sourceType);
+		sourceType = dao.getSourceType(sourceTypeIdentifier);
+		
+		String oldReference = getUniqueIdentifier();
+		dao.addNewsItem(new NewsItem(getUniqueIdentifier(), new Date(System.currentTimeMillis() - 7 * ONE_DAY),
+				null, oldReference, context, sourceType, null));
+		NewsItem oldItem = dao.getNewsItem(oldReference);
+		assertNotNull(oldItem);
+		
+		String newReference = getUniqueIdentifier();
+		dao.addNewsItem(new NewsItem(getUniqueIdentifier(), new Date(),
+				null, newReference, context, sourceType, null));
+		NewsItem newItem = dao.getNewsItem(newReference);
+		assertNotNull(newItem);
+		
+		long firstId = Math.min(oldItem.getId(), newItem.getId());
+		long lastId = Math.max(oldItem.getId(), newItem.getId());
+		
+		assertEquals(Long.valueOf(firstId), dao.getNextItemId(DashboardLogic.TYPE_NEWS, firstId));
+		assertEquals(Long.valueOf(lastId), dao.getNextItemId(DashboardLogic.TYPE_NEWS, firstId + 1));
+		assertNull(dao.getNextItemId(DashboardLogic.TYPE_NEWS, lastId + 1));
+		assertNull(dao.getNextItemId("bogus", 0L));
+	}
+	
+	public void testGetConfigProperties() {
+		String propertyName = getUniqueIdentifier();
+		Map<String, Integer> before = dao.getConfigProperties();
+		assertNotNull(before);
+		assertFalse(before.containsKey(propertyName));
+
+		dao.setConfigProperty(propertyName, 17);
+		Map<String, Integer> after = dao.getConfigProperties();
+		assertNotNull(after);
+		assertEquals(Integer.valueOf(17), after.get(propertyName));
+		assertEquals(before.size() + 1, after.size());
+		
+		dao.setConfigProperty(propertyName, 19);
+		assertEquals(Integer.valueOf(19), dao.getConfigProperty(propertyName));
+		assertEquals(dao.getConfigProperty(DashboardConfig.PROP_DEFAULT_ITEMS_IN_PANEL),
+				after.get(DashboardConfig.PROP_DEFAULT_ITEMS_IN_PANEL));
+	}
+	
+	public void testAddEvents() {
+		List<EventLogEntry> entries = new ArrayList<EventLogEntry>();
+		for(int i = 0; i < 5; i++) {
+			entries.add(new EventLogEntry(new Date(), "dash.view.item", getUniqueIdentifier(), 
+					getUniqueIdentifier(), getUniqueIdentifier(), "X"));
+		}
+		assertEquals(entries.size(), dao.addEvents(entries));
+		assertEquals(0, dao.addEvents(new ArrayList<EventLogEntry>()));
+	}
+	
 	public void testAddTaskLock() {
 		// boolean addTaskLock(TaskLock taskLock)
 		boolean saved = false;
@@ -1671,6 +2731,123 @@ public class DashboardDaoTest extends AbstractTransactionalSpringContextTests {
 		assertEquals(time01.getTime(), updatedLock.getLastUpdate().getTime());
 	}
 
+	public void testInitMigratesPreviousSchema() {
+		JdbcTemplate jdbcTemplate = createDatabase();
+		// the tables as they were before schema version 1
+		jdbcTemplate.execute("create table dash_calendar_item ( id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1, INCREMENT BY 1) PRIMARY KEY, "
+				+ "calendar_time timestamp(6) not null, calendar_time_label_key varchar(40), title varchar(255) not null, "
+				+ "entity_ref varchar(255) not null, entity_type bigint not null, subtype varchar(255), context_id bigint not null, "
+				+ "repeating_event_id bigint, sequence_num integer)");
+		jdbcTemplate.execute("create index dash_calendar_time_idx on dash_calendar_item (calendar_time)");
+		jdbcTemplate.execute("create table dash_calendar_link ( id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1, INCREMENT BY 1) PRIMARY KEY, "
+				+ "person_id bigint not null, context_id bigint not null, item_id bigint not null, hidden bit default 0, "
+				+ "sticky bit default 0, unique (person_id, context_id, item_id))");
+		jdbcTemplate.execute("create index dash_calendar_link_idx on dash_calendar_link (person_id, context_id, item_id, hidden, sticky)");
+		jdbcTemplate.execute("create table dash_news_item ( id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1, INCREMENT BY 1) PRIMARY KEY, news_time timestamp(6) not null, "
+				+ "news_time_label_key varchar(40), title varchar(255) not null, entity_ref varchar(255) not null, entity_type bigint not null, subtype varchar(255), "
+				+ "context_id bigint not null, grouping_id varchar(90))");
+		jdbcTemplate.execute("create index dash_news_grouping_idx on dash_news_item (grouping_id)");
+		jdbcTemplate.execute("create table dash_news_link ( id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1, INCREMENT BY 1) PRIMARY KEY, person_id bigint not null, "
+				+ "context_id bigint not null, item_id bigint not null, hidden bit default 0, sticky bit default 0, "
+				+ "unique (person_id, context_id, item_id))");
+		jdbcTemplate.execute("create index dash_news_link_idx on dash_news_link (person_id, context_id, item_id, hidden, sticky)");
+		
+		Date calendarTime = new Date(System.currentTimeMillis() + ONE_DAY);
+		Date newsTime = new Date(System.currentTimeMillis() - ONE_DAY);
+		jdbcTemplate.update("insert into dash_calendar_item (id, calendar_time, title, entity_ref, entity_type, context_id) values (NULL, ?, 'title', 'calendar-ref', 1, 1)", 
+				new Object[]{ calendarTime });
+		jdbcTemplate.update("insert into dash_calendar_link (id, person_id, context_id, item_id) values (NULL, 1, 1, 1)");
+		jdbcTemplate.update("insert into dash_news_item (id, news_time, title, entity_ref, entity_type, context_id) values (NULL, ?, 'title', 'news-ref', 1, 1)", 
+				new Object[]{ newsTime });
+		jdbcTemplate.update("insert into dash_news_link (id, person_id, context_id, item_id) values (NULL, 1, 1, 1)");
+		
+		DashboardDaoImpl migratedDao = createDao(jdbcTemplate);
+		
+		assertEquals(Integer.valueOf(DashboardDaoImpl.SCHEMA_VERSION), migratedDao.getConfigProperty(DashboardConfig.PROP_SCHEMA_VERSION));
+		assertEquals(calendarTime.getTime(), ((Date) jdbcTemplate.queryForObject("select calendar_time from dash_calendar_link", Date.class)).getTime());
+		assertEquals(newsTime.getTime(), ((Date) jdbcTemplate.queryForObject("select news_time from dash_news_link", Date.class)).getTime());
+		assertTrue(hasIndex(jdbcTemplate, "dash_calendar_link_time_idx"));
+		assertFalse(hasIndex(jdbcTemplate, "dash_calendar_link_idx"));
+		assertTrue(hasIndex(jdbcTemplate, "dash_news_link_time_idx"));
+		assertFalse(hasIndex(jdbcTemplate, "dash_news_link_idx"));
+		assertTrue(hasIndex(jdbcTemplate, "dash_news_grouping_time_idx"));
+		assertFalse(hasIndex(jdbcTemplate, "dash_news_grouping_idx"));
+		assertTrue(hasIndex(jdbcTemplate, "dash_calendar_repeat_idx"));
+		
+		// a second startup finds nothing left to do
+		createDao(jdbcTemplate);
+		assertEquals(Integer.valueOf(DashboardDaoImpl.SCHEMA_VERSION), migratedDao.getConfigProperty(DashboardConfig.PROP_SCHEMA_VERSION));
+	}
+	
+	public void testInitRecordsSchemaVersionOnNewInstall() {
+		JdbcTemplate jdbcTemplate = createDatabase();
+		
+		DashboardDaoImpl newDao = createDao(jdbcTemplate);
+		
+		assertEquals(Integer.valueOf(DashboardDaoImpl.SCHEMA_VERSION), newDao.getConfigProperty(DashboardConfig.PROP_SCHEMA_VERSION));
+		assertTrue(hasIndex(jdbcTemplate, "dash_calendar_link_time_idx"));
+		assertTrue(hasIndex(jdbcTemplate, "dash_news_link_time_idx"));
+		assertTrue(hasIndex(jdbcTemplate, "dash_news_grouping_time_idx"));
+		assertTrue(hasIndex(jdbcTemplate, "dash_calendar_repeat_idx"));
+	}
+
+	/**
+	 * Create an empty database, separate from the test database.
+	 * @return
+	 */
+	protected JdbcTemplate createDatabase() {
+		jdbcDataSource dataSource = new jdbcDataSource();
+		dataSource.setDatabase("jdbc:hsqldb:mem:dash-" + getUniqueIdentifier());
+		dataSource.setUser("sa");
+		dataSource.setPassword("");
+		return new JdbcTemplate(dataSource);
+	}
+
+	/**
+	 * Create and initialise a dao on the given database. 
+	 * @param jdbcTemplate
+	 * @return
+	 */
+	protected DashboardDaoImpl createDao(JdbcTemplate jdbcTemplate) {
+		DashboardDaoImpl newDao = new DashboardDaoImpl();
+		newDao.setJdbcTemplate(jdbcTemplate);
+		newDao.setServerConfigurationService(new MockServerConfigurationService());
+		newDao.init();
+		return newDao;
+	}
+
+	protected boolean hasIndex(JdbcTemplate jdbcTemplate, String indexName) {
+		return jdbcTemplate.queryForInt("select count(*) from INFORMATION_SCHEMA.SYSTEM_INDEXINFO where INDEX_NAME=?", 
+				new Object[]{ indexName.toUpperCase() }) > 0;
+	}
+
+	/**
+	 * Create a second dao on the test database with a person cache of the given size. 
+	 * @param personCacheSize
+	 * @param warmup
+	 * @return
+	 */
+	protected DashboardDao createCachingDao(final int personCacheSize, final boolean warmup) {
+		DashboardDaoImpl cachingDao = new DashboardDaoImpl();
+		cachingDao.setJdbcTemplate(((DashboardDaoImpl) dao).getJdbcTemplate());
+		cachingDao.setServerConfigurationService(new MockServerConfigurationService() {
+			public int getInt(String name, int dflt) {
+				if(DashboardDaoImpl.PROP_PERSON_CACHE_SIZE.equals(name)) {
+					return personCacheSize;
+				}
+				return super.getInt(name, dflt);
+			}
+			public boolean getBoolean(String name, boolean dflt) {
+				if(DashboardDaoImpl.PROP_PERSON_CACHE_WARMUP.equals(name)) {
+					return warmup;
+				}
+				return super.getBoolean(name, dflt);
+			}
+		});
+		cachingDao.init();
+		return cachingDao;
+	}
+
 	protected String getUniqueIdentifier() {
 		return "unique-identifier-" + counter.incrementAndGet();
 	}
@@ -21,14 +21,21 @@
 
 package org.sakaiproject.dash.test;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.sakaiproject.dash.app.DashboardCommonLogic;
 import org.sakaiproject.dash.app.DashboardConfig;
 import org.sakaiproject.dash.app.SakaiProxy;
 import org.sakaiproject.dash.dao.DashboardDao;
+import org.sakaiproject.dash.entity.DashboardEntityInfo;
 import org.sakaiproject.dash.listener.EventProcessor;
 import org.sakaiproject.dash.logic.DashboardCommonLogicImpl;
 import org.sakaiproject.dash.logic.DashboardConfigImpl;
@@ -41,6 +48,9 @@ import org.sakaiproject.dash.model.Context;
 import org.sakaiproject.dash.model.NewsItem;
 import org.sakaiproject.dash.model.RepeatingCalendarItem;
 import org.sakaiproject.dash.model.SourceType;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+
 import org.springframework.test.AbstractTransactionalSpringContextTests;
 import org.springframework.transaction.PlatformTransactionManager;
 
@@ -163,6 +173,70 @@ public class DashboardLogicTest extends AbstractTransactionalSpringContextTests
 		assertNull(c2);
 	}
 
+	public void testGetEntityMappingIsCachedPerUser() {
+		final String[] currentUser = new String[1];
+		this.sakaiProxy = new SakaiProxyMock() {
+			public String getCurrentUserId() {
+				return currentUser[0];
+			}
+		};
+		final AtomicInteger fetches = new AtomicInteger(0);
+		final String openReference = "/test/entity/open";
+		TestEntityInfo entityInfo = new TestEntityInfo(fetches, openReference);
+		
+		DashboardDao dao = new DashboardDaoMock();
+		DashboardLogicImpl dashboardLogic = new DashboardLogicImpl(new MockTransactionManager());
+		dashboardLogic.setDao(dao);
+		dashboardLogic.setSakaiProxy(sakaiProxy);
+		dashboardLogic.registerEntityType(entityInfo);
+		DashboardCommonLogicImpl commonLogic = new DashboardCommonLogicImpl();
+		commonLogic.setDashboardLogic(dashboardLogic);
+		commonLogic.setSakaiProxy(sakaiProxy);
+		commonLogic.setDao(dao);
+		Cache entityCache = new Cache("dashboardLogicTestEntityCache", 100, false, false, 600, 600);
+		CacheManager cacheManager = CacheManager.create();
+		cacheManager.addCache(entityCache);
+		commonLogic.setEntityCache(entityCache);
+		try {
+			// the first user's mapping is cached for that user
+			currentUser[0] = "user-one";
+			assertEquals(Integer.valueOf(1), commonLogic.getEntityMapping(TestEntityInfo.IDENTIFIER, openReference, Locale.ENGLISH).get("fetch"));
+			assertEquals("user-one", String.valueOf(commonLogic.getEntityMapping(TestEntityInfo.IDENTIFIER, openReference, Locale.ENGLISH).get("viewer")));
+			assertEquals(1, fetches.get());
+			
+			// a second user never gets the first user's values
+			currentUser[0] = "user-two";
+			Map<String, Object> mapping = commonLogic.getEntityMapping(TestEntityInfo.IDENTIFIER, openReference, Locale.ENGLISH);
+			assertEquals(Integer.valueOf(2), mapping.get("fetch"));
+			assertEquals("user-two", String.valueOf(mapping.get("viewer")));
+			assertEquals("user-two", String.valueOf(commonLogic.getEntityMapping(TestEntityInfo.IDENTIFIER, openReference, Locale.ENGLISH).get("viewer")));
+			assertEquals(2, fetches.get());
+			
+			currentUser[0] = "user-one";
+			assertEquals("user-one", String.valueOf(commonLogic.getEntityMapping(TestEntityInfo.IDENTIFIER, openReference, Locale.ENGLISH).get("viewer")));
+			assertEquals(2, fetches.get());
+			
+			// without a current user nothing is cached
+			currentUser[0] = null;
+			commonLogic.getEntityMapping(TestEntityInfo.IDENTIFIER, openReference, Locale.ENGLISH);
+			commonLogic.getEntityMapping(TestEntityInfo.IDENTIFIER, openReference, Locale.ENGLISH);
+			assertEquals(4, fetches.get());
+			
+			// an entity that is not available yet is fetched again each time
+			currentUser[0] = "user-one";
+			commonLogic.getEntityMapping(TestEntityInfo.IDENTIFIER, "/test/entity/not-open", Locale.ENGLISH);
+			commonLogic.getEntityMapping(TestEntityInfo.IDENTIFIER, "/test/entity/not-open", Locale.ENGLISH);
+			assertEquals(6, fetches.get());
+			
+			// removing the entity clears every user's mapping
+			commonLogic.removeCachedEntityMapping(openReference);
+			commonLogic.getEntityMapping(TestEntityInfo.IDENTIFIER, openReference, Locale.ENGLISH);
+			assertEquals(7, fetches.get());
+		} finally {
+			cacheManager.removeCache(entityCache.getName());
+		}
+	}
+
 	public void testCreateNewsItem() {
 		String title;
 		Date newsTime;
@@ -313,4 +387,73 @@ public class DashboardLogicTest extends AbstractTransactionalSpringContextTests
 	}
 
 
+
+	/**
+	 * An entity type whose values record the current user and how many times the 
+	 * entity was fetched. Only the entity reference given to it is available.
+	 */
+	protected class TestEntityInfo implements DashboardEntityInfo {
+		
+		public static final String IDENTIFIER = "test-entity";
+		
+		protected AtomicInteger fetches;
+		protected String availableReference;
+		
+		public TestEntityInfo(AtomicInteger fetches, String availableReference) {
+			this.fetches = fetches;
+			this.availableReference = availableReference;
+		}
+
+		public String getIdentifier() {
+			return IDENTIFIER;
+		}
+
+		public Map<String, Object> getValues(String entityReference, String localeCode) {
+			Map<String, Object> values = new HashMap<String, Object>();
+			// not strings, so formatted-text processing leaves them alone
+			values.put("fetch", Integer.valueOf(fetches.incrementAndGet()));
+			values.put("viewer", new StringBuilder(String.valueOf(sakaiProxy.getCurrentUserId())));
+			return values;
+		}
+
+		public Map<String, String> getProperties(String entityReference, String localeCode) {
+			return new HashMap<String, String>();
+		}
+
+		public List<List<String>> getOrder(String entityReference, String localeCode) {
+			return new ArrayList<List<String>>();
+		}
+
+		public boolean isAvailable(String entityReference) {
+			return availableReference.equals(entityReference);
+		}
+
+		public String getEventDisplayString(String key, String dflt) {
+			return dflt;
+		}
+
+		public String getGroupTitle(int numberOfItems, String contextTitle, String labelKey) {
+			return null;
+		}
+
+		public boolean isUserPermitted(String sakaiUserId, String entityReference, String contextId) {
+			return true;
+		}
+
+		public Set<String> getPermittedEntities(String sakaiUserId, List<String> entityReferences, String contextId) {
+			return new HashSet<String>(entityReferences);
+		}
+
+		public String getIconUrl(String subtype) {
+			return null;
+		}
+
+		public List<String> getUsersWithAccess(String entityReference) {
+			return new ArrayList<String>();
+		}
+
+		public Map<String, List<String>> getUsersWithAccess(List<String> entityReferences) {
+			return new HashMap<String, List<String>>();
+		}
+	}
 }
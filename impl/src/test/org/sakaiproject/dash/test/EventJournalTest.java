@@ -0,0 +1,178 @@
+/********************************************************************************** 
+ * $URL$ 
+ * $Id$ 
+ *********************************************************************************** 
+ * 
+ * Copyright (c) 2011 The Sakai Foundation 
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ * http://www.osedu.org/licenses/ECL-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ * 
+ **********************************************************************************/ 
+
+package org.sakaiproject.dash.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.sakaiproject.dash.logic.EventCopy;
+import org.sakaiproject.dash.logic.EventJournal;
+import org.sakaiproject.dash.logic.EventRingBuffer;
+
+/**
+ * 
+ *
+ */
+public class EventJournalTest extends TestCase {
+
+	protected File file;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		file = File.createTempFile("dashboard-events", ".journal");
+		file.delete();
+	}
+
+	protected void tearDown() throws Exception {
+		EventJournal.getPositionFile(file).delete();
+		file.delete();
+		super.tearDown();
+	}
+
+	protected EventCopy createEvent(int i) {
+		EventCopy event = new EventCopy(new Date(), "test.event", "/test/entity/" + i, "context\tid", "user" + i, null, 'm', 3);
+		event.setQueueTime(1000L + i);
+		return event;
+	}
+
+	public void testAppendAndRead() throws IOException {
+		EventJournal journal = new EventJournal(file);
+		assertEquals(0, journal.getPendingCount());
+		assertEquals(0L, journal.getOldestPendingTime());
+		
+		for(int i = 0; i < 3; i++) {
+			assertTrue(journal.append(createEvent(i)));
+		}
+		assertEquals(3, journal.getPendingCount());
+		assertEquals(1000L, journal.getOldestPendingTime());
+		
+		List<EventCopy> events = journal.read(10);
+		assertEquals(3, events.size());
+		for(int i = 0; i < 3; i++) {
+			EventCopy event = events.get(i);
+			assertEquals("/test/entity/" + i, event.getResource());
+			assertEquals("context\tid", event.getContext());
+			assertEquals("user" + i, event.getUserId());
+			assertNull(event.getSessionId());
+			assertTrue(event.getModify());
+			assertEquals(3, event.getPriority());
+			assertEquals(1000L + i, event.getQueueTime());
+		}
+		assertEquals(0, journal.getPendingCount());
+		assertTrue(journal.read(10).isEmpty());
+		
+		// the journal is truncated once a commit finds everything has been read
+		journal.commit();
+		assertEquals(0L, file.length());
+		assertFalse(EventJournal.getPositionFile(file).exists());
+		journal.close();
+	}
+
+	public void testOverflowIntoJournal() throws IOException {
+		EventRingBuffer<EventCopy> queue = new EventRingBuffer<EventCopy>(4);
+		EventJournal journal = new EventJournal(file);
+		int spilled = 0;
+		for(int i = 0; i < 10; i++) {
+			EventCopy event = createEvent(i);
+			if(! queue.offer(event)) {
+				assertTrue(journal.append(event));
+				spilled++;
+			}
+		}
+		assertEquals(6, spilled);
+		assertEquals(6, journal.getPendingCount());
+		
+		// drain the queue, then the journal in batches
+		int next = 0;
+		EventCopy event = queue.poll();
+		while(event != null) {
+			assertEquals("/test/entity/" + next++, event.getResource());
+			event = queue.poll();
+		}
+		List<EventCopy> events = journal.read(4);
+		while(! events.isEmpty()) {
+			for(EventCopy journaled : events) {
+				assertEquals("/test/entity/" + next++, journaled.getResource());
+			}
+			journal.commit();
+			events = journal.read(4);
+		}
+		assertEquals(10, next);
+		assertEquals(0, journal.getPendingCount());
+		assertEquals(0L, file.length());
+		journal.close();
+	}
+
+	public void testReplayAfterRestart() throws IOException {
+		EventJournal journal = new EventJournal(file);
+		for(int i = 0; i < 5; i++) {
+			journal.append(createEvent(i));
+		}
+		assertEquals(2, journal.read(2).size());
+		journal.commit();
+		// this batch is read but not committed when the server stops
+		assertEquals(2, journal.read(2).size());
+		journal.close();
+		
+		EventJournal reopened = new EventJournal(file);
+		assertEquals(3, reopened.getPendingCount());
+		List<EventCopy> events = reopened.read(10);
+		assertEquals(3, events.size());
+		assertEquals("/test/entity/2", events.get(0).getResource());
+		assertEquals("/test/entity/4", events.get(2).getResource());
+		reopened.commit();
+		reopened.close();
+		
+		EventJournal drained = new EventJournal(file);
+		assertEquals(0, drained.getPendingCount());
+		assertTrue(drained.read(10).isEmpty());
+		assertTrue(drained.delete());
+		assertFalse(file.exists());
+		assertFalse(EventJournal.getPositionFile(file).exists());
+	}
+
+	public void testPositionBeyondEndIsIgnored() throws IOException {
+		EventJournal journal = new EventJournal(file);
+		journal.append(createEvent(0));
+		journal.append(createEvent(1));
+		journal.read(1);
+		journal.commit();
+		journal.close();
+		
+		// the journal was replaced, so the saved position no longer fits it
+		file.delete();
+		journal = new EventJournal(file);
+		journal.append(createEvent(2));
+		journal.close();
+		
+		EventJournal reopened = new EventJournal(file);
+		List<EventCopy> events = reopened.read(10);
+		assertEquals(1, events.size());
+		assertEquals("/test/entity/2", events.get(0).getResource());
+		reopened.close();
+	}
+
+}
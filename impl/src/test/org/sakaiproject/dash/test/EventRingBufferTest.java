@@ -0,0 +1,108 @@
+/********************************************************************************** 
+ * $URL$ 
+ * $Id$ 
+ *********************************************************************************** 
+ * 
+ * Copyright (c) 2011 The Sakai Foundation 
+ * 
+ * Licensed under the Educational Community License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ * http://www.osedu.org/licenses/ECL-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ * 
+ **********************************************************************************/ 
+
+package org.sakaiproject.dash.test;
+
+import junit.framework.TestCase;
+
+import org.sakaiproject.dash.logic.EventRingBuffer;
+
+/**
+ * 
+ *
+ */
+public class EventRingBufferTest extends TestCase {
+
+	public void testCapacityIsRoundedUp() {
+		EventRingBuffer<String> queue = new EventRingBuffer<String>(5);
+		assertEquals(8, queue.getCapacity());
+		assertTrue(queue.isEmpty());
+	}
+
+	public void testOfferAndPollInOrder() {
+		EventRingBuffer<String> queue = new EventRingBuffer<String>(4);
+		assertTrue(queue.offer("a"));
+		assertTrue(queue.offer("b"));
+		assertEquals(2, queue.size());
+		assertEquals("a", queue.peek());
+		assertEquals("a", queue.poll());
+		assertEquals("b", queue.poll());
+		assertNull(queue.poll());
+		assertNull(queue.peek());
+	}
+
+	public void testOfferFailsWhenFull() {
+		EventRingBuffer<String> queue = new EventRingBuffer<String>(4);
+		for(int i = 0; i < 4; i++) {
+			assertTrue(queue.offer("event" + i));
+		}
+		assertFalse(queue.offer("overflow"));
+		assertEquals(4, queue.size());
+		
+		// a slot released by a consumer can be reused, so the buffer wraps around
+		assertEquals("event0", queue.poll());
+		assertTrue(queue.offer("event4"));
+		for(int i = 1; i <= 4; i++) {
+			assertEquals("event" + i, queue.poll());
+		}
+		assertTrue(queue.isEmpty());
+	}
+
+	public void testClear() {
+		EventRingBuffer<String> queue = new EventRingBuffer<String>(4);
+		queue.offer("a");
+		queue.offer("b");
+		queue.clear();
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+	}
+
+	public void testConcurrentProducers() throws InterruptedException {
+		final EventRingBuffer<Integer> queue = new EventRingBuffer<Integer>(4096);
+		final int perThread = 1000;
+		Thread[] producers = new Thread[4];
+		for(int t = 0; t < producers.length; t++) {
+			final int offset = t * perThread;
+			producers[t] = new Thread() {
+				public void run() {
+					for(int i = 0; i < perThread; i++) {
+						queue.offer(Integer.valueOf(offset + i));
+					}
+				}
+			};
+			producers[t].start();
+		}
+		for(Thread producer : producers) {
+			producer.join();
+		}
+		boolean[] seen = new boolean[producers.length * perThread];
+		Integer element = queue.poll();
+		int count = 0;
+		while(element != null) {
+			assertFalse(seen[element.intValue()]);
+			seen[element.intValue()] = true;
+			count++;
+			element = queue.poll();
+		}
+		assertEquals(seen.length, count);
+	}
+
+}
@@ -0,0 +1,149 @@
+/**********************************************************************************
+ * $URL$
+ * $Id$
+ ***********************************************************************************
+ *
+ * Copyright (c) 2011 The Sakai Foundation
+ *
+ * Licensed under the Educational Community License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.osedu.org/licenses/ECL-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ **********************************************************************************/
+
+package org.sakaiproject.dash.test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.sakaiproject.authz.api.AuthzGroupService;
+import org.sakaiproject.authz.api.SecurityAdvisor;
+import org.sakaiproject.authz.api.SecurityService;
+import org.sakaiproject.dash.logic.SakaiProxyImpl;
+import org.sakaiproject.entity.api.EntityManager;
+import org.sakaiproject.entity.api.Reference;
+
+/**
+ *
+ *
+ */
+public class SakaiProxyImplTest extends TestCase {
+
+	protected static final String USER_ID = "member";
+	protected static final String PERMISSION = "asn.read";
+	protected static final String MEMBER_REALM = "/site/member-site";
+	protected static final String OTHER_REALM = "/site/other-site";
+	protected static final String MEMBER_REFERENCE = "/assignment/a/member-site/1";
+	protected static final String OTHER_REFERENCE = "/assignment/a/other-site/2";
+
+	protected LinkedList<SecurityAdvisor> advisors = new LinkedList<SecurityAdvisor>();
+	protected SakaiProxyImpl sakaiProxy;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		sakaiProxy = new SakaiProxyImpl();
+
+		// a security service whose unlock() answers from the pushed advisors
+		sakaiProxy.setSecurityService(stub(SecurityService.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				String name = method.getName();
+				if("pushAdvisor".equals(name)) {
+					advisors.addFirst((SecurityAdvisor) args[0]);
+				} else if("popAdvisor".equals(name)) {
+					return advisors.isEmpty() ? null : advisors.removeFirst();
+				} else if("hasAdvisors".equals(name)) {
+					return Boolean.valueOf(! advisors.isEmpty());
+				} else if("unlock".equals(name)) {
+					for(SecurityAdvisor advisor : advisors) {
+						if(advisor.isAllowed(USER_ID, PERMISSION, null) == SecurityAdvisor.SecurityAdvice.ALLOWED) {
+							return Boolean.TRUE;
+						}
+					}
+					return Boolean.FALSE;
+				} else if(method.getReturnType() == boolean.class) {
+					return Boolean.FALSE;
+				}
+				return null;
+			}
+		}));
+
+		// each reference belongs to the realm of its site
+		sakaiProxy.setEntityManager(stub(EntityManager.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if("newReference".equals(method.getName())) {
+					final String realm = ((String) args[0]).startsWith(MEMBER_REFERENCE) ? MEMBER_REALM : OTHER_REALM;
+					return stub(Reference.class, new InvocationHandler() {
+						public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+							if("getAuthzGroups".equals(method.getName())) {
+								return Collections.singletonList(realm);
+							}
+							return null;
+						}
+					});
+				}
+				return null;
+			}
+		}));
+
+		// the user has the permission only in the realm of the site they belong to
+		sakaiProxy.setAuthzGroupService(stub(AuthzGroupService.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if("getAuthzGroupsIsAllowed".equals(method.getName())) {
+					Set<String> allowed = new HashSet<String>();
+					if(USER_ID.equals(args[0]) && PERMISSION.equals(args[1]) && ((Collection<?>) args[2]).contains(MEMBER_REALM)) {
+						allowed.add(MEMBER_REALM);
+					}
+					return allowed;
+				}
+				return null;
+			}
+		}));
+	}
+
+	public void testGetPermittedReferences() {
+		Set<String> permitted = sakaiProxy.getPermittedReferences(USER_ID, PERMISSION, Arrays.asList(MEMBER_REFERENCE, OTHER_REFERENCE));
+		assertEquals(1, permitted.size());
+		assertTrue(permitted.contains(MEMBER_REFERENCE));
+	}
+
+	public void testGetPermittedReferencesIgnoresAdvisors() {
+		SecurityAdvisor advisor = new SecurityAdvisor() {
+			public SecurityAdvice isAllowed(String userId, String function, String reference) {
+				return SecurityAdvice.ALLOWED;
+			}
+		};
+		sakaiProxy.pushSecurityAdvisor(advisor);
+		try {
+			Set<String> permitted = sakaiProxy.getPermittedReferences(USER_ID, PERMISSION, Arrays.asList(MEMBER_REFERENCE, OTHER_REFERENCE));
+			assertEquals(1, permitted.size());
+			assertTrue(permitted.contains(MEMBER_REFERENCE));
+			assertFalse(permitted.contains(OTHER_REFERENCE));
+		} finally {
+			sakaiProxy.popSecurityAdvisor(advisor);
+		}
+		assertTrue(advisors.isEmpty());
+	}
+
+	@SuppressWarnings("unchecked")
+	protected static <T> T stub(Class<T> type, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(SakaiProxyImplTest.class.getClassLoader(), new Class<?>[]{ type }, handler);
+	}
+}
@@ -22,6 +22,7 @@
 package org.sakaiproject.dash.tool.panels;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 
@@ -767,6 +768,16 @@ public class CalendarLinksPanel extends Panel {
 		private List<CalendarLink> calendarLinks;
 		private String calendarTabId;
 		
+		// every tab except starred is read from the database one page at a time 
+		private List<CalendarLink> page;
+		private int pageFirst = -1;
+		private int pageCount = -1;
+		private Integer linkCount;
+		// where the last page ended, kept between requests so the next page can be read by key 
+		private int nextIndex = -1;
+		private Date nextAfterTime;
+		private long nextAfterId;
+		
 		public CalendarLinksDataProvider() {
 			super();
 		}
@@ -783,6 +794,9 @@ public class CalendarLinksPanel extends Panel {
 			if(this.calendarTabId == null || ! this.calendarTabId.equals(calendarTabId)) {
 				// force refresh of dataProvider
 				this.calendarLinks = null;
+				this.page = null;
+				this.linkCount = null;
+				this.nextAfterTime = null;
 			}
 			this.calendarTabId = calendarTabId;
 			
@@ -828,11 +842,86 @@ public class CalendarLinksPanel extends Panel {
 			return calendarLinks;
 		}
 		
+		private boolean isPaged() {
+			return ! TAB_ID_STARRED.equals(this.calendarTabId);
+		}
+		
+		private boolean isFuture() {
+			return TAB_ID_UPCOMING.equals(this.calendarTabId) || TAB_ID_HIDDEN.equals(this.calendarTabId);
+		}
+		
+		private boolean isHidden() {
+			return TAB_ID_HIDDEN.equals(this.calendarTabId);
+		}
+		
+		private List<CalendarLink> getPage(int first, int count) {
+			if(page == null || pageFirst != first || pageCount != count) {
+				String siteId = sakaiProxy.getCurrentSiteId();
+				String sakaiId = sakaiProxy.getCurrentUserId();
+				if(siteId == null || sakaiId == null) {
+					if(logger.isDebugEnabled()) {
+						logger.debug("CalendarLinkDataProvider.getPage() siteId:" + siteId + "  sakaiId:" + sakaiId);
+					}
+					return new ArrayList<CalendarLink>();
+				}
+				String contextId = sakaiProxy.isWorksite(siteId) ? null : siteId;
+				Date afterTime = null;
+				long afterId = 0L;
+				int offset = first;
+				if(nextAfterTime != null && first == nextIndex) {
+					afterTime = nextAfterTime;
+					afterId = nextAfterId;
+					offset = 0;
+				}
+				if(isFuture()) {
+					page = dashboardCommonLogic.getFutureCalendarLinks(sakaiId, contextId, isHidden(), afterTime, afterId, offset, count);
+				} else {
+					page = dashboardCommonLogic.getPastCalendarLinks(sakaiId, contextId, isHidden(), afterTime, afterId, offset, count);
+				}
+				if(page == null) {
+					logger.warn("Error getting calendarLinks");
+					page = new ArrayList<CalendarLink>();
+				}
+				pageFirst = first;
+				pageCount = count;
+				
+				nextAfterTime = null;
+				if(! page.isEmpty()) {
+					CalendarLink last = page.get(page.size() - 1);
+					if(last.getId() != null && last.getCalendarItem() != null && last.getCalendarItem().getCalendarTime() != null) {
+						nextIndex = first + page.size();
+						nextAfterTime = last.getCalendarItem().getCalendarTime();
+						nextAfterId = last.getId().longValue();
+					}
+				}
+			}
+			return page;
+		}
+		
 		public Iterator<CalendarLink> iterator(int first, int count){
+			if(isPaged()) {
+				return getPage(first, count).iterator();
+			}
 			return getData().subList(first, first + count).iterator();
 		}
 		
 		public int size(){
+			if(isPaged()) {
+				if(linkCount == null) {
+					String siteId = sakaiProxy.getCurrentSiteId();
+					String sakaiId = sakaiProxy.getCurrentUserId();
+					if(siteId == null || sakaiId == null) {
+						return 0;
+					}
+					String contextId = sakaiProxy.isWorksite(siteId) ? null : siteId;
+					if(isFuture()) {
+						linkCount = dashboardCommonLogic.countFutureCalendarLinks(sakaiId, contextId, isHidden());
+					} else {
+						linkCount = dashboardCommonLogic.countPastCalendarLinks(sakaiId, contextId, isHidden());
+					}
+				}
+				return linkCount.intValue();
+			}
 			return getData().size();
 		}
 		
@@ -842,6 +931,8 @@ public class CalendarLinksPanel extends Panel {
 
 		public void detach(){
 			calendarLinks = null;
+			page = null;
+			linkCount = null;
 		}
 	}
 
@@ -22,6 +22,7 @@
 package org.sakaiproject.dash.tool.panels;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 
@@ -705,6 +706,16 @@ public class NewsLinksPanel extends Panel {
 		protected List<NewsLink> newsLinks;
 		protected String newsTabId = null;
 		
+		// the current tab is read from the database one page at a time 
+		protected List<NewsLink> page;
+		protected int pageFirst = -1;
+		protected int pageCount = -1;
+		protected Integer linkCount;
+		// where the last page ended, kept between requests so the next page can be read by key 
+		protected int nextIndex = -1;
+		protected Date nextAfterTime;
+		protected long nextAfterId;
+		
 		public NewsLinksDataProvider() {
 			super();
 		}
@@ -721,6 +732,9 @@ public class NewsLinksPanel extends Panel {
 			if(this.newsTabId == null || ! this.newsTabId.equals(newsTabId)) {
 				// force refresh of dataProvider
 				this.newsLinks = null;
+				this.page = null;
+				this.linkCount = null;
+				this.nextAfterTime = null;
 			}
 			this.newsTabId = newsTabId;
 			
@@ -765,11 +779,62 @@ public class NewsLinksPanel extends Panel {
 			return newsLinks;
 		}
 		
+		private List<NewsLink> getPage(int first, int count) {
+			if(page == null || pageFirst != first || pageCount != count) {
+				String siteId = sakaiProxy.getCurrentSiteId();
+				String sakaiId = sakaiProxy.getCurrentUserId();
+				if(siteId == null || sakaiId == null) {
+					if(logger.isDebugEnabled()) {
+						logger.debug("NewsLinksDataProvider.getPage() siteId:" + siteId + "  sakaiId:" + sakaiId);
+					}
+					return new ArrayList<NewsLink>();
+				}
+				String contextId = sakaiProxy.isWorksite(siteId) ? null : siteId;
+				if(nextAfterTime != null && first == nextIndex) {
+					page = dashboardCommonLogic.getCurrentNewsLinks(sakaiId, contextId, nextAfterTime, nextAfterId, 0, count);
+				} else {
+					page = dashboardCommonLogic.getCurrentNewsLinks(sakaiId, contextId, null, 0L, first, count);
+				}
+				if(page == null) {
+					logger.warn("Error getting news items");
+					page = new ArrayList<NewsLink>();
+				}
+				pageFirst = first;
+				pageCount = count;
+				
+				// a group summary has no item id, so a page ending with one must be followed by offset
+				nextAfterTime = null;
+				if(! page.isEmpty()) {
+					NewsItem last = page.get(page.size() - 1).getNewsItem();
+					if(last != null && last.getId() != null && last.getId().longValue() > 0L && last.getNewsTime() != null) {
+						nextIndex = first + page.size();
+						nextAfterTime = last.getNewsTime();
+						nextAfterId = last.getId().longValue();
+					}
+				}
+			}
+			return page;
+		}
+		
 		public Iterator<NewsLink> iterator(int first, int count){
+			if(TAB_ID_CURRENT.equals(newsTabId)) {
+				return getPage(first, count).iterator();
+			}
 			return getData().subList(first, first + count).iterator();
 		}
 		
 		public int size(){
+			if(TAB_ID_CURRENT.equals(newsTabId)) {
+				if(linkCount == null) {
+					String siteId = sakaiProxy.getCurrentSiteId();
+					String sakaiId = sakaiProxy.getCurrentUserId();
+					if(siteId == null || sakaiId == null) {
+						return 0;
+					}
+					linkCount = dashboardCommonLogic.countCurrentNewsLinks(sakaiId, sakaiProxy.isWorksite(siteId) ? null : siteId);
+				}
+				return linkCount.intValue();
+			}
 			return getData().size();
 		}
 		
@@ -779,6 +844,8 @@ public class NewsLinksPanel extends Panel {
 
 		public void detach(){
 			newsLinks = null;
+			page = null;
+			linkCount = null;
 		}
 	}
 
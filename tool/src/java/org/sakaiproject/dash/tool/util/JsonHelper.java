@@ -21,7 +21,10 @@
 
 package org.sakaiproject.dash.tool.util;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import net.sf.json.JSONArray;
@@ -36,6 +39,7 @@ import org.sakaiproject.dash.model.NewsItem;
 import org.sakaiproject.dash.model.NewsLink;
 import org.sakaiproject.dash.util.DateUtil;
 import org.sakaiproject.util.FormattedText;
+import org.sakaiproject.util.ResourceLoader;
 
 /**
  * 
@@ -48,6 +52,26 @@ public class JsonHelper {
 	protected DashboardCommonLogic dashboardCommonLogic;
 	protected DashboardConfig dashboardConfig;
 	
+	// the current user's locale, looked up the first time an item is serialized
+	protected Locale locale;
+	
+	protected static final int MAX_CACHED_FRAGMENTS = 5000;
+	
+	/**
+	 * Least-recently-used cache of the parts of an item's JSON that cost the most to compute 
+	 * and depend only on the item and the user's locale, keyed by item type, id and locale. 
+	 * Each entry remembers the item values it was built from, so a revised item gets a new 
+	 * entry the next time it is serialized.
+	 */
+	protected static final Map<String, ItemFragment> fragmentCache = Collections.synchronizedMap(new LinkedHashMap<String, ItemFragment>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ItemFragment> eldest) {
+			return size() > MAX_CACHED_FRAGMENTS;
+		}
+	});
+	
 	public JsonHelper(DashboardCommonLogic dashboardCommonLogic, DashboardConfig dashboardConfig) {
 		this.dashboardCommonLogic = dashboardCommonLogic;
 		this.dashboardConfig = dashboardConfig;
@@ -127,16 +151,13 @@ public class JsonHelper {
 		json.element("newsTime", newsItem.getNewsTime());
 		json.element("newsTimeShortString", DateUtil.getNewsTimeString(newsItem.getNewsTime()));
 		json.element("newsTimeFullString", DateUtil.getFullDateString(newsItem.getNewsTime()));
-		json.element("label", dashboardCommonLogic.getString(newsItem.getNewsTimeLabelKey(), "", newsItem.getSourceType().getIdentifier()));
-		json.element("entityType", newsItem.getSourceType().getIdentifier());
+		ItemFragment fragment = getItemFragment("news", newsItem.getId(), newsItem.getTitle(), 
+				newsItem.getNewsTimeLabelKey(), newsItem.getSourceType().getIdentifier(), newsItem.getSubtype());
+		json.element("label", fragment.label);
+		json.element("entityType", fragment.entityType);
 		json.element("subtype", newsItem.getSubtype());
-		StringBuilder errorMessages = new StringBuilder();
-		String title = FormattedText.processFormattedText(newsItem.getTitle(), errorMessages , true, true);
-		if(errorMessages != null && errorMessages.length() > 0) {
-			logger.warn("Error(s) encountered while cleaning calendarItem title:\n" + errorMessages);
-		}
-		json.element("title", title);
-		json.element("iconUrl", dashboardCommonLogic.getEntityIconUrl(newsItem.getSourceType().getIdentifier(), newsItem.getSubtype()));
+		json.element("title", fragment.title);
+		json.element("iconUrl", fragment.iconUrl);
 		return json;
 	}
 
@@ -147,17 +168,85 @@ public class JsonHelper {
 		json.element("calendarTime", calendarItem.getCalendarTime());
 		json.element("calendarTimeShortString", DateUtil.getCalendarTimeString(calendarItem.getCalendarTime()));
 		json.element("calendarTimeFullString", DateUtil.getFullDateString(calendarItem.getCalendarTime()));
-		json.element("label", dashboardCommonLogic.getString(calendarItem.getCalendarTimeLabelKey(), "", calendarItem.getSourceType().getIdentifier()));
-		json.element("entityType", calendarItem.getSourceType().getIdentifier());
+		ItemFragment fragment = getItemFragment("calendar", calendarItem.getId(), calendarItem.getTitle(), 
+				calendarItem.getCalendarTimeLabelKey(), calendarItem.getSourceType().getIdentifier(), calendarItem.getSubtype());
+		json.element("label", fragment.label);
+		json.element("entityType", fragment.entityType);
 		json.element("subtype", calendarItem.getSubtype());
+		json.element("title", fragment.title);
+		json.element("iconUrl", fragment.iconUrl);
+		return json;
+	}
+
+	/**
+	 * Get the cleaned-up title, label and icon url for an item, from the fragment cache if 
+	 * they were computed for the same item values and locale before. Group summaries have 
+	 * no id of their own and are never cached.
+	 * @param itemType "news" or "calendar"
+	 * @param id
+	 * @param title
+	 * @param labelKey
+	 * @param entityType
+	 * @param subtype
+	 * @return
+	 */
+	protected ItemFragment getItemFragment(String itemType, Long id, String title, String labelKey, String entityType, String subtype) {
+		String key = null;
+		if(id != null && id.longValue() > 0L) {
+			if(locale == null) {
+				locale = new ResourceLoader("dash_entity").getLocale();
+			}
+			key = itemType + ":" + id + ":" + locale;
+			ItemFragment fragment = fragmentCache.get(key);
+			if(fragment != null && fragment.isFor(title, labelKey, entityType, subtype)) {
+				return fragment;
+			}
+		}
 		StringBuilder errorMessages = new StringBuilder();
-		String title = FormattedText.processFormattedText(calendarItem.getTitle(), errorMessages , true, true);
+		String cleanTitle = FormattedText.processFormattedText(title, errorMessages , true, true);
 		if(errorMessages != null && errorMessages.length() > 0) {
-			logger.warn("Error(s) encountered while cleaning calendarItem title:\n" + errorMessages);
+			logger.warn("Error(s) encountered while cleaning " + itemType + " item title:\n" + errorMessages);
+		}
+		ItemFragment fragment = new ItemFragment(title, labelKey, entityType, subtype, cleanTitle, 
+				dashboardCommonLogic.getString(labelKey, "", entityType), 
+				dashboardCommonLogic.getEntityIconUrl(entityType, subtype));
+		if(key != null) {
+			fragmentCache.put(key, fragment);
+		}
+		return fragment;
+	}
+
+	/**
+	 * The locale-dependent parts of an item's JSON, with the item values they were computed from.
+	 */
+	protected static class ItemFragment {
+		protected final String sourceTitle;
+		protected final String labelKey;
+		protected final String entityType;
+		protected final String subtype;
+		protected final String title;
+		protected final String label;
+		protected final String iconUrl;
+		
+		protected ItemFragment(String sourceTitle, String labelKey, String entityType, String subtype, 
+				String title, String label, String iconUrl) {
+			this.sourceTitle = sourceTitle;
+			this.labelKey = labelKey;
+			this.entityType = entityType;
+			this.subtype = subtype;
+			this.title = title;
+			this.label = label;
+			this.iconUrl = iconUrl;
+		}
+		
+		protected boolean isFor(String sourceTitle, String labelKey, String entityType, String subtype) {
+			return equal(this.sourceTitle, sourceTitle) && equal(this.labelKey, labelKey) 
+					&& equal(this.entityType, entityType) && equal(this.subtype, subtype);
+		}
+		
+		private static boolean equal(String a, String b) {
+			return (a == null) ? b == null : a.equals(b);
 		}
-		json.element("title", title);
-		json.element("iconUrl", dashboardCommonLogic.getEntityIconUrl(calendarItem.getSourceType().getIdentifier(), calendarItem.getSubtype()));
-		return json;
 	}
 
 }
@@ -21,85 +21,76 @@
 
 package org.sakaiproject.dash.util;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.sakaiproject.util.ResourceLoader;
 
+/**
+ * Formats item times for display. Formatters are immutable and cached per locale, the 
+ * day boundaries the strings depend on are computed once a day, and the resource 
+ * bundle is shared, so formatting an item allocates little more than the result.
+ */
 public class DateUtil {
 
 	private static final long ONE_MINUTE_IN_MILLIS = 60L * 1000L;
 	private static final long ONE_HOUR_IN_MILLIS = 60L * ONE_MINUTE_IN_MILLIS;
 	private static final long TWELVE_HOURS_IN_MILLIS = 12L * ONE_HOUR_IN_MILLIS;
-	private static final long ONE_DAY_IN_MILLIS = 24L * ONE_HOUR_IN_MILLIS;
+	
+	// ResourceLoader resolves the current user's locale on each call and caches bundles per locale
+	private static final ResourceLoader rl = new ResourceLoader("dash_entity");
+	
+	private static final ConcurrentMap<Locale, Formatters> formatters = new ConcurrentHashMap<Locale, Formatters>();
+	
+	private static volatile DayBoundaries dayBoundaries = null;
 
 	public static String getCalendarTimeString(Date date) {
 		
-		ResourceLoader rl = new ResourceLoader("dash_entity");
-
 		String timeStr = null;
 		
 		if(date == null) {
 			timeStr = rl.getString("dash.date.unknown.time");
 		} else {
-			Locale locale = rl.getLocale();
-			
-			Calendar midnightThisMorning = Calendar.getInstance(locale);
-			midnightThisMorning.set(midnightThisMorning.get(Calendar.YEAR), midnightThisMorning.get(Calendar.MONTH), midnightThisMorning.get(Calendar.DAY_OF_MONTH), 0, 0, 0);
-			
-			Calendar midnightTonight = Calendar.getInstance(locale);
-			midnightTonight.setTimeInMillis(midnightThisMorning.getTimeInMillis() + ONE_DAY_IN_MILLIS);
-			
-			Calendar yesterday = Calendar.getInstance(locale);
-			yesterday.setTimeInMillis(midnightThisMorning.getTimeInMillis() - ONE_DAY_IN_MILLIS);
-			
-			Calendar beginningOfThisYear = Calendar.getInstance(locale);
-			beginningOfThisYear.set(beginningOfThisYear.get(Calendar.YEAR), 1, 1, 0, 0, 0);
+			Formatters f = getFormatters(rl.getLocale());
+			long time = date.getTime();
+			DayBoundaries day = getDayBoundaries(System.currentTimeMillis());
 			
-			Calendar midnightTomorrow = Calendar.getInstance(locale);
-			midnightTomorrow.setTimeInMillis(midnightTonight.getTimeInMillis() + ONE_DAY_IN_MILLIS);
-			
-			Calendar beginningOfNextYear = Calendar.getInstance(locale);
-			beginningOfNextYear.set(beginningOfNextYear.get(Calendar.YEAR) + 1,1,1,0,0,0);
-			
-			if(date.before(beginningOfThisYear.getTime())) {
+			if(time < day.beginningOfThisYear) {
 				// Any posting date before the current year will be displayed with the Month abbreviation; Date Year ; HH:MM PM
 				// 	Example: OCT 30, 2015 1:00PM
-				DateFormat df = new SimpleDateFormat("MMM dd, yyyy hh:mm a", locale);
-				timeStr = df.format(date);
-			} else if(date.before(yesterday.getTime())) {
+				timeStr = f.dateYearTime.format(Instant.ofEpochMilli(time));
+			} else if(time < day.midnightYesterday) {
 				// Any posting date within the current year and before yesterday will be displayed with the Month abbreviation; Date ; HH:MM PM
 				// 	Example: OCT 30 1:00PM
-				DateFormat df = new SimpleDateFormat("MMM dd hh:mm a", locale);
-				timeStr = df.format(date);
-			} else if(date.before(midnightThisMorning.getTime())) {
+				timeStr = f.dateTime.format(Instant.ofEpochMilli(time));
+			} else if(time < day.midnightThisMorning) {
 				// Any posting date within yesterday will be displayed with Yesterday ; HH:MM PM
 				// 	Example: Yesterday 1:00PM
-				DateFormat df = new SimpleDateFormat("hh:mm a", locale);
-				timeStr = rl.getFormattedMessage("dash.date.yesterday.time", new String[]{ df.format(date) });
-			} else if(date.before(midnightTonight.getTime())) {
+				timeStr = rl.getFormattedMessage("dash.date.yesterday.time", new String[]{ f.time.format(Instant.ofEpochMilli(time)) });
+			} else if(time < day.midnightTonight) {
 				// Any posting date that equals the current date will display "Today"; HH:MM PM.
 				//	 	Example: Today 5:00 PM
-				DateFormat df = SimpleDateFormat.getTimeInstance(DateFormat.SHORT, locale);
-				timeStr = rl.getFormattedMessage("dash.date.today.time", new String[]{ df.format(date) });
-			} else if(date.before(midnightTomorrow.getTime())) {
+				timeStr = rl.getFormattedMessage("dash.date.today.time", new String[]{ f.shortTime.format(Instant.ofEpochMilli(time)) });
+			} else if(time < day.midnightTomorrow) {
 				// Any posting date that is equal to current date + 1 Day will be display "Tomorrow"; HH:MM PM
 				//	 	Example: Tomorrow 9:00 AM
-				DateFormat df = SimpleDateFormat.getTimeInstance(DateFormat.SHORT, locale);
-				timeStr = rl.getFormattedMessage("dash.date.tomorrow.time", new String[]{ df.format(date) });
-			} else if(date.before(beginningOfNextYear.getTime())) {
+				timeStr = rl.getFormattedMessage("dash.date.tomorrow.time", new String[]{ f.shortTime.format(Instant.ofEpochMilli(time)) });
+			} else if(time < day.beginningOfNextYear) {
 				// Any posting date greater than current date + 1Day will be displayed with the Month abbreviation; Date ; HH:MM PM
 				// 	Example: OCT 30 1:00PM
-				DateFormat df = new SimpleDateFormat("MMM dd hh:mm a", locale);
-				timeStr = df.format(date);
+				timeStr = f.dateTime.format(Instant.ofEpochMilli(time));
 			} else {
 				// Any posting date greater than current date + 1Day will be displayed with the Month abbreviation; Date ; HH:MM PM
 				// 	Example: OCT 30, 2015 1:00PM
-				DateFormat df = new SimpleDateFormat("MMM dd, yyyy hh:mm a", locale);
-				timeStr = df.format(date);
+				timeStr = f.dateYearTime.format(Instant.ofEpochMilli(time));
 			}
 
 		}
@@ -109,50 +100,33 @@ public class DateUtil {
 	
 	public static String getNewsTimeString(Date date) {
 
-		ResourceLoader rl = new ResourceLoader("dash_entity");
-
 		String timeStr = null;
 		if(date == null) {
 			timeStr = rl.getString("dash.date.unknown.time");
 		} else {
-			Locale locale = rl.getLocale();
-			
-			Date now = new Date();
-			long millis_since_midnight = now.getTime() % ONE_DAY_IN_MILLIS;
-			Calendar new_year = Calendar.getInstance(locale);
-			new_year.set(Calendar.MILLISECOND,0);
-			new_year.set(Calendar.SECOND,0);
-			new_year.set(Calendar.MINUTE,0);
-			new_year.set(Calendar.HOUR_OF_DAY,0);
-			new_year.set(Calendar.DAY_OF_YEAR,0);
-			Date midnightToday = new Date(now.getTime() - millis_since_midnight);
-			Date midnightYesterday = new Date(midnightToday.getTime() - ONE_DAY_IN_MILLIS);
-			Date twelveHoursAgo = new Date(System.currentTimeMillis() - TWELVE_HOURS_IN_MILLIS);
-			Date oneHourAgo = new Date(System.currentTimeMillis() - ONE_HOUR_IN_MILLIS);
+			long time = date.getTime();
+			long now = System.currentTimeMillis();
+			DayBoundaries day = getDayBoundaries(now);
 			
-			if(date.before(new_year.getTime())) {
+			if(time < day.beginningOfThisYear) {
 				// Any posting date that is for a date in a prior year will be display Month abbreviation; date year
 				// 	Example: May 30, 2011
-				// TODO: Is there a way to avoid including year and still 
-				DateFormat df = new SimpleDateFormat("MMM dd, yyyy", locale);
-				timeStr = df.format(date);
-			} else if(date.before(midnightYesterday)) {
+				timeStr = getFormatters(rl.getLocale()).dateYear.format(Instant.ofEpochMilli(time));
+			} else if(time < day.midnightYesterday) {
 				// Any posting date that is 2 Days or more before the current date will be display Month abbreviation; date
 				// 	Example: May 30
-				// TODO: Is there a way to avoid including year and still 
-				DateFormat df = new SimpleDateFormat("MMM dd", locale);
-				timeStr = df.format(date);
-			} else if(date.before(midnightToday)) {
+				timeStr = getFormatters(rl.getLocale()).date.format(Instant.ofEpochMilli(time));
+			} else if(time < day.midnightThisMorning) {
 				// Any posting date that is 1 Day before the current date will be display "Yesterday"
 				timeStr = rl.getString("dash.date.yesterday");
-			} else if(date.before(twelveHoursAgo)) {
+			} else if(time < now - TWELVE_HOURS_IN_MILLIS) {
 				// Any posting date between 12 to 24 hours before the current time will display "Today"
 				timeStr = rl.getString("dash.date.today");
-			} else if(date.before(oneHourAgo)) {
+			} else if(time < now - ONE_HOUR_IN_MILLIS) {
 				// Any posting date that is 1 to 12 hours before the current time will display "X hours ago"
 				// 	Example: 3 hours ago
-				long hours = ((now.getTime() - date.getTime()) / ONE_HOUR_IN_MILLIS) 
-					+ (((now.getTime() - date.getTime()) % ONE_HOUR_IN_MILLIS) > ONE_HOUR_IN_MILLIS/2 ? 1 : 0);
+				long hours = ((now - time) / ONE_HOUR_IN_MILLIS) 
+					+ (((now - time) % ONE_HOUR_IN_MILLIS) > ONE_HOUR_IN_MILLIS/2 ? 1 : 0);
 				if(hours <= 1) {
 					timeStr = rl.getString("dash.date.hour.ago");
 				} else {
@@ -161,8 +135,8 @@ public class DateUtil {
 			} else {
 				// Any posting date that is less than 1 hour before the current time will display "X minutes ago"
 				// 	Example: 6 minutes ago
-				long minutes = ((now.getTime() - date.getTime()) / ONE_MINUTE_IN_MILLIS) 
-					+ (((now.getTime() - date.getTime()) % ONE_MINUTE_IN_MILLIS) > ONE_MINUTE_IN_MILLIS/2 ? 1 : 0);
+				long minutes = ((now - time) / ONE_MINUTE_IN_MILLIS) 
+					+ (((now - time) % ONE_MINUTE_IN_MILLIS) > ONE_MINUTE_IN_MILLIS/2 ? 1 : 0);
 				if(minutes <= 1) {
 					timeStr = rl.getString("dash.date.minute.ago");
 				} else {
@@ -175,10 +149,80 @@ public class DateUtil {
 	}
 	
 	public static String getFullDateString(Date date) {
-		ResourceLoader rl = new ResourceLoader("dash_entity");
-		Locale locale = rl.getLocale();
-		DateFormat df = new SimpleDateFormat("MMM dd, yyyy hh:mm a", locale);
-		return df.format(date);
+		return getFormatters(rl.getLocale()).dateYearTime.format(Instant.ofEpochMilli(date.getTime()));
+	}
+	
+	protected static Formatters getFormatters(Locale locale) {
+		Formatters f = formatters.get(locale);
+		if(f == null) {
+			f = new Formatters(locale, ZoneId.systemDefault());
+			Formatters existing = formatters.putIfAbsent(locale, f);
+			if(existing != null) {
+				f = existing;
+			}
+		}
+		return f;
+	}
+	
+	/**
+	 * @param now
+	 * @return the day boundaries for the day containing now, recomputed only when the day changes.
+	 */
+	protected static DayBoundaries getDayBoundaries(long now) {
+		DayBoundaries day = dayBoundaries;
+		if(day == null || now < day.midnightThisMorning || now >= day.midnightTonight) {
+			day = new DayBoundaries(now, ZoneId.systemDefault());
+			dayBoundaries = day;
+		}
+		return day;
+	}
+	
+	/**
+	 * The formatters used for one locale. DateTimeFormatter is immutable and thread-safe.
+	 */
+	protected static class Formatters {
+		protected final DateTimeFormatter dateYearTime;
+		protected final DateTimeFormatter dateTime;
+		protected final DateTimeFormatter time;
+		protected final DateTimeFormatter shortTime;
+		protected final DateTimeFormatter dateYear;
+		protected final DateTimeFormatter date;
+		
+		protected Formatters(Locale locale, ZoneId zone) {
+			dateYearTime = DateTimeFormatter.ofPattern("MMM dd, yyyy hh:mm a", locale).withZone(zone);
+			dateTime = DateTimeFormatter.ofPattern("MMM dd hh:mm a", locale).withZone(zone);
+			time = DateTimeFormatter.ofPattern("hh:mm a", locale).withZone(zone);
+			shortTime = DateTimeFormatter.ofLocalizedTime(FormatStyle.SHORT).withLocale(locale).withZone(zone);
+			dateYear = DateTimeFormatter.ofPattern("MMM dd, yyyy", locale).withZone(zone);
+			date = DateTimeFormatter.ofPattern("MMM dd", locale).withZone(zone);
+		}
+	}
+	
+	/**
+	 * Start times, in milliseconds, of the days and years around one day in the server's time zone.
+	 */
+	protected static class DayBoundaries {
+		protected final long beginningOfThisYear;
+		protected final long midnightYesterday;
+		protected final long midnightThisMorning;
+		protected final long midnightTonight;
+		protected final long midnightTomorrow;
+		protected final long beginningOfNextYear;
+		
+		protected DayBoundaries(long now, ZoneId zone) {
+			LocalDate today = Instant.ofEpochMilli(now).atZone(zone).toLocalDate();
+			beginningOfThisYear = startOf(today.withDayOfYear(1), zone);
+			midnightYesterday = startOf(today.minusDays(1), zone);
+			midnightThisMorning = startOf(today, zone);
+			midnightTonight = startOf(today.plusDays(1), zone);
+			midnightTomorrow = startOf(today.plusDays(2), zone);
+			beginningOfNextYear = startOf(today.withDayOfYear(1).plusYears(1), zone);
+		}
+		
+		private static long startOf(LocalDate date, ZoneId zone) {
+			ZonedDateTime start = date.atStartOfDay(zone);
+			return start.toInstant().toEpochMilli();
+		}
 	}
 
 }